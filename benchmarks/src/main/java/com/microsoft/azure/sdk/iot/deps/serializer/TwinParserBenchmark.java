@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.deps.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a full twin document, as received when the device gets its twin, and serializing a reported
+ * properties update, as sent when the device reports its properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TwinParserBenchmark
+{
+    @Param({"5", "50"})
+    public int propertyCount;
+
+    private String twinJson;
+    private Map<String, Object> reportedProperties;
+
+    @Setup
+    public void setup()
+    {
+        StringBuilder desired = new StringBuilder();
+        StringBuilder reported = new StringBuilder();
+        this.reportedProperties = new HashMap<>();
+        for (int i = 0; i < this.propertyCount; i++)
+        {
+            String separator = i == 0 ? "" : ",";
+            desired.append(separator).append("\"desiredProperty").append(i).append("\":").append(i);
+            reported.append(separator).append("\"reportedProperty").append(i).append("\":\"value").append(i).append("\"");
+            this.reportedProperties.put("reportedProperty" + i, "value" + i);
+        }
+
+        this.twinJson = "{\"properties\":{"
+                + "\"desired\":{" + desired + (this.propertyCount == 0 ? "" : ",") + "\"$version\":4},"
+                + "\"reported\":{" + reported + (this.propertyCount == 0 ? "" : ",") + "\"$version\":7}}}";
+    }
+
+    @Benchmark
+    public TwinParser parseTwin()
+    {
+        TwinParser twinParser = new TwinParser();
+        twinParser.updateTwin(this.twinJson);
+        return twinParser;
+    }
+
+    @Benchmark
+    public String serializeReportedProperties()
+    {
+        return new TwinParser().updateReportedProperty(this.reportedProperties);
+    }
+}
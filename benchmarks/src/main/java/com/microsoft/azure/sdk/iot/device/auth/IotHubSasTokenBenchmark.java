@@ -0,0 +1,38 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.auth;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating and serializing a device SAS token from a device key, which is done whenever a token is renewed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IotHubSasTokenBenchmark
+{
+    private static final String HOST_NAME = "hub.azure-devices.net";
+    private static final String DEVICE_ID = "device";
+    private static final String DEVICE_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private long expiryTime;
+
+    @Setup
+    public void setup()
+    {
+        this.expiryTime = System.currentTimeMillis() / 1000 + 3600;
+    }
+
+    @Benchmark
+    public String generateToken()
+    {
+        return new IotHubSasToken(HOST_NAME, DEVICE_ID, DEVICE_KEY, null, null, this.expiryTime).toString();
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.BufferOverflowException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of an IoT Hub message into a proton message and its encoding, which is done for every
+ * message sent over AMQP. The sender link belongs to a local proton connection that is never opened, so no
+ * network access is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AmqpsSenderLinkHandlerBenchmark
+{
+    private static final String CONNECTION_STRING = "HostName=hub.azure-devices.net;DeviceId=device;SharedAccessKey=AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @Param({"16", "1024", "65536"})
+    public int bodySize;
+
+    @Param({"0", "10"})
+    public int propertyCount;
+
+    private AmqpsTelemetrySenderLinkHandler telemetrySenderLinkHandler;
+    private Message message;
+    private byte[] encodeBuffer;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        DeviceClientConfig config = new DeviceClientConfig(new IotHubConnectionString(CONNECTION_STRING));
+        Sender sender = Proton.connection().session().sender("benchmark");
+        this.telemetrySenderLinkHandler = new AmqpsTelemetrySenderLinkHandler(sender, new NoOpLinkStateCallback(), config, "benchmark");
+
+        this.message = new Message(new byte[this.bodySize]);
+        this.message.setMessageId("6f4b2bb4-b0ee-4d79-8c63-3bd4b2c4b3b5");
+        this.message.setCorrelationId("1b25cc68-eb5f-45d6-8d3b-8e34b26f0e07");
+        this.message.setContentType("application/json");
+        this.message.setContentEncoding("utf-8");
+        for (int i = 0; i < this.propertyCount; i++)
+        {
+            this.message.setProperty("property" + i, "value" + i);
+        }
+
+        this.encodeBuffer = new byte[1024];
+    }
+
+    @Benchmark
+    public MessageImpl convert()
+    {
+        return this.telemetrySenderLinkHandler.iotHubMessageToProtonMessage(this.message);
+    }
+
+    @Benchmark
+    public int convertAndEncode()
+    {
+        MessageImpl protonMessage = this.telemetrySenderLinkHandler.iotHubMessageToProtonMessage(this.message);
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(this.encodeBuffer, 0, this.encodeBuffer.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                this.encodeBuffer = new byte[this.encodeBuffer.length * 2];
+            }
+        }
+    }
+
+    private static class NoOpLinkStateCallback implements AmqpsLinkStateCallback
+    {
+        @Override
+        public void onLinkOpened(BaseHandler linkHandler)
+        {
+        }
+
+        @Override
+        public void onMessageAcknowledged(Message message, int deliveryTag, DeliveryState deliveryState)
+        {
+        }
+
+        @Override
+        public void onMessageReceived(IotHubTransportMessage message)
+        {
+        }
+
+        @Override
+        public void onLinkClosedUnexpectedly(ErrorCondition errorCondition)
+        {
+        }
+    }
+}
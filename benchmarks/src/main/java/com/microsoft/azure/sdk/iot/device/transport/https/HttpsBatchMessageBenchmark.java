@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a batch of telemetry messages to be sent in a single HTTPS request, one message at a time as
+ * the HTTPS transport does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpsBatchMessageBenchmark
+{
+    @Param({"10", "100", "500"})
+    public int messageCount;
+
+    private HttpsSingleMessage[] messages;
+
+    @Setup
+    public void setup()
+    {
+        this.messages = new HttpsSingleMessage[this.messageCount];
+        for (int i = 0; i < this.messageCount; i++)
+        {
+            Message message = new Message(new byte[64]);
+            message.setProperty("index", String.valueOf(i));
+            this.messages[i] = HttpsSingleMessage.parseHttpsMessage(message);
+        }
+    }
+
+    @Benchmark
+    public byte[] addMessages() throws IotHubSizeExceededException
+    {
+        HttpsBatchMessage batchMessage = new HttpsBatchMessage();
+        for (HttpsSingleMessage message : this.messages)
+        {
+            batchMessage.addMessage(message);
+        }
+
+        return batchMessage.getBody();
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.net.ssl.SSLContext;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the publish topic of outgoing telemetry and parsing the topic of incoming cloud to device messages.
+ * The paho client is replaced by one that pretends to be connected and drops every published message, so no network
+ * access is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MqttMessagingBenchmark
+{
+    private static final String SERVER_URI = "ssl://hub.azure-devices.net:8883";
+    private static final String DEVICE_ID = "device";
+
+    @Param({"0", "10"})
+    public int propertyCount;
+
+    private MqttMessaging mqttMessaging;
+    private Message message;
+    private Method constructMessage;
+    private byte[] receivedPayload;
+    private String receivedTopic;
+    private IMqttDeliveryToken deliveryToken;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        MqttConnection mqttConnection = new MqttConnection(SERVER_URI, DEVICE_ID, "hub.azure-devices.net/" + DEVICE_ID, "password", SSLContext.getDefault(), null);
+        mqttConnection.setMqttAsyncClient(new DroppingMqttAsyncClient());
+
+        Map<Integer, Message> unacknowledgedSentMessages = new ConcurrentHashMap<>();
+        this.mqttMessaging = new MqttMessaging(mqttConnection, DEVICE_ID, new NoOpIotHubListener(), null, "benchmark", null, false, unacknowledgedSentMessages);
+
+        this.message = new Message(new byte[256]);
+        this.message.setMessageId("6f4b2bb4-b0ee-4d79-8c63-3bd4b2c4b3b5");
+        this.message.setCorrelationId("1b25cc68-eb5f-45d6-8d3b-8e34b26f0e07");
+        this.message.setContentType("application/json");
+        this.message.setContentEncoding("utf-8");
+
+        StringBuilder receivedTopicBuilder = new StringBuilder("devices/" + DEVICE_ID + "/messages/devicebound/%24.mid=6f4b2bb4-b0ee-4d79-8c63-3bd4b2c4b3b5&%24.cid=1b25cc68-eb5f-45d6-8d3b-8e34b26f0e07&%24.to=%2Fdevices%2F" + DEVICE_ID + "%2Fmessages%2FdeviceBound");
+        for (int i = 0; i < this.propertyCount; i++)
+        {
+            this.message.setProperty("property" + i, "value " + i);
+            receivedTopicBuilder.append("&property").append(i).append("=value%20").append(i);
+        }
+
+        this.receivedTopic = receivedTopicBuilder.toString();
+        this.receivedPayload = new byte[256];
+        this.deliveryToken = new MqttDeliveryToken(DEVICE_ID);
+
+        // The inbound parsing is private to Mqtt, and is normally only reached from the paho callback thread
+        this.constructMessage = Mqtt.class.getDeclaredMethod("constructMessage", byte[].class, String.class);
+        this.constructMessage.setAccessible(true);
+    }
+
+    @Benchmark
+    public void send() throws Exception
+    {
+        this.mqttMessaging.send(this.message);
+
+        // Acknowledge the message right away so that its in flight permit is returned before the next send
+        this.mqttMessaging.deliveryComplete(this.deliveryToken);
+    }
+
+    @Benchmark
+    public void constructMessage(Blackhole blackhole) throws Exception
+    {
+        blackhole.consume(this.constructMessage.invoke(this.mqttMessaging, this.receivedPayload, this.receivedTopic));
+    }
+
+    private static class DroppingMqttAsyncClient extends MqttAsyncClient
+    {
+        DroppingMqttAsyncClient() throws MqttException
+        {
+            super(SERVER_URI, DEVICE_ID, new MemoryPersistence());
+        }
+
+        @Override
+        public boolean isConnected()
+        {
+            return true;
+        }
+
+        @Override
+        public IMqttDeliveryToken publish(String topic, MqttMessage message)
+        {
+            // Every token has message id 0, so the map of unacknowledged messages never grows past one entry
+            return new MqttDeliveryToken(DEVICE_ID);
+        }
+    }
+
+    private static class NoOpIotHubListener implements IotHubListener
+    {
+        @Override
+        public void onMessageSent(Message message, Throwable e)
+        {
+        }
+
+        @Override
+        public void onMessageReceived(IotHubTransportMessage transportMessage, Throwable e)
+        {
+        }
+
+        @Override
+        public void onConnectionLost(Throwable e, String connectionId)
+        {
+        }
+
+        @Override
+        public void onConnectionEstablished(String connectionId)
+        {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding the properties in the topic of a received message with {@link MqttTopicDecoder} against the way
+ * Mqtt used to decode them, by splitting the topic on '&' and each property twice on '=' and decoding every key and
+ * value with URLDecoder. Run it with {@code -prof gc} to compare the bytes allocated per message, reported as
+ * gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MqttTopicDecoderBenchmark
+{
+    private static final String DEVICE_ID = "device";
+
+    @Param({"0", "10"})
+    public int propertyCount;
+
+    private String topic;
+    private int propertiesStart;
+
+    @Setup
+    public void setup()
+    {
+        StringBuilder topicBuilder = new StringBuilder("devices/" + DEVICE_ID + "/modules/module/inputs/input/%24.mid=6f4b2bb4-b0ee-4d79-8c63-3bd4b2c4b3b5&%24.cid=1b25cc68-eb5f-45d6-8d3b-8e34b26f0e07&%24.to=%2Fdevices%2F" + DEVICE_ID + "%2Fmodules%2Fmodule%2Finputs%2Finput&%24.ct=application%2Fjson&%24.ce=utf-8");
+        for (int i = 0; i < this.propertyCount; i++)
+        {
+            topicBuilder.append("&property").append(i).append("=value%20").append(i);
+        }
+
+        this.topic = topicBuilder.toString();
+        this.propertiesStart = this.topic.indexOf("%24");
+    }
+
+    @Benchmark
+    public Message decode()
+    {
+        Message message = new Message(new byte[0]);
+        MqttTopicDecoder.decodeProperties(this.topic, this.propertiesStart, message);
+        message.setConnectionModuleId(MqttTopicDecoder.getSegment(this.topic, 3));
+        message.setInputName(MqttTopicDecoder.getSegment(this.topic, 5));
+        return message;
+    }
+
+    @Benchmark
+    public Message decodeWithSplitAndUrlDecoder() throws UnsupportedEncodingException
+    {
+        Message message = new Message(new byte[0]);
+        for (String propertyString : this.topic.substring(this.propertiesStart).split("&"))
+        {
+            String key = URLDecoder.decode(propertyString.split("=")[0], StandardCharsets.UTF_8.name());
+            String value = URLDecoder.decode(propertyString.split("=")[1], StandardCharsets.UTF_8.name());
+            switch (key)
+            {
+                case Mqtt.TO:
+                    break;
+                case Mqtt.MESSAGE_ID:
+                    message.setMessageId(value);
+                    break;
+                case Mqtt.CORRELATION_ID:
+                    message.setCorrelationId(value);
+                    break;
+                case Mqtt.CONTENT_ENCODING:
+                    message.setContentEncoding(value);
+                    break;
+                case Mqtt.CONTENT_TYPE:
+                    message.setContentType(value);
+                    break;
+                default:
+                    message.setProperty(key, value);
+            }
+        }
+
+        String[] routeComponents = this.topic.substring(0, this.propertiesStart).split("/");
+        message.setConnectionModuleId(routeComponents[3]);
+        message.setInputName(routeComponents[5]);
+        return message;
+    }
+}
@@ -7,6 +7,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 
 public class ExportImportDeviceParser
@@ -46,6 +47,11 @@ public class ExportImportDeviceParser
     @SerializedName(TAGS_NAME)
     private TwinCollection tags;
 
+    private static final String CAPABILITIES_NAME = "capabilities";
+    @Expose(serialize = true, deserialize = true)
+    @SerializedName(CAPABILITIES_NAME)
+    private DeviceCapabilities capabilities;
+
     private transient static Gson gson = new Gson();
 
     /**
@@ -109,6 +115,7 @@ public class ExportImportDeviceParser
         this.statusReason = deviceParser.statusReason;
         this.status = deviceParser.status;
         this.tags = deviceParser.tags;
+        this.capabilities = deviceParser.capabilities;
     }
 
     /**
@@ -297,4 +304,20 @@ public class ExportImportDeviceParser
 	public void setTags(TwinCollection tags) {
 		this.tags = tags;
 	}
+
+    /**
+     * @return the capabilities of the device, such as whether it is an IoT Edge device
+     */
+    public DeviceCapabilities getCapabilities()
+    {
+        return capabilities;
+    }
+
+    /**
+     * @param capabilities the capabilities of the device to set
+     */
+    public void setCapabilities(DeviceCapabilities capabilities)
+    {
+        this.capabilities = capabilities;
+    }
 }
@@ -4,6 +4,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.*;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 
 import org.junit.Test;
@@ -303,6 +304,27 @@ public class ExportImportDeviceParserTest
         assertTrue(serializedDevice.contains("\"tags\":{"));
     }    
 
+    @Test
+    public void capabilitiesRoundTripThroughJson()
+    {
+        // arrange
+        ExportImportDeviceParser parser = new ExportImportDeviceParser();
+        parser.setId("edgeDevice");
+        parser.setAuthentication(new AuthenticationParser());
+        parser.getAuthenticationFinal().setType(AuthenticationTypeParser.CERTIFICATE_AUTHORITY);
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        capabilities.setIotEdge(true);
+        parser.setCapabilities(capabilities);
+
+        // act
+        String serializedDevice = parser.toJson();
+        ExportImportDeviceParser deserializedParser = new ExportImportDeviceParser(serializedDevice);
+
+        // assert
+        assertTrue(serializedDevice.contains("\"capabilities\":{\"iotEdge\":true}"));
+        assertTrue(deserializedParser.getCapabilities().isIotEdge());
+    }
+
     //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_34_023: [This method shall set the value of this object's AuthenticationParser equal to the provided value.]
     //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_34_012: [This method shall return the value of this object's AuthenticationParser.]
     //Tests_SRS_EXPORTIMPORTDEVICE_PARSER_34_022: [This method shall set the value of this object's Id equal to the provided value.]
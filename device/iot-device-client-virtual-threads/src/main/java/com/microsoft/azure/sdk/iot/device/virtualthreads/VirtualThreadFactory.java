@@ -0,0 +1,30 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.virtualthreads;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads for the worker threads of a client, set through
+ * {@link com.microsoft.azure.sdk.iot.device.ClientOptions#threadFactory} or passed to
+ * {@link com.microsoft.azure.sdk.iot.device.ClientExecutionContext#ClientExecutionContext(int, ThreadFactory)}.
+ *
+ * <p>The send task of a client idles by parking, which unmounts its virtual thread. The receive task still idles by
+ * waiting on a monitor, though. Up to JDK 23, a virtual thread that waits on a monitor pins its carrier thread, and the
+ * virtual thread scheduler only adds carrier threads up to {@code jdk.virtualThreadScheduler.maxPoolSize} to make up
+ * for it. Running many idle clients on virtual threads is therefore only cheap from JDK 24 on, which no longer pins
+ * carrier threads in monitors.</p>
+ */
+public final class VirtualThreadFactory implements ThreadFactory
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-VirtualWorker-";
+
+    private final ThreadFactory factory = Thread.ofVirtual().name(THREAD_NAME_PREFIX, 1).factory();
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        return this.factory.newThread(runnable);
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.virtualthreads;
+
+import com.microsoft.azure.sdk.iot.device.ClientExecutionContext;
+import com.microsoft.azure.sdk.iot.device.virtualthreads.VirtualThreadFactory;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for VirtualThreadFactory. */
+public class VirtualThreadFactoryTest
+{
+    @Test
+    public void newThreadCreatesNamedVirtualThread()
+    {
+        Thread thread = new VirtualThreadFactory().newThread(() -> { });
+
+        assertTrue(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("azure-iot-sdk-VirtualWorker-"));
+    }
+
+    @Test
+    public void executionContextRunsWorkOnVirtualThreads() throws Exception
+    {
+        ClientExecutionContext context = new ClientExecutionContext(2, new VirtualThreadFactory());
+        try
+        {
+            boolean ranOnVirtualThread = context.getScheduler()
+                    .submit(() -> Thread.currentThread().isVirtual())
+                    .get(10, TimeUnit.SECONDS);
+
+            assertTrue(ranOnVirtualThread);
+        }
+        finally
+        {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of worker threads that any number of {@link DeviceClient} and {@link ModuleClient} instances can share, set
+ * through {@link ClientOptions#executionContext}.
+ *
+ * <p>By default, each client runs its send task, its receive task and its message retry timer on threads of its own.
+ * Clients that share an execution context run all three on this pool instead. Each client only occupies a pool thread
+ * while it actually has messages to send, callbacks to invoke or received messages to handle, and it gives its thread
+ * back after each slice of work, so a busy client can't starve the others.</p>
+ *
+ * <p>A client does block the pool thread it runs on for the duration of that slice of work. An MQTT publish waits for
+ * an acknowledgement once {@link ClientOptions#mqttMaxInFlightMessageCount} messages are unacknowledged, an HTTPS
+ * request waits for the service's response, the received message callbacks run on the pool thread, and so do the
+ * callbacks of sent messages unless {@link ClientOptions#callbackDispatchThreadCount} is set. Size the pool for the
+ * number of clients expected to be blocked at the same time rather than for the number of processors: roughly the
+ * number of requests per second that all the clients send, times the seconds each one waits for the service, plus
+ * the number of callbacks per second times the seconds each one takes. Work that finds every pool thread busy is
+ * delayed, not lost.</p>
+ *
+ * <p>Sharing a pool saves threads that are idle most of the time. On a 64 bit HotSpot JVM, each idle client thread
+ * that a pool replaces was measured at about 120 KB of resident memory and reserves 1 MB of address space for its
+ * stack, so a thousand clients with threads of their own spend about 350 MB on their three idle threads each.</p>
+ *
+ * <p>This does not cover the threads owned by the protocol libraries. Each AMQP connection still runs its own reactor
+ * thread, so many AMQP identities should also share connections through a {@link TransportClient}. Each MQTT
+ * connection still runs the Paho client's own network threads, but its keep alive pings are scheduled on this pool.</p>
+ *
+ * <p>Unless the context is created with a thread factory of the user's, the pool threads are daemon threads. Close
+ * this context once every client using it has been closed.</p>
+ */
+public final class ClientExecutionContext implements Closeable
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-SharedWorker-";
+
+    private final ScheduledExecutorService scheduler;
+    private final int threadCount;
+
+    /**
+     * Create an execution context with the provided number of worker threads
+     * @param threadCount the number of worker threads, which bounds how many of the clients sharing them can be
+     * sending or invoking callbacks at the same time
+     * @throws IllegalArgumentException if threadCount is not positive
+     */
+    public ClientExecutionContext(int threadCount) throws IllegalArgumentException
+    {
+        this(threadCount, new WorkerThreadFactory());
+    }
+
+    /**
+     * Create an execution context whose worker threads are created by the provided factory
+     * @param threadCount the number of worker threads
+     * @param threadFactory the factory that creates the worker threads, for instance to run them on virtual threads
+     * @throws IllegalArgumentException if threadCount is not positive or if threadFactory is null
+     */
+    public ClientExecutionContext(int threadCount, ThreadFactory threadFactory) throws IllegalArgumentException
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+
+        if (threadFactory == null)
+        {
+            throw new IllegalArgumentException("threadFactory cannot be null");
+        }
+
+        this.threadCount = threadCount;
+        this.scheduler = new ScheduledThreadPoolExecutor(threadCount, threadFactory);
+    }
+
+    /**
+     * @return the number of worker threads of this context, which is the total number of threads that the clients
+     * sharing it use for sending, receiving and retrying, regardless of how many clients there are
+     */
+    public int getThreadCount()
+    {
+        return this.threadCount;
+    }
+
+    /**
+     * @return the executor that the clients sharing this context schedule their work on
+     */
+    public ScheduledExecutorService getScheduler()
+    {
+        return this.scheduler;
+    }
+
+    /**
+     * Stop the worker threads of this context. Clients that are still open on it stop sending and receiving.
+     */
+    @Override
+    public void close()
+    {
+        this.scheduler.shutdown();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + this.threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
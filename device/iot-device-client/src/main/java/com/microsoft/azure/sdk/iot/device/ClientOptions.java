@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import javax.net.ssl.SSLContext;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Options that allow configuration of the device client instance during initialization.
@@ -31,4 +32,103 @@ public final class ClientOptions
     @Setter
     @Getter
     public SSLContext sslContext;
+
+    /**
+     * The maximum number of outgoing messages that may be queued at once, counting every message from the moment
+     * sendEventAsync accepts it until its callback has been invoked. Once it is reached, new messages are handled
+     * according to {@link #messageQueueOverflowPolicy}. 0, the default, means that the number of messages is not limited.
+     */
+    @Setter
+    @Getter
+    public int messageQueueCapacity;
+
+    /**
+     * The maximum total size, in bytes, of the bodies of the outgoing messages that may be queued at once. Counted
+     * the same way as {@link #messageQueueCapacity}. 0, the default, means that the total size is not limited.
+     */
+    @Setter
+    @Getter
+    public long messageQueueCapacityInBytes;
+
+    /**
+     * What to do with a new outgoing message when the message queue is at capacity. Defaults to
+     * {@link MessageQueueOverflowPolicy#REJECT}. Has no effect unless {@link #messageQueueCapacity} or
+     * {@link #messageQueueCapacityInBytes} is set.
+     */
+    @Setter
+    @Getter
+    public MessageQueueOverflowPolicy messageQueueOverflowPolicy;
+
+    /**
+     * How long, in milliseconds, sendEventAsync may block waiting for room in the message queue when the overflow
+     * policy is {@link MessageQueueOverflowPolicy#BLOCK}. 0, the default, means 60 seconds.
+     */
+    @Setter
+    @Getter
+    public long messageQueueBlockTimeoutMillis;
+
+    /**
+     * The worker threads, shared with other clients, that run this client's send task, receive task and message
+     * retries, and its MQTT keep alive pings. By default, each client has threads of its own for these. The threads
+     * of {@link #callbackDispatchThreadCount} are not taken from this pool.
+     */
+    @Setter
+    @Getter
+    public ClientExecutionContext executionContext;
+
+    /**
+     * The factory that creates the threads of {@link #callbackDispatchThreadCount} and, unless
+     * {@link #executionContext} is set, the threads that run this client's send task, receive task and message
+     * retries, for instance to run them on virtual threads. By default, the latter come from
+     * {@link java.util.concurrent.Executors#defaultThreadFactory()} and the callback dispatch threads are daemon
+     * threads. The threads of the AMQP and MQTT libraries are never created by this factory.
+     */
+    @Setter
+    @Getter
+    public ThreadFactory threadFactory;
+
+    /**
+     * The number of threads dedicated to invoking the callbacks of sent messages. 0, the default, means that the
+     * callbacks are invoked on the send thread between batches of messages, so a slow callback delays sending. These
+     * threads belong to this client even if {@link #executionContext} is set, and are created by
+     * {@link #threadFactory} if it is set.
+     */
+    @Setter
+    @Getter
+    public int callbackDispatchThreadCount;
+
+    /**
+     * The maximum number of callbacks that may wait for a thread when {@link #callbackDispatchThreadCount} is set. Once
+     * it is reached, the send thread waits for room. 0, the default, means 1000.
+     */
+    @Setter
+    @Getter
+    public int callbackDispatchQueueCapacity;
+
+    /**
+     * Whether the callbacks of each device must run one at a time, in the order in which its messages completed, when
+     * {@link #callbackDispatchThreadCount} is set. Callbacks of different devices still run in parallel. Defaults to
+     * false, in which case callbacks may run in any order.
+     */
+    @Setter
+    @Getter
+    public boolean callbackDispatchOrderedPerDevice;
+
+    /**
+     * Generates the message ids of the outgoing messages that do not have one set when they are sent, for instance a
+     * {@link SequentialMessageIdGenerator}. By default, such messages get a random UUID as their message id.
+     */
+    @Setter
+    @Getter
+    public MessageIdGenerator messageIdGenerator;
+
+    /**
+     * The maximum number of messages that an MQTT client may have published and not yet had acknowledged by the
+     * service. Once it is reached, the send thread waits for an acknowledgement before publishing the next message.
+     * Must not exceed the number of unacknowledged messages that the service accepts from one connection. 0, the
+     * default, means 10. Ignored by the other protocols.
+     */
+    @Setter
+    @Getter
+    public int mqttMaxInFlightMessageCount;
 }
@@ -20,6 +20,7 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Configuration settings for an IoT Hub client. Validates all user-defined
@@ -39,6 +40,13 @@ public final class DeviceClientConfig
 
     private static final long DEFAULT_OPERATION_TIMEOUT = 4 * 60 * 1000; //4 minutes
 
+    private static final long DEFAULT_MESSAGE_QUEUE_BLOCK_TIMEOUT_MILLIS = 60 * 1000;
+    private static final int DEFAULT_CALLBACK_DISPATCH_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT = 10;
+
+    // MQTT packet ids are 16 bit, so no more messages than this can be in flight on one connection
+    private static final int MAX_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT = 65535;
+
     private boolean useWebsocket;
     private ProxySettings proxySettings;
 
@@ -63,6 +71,56 @@ public final class DeviceClientConfig
     @Setter
     private int amqpOpenDeviceSessionsTimeout = DEFAULT_AMQP_OPEN_DEVICE_SESSIONS_TIMEOUT_IN_SECONDS;
 
+    // 0 means that the outgoing message queue is not limited by number of messages
+    @Getter
+    @Setter
+    private int messageQueueCapacity = 0;
+
+    // 0 means that the outgoing message queue is not limited by total message size
+    @Getter
+    @Setter
+    private long messageQueueCapacityInBytes = 0;
+
+    @Getter
+    @Setter
+    private MessageQueueOverflowPolicy messageQueueOverflowPolicy = MessageQueueOverflowPolicy.REJECT;
+
+    @Getter
+    @Setter
+    private long messageQueueBlockTimeoutMillis = DEFAULT_MESSAGE_QUEUE_BLOCK_TIMEOUT_MILLIS;
+
+    // Null unless this client shares its worker threads with other clients
+    @Getter
+    @Setter
+    private ClientExecutionContext executionContext;
+
+    // Null unless the user provided the factory for this client's worker threads
+    @Getter
+    @Setter
+    private ThreadFactory threadFactory;
+
+    // 0 means that the callbacks of sent messages are invoked on the send thread
+    @Getter
+    @Setter
+    private int callbackDispatchThreadCount = 0;
+
+    @Getter
+    @Setter
+    private int callbackDispatchQueueCapacity = DEFAULT_CALLBACK_DISPATCH_QUEUE_CAPACITY;
+
+    @Getter
+    @Setter
+    private boolean callbackDispatchOrderedPerDevice;
+
+    // Null unless the user provided a generator for the ids of outgoing messages
+    @Getter
+    @Setter
+    private MessageIdGenerator messageIdGenerator;
+
+    @Getter
+    @Setter
+    private int mqttMaxInFlightMessageCount = DEFAULT_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT;
+
     private IotHubAuthenticationProvider authenticationProvider;
 
     /**
@@ -181,6 +239,76 @@ public final class DeviceClientConfig
         }
     }
 
+    /**
+     * Saves the outgoing message queue limits of the provided client options, leaving the defaults in place for any
+     * option that was not set
+     * @param clientOptions the client options to take the message queue limits from
+     * @throws IllegalArgumentException if any of the limits is negative
+     */
+    void setMessageQueueOptions(ClientOptions clientOptions) throws IllegalArgumentException
+    {
+        if (clientOptions.getMessageQueueCapacity() < 0
+                || clientOptions.getMessageQueueCapacityInBytes() < 0
+                || clientOptions.getMessageQueueBlockTimeoutMillis() < 0)
+        {
+            throw new IllegalArgumentException("Message queue capacities and block timeout cannot be negative");
+        }
+
+        this.messageQueueCapacity = clientOptions.getMessageQueueCapacity();
+        this.messageQueueCapacityInBytes = clientOptions.getMessageQueueCapacityInBytes();
+
+        if (clientOptions.getMessageQueueOverflowPolicy() != null)
+        {
+            this.messageQueueOverflowPolicy = clientOptions.getMessageQueueOverflowPolicy();
+        }
+
+        if (clientOptions.getMessageQueueBlockTimeoutMillis() > 0)
+        {
+            this.messageQueueBlockTimeoutMillis = clientOptions.getMessageQueueBlockTimeoutMillis();
+        }
+    }
+
+    /**
+     * Saves the callback dispatch options of the provided client options, leaving the defaults in place for any option
+     * that was not set
+     * @param clientOptions the client options to take the callback dispatch options from
+     * @throws IllegalArgumentException if the thread count or the queue capacity is negative
+     */
+    void setCallbackDispatchOptions(ClientOptions clientOptions) throws IllegalArgumentException
+    {
+        if (clientOptions.getCallbackDispatchThreadCount() < 0 || clientOptions.getCallbackDispatchQueueCapacity() < 0)
+        {
+            throw new IllegalArgumentException("Callback dispatch thread count and queue capacity cannot be negative");
+        }
+
+        this.callbackDispatchThreadCount = clientOptions.getCallbackDispatchThreadCount();
+        this.callbackDispatchOrderedPerDevice = clientOptions.isCallbackDispatchOrderedPerDevice();
+
+        if (clientOptions.getCallbackDispatchQueueCapacity() > 0)
+        {
+            this.callbackDispatchQueueCapacity = clientOptions.getCallbackDispatchQueueCapacity();
+        }
+    }
+
+    /**
+     * Saves the MQTT in flight window of the provided client options, leaving the default in place if it was not set
+     * @param clientOptions the client options to take the MQTT in flight window from
+     * @throws IllegalArgumentException if the window is negative or larger than MQTT packet ids allow
+     */
+    void setMqttOptions(ClientOptions clientOptions) throws IllegalArgumentException
+    {
+        if (clientOptions.getMqttMaxInFlightMessageCount() < 0
+                || clientOptions.getMqttMaxInFlightMessageCount() > MAX_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT)
+        {
+            throw new IllegalArgumentException("MQTT max in flight message count must be between 0 and " + MAX_MQTT_MAX_IN_FLIGHT_MESSAGE_COUNT);
+        }
+
+        if (clientOptions.getMqttMaxInFlightMessageCount() > 0)
+        {
+            this.mqttMaxInFlightMessageCount = clientOptions.getMqttMaxInFlightMessageCount();
+        }
+    }
+
     public DeviceClientConfig(IotHubConnectionString iotHubConnectionString, SSLContext sslContext)
     {
         configSsl(iotHubConnectionString, sslContext);
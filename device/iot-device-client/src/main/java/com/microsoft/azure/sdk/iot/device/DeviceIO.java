@@ -4,10 +4,13 @@
 package com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
+import com.microsoft.azure.sdk.iot.device.transport.CallbackDispatchStatistics;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.SharedTaskRunner;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttRequestStatistics;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -15,6 +18,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /*
@@ -82,6 +86,10 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
 
     private ScheduledExecutorService receiveTaskScheduler;
     private ScheduledExecutorService sendTaskScheduler;
+
+    // Used instead of the task schedulers above when this client shares its worker threads with other clients
+    private SharedTaskRunner sendTaskRunner;
+    private SharedTaskRunner receiveTaskRunner;
     private IotHubConnectionStatus state;
 
     private List<DeviceClientConfig> deviceClientConfigs = new LinkedList<>();
@@ -185,8 +193,32 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         this.sendTask = new IotHubSendTask(this.transport);
         this.receiveTask = new IotHubReceiveTask(this.transport);
 
-        this.sendTaskScheduler = Executors.newScheduledThreadPool(1);
-        this.receiveTaskScheduler = Executors.newScheduledThreadPool(1);
+        ClientExecutionContext executionContext = this.config.getExecutionContext();
+        if (executionContext != null)
+        {
+            // The tasks only occupy a shared worker thread while they have work to do, and the transport signals
+            // them each time work arrives
+            this.sendTaskRunner = new SharedTaskRunner(this.sendTask, executionContext.getScheduler(), sendPeriodInMilliseconds);
+            this.receiveTaskRunner = new SharedTaskRunner(this.receiveTask, executionContext.getScheduler(), receivePeriodInMilliseconds);
+            this.transport.setSharedTaskRunners(this.sendTaskRunner, this.receiveTaskRunner);
+            this.sendTaskRunner.signal();
+            this.receiveTaskRunner.signal();
+
+            this.state = IotHubConnectionStatus.CONNECTED;
+            return;
+        }
+
+        ThreadFactory threadFactory = this.config.getThreadFactory();
+        if (threadFactory != null)
+        {
+            this.sendTaskScheduler = Executors.newScheduledThreadPool(1, threadFactory);
+            this.receiveTaskScheduler = Executors.newScheduledThreadPool(1, threadFactory);
+        }
+        else
+        {
+            this.sendTaskScheduler = Executors.newScheduledThreadPool(1);
+            this.receiveTaskScheduler = Executors.newScheduledThreadPool(1);
+        }
 
         // Note that even though these threads are scheduled at a fixed interval, the sender/receiver threads will wait
         // if no messages are available to process. These waiting threads will still count against the pool size defined above,
@@ -228,6 +260,16 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
                 this.receiveTaskScheduler.shutdown();
             }
 
+            if (this.sendTaskRunner != null)
+            {
+                this.sendTaskRunner.stop();
+            }
+
+            if (this.receiveTaskRunner != null)
+            {
+                this.receiveTaskRunner.stop();
+            }
+
             /* Codes_SRS_DEVICE_IO_21_019: [The close shall close the transport.] */
             try
             {
@@ -419,6 +461,67 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
         return this.transport.isEmpty();
     }
 
+    /**
+     * @return the number of outgoing messages that have been queued and whose callback has not been invoked yet
+     */
+    public int getQueuedMessageCount()
+    {
+        return this.transport.getQueuedMessageCount();
+    }
+
+    /**
+     * @return the total size, in bytes, of the bodies of the messages counted by {@link #getQueuedMessageCount()}
+     */
+    public long getQueuedMessageBytes()
+    {
+        return this.transport.getQueuedMessageBytes();
+    }
+
+    /**
+     * @return the number of messages published over MQTT that the service has not acknowledged yet, or 0 if this
+     * client does not use MQTT
+     */
+    public int getMqttInFlightMessageCount()
+    {
+        return this.transport.getMqttInFlightMessageCount();
+    }
+
+    /**
+     * @return a snapshot of the twin requests sent over MQTT and of how long the service took to respond to them, or
+     * null if this client does not use MQTT
+     */
+    public MqttRequestStatistics getMqttTwinRequestStatistics()
+    {
+        return this.transport.getMqttTwinRequestStatistics();
+    }
+
+    /**
+     * @return the time, in nanoseconds, that the most recent flush of queued messages waited for the AMQP reactor
+     * thread, or 0 if this client does not use AMQP
+     */
+    public long getAmqpLastFlushLatencyNanos()
+    {
+        return this.transport.getAmqpLastFlushLatencyNanos();
+    }
+
+    /**
+     * @return the longest time, in nanoseconds, that a flush of queued messages waited for the AMQP reactor thread, or
+     * 0 if this client does not use AMQP
+     */
+    public long getAmqpMaxFlushLatencyNanos()
+    {
+        return this.transport.getAmqpMaxFlushLatencyNanos();
+    }
+
+    /**
+     * @return how long the callbacks of sent messages have waited for a dispatch thread, or null if they are invoked on
+     * the send thread
+     */
+    public CallbackDispatchStatistics getCallbackDispatchStatistics()
+    {
+        return this.transport.getCallbackDispatchStatistics();
+    }
+
     /**
      * Registers a callback with the configured transport to be executed whenever the connection to the device is lost or established.
      *
@@ -459,6 +562,16 @@ public final class DeviceIO implements IotHubConnectionStatusChangeCallback
                 {
                     this.receiveTaskScheduler.shutdown();
                 }
+
+                if (this.sendTaskRunner != null)
+                {
+                    this.sendTaskRunner.stop();
+                }
+
+                if (this.receiveTaskRunner != null)
+                {
+                    this.receiveTaskRunner.stop();
+                }
             }
             else if (status == IotHubConnectionStatus.CONNECTED)
             {
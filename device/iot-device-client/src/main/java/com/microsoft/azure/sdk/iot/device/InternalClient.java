@@ -8,7 +8,9 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.CallbackDispatchStatistics;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttRequestStatistics;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import lombok.extern.slf4j.Slf4j;
 
@@ -54,6 +56,12 @@ public class InternalClient
         this.config.setProtocol(protocol);
         if (clientOptions != null) {
             this.config.modelId = clientOptions.getModelId();
+            this.config.setMessageQueueOptions(clientOptions);
+            this.config.setExecutionContext(clientOptions.getExecutionContext());
+            this.config.setThreadFactory(clientOptions.getThreadFactory());
+            this.config.setCallbackDispatchOptions(clientOptions);
+            this.config.setMessageIdGenerator(clientOptions.getMessageIdGenerator());
+            this.config.setMqttOptions(clientOptions);
         }
 
         this.deviceIO = new DeviceIO(this.config, sendPeriodMillis, receivePeriodMillis);
@@ -122,6 +130,12 @@ public class InternalClient
         this.config.setProtocol(protocol);
         if (clientOptions != null) {
             this.config.modelId = clientOptions.getModelId();
+            this.config.setMessageQueueOptions(clientOptions);
+            this.config.setExecutionContext(clientOptions.getExecutionContext());
+            this.config.setThreadFactory(clientOptions.getThreadFactory());
+            this.config.setCallbackDispatchOptions(clientOptions);
+            this.config.setMessageIdGenerator(clientOptions.getMessageIdGenerator());
+            this.config.setMqttOptions(clientOptions);
         }
 
         //Codes_SRS_INTERNALCLIENT_34_067: [The constructor shall initialize the IoT Hub transport for the protocol specified, creating a instance of the deviceIO.]
@@ -182,6 +196,7 @@ public class InternalClient
     {
         //Codes_SRS_INTERNALCLIENT_34_045: [This function shall set the provided message's connection device id to the config's saved device id.]
         message.setConnectionDeviceId(this.config.getDeviceId());
+        this.assignMessageId(message);
 
         //Codes_SRS_INTERNALCLIENT_21_010: [The sendEventAsync shall asynchronously send the message using the deviceIO connection.]
         deviceIO.sendEventAsync(message, callback, callbackContext, this.config.getDeviceId());
@@ -189,9 +204,9 @@ public class InternalClient
 
     /**
      * Asynchronously sends a batch of messages to the IoT Hub
-     * HTTPS messages will be sent in a single batch and MQTT and AMQP messages will be sent individually.
-     * In case of HTTPS, This API call is an all-or-nothing single HTTPS message and the callback will be triggered only once.
-     * Maximum payload size for HTTPS is 255KB
+     * HTTPS and AMQP messages will be sent in a single batch and MQTT messages will be sent individually.
+     * In case of HTTPS and AMQP, This API call is an all-or-nothing single message and the callback will be triggered only once.
+     * Maximum payload size for HTTPS is 255KB, and for AMQP it is the maximum message size of the connection's link
      *
      * @param messages the list of message to be sent.
      * @param callback the callback to be invoked when a response is received.
@@ -208,9 +223,11 @@ public class InternalClient
         for (Message message: messages)
         {
             message.setConnectionDeviceId(this.config.getDeviceId());
+            this.assignMessageId(message);
         }
 
         Message message = new BatchMessage(messages);
+        message.setConnectionDeviceId(this.config.getDeviceId());
 
         deviceIO.sendEventAsync(message, callback, callbackContext, this.config.getDeviceId());
     }
@@ -398,6 +415,88 @@ public class InternalClient
         return this.config;
     }
 
+    /**
+     * Getter for the number of outgoing messages that this client has accepted and whose callback has not been invoked
+     * yet. This is the number that {@link ClientOptions#messageQueueCapacity} limits.
+     *
+     * @return the number of queued outgoing messages.
+     */
+    public int getQueuedMessageCount()
+    {
+        return this.deviceIO.getQueuedMessageCount();
+    }
+
+    /**
+     * Getter for the total size, in bytes, of the bodies of the messages counted by {@link #getQueuedMessageCount()}.
+     * This is the number that {@link ClientOptions#messageQueueCapacityInBytes} limits.
+     *
+     * @return the size of the queued outgoing messages.
+     */
+    public long getQueuedMessageBytes()
+    {
+        return this.deviceIO.getQueuedMessageBytes();
+    }
+
+    /**
+     * Getter for the number of messages that this client has published over MQTT and that the service has not
+     * acknowledged yet. This is the number that {@link ClientOptions#mqttMaxInFlightMessageCount} limits. When it stays
+     * at that limit, the client sends as fast as the service acknowledges.
+     *
+     * @return the number of in flight MQTT messages, or 0 if this client does not use MQTT.
+     */
+    public int getMqttInFlightMessageCount()
+    {
+        return this.deviceIO.getMqttInFlightMessageCount();
+    }
+
+    /**
+     * Getter for statistics about the get twin and update reported properties requests that this client has sent over
+     * MQTT: how many are still waiting for a response, how many were given up on because no response came in time,
+     * and how long the service took to respond. The statistics start over whenever the MQTT connection is reopened.
+     *
+     * @return a snapshot of the twin request statistics, or null if this client does not use MQTT or has not been
+     * opened yet.
+     */
+    public MqttRequestStatistics getMqttTwinRequestStatistics()
+    {
+        return this.deviceIO.getMqttTwinRequestStatistics();
+    }
+
+    /**
+     * Getter for the time, in nanoseconds, between the most recent flush of queued messages being requested and the
+     * AMQP reactor thread starting it. A growing value means the reactor thread is busy with other work and messages
+     * wait longer before they are sent.
+     *
+     * @return the latest flush latency, or 0 if this client does not use AMQP or has not been opened yet.
+     */
+    public long getAmqpLastFlushLatencyNanos()
+    {
+        return this.deviceIO.getAmqpLastFlushLatencyNanos();
+    }
+
+    /**
+     * Getter for the longest time, in nanoseconds, that a requested flush of queued messages waited for the AMQP
+     * reactor thread since this client was first opened.
+     *
+     * @return the maximum flush latency, or 0 if this client does not use AMQP or has not been opened yet.
+     */
+    public long getAmqpMaxFlushLatencyNanos()
+    {
+        return this.deviceIO.getAmqpMaxFlushLatencyNanos();
+    }
+
+    /**
+     * Getter for how long the callbacks of sent messages have waited for a thread, when they run on threads of their
+     * own as configured by {@link ClientOptions#callbackDispatchThreadCount}.
+     *
+     * @return the callback dispatch statistics, or null if this client invokes callbacks on its send thread or is not
+     * open.
+     */
+    public CallbackDispatchStatistics getCallbackDispatchStatistics()
+    {
+        return this.deviceIO.getCallbackDispatchStatistics();
+    }
+
     /**
      * Sets a runtime option identified by parameter {@code optionName}
      * to {@code value}.
@@ -962,6 +1061,15 @@ public class InternalClient
         this.config.setProxy(proxySettings);
     }
 
+    private void assignMessageId(Message message)
+    {
+        MessageIdGenerator messageIdGenerator = this.config.getMessageIdGenerator();
+        if (messageIdGenerator != null && !message.hasMessageId())
+        {
+            message.setMessageId(messageIdGenerator.generateMessageId());
+        }
+    }
+
     private void commonConstructorVerification(IotHubConnectionString connectionString, IotHubClientProtocol protocol)
     {
         if (connectionString == null)
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
@@ -45,11 +46,6 @@ public class Message
      */
     private long expiryTime;
 
-    /**
-     * Used by receiver to Abandon, Reject or Complete the message
-     */
-    private String lockToken;
-
     /**
      * Used in message responses and feedback
      */
@@ -128,15 +124,26 @@ public class Message
     private String deliveryAcknowledgement;
 
     /**
-     * User-defined properties.
+     * User-defined properties, in the order they were set, keyed by their lower case name since property names are
+     * case insensitive
+     */
+    private LinkedHashMap<String, MessageProperty> properties;
+
+    /**
+     * Read only view of the user-defined properties
      */
-    private ArrayList<MessageProperty> properties;
+    private Collection<MessageProperty> propertiesView;
 
     /**
      * The message body
      */
     private byte[] body;
 
+    /**
+     * The message body, when it was provided as a buffer that is not backed by an array of exactly the body's size
+     */
+    private ByteBuffer bodyBuffer;
+
     /**
      * Message routing options
      */
@@ -192,6 +199,35 @@ public class Message
         this.body = body;
     }
 
+    /**
+     * Constructor. The body is the content of the provided buffer between its position and its limit. It is not copied,
+     * so large payloads go to the wire without intermediate copies, and the buffer may be a slice of a larger array or
+     * a direct buffer allocated outside of the heap. The position and limit of the provided buffer are not changed.
+     *
+     * <p>The content of the buffer must not be modified until the callback of the send of this message has been called,
+     * after which the buffer can be reused for another message. The protocols that require the body as an array copy
+     * it once when the buffer is a direct buffer or only a part of its backing array.</p>
+     * @param body The body of the new Message instance.
+     */
+    public Message(ByteBuffer body)
+    {
+        if (body == null)
+        {
+            throw new IllegalArgumentException("Message body cannot be 'null'.");
+        }
+
+        initialize();
+
+        if (body.hasArray() && body.arrayOffset() + body.position() == 0 && body.remaining() == body.array().length)
+        {
+            this.body = body.array();
+        }
+        else
+        {
+            this.bodyBuffer = body.slice();
+        }
+    }
+
     /**
      * Constructor.
      * @param body The body of the new Message instance. It is internally serialized to a byte array using UTF-8 encoding.
@@ -233,10 +269,72 @@ public class Message
         if (this.body != null) {
             bodyClone = Arrays.copyOf(this.body, this.body.length);
         }
+        else if (this.bodyBuffer != null)
+        {
+            bodyClone = new byte[this.bodyBuffer.remaining()];
+            this.bodyBuffer.duplicate().get(bodyClone);
+        }
 
         return bodyClone;
     }
 
+    /**
+     * The byte content of the provided message's body, without copying it unless the body was provided as a buffer
+     * that is not backed by an array of exactly its size. Only meant for the transports, which only read the body while
+     * serializing it onto the wire, so it is not part of the public API of this class.
+     * @param message the message to get the body of
+     * @return the message body, as a byte array that must not be modified, or null if the message has no body
+     */
+    protected static byte[] getBodyReference(Message message)
+    {
+        if (message.body == null && message.bodyBuffer != null)
+        {
+            return message.getBytes();
+        }
+
+        return message.body;
+    }
+
+    /**
+     * The content of the provided message's body as a buffer that shares it, so that the transports that can write a
+     * part of an array or a direct buffer never copy the body.
+     * @param message the message to get the body of
+     * @return a buffer whose content between its position and its limit is the message body, and whose content must
+     * not be modified, or null if the message has no body
+     */
+    protected static ByteBuffer getBodyBuffer(Message message)
+    {
+        if (message.body != null)
+        {
+            return ByteBuffer.wrap(message.body);
+        }
+
+        return message.bodyBuffer == null ? null : message.bodyBuffer.duplicate();
+    }
+
+    /**
+     * @param message the message to check
+     * @return true if the provided message has a body, even an empty one
+     */
+    protected static boolean hasBody(Message message)
+    {
+        return message.body != null || message.bodyBuffer != null;
+    }
+
+    /**
+     * @param message the message to get the body length of
+     * @return the number of bytes of the provided message's body, or 0 if it has no body
+     */
+    protected static int getBodyLength(Message message)
+    {
+        if (message.body != null)
+        {
+            return message.body.length;
+        }
+
+        return message.bodyBuffer == null ? 0 : message.bodyBuffer.remaining();
+    }
+
     /**
      * Gets the values of user-defined properties of this Message.
      * @param name Name of the user-defined property to search for.
@@ -244,17 +342,13 @@ public class Message
      */
     public String getProperty(String name)
     {
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
+        if (name == null)
         {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
+            return null;
         }
 
+        MessageProperty messageProperty = this.properties.get(toPropertyKey(name));
+
         // Codes_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
         if (messageProperty == null) {
             return null;
@@ -285,23 +379,12 @@ public class Message
         }
 
         // Codes_SRS_MESSAGE_11_026: [The function shall set the message property to the given value.]
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
-        {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
-        }
+        MessageProperty messageProperty = new MessageProperty(name, value);
+        String key = toPropertyKey(name);
 
-        if (messageProperty != null)
-        {
-            this.properties.remove(messageProperty);
-        }
-
-        this.properties.add(new MessageProperty(name, value));
+        // A property that is set again moves to the end, as if it was removed and then added
+        this.properties.remove(key);
+        this.properties.put(key, messageProperty);
     }
 
     /**
@@ -312,7 +395,18 @@ public class Message
     public MessageProperty[] getProperties()
     {
         // Codes_SRS_MESSAGE_11_033: [The function shall return a copy of the message properties.]
-        return properties.toArray(new MessageProperty[this.properties.size()]);
+        return this.properties.values().toArray(new MessageProperty[this.properties.size()]);
+    }
+
+    /**
+     * Returns a read only view of the message properties, in the order they were set. Unlike {@link #getProperties()},
+     * this does not copy the properties, so it is the cheaper way to iterate over them.
+     *
+     * @return a read only view of the message properties, which reflects later changes to them.
+     */
+    public Collection<MessageProperty> getPropertiesView()
+    {
+        return this.propertiesView;
     }
 
     // ----- Private Methods -----
@@ -322,15 +416,21 @@ public class Message
      */
     private void initialize()
     {
-        this.lockToken = UUID.randomUUID().toString();
-        this.messageId = UUID.randomUUID().toString();
-        this.correlationId = UUID.randomUUID().toString();
+        // The message id is generated the first time it is needed, and the correlation id is only set by users or by
+        // the protocols that correlate requests with it, which saves the cost of generating random UUIDs for every message
         this.feedbackStatusCode = FeedbackStatusCodeEnum.none;
         this.ack = FeedbackStatusCodeEnum.none;
-        this.properties = new ArrayList<>();
+        this.properties = new LinkedHashMap<>();
+        this.propertiesView = Collections.unmodifiableCollection(this.properties.values());
         this.isSecurityClient = false;
     }
 
+    private static String toPropertyKey(String name)
+    {
+        // Returns the same string, without allocating, when the name is already in lower case
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Verifies whether the message is expired or not
      * @return true if the message is expired, false otherwise
@@ -363,13 +463,27 @@ public class Message
     }
 
     /**
-     * Getter for the messageId property
+     * Getter for the messageId property. If no message id has been set, a random UUID is generated and saved as the
+     * message id the first time this is called.
      * @return The property value
      */
     public String getMessageId()
     {
         // Codes_SRS_MESSAGE_34_043: [The function shall return the message's message Id.]
-        return messageId;
+        if (this.messageId == null)
+        {
+            this.messageId = UUID.randomUUID().toString();
+        }
+
+        return this.messageId;
+    }
+
+    /**
+     * @return true if a message id has been set or generated for this message
+     */
+    boolean hasMessageId()
+    {
+        return this.messageId != null;
     }
 
     /**
@@ -422,7 +536,7 @@ public class Message
         // Codes_SRS_MESSAGE_34_047: [The function shall set the message's expiry time.]
         long currentTime = System.currentTimeMillis();
         this.expiryTime = currentTime + timeOut;
-        log.trace("The message with messageid {} has expiry time in {} milliseconds and the message will expire on {}", this.getMessageId(), timeOut, new Date(this.expiryTime));
+        log.trace("The message with messageid {} has expiry time in {} milliseconds and the message will expire on {}", this.messageId, timeOut, new Date(this.expiryTime));
     }
 
     /**
@@ -441,6 +555,15 @@ public class Message
         this.expiryTime = absoluteTimeout;
     }
 
+    /**
+     * Getter for the expiryTime property
+     * @return the time at which this message expires, in milliseconds since the epoch, or 0 if it never expires
+     */
+    public long getExpiryTime()
+    {
+        return this.expiryTime;
+    }
+
     /**
      * Getter for the Message type
      * @return the Message type value
@@ -684,4 +807,4 @@ public class Message
 
         return s.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * Generates the message ids of the outgoing messages of a client that do not have one set, through
+ * {@link ClientOptions#messageIdGenerator}. Implementations must be thread safe, since a client may send messages from
+ * many threads at once.
+ */
+public interface MessageIdGenerator
+{
+    /**
+     * @return a new message id, unique among the messages of this client that may be in flight at the same time. At most
+     * 128 characters long, made of the characters that {@link Message#setMessageId(String)} allows.
+     */
+    String generateMessageId();
+}
@@ -0,0 +1,32 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * What the client does with a new outgoing message when its message queue is at the capacity configured through
+ * {@link ClientOptions#messageQueueCapacity} or {@link ClientOptions#messageQueueCapacityInBytes}.
+ */
+public enum MessageQueueOverflowPolicy
+{
+    /**
+     * The caller of sendEventAsync is blocked until enough queued messages have completed, or until
+     * {@link ClientOptions#messageQueueBlockTimeoutMillis} elapses. If the timeout elapses, the message is
+     * rejected as it would be with {@link #REJECT}. sendEventAsync must not be called with this policy from within a
+     * message callback, since that callback blocks the thread that completes the queued messages.
+     */
+    BLOCK,
+
+    /**
+     * The new message is not queued, and its callback is invoked with {@link IotHubStatusCode#MESSAGE_QUEUE_FULL}.
+     */
+    REJECT,
+
+    /**
+     * The oldest messages that have not been sent yet are dropped to make room for the new message, and their callbacks are
+     * invoked with {@link IotHubStatusCode#MESSAGE_QUEUE_FULL}. If there is no such message to drop, because all
+     * queued messages are already waiting for an acknowledgement from the service, the new message is rejected as
+     * it would be with {@link #REJECT}.
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates message ids made of a prefix and a counter, such as "sensor-42:17". Unlike the random UUIDs that messages
+ * get by default, which are drawn from a SecureRandom shared by the whole JVM, this takes no lock and costs no more
+ * than an atomic increment per message.
+ */
+public final class SequentialMessageIdGenerator implements MessageIdGenerator
+{
+    private static final int MAX_PREFIX_LENGTH = 100;
+    private static final char SEPARATOR = ':';
+
+    private final String prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Create a generator whose prefix is a random UUID, so that the ids of different clients, or of the same client
+     * across restarts, don't collide
+     */
+    public SequentialMessageIdGenerator()
+    {
+        this(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Create a generator with the provided prefix. The ids are only unique across clients and restarts if the prefix is.
+     * @param prefix the prefix of every id
+     * @throws IllegalArgumentException if the prefix is null, empty or longer than 100 characters
+     */
+    public SequentialMessageIdGenerator(String prefix) throws IllegalArgumentException
+    {
+        if (prefix == null || prefix.isEmpty() || prefix.length() > MAX_PREFIX_LENGTH)
+        {
+            throw new IllegalArgumentException("prefix must be between 1 and " + MAX_PREFIX_LENGTH + " characters long");
+        }
+
+        this.prefix = prefix + SEPARATOR;
+    }
+
+    @Override
+    public String generateMessageId()
+    {
+        return this.prefix + this.counter.incrementAndGet();
+    }
+}
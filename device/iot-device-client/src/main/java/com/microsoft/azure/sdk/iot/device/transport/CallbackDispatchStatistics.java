@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import lombok.Getter;
+
+/**
+ * A snapshot of how long the callbacks of sent messages have waited for a thread of a {@link CallbackDispatcher}.
+ */
+public final class CallbackDispatchStatistics
+{
+    /**
+     * The number of dispatched callbacks that had not finished running when this snapshot was taken
+     */
+    @Getter
+    private final int pendingCallbackCount;
+
+    /**
+     * The number of callbacks that have been handed to a dispatch thread so far
+     */
+    @Getter
+    private final long dispatchedCallbackCount;
+
+    /**
+     * The average time, in nanoseconds, that the dispatched callbacks waited for a dispatch thread
+     */
+    @Getter
+    private final long averageQueueTimeNanos;
+
+    /**
+     * The longest time, in nanoseconds, that any dispatched callback waited for a dispatch thread
+     */
+    @Getter
+    private final long maxQueueTimeNanos;
+
+    CallbackDispatchStatistics(int pendingCallbackCount, long dispatchedCallbackCount, long totalQueueTimeNanos, long maxQueueTimeNanos)
+    {
+        this.pendingCallbackCount = pendingCallbackCount;
+        this.dispatchedCallbackCount = dispatchedCallbackCount;
+        this.averageQueueTimeNanos = dispatchedCallbackCount == 0 ? 0 : totalQueueTimeNanos / dispatchedCallbackCount;
+        this.maxQueueTimeNanos = maxQueueTimeNanos;
+    }
+}
@@ -0,0 +1,273 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invokes the callbacks of sent messages on threads of its own, so that a slow callback does not hold up the send
+ * thread. Callbacks wait in bounded queues, and the send thread waits for room once they are full rather than letting
+ * the backlog grow without limit.
+ *
+ * <p>When callbacks are ordered per device, each device's callbacks always go to the same queue, which has a single
+ * thread, so they run one at a time in the order in which they were dispatched. Otherwise all threads share a single
+ * queue, and callbacks may run in any order.</p>
+ */
+@Slf4j
+public final class CallbackDispatcher
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-CallbackDispatcher-";
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final List<BlockingQueue<QueuedCallback>> queues;
+    private final List<Thread> threads;
+
+    private volatile boolean closed;
+
+    private final AtomicInteger pendingCallbackCount = new AtomicInteger();
+    private final AtomicLong dispatchedCallbackCount = new AtomicLong();
+    private final AtomicLong totalQueueTimeNanos = new AtomicLong();
+    private final AtomicLong maxQueueTimeNanos = new AtomicLong();
+
+    /**
+     * Create a dispatcher and start its threads
+     * @param threadCount the number of threads to invoke callbacks on
+     * @param queueCapacity the maximum number of callbacks that may wait for a thread, across all threads
+     * @param orderedPerDevice whether the callbacks of each device must run one at a time, in order
+     * @param threadFactory the factory to create the threads with, or null to create daemon threads
+     * @throws IllegalArgumentException if threadCount or queueCapacity is not positive
+     */
+    public CallbackDispatcher(int threadCount, int queueCapacity, boolean orderedPerDevice, ThreadFactory threadFactory) throws IllegalArgumentException
+    {
+        if (threadCount <= 0 || queueCapacity <= 0)
+        {
+            throw new IllegalArgumentException("threadCount and queueCapacity must be positive");
+        }
+
+        int queueCount = orderedPerDevice ? threadCount : 1;
+        this.queues = new ArrayList<>(queueCount);
+        for (int i = 0; i < queueCount; i++)
+        {
+            this.queues.add(new LinkedBlockingQueue<QueuedCallback>(Math.max(1, queueCapacity / queueCount)));
+        }
+
+        this.threads = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++)
+        {
+            Worker worker = new Worker(this.queues.get(i % queueCount));
+            Thread thread = threadFactory != null ? threadFactory.newThread(worker) : new Thread(worker, THREAD_NAME_PREFIX + (i + 1));
+            if (threadFactory == null)
+            {
+                thread.setDaemon(true);
+            }
+
+            this.threads.add(thread);
+        }
+
+        for (Thread thread : this.threads)
+        {
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue a callback to be invoked on a dispatch thread, waiting for room if the queue it belongs to is full. Once
+     * this dispatcher is closed, the callback is invoked on the calling thread instead.
+     * @param deviceId the device that the callback belongs to. Only used when callbacks are ordered per device.
+     * @param callback the callback to invoke
+     * @throws InterruptedException if the calling thread is interrupted while waiting for room
+     */
+    public void dispatch(String deviceId, Runnable callback) throws InterruptedException
+    {
+        if (this.closed)
+        {
+            callback.run();
+            return;
+        }
+
+        BlockingQueue<QueuedCallback> queue = this.queues.get(this.queues.size() == 1 ? 0 : queueIndex(deviceId));
+        QueuedCallback queuedCallback = new QueuedCallback(callback, System.nanoTime());
+        this.pendingCallbackCount.incrementAndGet();
+        try
+        {
+            queue.put(queuedCallback);
+        }
+        catch (InterruptedException e)
+        {
+            this.pendingCallbackCount.decrementAndGet();
+            throw e;
+        }
+
+        // If this dispatcher was closed meanwhile, its threads may have exited before the callback was queued
+        if (this.closed && queue.remove(queuedCallback))
+        {
+            try
+            {
+                callback.run();
+            }
+            finally
+            {
+                this.pendingCallbackCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the number of dispatched callbacks that have not finished running yet, including the ones that are
+     * waiting for a dispatch thread
+     */
+    public int getPendingCallbackCount()
+    {
+        return this.pendingCallbackCount.get();
+    }
+
+    /**
+     * @return a snapshot of the number of dispatched callbacks and of how long they waited for a thread
+     */
+    public CallbackDispatchStatistics getStatistics()
+    {
+        return new CallbackDispatchStatistics(
+                this.pendingCallbackCount.get(),
+                this.dispatchedCallbackCount.get(),
+                this.totalQueueTimeNanos.get(),
+                this.maxQueueTimeNanos.get());
+    }
+
+    /**
+     * Stop accepting callbacks and wait for the ones already queued to be invoked. Callbacks dispatched from now on
+     * are invoked on the calling thread.
+     */
+    public void close()
+    {
+        this.closed = true;
+
+        for (Thread thread : this.threads)
+        {
+            // A callback may close its own client, and so this dispatcher
+            if (thread == Thread.currentThread())
+            {
+                continue;
+            }
+
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                log.warn("Interrupted while waiting for queued callbacks to be invoked");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int queueIndex(String deviceId)
+    {
+        int hash = deviceId == null ? 0 : deviceId.hashCode();
+        return (hash & Integer.MAX_VALUE) % this.queues.size();
+    }
+
+    private void recordQueueTime(long queueTimeNanos)
+    {
+        this.dispatchedCallbackCount.incrementAndGet();
+        this.totalQueueTimeNanos.addAndGet(queueTimeNanos);
+
+        long max = this.maxQueueTimeNanos.get();
+        while (queueTimeNanos > max && !this.maxQueueTimeNanos.compareAndSet(max, queueTimeNanos))
+        {
+            max = this.maxQueueTimeNanos.get();
+        }
+    }
+
+    private static class QueuedCallback
+    {
+        private final Runnable callback;
+        private final long queuedAtNanos;
+
+        QueuedCallback(Runnable callback, long queuedAtNanos)
+        {
+            this.callback = callback;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+
+    private class Worker implements Runnable
+    {
+        private final BlockingQueue<QueuedCallback> queue;
+
+        Worker(BlockingQueue<QueuedCallback> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                QueuedCallback queuedCallback;
+                try
+                {
+                    queuedCallback = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    log.warn("Callback dispatch thread was interrupted, invoking the callbacks it has left before exiting");
+                    drain();
+                    return;
+                }
+
+                if (queuedCallback == null)
+                {
+                    if (closed)
+                    {
+                        return;
+                    }
+
+                    continue;
+                }
+
+                invoke(queuedCallback);
+            }
+        }
+
+        private void drain()
+        {
+            QueuedCallback queuedCallback = this.queue.poll();
+            while (queuedCallback != null)
+            {
+                invoke(queuedCallback);
+                queuedCallback = this.queue.poll();
+            }
+        }
+
+        private void invoke(QueuedCallback queuedCallback)
+        {
+            recordQueueTime(System.nanoTime() - queuedCallback.queuedAtNanos);
+
+            try
+            {
+                queuedCallback.callback.run();
+            }
+            catch (Throwable e)
+            {
+                log.warn("Callback dispatch thread encountered exception while invoking a callback", e);
+            }
+            finally
+            {
+                pendingCallbackCount.decrementAndGet();
+            }
+        }
+    }
+}
@@ -11,7 +11,7 @@ import lombok.extern.slf4j.Slf4j;
  * Meant to be used with an executor that continuously calls run().
  */
 @Slf4j
-public final class IotHubReceiveTask implements Runnable
+public final class IotHubReceiveTask implements Runnable, SharedTaskRunner.Task
 {
     private static final String THREAD_NAME = "azure-iot-sdk-IotHubReceiveTask";
     private final IotHubTransport transport;
@@ -63,4 +63,25 @@ public final class IotHubReceiveTask implements Runnable
             log.warn("Receive task thread encountered exception while processing received messages", e);
         }
     }
+
+    /**
+     * Handles a received message without waiting for one to arrive first. Used instead of {@link #run()} when this task
+     * runs on an executor shared with other clients.
+     * @return true if there are more received messages to handle, or if the protocol is HTTPS since it has to keep
+     * polling for received messages
+     */
+    @Override
+    public boolean runOnce()
+    {
+        try
+        {
+            this.transport.handleMessage();
+        }
+        catch (Throwable e)
+        {
+            log.warn("Receive task thread encountered exception while processing received messages", e);
+        }
+
+        return this.transport.getProtocol() == IotHubClientProtocol.HTTPS || this.transport.hasReceivedMessagesToHandle();
+    }
 }
\ No newline at end of file
@@ -10,18 +10,18 @@ import lombok.extern.slf4j.Slf4j;
  * be used with an executor that continuously calls run().
  */
 @Slf4j
-public final class IotHubSendTask implements Runnable
+public final class IotHubSendTask implements Runnable, SharedTaskRunner.Task
 {
     private static final String THREAD_NAME = "azure-iot-sdk-IotHubSendTask";
     private final IotHubTransport transport;
 
-    // This lock is used to communicate state between this thread and the IoTHubTransport layer. This thread will
+    // This signal is used to communicate state between this thread and the IoTHubTransport layer. This thread will
     // wait until a message or callback is queued in that layer before continuing. This means that if the transport layer
     // has no outgoing messages and no callbacks queueing, then this thread will do nothing and cost nothing. This is useful
     // as this SDK would otherwise periodically spawn new threads of this type that would do nothing. It is the IotHubTransport
-    // layer's responsibility to notify this thread when a message is queued to be sent or when a callback is queued to be executed
+    // layer's responsibility to signal this thread when a message is queued to be sent or when a callback is queued to be executed
     // so that this thread can handle it.
-    private final Object sendThreadLock;
+    private final WakeupSignal sendTaskSignal;
 
     public IotHubSendTask(IotHubTransport transport)
     {
@@ -31,7 +31,7 @@ public final class IotHubSendTask implements Runnable
         }
 
         this.transport = transport;
-        this.sendThreadLock = this.transport.getSendThreadLock();
+        this.sendTaskSignal = this.transport.getSendTaskSignal();
     }
 
     public void run()
@@ -40,14 +40,15 @@ public final class IotHubSendTask implements Runnable
 
         try
         {
-            synchronized (this.sendThreadLock)
+            // Any signal received so far was for work that is about to be checked for below. Signals received from
+            // now on are for work queued after that check, so they must not be forgotten.
+            this.sendTaskSignal.clear();
+
+            if (!this.transport.hasMessagesToSend() && !this.transport.hasCallbacksToExecute() && !this.transport.isClosed())
             {
-                if (!this.transport.hasMessagesToSend() && !this.transport.hasCallbacksToExecute() && !this.transport.isClosed())
-                {
-                    // IotHubTransport layer will notify this thread once a message is ready to be sent or a callback is ready
-                    // to be executed. Until then, do nothing.
-                    this.sendThreadLock.wait();
-                }
+                // IotHubTransport layer will signal this thread once a message is ready to be sent or a callback is ready
+                // to be executed. Until then, do nothing.
+                this.sendTaskSignal.await();
             }
 
             this.transport.sendMessages();
@@ -58,4 +59,25 @@ public final class IotHubSendTask implements Runnable
             log.warn("Send task encountered exception while sending messages", e);
         }
     }
+
+    /**
+     * Sends queued messages and invokes queued callbacks without waiting for any to be queued first. Used instead of
+     * {@link #run()} when this task runs on an executor shared with other clients.
+     * @return true if there are more messages to send or callbacks to invoke
+     */
+    @Override
+    public boolean runOnce()
+    {
+        try
+        {
+            this.transport.sendMessages();
+            this.transport.invokeCallbacks();
+        }
+        catch (Throwable e)
+        {
+            log.warn("Send task encountered exception while sending messages", e);
+        }
+
+        return this.transport.hasMessagesToSend() || this.transport.hasCallbacksToExecute();
+    }
 }
\ No newline at end of file
@@ -14,11 +14,14 @@ import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnect
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpUnauthorizedAccessException;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttRequestStatistics;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.MqttUnauthorizedException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -30,6 +33,7 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 public class IotHubTransport implements IotHubListener
 {
     private static final int MAX_MESSAGES_TO_SEND_PER_THREAD = 10;
+    private static final int INITIAL_EXPIRING_PACKETS_CAPACITY = 64;
     private volatile IotHubConnectionStatus connectionStatus;
     private IotHubTransportConnection iotHubTransportConnection;
 
@@ -45,6 +49,16 @@ public class IotHubTransport implements IotHubListener
     /* Messages whose callbacks that are waiting to be invoked. */
     private final Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
 
+    // Packets whose message has an expiry time, ordered by that time, so that checking for expired messages only
+    // looks at the messages that actually expired rather than at every queued message. Packets are not removed from
+    // here when they complete, since that would take linear time. Instead, completed packets are skipped once they
+    // reach the head, and they are purged in bulk once the index has doubled in size since the last purge.
+    private final Queue<IotHubTransportPacket> expiringPackets = new PriorityQueue<>(INITIAL_EXPIRING_PACKETS_CAPACITY, new ExpiryTimeComparator());
+    private int expiringPacketsPurgeThreshold = INITIAL_EXPIRING_PACKETS_CAPACITY;
+
+    // Guards the expiringPackets index. No other lock may be taken while holding it.
+    private final Object expiringPacketsLock = new Object();
+
     /*Connection Status callback information (deprecated)*/
     private IotHubConnectionStateCallback stateCallback;
     private Object stateCallbackContext;
@@ -71,14 +85,35 @@ public class IotHubTransport implements IotHubListener
 
     private static final int POOL_SIZE = 1;
 
-    // State lock used to communicate to the IotHubSendTask thread when a message needs to be sent or a callback needs to be invoked.
-    // It is this layer's responsibility to notify that task each time a message is queued to send, or when a callback is queued to be invoked.
-    private final Object sendThreadLock = new Object();
+    // Used to wake up the IotHubSendTask thread when a message needs to be sent or a callback needs to be invoked. It is
+    // this layer's responsibility to signal it each time a message is queued to send, or when a callback is queued to
+    // be invoked. Signaling it takes no lock, so threads queueing messages never contend with each other or with the
+    // send thread.
+    private final WakeupSignal sendTaskSignal = new WakeupSignal();
 
     // State lock used to communicate to the IotHubReceiveTask thread when a received message needs to be handled. It is this
     // layer's responsibility to notify that task each time a message is received.
     private final Object receiveThreadLock = new Object();
 
+    // Signaled alongside the signal and lock above when this client's send and receive tasks run on worker threads
+    // shared with other clients, since those tasks never wait on them
+    private volatile SharedTaskRunner sendTaskRunner;
+    private volatile SharedTaskRunner receiveTaskRunner;
+
+    // Null unless the callbacks of sent messages are invoked on threads of their own rather than on the send thread
+    private volatile CallbackDispatcher callbackDispatcher;
+
+    // The outgoing message queue accounting. Every message accepted by addMessage counts towards the configured queue
+    // capacity until its callback has been invoked, whichever of the waiting queue, the in progress map and the
+    // callback queue it is in. The counters are only ever updated atomically, so accepting a message takes no lock.
+    private final AtomicInteger queuedMessageCount = new AtomicInteger();
+    private final AtomicLong queuedMessageBytes = new AtomicLong();
+
+    // Callers blocked by MessageQueueOverflowPolicy.BLOCK wait on this lock. It is only taken to be notified when
+    // capacity is released while at least one such caller is registered as waiting.
+    private final Object queueCapacityLock = new Object();
+    private final AtomicInteger queueCapacityWaiterCount = new AtomicInteger();
+
     /**
      * Constructor for an IotHubTransport object with default values
      * @param defaultConfig the config used for opening connections, retrieving retry policy, and checking protocol
@@ -104,9 +139,9 @@ public class IotHubTransport implements IotHubListener
         this.deviceIOConnectionStatusChangeCallback = deviceIOConnectionStatusChangeCallback;
     }
 
-    public Object getSendThreadLock()
+    public WakeupSignal getSendTaskSignal()
     {
-        return this.sendThreadLock;
+        return this.sendTaskSignal;
     }
 
     public Object getReceiveThreadLock()
@@ -114,12 +149,21 @@ public class IotHubTransport implements IotHubListener
         return this.receiveThreadLock;
     }
 
+    /**
+     * Sets the runners to signal each time there is new work for the send task or the receive task. Only needed when
+     * those tasks run on worker threads shared with other clients.
+     * @param sendTaskRunner the runner of the send task
+     * @param receiveTaskRunner the runner of the receive task
+     */
+    public void setSharedTaskRunners(SharedTaskRunner sendTaskRunner, SharedTaskRunner receiveTaskRunner)
+    {
+        this.sendTaskRunner = sendTaskRunner;
+        this.receiveTaskRunner = receiveTaskRunner;
+    }
+
     public boolean hasMessagesToSend()
     {
-        synchronized (sendThreadLock)
-        {
-            return this.waitingPacketsQueue.size() > 0;
-        }
+        return !this.waitingPacketsQueue.isEmpty();
     }
 
     public boolean hasReceivedMessagesToHandle()
@@ -132,10 +176,7 @@ public class IotHubTransport implements IotHubListener
 
     public boolean hasCallbacksToExecute()
     {
-        synchronized (sendThreadLock)
-        {
-            return this.callbackPacketsQueue.size() > 0;
-        }
+        return !this.callbackPacketsQueue.isEmpty();
     }
 
     public boolean isClosed()
@@ -143,6 +184,107 @@ public class IotHubTransport implements IotHubListener
         return this.connectionStatus == IotHubConnectionStatus.DISCONNECTED;
     }
 
+    /**
+     * @return the number of outgoing messages that have been accepted by {@link #addMessage(Message, IotHubEventCallback, Object)}
+     * and whose callback has not been invoked yet. This is what the configured message queue capacity limits.
+     */
+    public int getQueuedMessageCount()
+    {
+        return this.queuedMessageCount.get();
+    }
+
+    /**
+     * @return the total size, in bytes, of the bodies of the messages counted by {@link #getQueuedMessageCount()}
+     */
+    public long getQueuedMessageBytes()
+    {
+        return this.queuedMessageBytes.get();
+    }
+
+    /**
+     * @return the number of messages published over MQTT that the service has not acknowledged yet, which the
+     * configured MQTT max in flight message count limits, or 0 if this client does not use MQTT
+     */
+    public int getMqttInFlightMessageCount()
+    {
+        IotHubTransportConnection connection = this.iotHubTransportConnection;
+        return connection instanceof MqttIotHubConnection ? ((MqttIotHubConnection) connection).getInFlightMessageCount() : 0;
+    }
+
+    /**
+     * @return a snapshot of the twin requests sent over MQTT and of how long the service took to respond to them, or
+     * null if this client does not use MQTT or has not opened its connection yet
+     */
+    public MqttRequestStatistics getMqttTwinRequestStatistics()
+    {
+        IotHubTransportConnection connection = this.iotHubTransportConnection;
+        return connection instanceof MqttIotHubConnection ? ((MqttIotHubConnection) connection).getTwinRequestStatistics() : null;
+    }
+
+    /**
+     * @return the time, in nanoseconds, between the most recent flush of queued messages being requested and the AMQP
+     * reactor thread starting it, or 0 if this client does not use AMQP or has not opened its connection yet
+     */
+    public long getAmqpLastFlushLatencyNanos()
+    {
+        IotHubTransportConnection connection = this.iotHubTransportConnection;
+        return connection instanceof AmqpsIotHubConnection ? ((AmqpsIotHubConnection) connection).getLastFlushLatencyNanos() : 0;
+    }
+
+    /**
+     * @return the longest time, in nanoseconds, that a requested flush of queued messages waited for the AMQP reactor
+     * thread, or 0 if this client does not use AMQP or has not opened its connection yet
+     */
+    public long getAmqpMaxFlushLatencyNanos()
+    {
+        IotHubTransportConnection connection = this.iotHubTransportConnection;
+        return connection instanceof AmqpsIotHubConnection ? ((AmqpsIotHubConnection) connection).getMaxFlushLatencyNanos() : 0;
+    }
+
+    /**
+     * @return the number of outgoing messages waiting to be sent. Takes time proportional to the number of messages.
+     */
+    public int getWaitingMessageCount()
+    {
+        return this.waitingPacketsQueue.size();
+    }
+
+    /**
+     * @return the number of outgoing messages that have been sent and are waiting for an acknowledgement from the service
+     */
+    public int getInProgressMessageCount()
+    {
+        return this.inProgressPackets.size();
+    }
+
+    /**
+     * @return the number of outgoing messages whose callback is waiting to be invoked. Takes time proportional to the
+     * number of messages.
+     */
+    public int getPendingCallbackCount()
+    {
+        CallbackDispatcher dispatcher = this.callbackDispatcher;
+        return this.callbackPacketsQueue.size() + (dispatcher != null ? dispatcher.getPendingCallbackCount() : 0);
+    }
+
+    /**
+     * @return how long the callbacks of sent messages have waited for a dispatch thread, or null if this client invokes
+     * them on its send thread
+     */
+    public CallbackDispatchStatistics getCallbackDispatchStatistics()
+    {
+        CallbackDispatcher dispatcher = this.callbackDispatcher;
+        return dispatcher != null ? dispatcher.getStatistics() : null;
+    }
+
+    /**
+     * @return the number of received messages waiting to be handled. Takes time proportional to the number of messages.
+     */
+    public int getReceivedMessageCount()
+    {
+        return this.receivedMessagesQueue.size();
+    }
+
     @Override
     public void onMessageSent(Message message, Throwable e)
     {
@@ -319,7 +461,29 @@ public class IotHubTransport implements IotHubListener
 
         this.deviceClientConfigs = new LinkedBlockingQueue<>(deviceClientConfigs);
         this.defaultConfig = this.deviceClientConfigs.peek();
-        this.taskScheduler = Executors.newScheduledThreadPool(1);
+        ClientExecutionContext executionContext = this.defaultConfig.getExecutionContext();
+        ThreadFactory threadFactory = this.defaultConfig.getThreadFactory();
+        if (executionContext != null)
+        {
+            this.taskScheduler = executionContext.getScheduler();
+        }
+        else if (threadFactory != null)
+        {
+            this.taskScheduler = Executors.newScheduledThreadPool(1, threadFactory);
+        }
+        else
+        {
+            this.taskScheduler = Executors.newScheduledThreadPool(1);
+        }
+
+        if (this.defaultConfig.getCallbackDispatchThreadCount() > 0)
+        {
+            this.callbackDispatcher = new CallbackDispatcher(
+                    this.defaultConfig.getCallbackDispatchThreadCount(),
+                    this.defaultConfig.getCallbackDispatchQueueCapacity(),
+                    this.defaultConfig.isCallbackDispatchOrderedPerDevice(),
+                    threadFactory);
+        }
 
         //Codes_SRS_IOTHUBTRANSPORT_34_019: [This function shall open the invoke the method openConnection.]
         openConnection();
@@ -351,7 +515,15 @@ public class IotHubTransport implements IotHubListener
         //Codes_SRS_IOTHUBTRANSPORT_34_023: [This function shall invoke all callbacks.]
         this.invokeCallbacks();
 
-        if (this.taskScheduler != null)
+        if (this.callbackDispatcher != null)
+        {
+            // Waits for the callbacks dispatched above, and any dispatched earlier, to be invoked
+            this.callbackDispatcher.close();
+            this.callbackDispatcher = null;
+        }
+
+        // A shared scheduler belongs to the execution context, which outlives this client
+        if (this.taskScheduler != null && this.defaultConfig.getExecutionContext() == null)
         {
             this.taskScheduler.shutdown();
         }
@@ -366,11 +538,11 @@ public class IotHubTransport implements IotHubListener
         // supplied reason and cause.]
         this.updateStatus(IotHubConnectionStatus.DISCONNECTED, reason, cause);
 
-        // Notify send thread to finish up so it doesn't survive this close
-        synchronized (this.sendThreadLock)
-        {
-            this.sendThreadLock.notifyAll();
-        }
+        // Wake up send thread to finish up so it doesn't survive this close
+        this.sendTaskSignal.signal();
+
+        signalSharedTaskRunner(this.sendTaskRunner);
+        signalSharedTaskRunner(this.receiveTaskRunner);
 
         // Notify receive thread to finish up so it doesn't survive this close
         synchronized (this.receiveThreadLock)
@@ -378,6 +550,9 @@ public class IotHubTransport implements IotHubListener
             this.receiveThreadLock.notifyAll();
         }
 
+        // Notify callers waiting for room in the outgoing message queue that they won't get any
+        notifyQueueCapacityWaiters();
+
         log.info("Client connection closed successfully");
     }
 
@@ -402,23 +577,28 @@ public class IotHubTransport implements IotHubListener
         //Codes_SRS_IOTHUBTRANSPORT_34_042: [This function shall build a transport packet from the provided message,
         // callback, and context and then add that packet to the waiting queue.]
 
-        // We will get the nested messages and queue them normally if this is a batch message but the protocol is not HTTPS
-        // Currently only HTTPS is supports batch message events.
-        if (message instanceof BatchMessage && !(this.iotHubTransportConnection instanceof HttpsIotHubConnection))
+        // We will get the nested messages and queue them normally if this is a batch message but the protocol is MQTT.
+        // Only HTTPS and AMQPS support batch message events.
+        if (message instanceof BatchMessage
+                && !(this.iotHubTransportConnection instanceof HttpsIotHubConnection)
+                && !(this.iotHubTransportConnection instanceof AmqpsIotHubConnection))
         {
             for (Message singleMessage : ((BatchMessage)message).getNestedMessages())
             {
-                this.addToWaitingQueue(new IotHubTransportPacket(singleMessage, callback, callbackContext,null, System.currentTimeMillis()));
-                log.info("Messages were queued to be sent later ({})", singleMessage);
+                if (this.addToWaitingQueueIfCapacityAllows(new IotHubTransportPacket(singleMessage, callback, callbackContext,null, System.currentTimeMillis())))
+                {
+                    log.info("Messages were queued to be sent later ({})", singleMessage);
+                }
             }
 
             return;
         }
 
         IotHubTransportPacket packet = new IotHubTransportPacket(message, callback, callbackContext, null, System.currentTimeMillis());
-        this.addToWaitingQueue(packet);
-
-        log.info("Message was queued to be sent later ({})", message);
+        if (this.addToWaitingQueueIfCapacityAllows(packet))
+        {
+            log.info("Message was queued to be sent later ({})", message);
+        }
     }
 
     public IotHubClientProtocol getProtocol()
@@ -465,47 +645,114 @@ public class IotHubTransport implements IotHubListener
 
     private void checkForExpiredMessages()
     {
-        //Check waiting packets, remove any that have expired.
-        IotHubTransportPacket packet = this.waitingPacketsQueue.poll();
-        Queue<IotHubTransportPacket> packetsToAddBackIntoWaitingPacketsQueue = new LinkedBlockingQueue<>();
-        while (packet != null)
+        List<IotHubTransportPacket> packetsToCheckAgain = new ArrayList<>();
+        for (IotHubTransportPacket packet : pollExpiredPackets())
         {
-            if (packet.getMessage().isExpired())
+            String messageId = packet.getMessage().getMessageId();
+            boolean removed = false;
+            if (messageId != null)
+            {
+                synchronized (this.inProgressMessagesLock)
+                {
+                    removed = this.inProgressPackets.get(messageId) == packet && this.inProgressPackets.remove(messageId) != null;
+                }
+            }
+
+            if (!removed)
+            {
+                // Expiring messages tend to be the oldest ones, so this rarely has to look far from the head of the queue
+                removed = this.waitingPacketsQueue.remove(packet);
+            }
+
+            if (removed)
             {
                 packet.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
                 this.addToCallbackQueue(packet);
             }
-            else
+            else if (packet.getStatus() == null)
             {
-                //message not expired, requeue it
-                packetsToAddBackIntoWaitingPacketsQueue.add(packet);
+                // Neither waiting nor in progress right now, for instance because it is scheduled to be retried, so
+                // it has to be checked again on the next pass
+                packetsToCheckAgain.add(packet);
             }
+        }
 
-            packet = this.waitingPacketsQueue.poll();
+        if (!packetsToCheckAgain.isEmpty())
+        {
+            synchronized (this.expiringPacketsLock)
+            {
+                this.expiringPackets.addAll(packetsToCheckAgain);
+            }
         }
+    }
 
-        //Requeue all the non-expired messages.
-        this.waitingPacketsQueue.addAll(packetsToAddBackIntoWaitingPacketsQueue);
+    /**
+     * Adds the provided packet to the expiry index if its message has an expiry time
+     * @param packet the packet that was just accepted by this transport
+     */
+    private void addToExpiringPackets(IotHubTransportPacket packet)
+    {
+        if (packet.getMessage().getExpiryTime() == 0)
+        {
+            return;
+        }
 
-        //Check in progress messages
-        synchronized (this.inProgressMessagesLock)
+        synchronized (this.expiringPacketsLock)
+        {
+            this.expiringPackets.add(packet);
+
+            if (this.expiringPackets.size() > this.expiringPacketsPurgeThreshold)
+            {
+                purgeCompletedExpiringPackets();
+            }
+        }
+    }
+
+    /**
+     * Removes every packet whose message expired from the expiry index. Packets that already completed are discarded.
+     * @return the packets that have not completed yet and whose message expired
+     */
+    private List<IotHubTransportPacket> pollExpiredPackets()
+    {
+        List<IotHubTransportPacket> expiredPackets = new ArrayList<>();
+        long currentTime = System.currentTimeMillis();
+        synchronized (this.expiringPacketsLock)
         {
-            List<String> expiredPacketMessageIds = new ArrayList<>();
-            for (String messageId : this.inProgressPackets.keySet())
+            IotHubTransportPacket packet = this.expiringPackets.peek();
+            while (packet != null && packet.getMessage().getExpiryTime() < currentTime)
             {
-                if (this.inProgressPackets.get(messageId).getMessage().isExpired())
+                this.expiringPackets.poll();
+                if (packet.getStatus() == null)
                 {
-                    expiredPacketMessageIds.add(messageId);
+                    expiredPackets.add(packet);
                 }
+
+                packet = this.expiringPackets.peek();
             }
+        }
 
-            for (String messageId : expiredPacketMessageIds)
+        return expiredPackets;
+    }
+
+    /**
+     * Rebuilds the expiry index without the packets that already completed. Only runs once the index has doubled in
+     * size since the last purge, so that its cost is amortized over the packets added in between. Must be called while
+     * holding the expiringPacketsLock.
+     */
+    private void purgeCompletedExpiringPackets()
+    {
+        List<IotHubTransportPacket> pendingPackets = new ArrayList<>(this.expiringPackets.size());
+        for (IotHubTransportPacket packet : this.expiringPackets)
+        {
+            if (packet.getStatus() == null)
             {
-                IotHubTransportPacket expiredPacket = this.inProgressPackets.remove(messageId);
-                expiredPacket.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
-                this.addToCallbackQueue(expiredPacket);
+                pendingPackets.add(packet);
             }
         }
+
+        this.expiringPackets.clear();
+        this.expiringPackets.addAll(pendingPackets);
+        this.expiringPacketsPurgeThreshold = Math.max(INITIAL_EXPIRING_PACKETS_CAPACITY, pendingPackets.size() * 2);
     }
 
     /**
@@ -513,20 +760,65 @@ public class IotHubTransport implements IotHubListener
      */
     public void invokeCallbacks()
     {
+        CallbackDispatcher dispatcher = this.callbackDispatcher;
         IotHubTransportPacket packet = this.callbackPacketsQueue.poll();
         while (packet != null)
         {
-            IotHubStatusCode status = packet.getStatus();
-            IotHubEventCallback callback = packet.getCallback();
-            Object context = packet.getContext();
+            if (dispatcher == null)
+            {
+                this.invokeCallback(packet);
+            }
+            else
+            {
+                this.dispatchCallback(dispatcher, packet);
+            }
 
-            log.info("Invoking the callback function for sent message, IoT Hub responded to message ({}) with status {}", packet.getMessage(), status);
+            packet = this.callbackPacketsQueue.poll();
+        }
+    }
+
+    private void invokeCallback(IotHubTransportPacket packet)
+    {
+        IotHubStatusCode status = packet.getStatus();
+        IotHubEventCallback callback = packet.getCallback();
+        Object context = packet.getContext();
 
-            //Codes_SRS_IOTHUBTRANSPORT_34_045: [This function shall dequeue each packet in the callback queue and
-            // execute their saved callback with their saved status and context]
+        log.info("Invoking the callback function for sent message, IoT Hub responded to message ({}) with status {}", packet.getMessage(), status);
+
+        //Codes_SRS_IOTHUBTRANSPORT_34_045: [This function shall dequeue each packet in the callback queue and
+        // execute their saved callback with their saved status and context]
+        try
+        {
             callback.execute(status, context);
+        }
+        finally
+        {
+            this.releaseQueueCapacity(packet);
+        }
+    }
 
-            packet = this.callbackPacketsQueue.poll();
+    private void dispatchCallback(CallbackDispatcher dispatcher, final IotHubTransportPacket packet)
+    {
+        Message message = packet.getMessage();
+        String deviceId = message != null ? message.getConnectionDeviceId() : null;
+        Runnable invocation = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                invokeCallback(packet);
+            }
+        };
+
+        try
+        {
+            dispatcher.dispatch(deviceId, invocation);
+        }
+        catch (InterruptedException e)
+        {
+            // The callback still has to be invoked, so invoke it here rather than lose it
+            Thread.currentThread().interrupt();
+            invocation.run();
         }
     }
 
@@ -576,7 +868,9 @@ public class IotHubTransport implements IotHubListener
         {
             //Codes_SRS_IOTHUBTRANSPORT_34_043: [This function return true if and only if there are no packets in the
             // waiting queue, in progress, or in the callbacks queue.]
-            return this.waitingPacketsQueue.isEmpty() && this.inProgressPackets.size() == 0 && this.callbackPacketsQueue.isEmpty();
+            CallbackDispatcher dispatcher = this.callbackDispatcher;
+            return this.waitingPacketsQueue.isEmpty() && this.inProgressPackets.size() == 0 && this.callbackPacketsQueue.isEmpty()
+                    && (dispatcher == null || dispatcher.getPendingCallbackCount() == 0);
         }
     }
 
@@ -928,6 +1222,20 @@ public class IotHubTransport implements IotHubListener
         return null;
     }
 
+    /**
+     * Orders packets by the expiry time of their message, earliest first
+     */
+    private static class ExpiryTimeComparator implements Comparator<IotHubTransportPacket>
+    {
+        @Override
+        public int compare(IotHubTransportPacket packet1, IotHubTransportPacket packet2)
+        {
+            long expiryTime1 = packet1.getMessage().getExpiryTime();
+            long expiryTime2 = packet2.getMessage().getExpiryTime();
+            return expiryTime1 < expiryTime2 ? -1 : (expiryTime1 == expiryTime2 ? 0 : 1);
+        }
+    }
+
     /**
      * Task for adding a packet back to the waiting queue. Used for delaying message retry
      */
@@ -935,13 +1243,13 @@ public class IotHubTransport implements IotHubListener
     {
         final IotHubTransportPacket transportPacket;
         final Queue<IotHubTransportPacket> waitingPacketsQueue;
-        final Object sendThreadLock;
+        final WakeupSignal sendTaskSignal;
 
-        public MessageRetryRunnable(Queue<IotHubTransportPacket> waitingPacketsQueue, IotHubTransportPacket transportPacket, Object sendThreadLock)
+        public MessageRetryRunnable(Queue<IotHubTransportPacket> waitingPacketsQueue, IotHubTransportPacket transportPacket, WakeupSignal sendTaskSignal)
         {
             this.waitingPacketsQueue = waitingPacketsQueue;
             this.transportPacket = transportPacket;
-            this.sendThreadLock = sendThreadLock;
+            this.sendTaskSignal = sendTaskSignal;
         }
 
         @Override
@@ -950,10 +1258,9 @@ public class IotHubTransport implements IotHubListener
             this.waitingPacketsQueue.add(this.transportPacket);
 
             // Wake up send messages thread so that it can send this message
-            synchronized (this.sendThreadLock)
-            {
-                this.sendThreadLock.notifyAll();
-            }
+            this.sendTaskSignal.signal();
+
+            signalSharedTaskRunner(IotHubTransport.this.sendTaskRunner);
         }
     }
 
@@ -978,7 +1285,7 @@ public class IotHubTransport implements IotHubListener
                     //Codes_SRS_IOTHUBTRANSPORT_34_063: [If the provided transportException is retryable, the packet has not
                     // timed out, and the retry policy allows, this function shall schedule a task to add the provided
                     // packet to the waiting list after the amount of time determined by the retry policy.]
-                    this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet, this), retryDecision.getDuration(), MILLISECONDS);
+                    this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet, this.sendTaskSignal), retryDecision.getDuration(), MILLISECONDS);
                     return;
                 }
                 else
@@ -1229,25 +1536,231 @@ public class IotHubTransport implements IotHubListener
         //Codes_SRS_IOTHUBTRANSPORT_28_002: [This function shall add the packet to the callback queue if it has a callback.]
         if (packet.getCallback() != null)
         {
-            synchronized (this.sendThreadLock)
+            this.callbackPacketsQueue.add(packet);
+
+            //Wake up send messages thread so that it can process this new callback if it was asleep
+            this.sendTaskSignal.signal();
+
+            signalSharedTaskRunner(this.sendTaskRunner);
+        }
+        else
+        {
+            // There is no callback to wait for, so the message is done with as of now
+            this.releaseQueueCapacity(packet);
+        }
+    }
+
+    /**
+     * Adds a packet for a message that was just handed to this transport to the waiting queue, if the outgoing message
+     * queue has room for it. Otherwise, the configured overflow policy decides whether to wait for room, to drop
+     * older messages that have not been sent yet, or to reject the packet. Rejected and dropped packets are completed
+     * with status MESSAGE_QUEUE_FULL.
+     * @param packet the packet to add
+     * @return true if the packet was added to the waiting queue
+     * @throws IllegalStateException if this transport is closed while waiting for room in the queue
+     */
+    private boolean addToWaitingQueueIfCapacityAllows(IotHubTransportPacket packet)
+    {
+        int capacity = this.defaultConfig.getMessageQueueCapacity();
+        long capacityInBytes = this.defaultConfig.getMessageQueueCapacityInBytes();
+        long packetBytes = getQueueCapacityBytes(packet.getMessage());
+
+        if (capacity <= 0 && capacityInBytes <= 0)
+        {
+            // The queue is unbounded, so there is always room and no overflow policy to apply
+            this.queuedMessageCount.incrementAndGet();
+            this.queuedMessageBytes.addAndGet(packetBytes);
+            packet.reserveQueueCapacity(packetBytes);
+            this.addToExpiringPackets(packet);
+            this.addToWaitingQueue(packet);
+            return true;
+        }
+
+        MessageQueueOverflowPolicy overflowPolicy = this.defaultConfig.getMessageQueueOverflowPolicy();
+        List<IotHubTransportPacket> droppedPackets = new ArrayList<>();
+
+        boolean hasCapacity = tryReserveQueueCapacity(packetBytes, capacity, capacityInBytes);
+
+        // A message larger than the whole queue would never fit, no matter how long it waits or what is dropped
+        boolean canEverFit = capacityInBytes <= 0 || packetBytes <= capacityInBytes;
+
+        if (!hasCapacity && canEverFit && overflowPolicy == MessageQueueOverflowPolicy.BLOCK)
+        {
+            hasCapacity = waitForQueueCapacity(packetBytes, capacity, capacityInBytes);
+        }
+        else if (!hasCapacity && canEverFit && overflowPolicy == MessageQueueOverflowPolicy.DROP_OLDEST)
+        {
+            IotHubTransportPacket oldestPacket;
+            while (!hasCapacity && (oldestPacket = this.waitingPacketsQueue.poll()) != null)
+            {
+                releaseQueueCapacity(oldestPacket);
+                droppedPackets.add(oldestPacket);
+                hasCapacity = tryReserveQueueCapacity(packetBytes, capacity, capacityInBytes);
+            }
+        }
+
+        if (hasCapacity)
+        {
+            // The packet is marked as holding its reservation before it can be seen in the waiting queue, so that a
+            // concurrent drop of it releases that reservation
+            packet.reserveQueueCapacity(packetBytes);
+            this.addToExpiringPackets(packet);
+            this.addToWaitingQueue(packet);
+        }
+
+        for (IotHubTransportPacket droppedPacket : droppedPackets)
+        {
+            log.warn("Outgoing message queue is full, dropping the oldest unsent message ({})", droppedPacket.getMessage());
+            droppedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+            this.addToCallbackQueue(droppedPacket);
+        }
+
+        if (!hasCapacity)
+        {
+            log.warn("Outgoing message queue is full, rejecting message ({})", packet.getMessage());
+            packet.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+            this.addToCallbackQueue(packet);
+        }
+
+        return hasCapacity;
+    }
+
+    /**
+     * Counts a message of the provided size towards the outgoing message queue capacity, if the queue has room for it
+     * @return true if the queue had room for the message, which now counts towards its capacity
+     */
+    private boolean tryReserveQueueCapacity(long packetBytes, int capacity, long capacityInBytes)
+    {
+        int count;
+        do
+        {
+            count = this.queuedMessageCount.get();
+            if (capacity > 0 && count >= capacity)
             {
-                this.callbackPacketsQueue.add(packet);
+                return false;
+            }
+        }
+        while (!this.queuedMessageCount.compareAndSet(count, count + 1));
 
-                //Wake up send messages thread so that it can process this new callback if it was asleep
-                this.sendThreadLock.notifyAll();
+        long bytes;
+        do
+        {
+            bytes = this.queuedMessageBytes.get();
+            if (capacityInBytes > 0 && bytes + packetBytes > capacityInBytes)
+            {
+                // Give back the count reserved above, which a waiting caller may be able to use
+                this.queuedMessageCount.decrementAndGet();
+                notifyQueueCapacityWaiters();
+                return false;
             }
         }
+        while (!this.queuedMessageBytes.compareAndSet(bytes, bytes + packetBytes));
+
+        return true;
     }
 
-    private void addToWaitingQueue(IotHubTransportPacket packet)
+    /**
+     * Waits until the outgoing message queue has room for a message of the provided size and reserves it, or until
+     * the configured block timeout elapses
+     * @return true if the queue had room for the message, which now counts towards its capacity
+     * @throws IllegalStateException if this transport is closed while waiting
+     */
+    private boolean waitForQueueCapacity(long packetBytes, int capacity, long capacityInBytes)
+    {
+        long remainingMillis = this.defaultConfig.getMessageQueueBlockTimeoutMillis();
+        long deadlineMillis = System.currentTimeMillis() + remainingMillis;
+
+        // Registered before checking for room again, so that capacity released after that check always notifies
+        this.queueCapacityWaiterCount.incrementAndGet();
+        try
+        {
+            synchronized (this.queueCapacityLock)
+            {
+                boolean hasCapacity;
+                while (!(hasCapacity = tryReserveQueueCapacity(packetBytes, capacity, capacityInBytes)) && remainingMillis > 0)
+                {
+                    try
+                    {
+                        this.queueCapacityLock.wait(remainingMillis);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+
+                    if (this.connectionStatus == IotHubConnectionStatus.DISCONNECTED)
+                    {
+                        throw new IllegalStateException("Cannot add a message when the transport is closed.");
+                    }
+
+                    remainingMillis = deadlineMillis - System.currentTimeMillis();
+                }
+
+                return hasCapacity;
+            }
+        }
+        finally
+        {
+            this.queueCapacityWaiterCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops counting the provided packet towards the outgoing message queue capacity, if it was counted at all, and
+     * wakes up any caller waiting for room in that queue
+     * @param packet the packet that no longer occupies the queue
+     */
+    private void releaseQueueCapacity(IotHubTransportPacket packet)
+    {
+        if (packet.holdsQueueCapacity())
+        {
+            long packetBytes = packet.getQueueCapacityBytes();
+            packet.releaseQueueCapacity();
+            this.queuedMessageCount.decrementAndGet();
+            this.queuedMessageBytes.addAndGet(-packetBytes);
+            notifyQueueCapacityWaiters();
+        }
+    }
+
+    private void notifyQueueCapacityWaiters()
+    {
+        if (this.queueCapacityWaiterCount.get() > 0)
+        {
+            synchronized (this.queueCapacityLock)
+            {
+                this.queueCapacityLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes the provided message counts for towards the outgoing message queue capacity
+     */
+    private static long getQueueCapacityBytes(Message message)
     {
-        synchronized (this.sendThreadLock)
+        if (message instanceof BatchMessage)
         {
-            this.waitingPacketsQueue.add(packet);
+            long batchBytes = 0;
+            for (Message nestedMessage : ((BatchMessage) message).getNestedMessages())
+            {
+                batchBytes += getQueueCapacityBytes(nestedMessage);
+            }
 
-            // Wake up IotHubSendTask so it can send this message
-            this.sendThreadLock.notifyAll();
+            return batchBytes;
         }
+
+        return IotHubTransportMessage.getBodyLength(message);
+    }
+
+    private void addToWaitingQueue(IotHubTransportPacket packet)
+    {
+        this.waitingPacketsQueue.add(packet);
+
+        // Wake up IotHubSendTask so it can send this message
+        this.sendTaskSignal.signal();
+
+        signalSharedTaskRunner(this.sendTaskRunner);
     }
 
     private void addToReceivedMessagesQueue(IotHubTransportMessage message)
@@ -1259,6 +1772,16 @@ public class IotHubTransport implements IotHubListener
             // Wake up IotHubReceiveTask so it can handle receiving this message
             this.receiveThreadLock.notifyAll();
         }
+
+        signalSharedTaskRunner(this.receiveTaskRunner);
+    }
+
+    private static void signalSharedTaskRunner(SharedTaskRunner sharedTaskRunner)
+    {
+        if (sharedTaskRunner != null)
+        {
+            sharedTaskRunner.signal();
+        }
     }
 
     /**
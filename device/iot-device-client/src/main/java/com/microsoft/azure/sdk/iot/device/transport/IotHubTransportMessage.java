@@ -6,6 +6,8 @@ package com.microsoft.azure.sdk.iot.device.transport;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.*;
 
+import java.nio.ByteBuffer;
+
 /**
  * Extends Message, adding transport artifacts.
  */
@@ -82,6 +84,45 @@ public class IotHubTransportMessage extends Message
         }
     }
 
+    /**
+     * The byte content of the provided message's body, without copying it, for the transports to serialize
+     * @param message the message to get the body of
+     * @return the message body, as a byte array that must not be modified, or null if the message has no body
+     */
+    public static byte[] getBodyReference(Message message)
+    {
+        return Message.getBodyReference(message);
+    }
+
+    /**
+     * The content of the provided message's body as a buffer that shares it, for the transports to serialize
+     * @param message the message to get the body of
+     * @return a buffer whose content between its position and its limit is the message body, and whose content must
+     * not be modified, or null if the message has no body
+     */
+    public static ByteBuffer getBodyBuffer(Message message)
+    {
+        return Message.getBodyBuffer(message);
+    }
+
+    /**
+     * @param message the message to check
+     * @return true if the provided message has a body, even an empty one
+     */
+    public static boolean hasBody(Message message)
+    {
+        return Message.hasBody(message);
+    }
+
+    /**
+     * @param message the message to get the body length of
+     * @return the number of bytes of the provided message's body, or 0 if it has no body
+     */
+    public static int getBodyLength(Message message)
+    {
+        return Message.getBodyLength(message);
+    }
+
     public MessageCallback getMessageCallback()
     {
         return messageCallback;
@@ -21,6 +21,10 @@ public final class IotHubTransportPacket
     private final long startTimeMillis;
     private int currentRetryAttempt;
 
+    // Whether this packet currently counts towards the capacity of the outgoing message queue, and by how many bytes
+    private boolean holdsQueueCapacity;
+    private long queueCapacityBytes;
+
     /**
      * Constructor.
      *
@@ -139,4 +143,39 @@ public final class IotHubTransportPacket
         // Codes_SRS_IOTHUBTRANSPORTPACKET_34_009: [This function shall increment the saved retry attempt count by 1.]
         this.currentRetryAttempt++;
     }
+
+    /**
+     * @return true if this packet currently counts towards the capacity of the outgoing message queue
+     */
+    public boolean holdsQueueCapacity()
+    {
+        return this.holdsQueueCapacity;
+    }
+
+    /**
+     * @return the number of bytes this packet counts for towards the capacity of the outgoing message queue
+     */
+    public long getQueueCapacityBytes()
+    {
+        return this.queueCapacityBytes;
+    }
+
+    /**
+     * Marks this packet as counting towards the capacity of the outgoing message queue
+     * @param queueCapacityBytes the number of bytes this packet counts for
+     */
+    public void reserveQueueCapacity(long queueCapacityBytes)
+    {
+        this.holdsQueueCapacity = true;
+        this.queueCapacityBytes = queueCapacityBytes;
+    }
+
+    /**
+     * Marks this packet as no longer counting towards the capacity of the outgoing message queue
+     */
+    public void releaseQueueCapacity()
+    {
+        this.holdsQueueCapacity = false;
+        this.queueCapacityBytes = 0;
+    }
 }
@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Runs a task of one client on an executor shared with other clients each time that task is signaled that it has work.
+ * The task never runs concurrently with itself, and signals that arrive while it is already queued are coalesced, so
+ * each client occupies at most one slot of the executor's queue at a time. A client with a large backlog only gets one
+ * slice of work done before going back to the end of that queue, which keeps the clients fair to each other.
+ *
+ * Unlike a task running on a thread of its own, the task never waits for work, so it costs nothing while idle.
+ */
+@Slf4j
+public final class SharedTaskRunner implements Runnable
+{
+    /**
+     * A task that does a bounded slice of work each time it runs
+     */
+    public interface Task
+    {
+        /**
+         * Do one slice of work without waiting for any work to arrive
+         * @return true if there is more work left to do right away
+         */
+        boolean runOnce();
+    }
+
+    private final Task task;
+    private final ScheduledExecutorService executor;
+    private final long rescheduleDelayMillis;
+
+    // True while this runner is queued on, or running on, the executor
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // True if there may be work that arrived since the task last started running
+    private final AtomicBoolean signaled = new AtomicBoolean();
+
+    private volatile boolean stopped;
+
+    /**
+     * @param task the task to run
+     * @param executor the executor shared with other clients
+     * @param rescheduleDelayMillis how long to wait before running the task again when it still has work left, mirroring
+     * the fixed delay between runs of a task that has a thread of its own
+     */
+    public SharedTaskRunner(Task task, ScheduledExecutorService executor, long rescheduleDelayMillis)
+    {
+        if (task == null || executor == null)
+        {
+            throw new IllegalArgumentException("task and executor cannot be null");
+        }
+
+        this.task = task;
+        this.executor = executor;
+        this.rescheduleDelayMillis = rescheduleDelayMillis;
+    }
+
+    /**
+     * Let the task know that it has work to do. Safe to call from any thread, and cheap to call many times in a row.
+     */
+    public void signal()
+    {
+        this.signaled.set(true);
+        if (!this.stopped && this.scheduled.compareAndSet(false, true))
+        {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Stop running the task. A run that is already in progress completes.
+     */
+    public void stop()
+    {
+        this.stopped = true;
+    }
+
+    @Override
+    public void run()
+    {
+        if (this.stopped)
+        {
+            this.scheduled.set(false);
+            return;
+        }
+
+        this.signaled.set(false);
+
+        boolean hasMoreWork = false;
+        try
+        {
+            hasMoreWork = this.task.runOnce();
+        }
+        catch (Throwable e)
+        {
+            log.warn("Shared task runner encountered exception while running task", e);
+        }
+
+        this.scheduled.set(false);
+
+        if (this.stopped)
+        {
+            return;
+        }
+
+        if (hasMoreWork)
+        {
+            if (this.scheduled.compareAndSet(false, true))
+            {
+                schedule(this.rescheduleDelayMillis);
+            }
+        }
+        else if (this.signaled.get() && this.scheduled.compareAndSet(false, true))
+        {
+            // Work arrived while the task was running, and the signal for it could not schedule another run
+            schedule(0);
+        }
+    }
+
+    private void schedule(long delayMillis)
+    {
+        try
+        {
+            this.executor.schedule(this, delayMillis, MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            this.scheduled.set(false);
+            log.warn("Shared executor rejected task, it has most likely been closed", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes up a single consumer thread when any number of producer threads hand it work, without any of them taking a
+ * lock. Signals are coalesced: only the first signal after the consumer last cleared this one unparks it, so a burst
+ * of producers wakes the consumer once, and the rest only read a flag.
+ *
+ * <p>The consumer must call {@link #clear()} before it checks for work, and then {@link #await()} only if it found
+ * none, so that work handed over in between is never missed.</p>
+ */
+public final class WakeupSignal
+{
+    private final AtomicBoolean signaled = new AtomicBoolean();
+    private volatile Thread waiter;
+
+    /**
+     * Let the consumer know that there is work for it, waking it up if it is waiting. Safe to call from any thread.
+     */
+    public void signal()
+    {
+        if (!this.signaled.get() && this.signaled.compareAndSet(false, true))
+        {
+            Thread thread = this.waiter;
+            if (thread != null)
+            {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Forget any signal received so far. Only called by the consumer, right before it checks for work.
+     */
+    public void clear()
+    {
+        this.signaled.set(false);
+    }
+
+    /**
+     * Wait until this is signaled, returning right away if it already was since the last call to {@link #clear()}.
+     * Only called by the consumer.
+     * @throws InterruptedException if the consumer thread is interrupted while waiting
+     */
+    public void await() throws InterruptedException
+    {
+        this.waiter = Thread.currentThread();
+        try
+        {
+            while (!this.signaled.getAndSet(false))
+            {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        finally
+        {
+            this.waiter = null;
+        }
+    }
+}
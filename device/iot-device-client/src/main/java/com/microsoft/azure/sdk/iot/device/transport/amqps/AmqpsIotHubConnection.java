@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An AMQPS IotHub connection between a device and an IoTHub or Edgehub. This class is responsible for reacting to connection level and
@@ -60,11 +61,16 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     private static final int CBS_SESSION_COUNT = 1; //even for multiplex scenarios
 
     // Message send constants
-    private static final int SEND_MESSAGES_PERIOD_MILLIS = 50; //every 50 milliseconds, the method onTimerTask will fire to send, at most, MAX_MESSAGES_TO_SEND_PER_CALLBACK queued messages
-    private static final int MAX_MESSAGES_TO_SEND_PER_CALLBACK = 1000; //Max number of queued messages to send per periodic sending task
+    private static final int MAX_MESSAGES_TO_SEND_PER_CALLBACK = 1000; //Max number of queued messages to send each time the reactor runs out of other work
 
     // States of outgoing messages, incoming messages, and outgoing subscriptions
     private final Queue<Message> messagesToSend = new ConcurrentLinkedQueue<>();
+
+    // Time, from System.nanoTime(), at which the reactor was first asked to flush the queued messages since it last
+    // flushed them, or 0 if no flush is pending
+    private final AtomicLong flushRequestedNanos = new AtomicLong();
+    private volatile long lastFlushLatencyNanos;
+    private volatile long maxFlushLatencyNanos;
     private String connectionId;
     private IotHubConnectionStatus state;
     private String hostName;
@@ -81,7 +87,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
     // Proton-j primitives and wrappers for the device and authentication sessions
     private Connection connection;
-    private Reactor reactor;
+    private volatile Reactor reactor;
     private ArrayList<AmqpsSessionHandler> sessionHandlerList = new ArrayList<>();
     private ArrayList<AmqpsSasTokenRenewalHandler> sasTokenRenwalHandlerList = new ArrayList<>();
     private AmqpsCbsSessionHandler amqpsCbsSessionHandler;
@@ -212,7 +218,18 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         }
 
         this.reactor.connectionToHost(hostName, port, this);
-        this.reactor.schedule(SEND_MESSAGES_PERIOD_MILLIS, this);
+    }
+
+    /**
+     * Fires each time the reactor has handled every pending event and is about to wait for IO, including right after
+     * {@link #sendMessage(com.microsoft.azure.sdk.iot.device.Message)} woke it up. Queued messages are sent from here
+     * since proton-j objects may only be touched from the reactor thread.
+     * @param event The proton event object
+     */
+    @Override
+    public void onReactorQuiesced(Event event)
+    {
+        sendQueuedMessages();
     }
 
     @Override
@@ -370,14 +387,6 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         event.getConnection().close();
     }
 
-    @Override
-    public void onTimerTask(Event event)
-    {
-        sendQueuedMessages();
-
-        event.getReactor().schedule(SEND_MESSAGES_PERIOD_MILLIS, this);
-    }
-
     @Override
     public void setListener(IotHubListener listener)
     {
@@ -389,9 +398,11 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     {
         // Note that you cannot just send this message from this thread. Proton-j's reactor is not thread safe. As such,
         // all message sending must be done from the proton-j thread that is exposed to this SDK through callbacks
-        // such as onLinkFlow(), or onTimerTask()
+        // such as onReactorQuiesced(). Waking the reactor up makes it fire that callback right away.
         log.trace("Adding message to amqp message queue to be sent later ({})", message);
         messagesToSend.add(message);
+        this.flushRequestedNanos.compareAndSet(0, System.nanoTime());
+        wakeUpReactor();
         return IotHubStatusCode.OK;
     }
 
@@ -424,6 +435,8 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         {
             if (sessionHandler.acknowledgeReceivedMessage(message, ackType))
             {
+                // the disposition was set from this thread, so the reactor has to be woken up to send it
+                wakeUpReactor();
                 return true;
             }
         }
@@ -438,6 +451,24 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         return this.connectionId;
     }
 
+    /**
+     * @return The time, in nanoseconds, between the most recent flush of queued messages being requested by
+     * {@link #sendMessage(com.microsoft.azure.sdk.iot.device.Message)} and the reactor thread starting that flush
+     */
+    public long getLastFlushLatencyNanos()
+    {
+        return this.lastFlushLatencyNanos;
+    }
+
+    /**
+     * @return The longest time, in nanoseconds, that a requested flush of queued messages waited for the reactor thread
+     * since this connection was created
+     */
+    public long getMaxFlushLatencyNanos()
+    {
+        return this.maxFlushLatencyNanos;
+    }
+
     @Override
     public void onDeviceSessionOpened(String deviceId)
     {
@@ -550,6 +581,8 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
     private void sendQueuedMessages()
     {
+        recordFlushLatency();
+
         int messagesAttemptedToBeProcessed = 0;
         Message message = messagesToSend.poll();
         while (message != null && messagesAttemptedToBeProcessed < MAX_MESSAGES_TO_SEND_PER_CALLBACK)
@@ -572,6 +605,34 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         {
             //message was polled out of list, but loop exited from processing too many messages before it could process this message, so re-queue it for later
             messagesToSend.add(message);
+
+            // Let the reactor handle its other pending IO first, then come straight back for the rest of the queue
+            this.flushRequestedNanos.compareAndSet(0, System.nanoTime());
+            wakeUpReactor();
+        }
+    }
+
+    private void recordFlushLatency()
+    {
+        long requestedNanos = this.flushRequestedNanos.getAndSet(0);
+        if (requestedNanos != 0)
+        {
+            long latencyNanos = System.nanoTime() - requestedNanos;
+            this.lastFlushLatencyNanos = latencyNanos;
+            if (latencyNanos > this.maxFlushLatencyNanos)
+            {
+                this.maxFlushLatencyNanos = latencyNanos;
+            }
+        }
+    }
+
+    private void wakeUpReactor()
+    {
+        // Reactor.wakeup() is the one reactor method that is safe to call from any thread
+        Reactor reactor = this.reactor;
+        if (reactor != null)
+        {
+            reactor.wakeup();
         }
     }
 
@@ -738,6 +799,9 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             log.trace("Closing amqp connection");
             this.connection.close();
         }
+
+        // closing may be requested from outside the reactor thread, which only notices it once it is woken up
+        wakeUpReactor();
     }
 
     private void executorServicesCleanup() throws TransportException
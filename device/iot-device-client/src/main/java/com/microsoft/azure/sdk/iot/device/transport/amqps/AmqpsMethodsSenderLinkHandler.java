@@ -102,20 +102,23 @@ public final class AmqpsMethodsSenderLinkHandler extends AmqpsSenderLinkHandler
 
             protonMessage.setProperties(properties);
 
-            Map<String, Object> userProperties = new HashMap<>();
-            if (deviceMethodMessage.getStatus() != null)
+            // The base class hands over a mutable map of its own, so add to it rather than copying it.
+            // A user property of the same name still takes precedence, as it did when the map was copied
+            Map<String, Object> userProperties;
+            if (protonMessage.getApplicationProperties() != null && protonMessage.getApplicationProperties().getValue() != null)
             {
-                userProperties.put(APPLICATION_PROPERTY_KEY_IOTHUB_STATUS, Integer.parseInt(deviceMethodMessage.getStatus()));
+                userProperties = protonMessage.getApplicationProperties().getValue();
             }
-
-            if (protonMessage.getApplicationProperties() != null && protonMessage.getApplicationProperties().getValue() != null)
+            else
             {
-                Map<String, Object> applicationPropertiesMap = protonMessage.getApplicationProperties().getValue();
-                userProperties.putAll(applicationPropertiesMap);
+                userProperties = new HashMap<>();
+                protonMessage.setApplicationProperties(new ApplicationProperties(userProperties));
             }
 
-            ApplicationProperties applicationProperties = new ApplicationProperties(userProperties);
-            protonMessage.setApplicationProperties(applicationProperties);
+            if (deviceMethodMessage.getStatus() != null && !userProperties.containsKey(APPLICATION_PROPERTY_KEY_IOTHUB_STATUS))
+            {
+                userProperties.put(APPLICATION_PROPERTY_KEY_IOTHUB_STATUS, Integer.parseInt(deviceMethodMessage.getStatus()));
+            }
 
             return protonMessage;
         }
@@ -23,8 +23,13 @@ public class AmqpsSendResult
     }
 
     AmqpsSendResult(boolean deliverySuccessful, byte[] deliveryTag)
+    {
+        this(deliverySuccessful, AmqpsSenderLinkHandler.parseDeliveryTag(deliveryTag));
+    }
+
+    AmqpsSendResult(boolean deliverySuccessful, int deliveryTag)
     {
         this.deliverySuccessful = deliverySuccessful;
-        this.deliveryTag = Integer.parseInt(new String(deliveryTag));
+        this.deliveryTag = deliveryTag;
     }
 }
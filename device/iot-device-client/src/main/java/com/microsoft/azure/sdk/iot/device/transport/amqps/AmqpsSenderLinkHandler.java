@@ -6,18 +6,22 @@ package com.microsoft.azure.sdk.iot.device.transport.amqps;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.*;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.amqp.transport.SenderSettleMode;
 import org.apache.qpid.proton.engine.*;
 import org.apache.qpid.proton.message.impl.MessageImpl;
 import org.apache.qpid.proton.reactor.FlowController;
 
 import java.nio.BufferOverflowException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,6 +31,11 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
 {
     static final String VERSION_IDENTIFIER_KEY = "com.microsoft:client-version";
     private static final String API_VERSION_KEY = "com.microsoft:api-version";
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+    private static final int DEFAULT_MESSAGE_FORMAT = 0;
+
+    // Delivery tags are the decimal digits of a non-negative int, so they are never longer than Integer.MAX_VALUE's
+    private static final int MAX_DELIVERY_TAG_LENGTH = 10;
     final Map<Integer, Message> inProgressMessages = new ConcurrentHashMap<>();
     Map<Symbol, Object> amqpProperties;
     String senderLinkTag;
@@ -34,7 +43,12 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
     String senderLinkAddress;
     Sender senderLink;
     private long nextTag = 0;
-    private AmqpsLinkStateCallback amqpsLinkStateCallback;
+
+    // Only ever touched from the reactor thread. Proton copies the bytes it is given on send, so the same buffer is
+    // reused for every message sent on this link. It only ever grows, so once a link has sent a message of a given
+    // size, later messages of that size are encoded without any allocation or retry.
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
+    AmqpsLinkStateCallback amqpsLinkStateCallback;
 
     AmqpsSenderLinkHandler(Sender sender, AmqpsLinkStateCallback amqpsLinkStateCallback, String linkCorrelationId)
     {
@@ -72,7 +86,7 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         //Safe to cast here because this callback will only ever fire for acknowledgements received on this sender link
         Delivery delivery = event.getDelivery();
 
-        int deliveryTag = Integer.valueOf(new String(event.getDelivery().getTag()));
+        int deliveryTag = parseDeliveryTag(delivery.getTag());
 
         Message acknowledgedIotHubMessage = this.inProgressMessages.remove(deliveryTag);
         if (acknowledgedIotHubMessage == null)
@@ -158,7 +172,18 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
     {
         //Callers of this method are responsible for putting the returned delivery tag into the inProgressMessages map
         // so that this link can respond to this message being acknowledged appropriately
+        int length = encode(protonMessage, 0);
+        return sendEncodedMessage(length, DEFAULT_MESSAGE_FORMAT);
+    }
 
+    /**
+     * Send the first bytes of the encode buffer as a single delivery
+     * @param length the number of bytes of the encode buffer to send
+     * @param messageFormat the message format of the delivery
+     * @return the result of the send, with the delivery tag of the delivery if it was sent
+     */
+    AmqpsSendResult sendEncodedMessage(int length, int messageFormat)
+    {
         //want to avoid negative delivery tags since -1 is the designated failure value
         if (this.nextTag == Integer.MAX_VALUE || this.nextTag < 0)
         {
@@ -169,29 +194,19 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
             this.nextTag++;
         }
 
-        byte[] msgData = new byte[1024];
-        int length;
+        int deliveryTagValue = (int) this.nextTag;
+        byte[] deliveryTag = toDeliveryTag(deliveryTagValue);
 
-        while (true)
+        Delivery delivery = this.senderLink.delivery(deliveryTag);
+        try
         {
-            try
+            if (messageFormat != DEFAULT_MESSAGE_FORMAT)
             {
-                length = protonMessage.encode(msgData, 0, msgData.length);
-                break;
+                delivery.setMessageFormat(messageFormat);
             }
-            catch (BufferOverflowException e)
-            {
-                msgData = new byte[msgData.length * 2];
-            }
-        }
 
-        byte[] deliveryTag = String.valueOf(this.nextTag).getBytes();
-
-        Delivery delivery = this.senderLink.delivery(deliveryTag);
-        try
-        {
             log.trace("Sending {} bytes over the amqp {} sender link with link correlation id {}", length, getLinkInstanceType(), this.linkCorrelationId);
-            int bytesSent = this.senderLink.send(msgData, 0, length);
+            int bytesSent = this.senderLink.send(this.encodeBuffer, 0, length);
             log.trace("{} bytes sent over the amqp {} sender link with link correlation id {}", bytesSent, getLinkInstanceType(), this.linkCorrelationId);
 
             if (bytesSent != length)
@@ -206,8 +221,8 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
                 throw new ProtocolException(String.format("Failed to advance the senderLink after sending a message on %s sender link with link correlation id %s, retrying to send the message", getLinkInstanceType(), this.linkCorrelationId));
             }
 
-            log.trace("Message was sent over {} sender link with delivery tag {} and hash {}", getLinkInstanceType(), new String(deliveryTag), delivery.hashCode());
-            return new AmqpsSendResult(true, deliveryTag);
+            log.trace("Message was sent over {} sender link with delivery tag {} and hash {}", getLinkInstanceType(), deliveryTagValue, delivery.hashCode());
+            return new AmqpsSendResult(true, deliveryTagValue);
         }
         catch (Exception e)
         {
@@ -218,6 +233,103 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         }
     }
 
+    /**
+     * Encode the provided message into the encode buffer, growing the buffer as needed while keeping the bytes that
+     * are already encoded before the provided offset
+     * @param protonMessage the message to encode
+     * @param offset the index of the encode buffer to encode the message at
+     * @return the number of bytes that the encoded message takes
+     */
+    int encode(MessageImpl protonMessage, int offset)
+    {
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(this.encodeBuffer, offset, this.encodeBuffer.length - offset);
+            }
+            catch (BufferOverflowException e)
+            {
+                this.encodeBuffer = Arrays.copyOf(this.encodeBuffer, this.encodeBuffer.length * 2);
+            }
+        }
+    }
+
+    /**
+     * Fail the provided message without sending it, the same way as if the service had rejected it
+     * @param iotHubMessage the message to fail
+     * @param errorCondition the AMQP error condition to fail the message with
+     * @param description the description of the error
+     */
+    void rejectWithoutSending(Message iotHubMessage, Symbol errorCondition, String description)
+    {
+        Rejected rejected = new Rejected();
+        rejected.setError(new ErrorCondition(errorCondition, description));
+        // The message never got a delivery tag, since it was never sent
+        this.amqpsLinkStateCallback.onMessageAcknowledged(iotHubMessage, -1, rejected);
+    }
+
+    /**
+     * Encode a delivery tag as the ASCII decimal digits of its value, the same bytes that
+     * {@code String.valueOf(tag).getBytes()} would produce, without allocating any intermediate string.
+     * @param tag the non-negative delivery tag value
+     * @return the delivery tag bytes
+     */
+    static byte[] toDeliveryTag(int tag)
+    {
+        if (tag == 0)
+        {
+            return new byte[] {'0'};
+        }
+
+        int length = 0;
+        for (int remaining = tag; remaining > 0; remaining /= 10)
+        {
+            length++;
+        }
+
+        byte[] deliveryTag = new byte[length];
+        for (int i = length - 1; i >= 0; i--)
+        {
+            deliveryTag[i] = (byte) ('0' + tag % 10);
+            tag /= 10;
+        }
+
+        return deliveryTag;
+    }
+
+    /**
+     * Parse a delivery tag built by {@link #toDeliveryTag(int)} back into its value without allocating any intermediate string.
+     * @param deliveryTag the delivery tag bytes
+     * @return the delivery tag value
+     * @throws NumberFormatException if the delivery tag is not made of decimal digits only
+     */
+    static int parseDeliveryTag(byte[] deliveryTag)
+    {
+        if (deliveryTag == null || deliveryTag.length == 0 || deliveryTag.length > MAX_DELIVERY_TAG_LENGTH)
+        {
+            throw new NumberFormatException("Delivery tag is not a valid non-negative integer");
+        }
+
+        long value = 0;
+        for (byte digit : deliveryTag)
+        {
+            if (digit < '0' || digit > '9')
+            {
+                throw new NumberFormatException("Delivery tag is not a valid non-negative integer");
+            }
+
+            value = value * 10 + (digit - '0');
+        }
+
+        if (value > Integer.MAX_VALUE)
+        {
+            throw new NumberFormatException("Delivery tag is not a valid non-negative integer");
+        }
+
+        return (int) value;
+    }
+
     MessageImpl iotHubMessageToProtonMessage(Message message)
     {
         log.trace("Converting IoT Hub message to proton message for {} sender link with link correlation id {}. IoT Hub message correlationId {}", getLinkInstanceType(), this.linkCorrelationId, message.getCorrelationId());
@@ -229,7 +341,7 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
             properties.setMessageId(message.getMessageId());
         }
 
-        if (message.getCorrelationId() != null)
+        if (message.getCorrelationId() != null && !message.getCorrelationId().isEmpty())
         {
             properties.setCorrelationId(message.getCorrelationId());
         }
@@ -246,16 +358,15 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
 
         outgoingMessage.setProperties(properties);
 
-        Map<String, Object> userProperties = new HashMap<>();
-        if (message.getProperties().length > 0)
+        Collection<MessageProperty> messageProperties = message.getPropertiesView();
+
+        // Sized for the user properties plus the few system properties added below, so that it never has to rehash.
+        // Subclasses add their own properties to this same map rather than copying it.
+        // Message properties are validated against the reserved names when they are set, so they are not checked again
+        Map<String, Object> userProperties = new HashMap<>(2 * (messageProperties.size() + 6));
+        for (MessageProperty messageProperty : messageProperties)
         {
-            for (MessageProperty messageProperty : message.getProperties())
-            {
-                if (!MessageProperty.RESERVED_PROPERTY_NAMES.contains(messageProperty.getName()))
-                {
-                    userProperties.put(messageProperty.getName(), messageProperty.getValue());
-                }
-            }
+            userProperties.put(messageProperty.getName(), messageProperty.getValue());
         }
 
         if (message.getConnectionDeviceId() != null)
@@ -281,7 +392,9 @@ public abstract class AmqpsSenderLinkHandler extends BaseHandler
         ApplicationProperties applicationProperties = new ApplicationProperties(userProperties);
         outgoingMessage.setApplicationProperties(applicationProperties);
 
-        Binary binary = new Binary(message.getBytes());
+        // The message body is not modified while this proton message is alive, so it is wrapped rather than copied,
+        // even when it is only a part of its backing array. Only a direct buffer body has to be copied into the heap
+        Binary binary = Binary.create(IotHubTransportMessage.getBodyBuffer(message));
         Section section = new Data(binary);
         outgoingMessage.setBody(section);
         return outgoingMessage;
@@ -3,20 +3,39 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.MessageType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
-import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.UnsignedLong;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
+import org.apache.qpid.proton.amqp.transport.LinkError;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
 import org.apache.qpid.proton.engine.Sender;
 import org.apache.qpid.proton.message.impl.MessageImpl;
 
+import java.nio.BufferOverflowException;
 import java.util.HashMap;
 import java.util.Map;
 
+@Slf4j
 final class AmqpsTelemetrySenderLinkHandler extends AmqpsSenderLinkHandler
 {
+    // The message format of a delivery whose body is a batch of messages, each encoded in a data section of its own
+    private static final int BATCH_MESSAGE_FORMAT = 0x80013700;
+
+    private static final int INITIAL_BATCH_ITEM_BUFFER_SIZE = 1024;
+
     private static final String CORRELATION_ID_KEY = "com.microsoft:channel-correlation-id";
 
     private static final String DEVICE_SENDER_LINK_ENDPOINT_PATH = "/devices/%s/messages/events";
@@ -26,6 +45,14 @@ final class AmqpsTelemetrySenderLinkHandler extends AmqpsSenderLinkHandler
 
     private static final String LINK_TYPE = "telemetry";
 
+    // Only ever touched from the reactor thread. Each message of a batch is encoded here before it is wrapped in a
+    // data section of the batch, and like the encode buffer it is reused and only ever grows
+    private byte[] batchItemBuffer = new byte[INITIAL_BATCH_ITEM_BUFFER_SIZE];
+
+    // Only ever touched from the reactor thread. Maps the delivery tag of each delivery that carries part of a batch to
+    // the batch it belongs to
+    private final Map<Integer, BatchDelivery> batchDeliveries = new HashMap<>();
+
     AmqpsTelemetrySenderLinkHandler(Sender sender, AmqpsLinkStateCallback amqpsLinkStateCallback, DeviceClientConfig deviceClientConfig, String linkCorrelationId)
     {
         super(sender, amqpsLinkStateCallback, linkCorrelationId);
@@ -75,6 +102,195 @@ final class AmqpsTelemetrySenderLinkHandler extends AmqpsSenderLinkHandler
         }
     }
 
+    @Override
+    AmqpsSendResult sendMessageAndGetDeliveryTag(Message iotHubMessage)
+    {
+        if (!(iotHubMessage instanceof BatchMessage))
+        {
+            return super.sendMessageAndGetDeliveryTag(iotHubMessage);
+        }
+
+        return sendBatch((BatchMessage) iotHubMessage);
+    }
+
+    @Override
+    public void onDelivery(Event event)
+    {
+        Delivery delivery = event.getDelivery();
+        BatchDelivery batchDelivery = this.batchDeliveries.remove(parseDeliveryTag(delivery.getTag()));
+        if (batchDelivery == null)
+        {
+            super.onDelivery(event);
+            return;
+        }
+
+        batchDelivery.pendingParts--;
+        batchDelivery.onPartSettled(delivery.getRemoteState());
+        delivery.free();
+
+        if (batchDelivery.pendingParts == 0)
+        {
+            completeBatch(batchDelivery);
+        }
+    }
+
+    /**
+     * Send the messages of the provided batch in as few deliveries as the max message size of the link allows. Each
+     * delivery holds a data section for each of its messages, with that message fully encoded. A message that is too
+     * large to be sent even on its own is rejected locally, while the rest of the batch is still sent. The callback of
+     * the batch is invoked once, after every delivery of the batch has been settled, and only reports success if every
+     * message of the batch was accepted.
+     * @param batchMessage the batch to send
+     * @return a successful result if any part of the batch was sent or rejected locally, so that the batch is not
+     * queued to be sent again
+     */
+    private AmqpsSendResult sendBatch(BatchMessage batchMessage)
+    {
+        UnsignedLong remoteMaxMessageSize = this.senderLink.getRemoteMaxMessageSize();
+        long maxMessageSize = remoteMaxMessageSize != null && remoteMaxMessageSize.longValue() > 0 ? remoteMaxMessageSize.longValue() : Long.MAX_VALUE;
+
+        BatchDelivery batchDelivery = new BatchDelivery(batchMessage);
+        boolean sendFailed = false;
+        int length = 0;
+        for (Message message : batchMessage.getNestedMessages())
+        {
+            MessageImpl protonMessage = this.iotHubMessageToProtonMessage(message);
+            if (protonMessage == null)
+            {
+                log.warn("Skipping a message of type {} that was batched with telemetry messages ({})", message.getMessageType(), message);
+                continue;
+            }
+
+            int itemLength = encodeBatchItem(protonMessage);
+
+            // A message with nothing but a body encodes to that body section alone
+            MessageImpl dataSection = new MessageImpl();
+            dataSection.setBody(new Data(new Binary(this.batchItemBuffer, 0, itemLength)));
+            int sectionLength = this.encode(dataSection, length);
+
+            if (length + sectionLength <= maxMessageSize)
+            {
+                length += sectionLength;
+                continue;
+            }
+
+            if (length > 0)
+            {
+                // This message doesn't fit in the current delivery, so send that delivery and start a new one with it
+                if (!sendBatchPart(batchDelivery, length))
+                {
+                    sendFailed = true;
+                    break;
+                }
+
+                sectionLength = this.encode(dataSection, 0);
+            }
+
+            if (sectionLength > maxMessageSize)
+            {
+                String description = String.format("A message of the batch is %d bytes long once encoded, which exceeds the %d bytes maximum message size of the %s sender link", sectionLength, maxMessageSize, getLinkInstanceType());
+                log.warn(description);
+                Rejected rejected = new Rejected();
+                rejected.setError(new ErrorCondition(LinkError.MESSAGE_SIZE_EXCEEDED, description));
+                batchDelivery.onPartSettled(rejected);
+                length = 0;
+            }
+            else
+            {
+                length = sectionLength;
+            }
+        }
+
+        if (!sendFailed && length > 0)
+        {
+            sendFailed = !sendBatchPart(batchDelivery, length);
+        }
+
+        if (sendFailed)
+        {
+            if (batchDelivery.sentParts == 0 && batchDelivery.outcome == Accepted.getInstance())
+            {
+                // Nothing of the batch went out, so it can safely be queued to be sent again as a whole
+                return new AmqpsSendResult(false);
+            }
+
+            // Part of the batch is already out. The rest is not sent, and the batch fails as retryable once the parts
+            // that were sent are settled
+            batchDelivery.onPartSettled(Released.getInstance());
+        }
+
+        if (batchDelivery.pendingParts == 0)
+        {
+            // Every message was rejected locally, or the batch held no telemetry at all
+            completeBatch(batchDelivery);
+        }
+
+        return new AmqpsSendResult(true);
+    }
+
+    private boolean sendBatchPart(BatchDelivery batchDelivery, int length)
+    {
+        AmqpsSendResult sendResult = this.sendEncodedMessage(length, BATCH_MESSAGE_FORMAT);
+        if (!sendResult.isDeliverySuccessful())
+        {
+            return false;
+        }
+
+        batchDelivery.sentParts++;
+        batchDelivery.pendingParts++;
+        this.batchDeliveries.put(sendResult.getDeliveryTag(), batchDelivery);
+        return true;
+    }
+
+    private void completeBatch(BatchDelivery batchDelivery)
+    {
+        // The batch may have been sent over several deliveries, so no single delivery tag stands for it
+        this.amqpsLinkStateCallback.onMessageAcknowledged(batchDelivery.batchMessage, -1, batchDelivery.outcome);
+    }
+
+    private int encodeBatchItem(MessageImpl protonMessage)
+    {
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(this.batchItemBuffer, 0, this.batchItemBuffer.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                this.batchItemBuffer = new byte[this.batchItemBuffer.length * 2];
+            }
+        }
+    }
+
+    /**
+     * The deliveries that a batch was sent in, and what the service decided about them so far
+     */
+    private static final class BatchDelivery
+    {
+        private final Message batchMessage;
+        private int sentParts;
+        private int pendingParts;
+        private DeliveryState outcome = Accepted.getInstance();
+
+        BatchDelivery(Message batchMessage)
+        {
+            this.batchMessage = batchMessage;
+        }
+
+        void onPartSettled(DeliveryState deliveryState)
+        {
+            if (deliveryState != Accepted.getInstance())
+            {
+                // A rejection is final, so it is reported over a release that would only make the batch be sent again
+                if (this.outcome == Accepted.getInstance() || (deliveryState instanceof Rejected && !(this.outcome instanceof Rejected)))
+                {
+                    this.outcome = deliveryState;
+                }
+            }
+        }
+    }
+
     @Override
     public String getLinkInstanceType()
     {
@@ -92,10 +308,13 @@ final class AmqpsTelemetrySenderLinkHandler extends AmqpsSenderLinkHandler
             {
                 if (protonMessage.getApplicationProperties() != null && protonMessage.getApplicationProperties().getValue() != null)
                 {
-                    Map<String, Object> userProperties = new HashMap<>();
-                    userProperties.put(MessageProperty.OUTPUT_NAME_PROPERTY, message.getOutputName());
-                    userProperties.putAll(protonMessage.getApplicationProperties().getValue());
-                    protonMessage.setApplicationProperties(new ApplicationProperties(userProperties));
+                    // The base class hands over a mutable map of its own, so add to it rather than copying it.
+                    // A user property of the same name still takes precedence, as it did when the map was copied
+                    Map<String, Object> userProperties = protonMessage.getApplicationProperties().getValue();
+                    if (!userProperties.containsKey(MessageProperty.OUTPUT_NAME_PROPERTY))
+                    {
+                        userProperties.put(MessageProperty.OUTPUT_NAME_PROPERTY, message.getOutputName());
+                    }
                 }
             }
 
@@ -179,12 +179,16 @@ final class AmqpsTwinSenderLinkHandler extends AmqpsSenderLinkHandler
             MessageImpl protonMessage = super.iotHubMessageToProtonMessage(message);
             IotHubTransportMessage deviceTwinMessage = (IotHubTransportMessage) message;
 
-            if (deviceTwinMessage.getCorrelationId() != null)
+            // Messages no longer get a correlation id by default, but this link needs one to match the response to
+            // this request
+            if (deviceTwinMessage.getCorrelationId().isEmpty())
             {
-                protonMessage.getProperties().setCorrelationId(UUID.fromString(deviceTwinMessage.getCorrelationId()));
-                this.twinOperationCorrelationMap.put(deviceTwinMessage.getCorrelationId(), deviceTwinMessage.getDeviceOperationType());
+                deviceTwinMessage.setCorrelationId(UUID.randomUUID().toString());
             }
 
+            protonMessage.getProperties().setCorrelationId(UUID.fromString(deviceTwinMessage.getCorrelationId()));
+            this.twinOperationCorrelationMap.put(deviceTwinMessage.getCorrelationId(), deviceTwinMessage.getDeviceOperationType());
+
             setMessageAnnotationMapOnProtonMessage(protonMessage, deviceTwinMessage.getDeviceOperationType(), deviceTwinMessage.getVersion());
 
             return protonMessage;
@@ -10,6 +10,10 @@ import org.apache.qpid.proton.reactor.Reactor;
 
 public class IotHubReactor
 {
+    // Work handed to the reactor from other threads wakes it up, and proton shortens the wait to its next timer or
+    // transport deadline, so this only bounds how long the reactor sleeps when nothing at all is going on
+    private static final long REACTOR_TIMEOUT_MILLIS = 500;
+
     private final Reactor reactor;
 
     public IotHubReactor(Reactor reactor)
@@ -19,7 +23,7 @@ public class IotHubReactor
 
     public void run() throws HandlerException
     {
-        this.reactor.setTimeout(10);
+        this.reactor.setTimeout(REACTOR_TIMEOUT_MILLIS);
         this.reactor.start();
 
         while (this.reactor.process())
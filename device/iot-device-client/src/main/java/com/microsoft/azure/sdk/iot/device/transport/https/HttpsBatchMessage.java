@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,8 +35,20 @@ public final class HttpsBatchMessage implements HttpsMessage
      */
     private static final Charset BATCH_CHARSET = StandardCharsets.UTF_8;
 
-    /** The current batched message body. */
-    private String batchBody;
+    private static final byte JSON_ARRAY_START = '[';
+    private static final byte JSON_ARRAY_END = ']';
+    private static final byte JSON_ARRAY_SEPARATOR = ',';
+
+    private static final int INITIAL_BATCH_BODY_CAPACITY = 1024;
+
+    /**
+     * The UTF-8 encoded batched message body without its closing bracket, so that each message is appended in place
+     * instead of rebuilding and re-encoding the whole batch.
+     */
+    private byte[] batchBody;
+
+    /** The number of bytes of {@link #batchBody} in use. */
+    private int batchBodyLength;
 
     /** The current number of messages in the batch. */
     private int numMsgs;
@@ -44,7 +57,9 @@ public final class HttpsBatchMessage implements HttpsMessage
     public HttpsBatchMessage()
     {
         // Codes_SRS_HTTPSBATCHMESSAGE_11_001: [The constructor shall initialize the batch message with the body as an empty JSON array.]
-        this.batchBody = "[]";
+        this.batchBody = new byte[INITIAL_BATCH_BODY_CAPACITY];
+        this.batchBody[0] = JSON_ARRAY_START;
+        this.batchBodyLength = 1;
         this.numMsgs = 0;
     }
 
@@ -59,22 +74,29 @@ public final class HttpsBatchMessage implements HttpsMessage
      */
     public void addMessage(HttpsSingleMessage msg) throws IotHubSizeExceededException
     {
-        String jsonMsg = msgToJson(msg);
-        // Codes_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
-        String newBatchBody = addJsonObjToArray(jsonMsg, this.batchBody);
+        byte[] jsonMsg = msgToJson(msg).getBytes(BATCH_CHARSET);
+        int separatorLength = this.numMsgs > 0 ? 1 : 0;
 
         // Codes_SRS_HTTPSBATCHMESSAGE_11_008: [If adding the message causes the batched message to exceed 256 kb in size, the function shall throw a IotHubSizeExceededException.]
         // Codes_SRS_HTTPSBATCHMESSAGE_11_009: [If the function throws a IotHubSizeExceededException, the batched message shall remain as if the message was never added.]
-        byte[] newBatchBodyBytes = newBatchBody.getBytes(BATCH_CHARSET);
-
-        if (newBatchBodyBytes.length > SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES)
+        // The size is that of the complete batch, including the closing bracket that getBody() appends
+        int newBatchBodySize = this.batchBodyLength + separatorLength + jsonMsg.length + 1;
+        if (newBatchBodySize > SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES)
         {
             String errMsg = String.format("Service-bound message size (%d bytes) cannot exceed %d bytes.",
-                    newBatchBodyBytes.length, SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
+                    newBatchBodySize, SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
             throw new IotHubSizeExceededException(errMsg);
         }
 
-        this.batchBody = newBatchBody;
+        // Codes_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
+        ensureCapacity(newBatchBodySize);
+        if (separatorLength > 0)
+        {
+            this.batchBody[this.batchBodyLength++] = JSON_ARRAY_SEPARATOR;
+        }
+
+        System.arraycopy(jsonMsg, 0, this.batchBody, this.batchBodyLength, jsonMsg.length);
+        this.batchBodyLength += jsonMsg.length;
         this.numMsgs++;
     }
 
@@ -87,7 +109,9 @@ public final class HttpsBatchMessage implements HttpsMessage
     {
         // Codes_SRS_HTTPSBATCHMESSAGE_11_006: [The function shall return the current batch message body.]
         // Codes_SRS_HTTPSBATCHMESSAGE_11_007: [The batch message body shall be encoded using UTF-8.]
-        return this.batchBody.getBytes(BATCH_CHARSET);
+        byte[] body = Arrays.copyOf(this.batchBody, this.batchBodyLength + 1);
+        body[this.batchBodyLength] = JSON_ARRAY_END;
+        return body;
     }
 
     /**
@@ -184,24 +208,18 @@ public final class HttpsBatchMessage implements HttpsMessage
     }
 
     /**
-     * Adds a JSON object to a JSON array.
+     * Grows the batch body, if needed, so that it can hold at least the provided number of bytes. The capacity is
+     * doubled each time, so appending messages one at a time takes linear time overall. It never grows past what the
+     * largest allowed batch needs.
      *
-     * @param jsonObj the object to be added to the JSON array.
-     * @param jsonArray the JSON array.
-     *
-     * @return the JSON string representation of the JSON array with the object
-     * added.
+     * @param minCapacity the number of bytes the batch body must be able to hold.
      */
-    private static String addJsonObjToArray(String jsonObj, String jsonArray)
+    private void ensureCapacity(int minCapacity)
     {
-        if (jsonArray.equals("[]"))
+        if (minCapacity > this.batchBody.length)
         {
-            return "[" + jsonObj + "]";
+            int newCapacity = Math.min(Math.max(this.batchBody.length * 2, minCapacity), SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
+            this.batchBody = Arrays.copyOf(this.batchBody, newCapacity);
         }
-
-        // removes the closing brace of the JSON array.
-        String openJsonArray = jsonArray.substring(0, jsonArray.length() - 1);
-
-        return openJsonArray + "," + jsonObj + "]";
     }
 }
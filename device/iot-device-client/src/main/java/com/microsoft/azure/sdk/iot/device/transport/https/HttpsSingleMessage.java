@@ -79,8 +79,8 @@ public final class HttpsSingleMessage implements HttpsMessage
     {
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_001: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
         // Codes_SRS_HTTPSSINGLEMESSAGE_21_016: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
-        byte[] msgBody = message.getBytes();
-        httpsMsg.body = Arrays.copyOf(msgBody, msgBody.length);
+        // getBytes already returns a copy of the body
+        httpsMsg.body = message.getBytes();
 
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_003: [The parsed HttpsSingleMessage shall add the prefix 'iothub-app-' to each of the message properties.]
         // Codes_SRS_HTTPSSINGLEMESSAGE_21_018: [The parsed HttpsSingleMessage shall add the prefix 'iothub-app-' to each of the message properties.]
@@ -110,7 +110,7 @@ public final class HttpsSingleMessage implements HttpsMessage
             sysProperties.put(MESSAGE_ID_KEY, message.getMessageId());
         }
 
-        if (message.getCorrelationId() != null)
+        if (message.getCorrelationId() != null && !message.getCorrelationId().isEmpty())
         {
             sysProperties.put(CORRELATION_ID_KEY, message.getCorrelationId());
         }
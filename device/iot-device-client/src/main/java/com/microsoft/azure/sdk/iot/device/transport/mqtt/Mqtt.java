@@ -16,11 +16,10 @@ import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.*;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 abstract public class Mqtt implements MqttCallback
@@ -28,12 +27,16 @@ abstract public class Mqtt implements MqttCallback
     private static final int CONNECTION_TIMEOUT = 60 * 1000;
     private static final int DISCONNECTION_TIMEOUT = 60 * 1000;
 
+    // How often a publish that waits for room in the in flight window checks that the connection is still up
+    private static final long IN_FLIGHT_PERMIT_WAIT_MILLIS = 100;
+
     private MqttConnection mqttConnection;
     private MqttMessageListener messageListener;
-    ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
+    ConcurrentLinkedQueue<Pair<String, byte[]>> receivedMessages;
     private final Object stateLock;
     protected final Object incomingLock;
     private final Object publishLock;
+    private final Semaphore inFlightPermits;
 
     private Map<Integer, Message> unacknowledgedSentMessages;
 
@@ -45,12 +48,10 @@ abstract public class Mqtt implements MqttCallback
     private final static String MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_ENCODED = "%24";
     private final static char MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED = '$';
     final static char MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR = '=';
-    private final static int PROPERTY_KEY_INDEX = 0;
-    private final static int PROPERTY_VALUE_INDEX = 1;
 
     /* The system property keys expected in a message */
     //This may be common with amqp as well
-    private final static String ABSOLUTE_EXPIRY_TIME = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".exp";
+    final static String ABSOLUTE_EXPIRY_TIME = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".exp";
     final static String CORRELATION_ID = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".cid";
     final static String MESSAGE_ID = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".mid";
     final static String TO = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".to";
@@ -63,10 +64,18 @@ abstract public class Mqtt implements MqttCallback
     final static String CREATION_TIME_UTC = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".ctime";
     final static String MQTT_SECURITY_INTERFACE_ID = MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED + ".ifid";
 
-    private final static String IOTHUB_ACK = "iothub-ack";
+    final static String IOTHUB_ACK = "iothub-ack";
+
+    /* Received messages on topics with these prefixes are handled by the twin and method clients */
+    private final static String TWIN_TOPIC_PREFIX = "$iothub/twin/";
+    private final static String METHOD_REQUEST_TOPIC_PREFIX = "$iothub/methods/POST/";
 
     private final static String INPUTS_PATH_STRING = "inputs";
     private final static String MODULES_PATH_STRING = "modules";
+    private final static int MODULES_PATH_INDEX = 2;
+    private final static int MODULE_ID_INDEX = 3;
+    private final static int INPUTS_PATH_INDEX = 4;
+    private final static int INPUT_NAME_INDEX = 5;
 
     private IotHubListener listener;
     private String connectionId;
@@ -80,6 +89,20 @@ abstract public class Mqtt implements MqttCallback
      * @throws IllegalArgumentException if the provided mqttConnection is null
      */
     public Mqtt(MqttConnection mqttConnection, IotHubListener listener, MqttMessageListener messageListener, String connectionId, Map<Integer, Message> unacknowledgedSentMessages) throws IllegalArgumentException
+    {
+        this(mqttConnection, listener, messageListener, connectionId, unacknowledgedSentMessages, MessageType.DEVICE_TELEMETRY);
+    }
+
+    /**
+     * Constructor to instantiate mqtt broker connection.
+     * @param mqttConnection the connection to use
+     * @param listener the listener to be called back upon connection established/lost and upon a message being delivered
+     * @param messageListener the listener to be called back upon a message arriving
+     * @param connectionId the id of the connection
+     * @param receivedMessageType the type of the received messages that this client handles
+     * @throws IllegalArgumentException if the provided mqttConnection is null
+     */
+    protected Mqtt(MqttConnection mqttConnection, IotHubListener listener, MqttMessageListener messageListener, String connectionId, Map<Integer, Message> unacknowledgedSentMessages, MessageType receivedMessageType) throws IllegalArgumentException
     {
         if (mqttConnection == null)
         {
@@ -89,8 +112,9 @@ abstract public class Mqtt implements MqttCallback
 
         //Codes_SRS_Mqtt_25_003: [The constructor shall retrieve lock, queue from the provided connection information and save the connection.]
         this.mqttConnection = mqttConnection;
-        this.allReceivedMessages = mqttConnection.getAllReceivedMessages();
+        this.receivedMessages = mqttConnection.getReceivedMessages(receivedMessageType);
         this.stateLock = mqttConnection.getMqttLock();
+        this.inFlightPermits = mqttConnection.getInFlightPermits();
         this.incomingLock = new Object();
         this.publishLock = new Object();
         this.userSpecifiedSASTokenExpiredOnRetry = false;
@@ -200,19 +224,20 @@ abstract public class Mqtt implements MqttCallback
                 throw transportException;
             }
 
-            if (message == null || publishTopic == null || publishTopic.length() == 0 || message.getBytes() == null)
+            if (message == null || publishTopic == null || publishTopic.length() == 0 || !IotHubTransportMessage.hasBody(message))
             {
                 //Codes_SRS_Mqtt_25_013: [If the either publishTopic is null or empty or if payload is null, the function shall throw an IllegalArgumentException.]
                 throw new IllegalArgumentException("Cannot publish on null or empty publish topic");
             }
 
-            byte[] payload = message.getBytes();
+            // Paho keeps a reference to the payload rather than copying it, and the body is not modified while it is sent
+            byte[] payload = IotHubTransportMessage.getBodyReference(message);
 
-            while (this.mqttConnection.getMqttAsyncClient().getPendingDeliveryTokens().length >= MqttConnection.MAX_IN_FLIGHT_COUNT)
+            // deliveryComplete releases a permit as soon as the service acknowledges a message, which wakes this thread
+            // right away. The timeout only bounds how long a lost connection goes unnoticed while the window is full.
+            while (!this.inFlightPermits.tryAcquire(IN_FLIGHT_PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS))
             {
-                //Codes_SRS_Mqtt_25_048: [publish shall check for pending publish tokens by calling getPendingDeliveryTokens. And if there are pending tokens publish shall sleep until the number of pending tokens are less than 10 as per paho limitations]
-                Thread.sleep(10);
-
+                //Codes_SRS_Mqtt_25_048: [publish shall wait until fewer messages than the configured maximum are waiting for an acknowledgement as per paho limitations]
                 if (this.mqttConnection.getMqttAsyncClient() == null)
                 {
                     TransportException transportException = new TransportException("Connection was lost while waiting for mqtt deliveries to finish");
@@ -223,23 +248,37 @@ abstract public class Mqtt implements MqttCallback
                 if (!this.mqttConnection.getMqttAsyncClient().isConnected())
                 {
                     //Codes_SRS_Mqtt_25_012: [If the MQTT connection is closed, the function shall throw a ProtocolException.]
-                    TransportException transportException = new TransportException("Cannot publish when mqtt client is holding 10 tokens and is disconnected");
+                    TransportException transportException = new TransportException("Cannot publish when mqtt client is holding the maximum number of in flight messages and is disconnected");
                     transportException.setRetryable(true);
                     throw transportException;
                 }
             }
 
-            MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
+            boolean published = false;
+            try
+            {
+                MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
+
+                mqttMessage.setQos(MqttConnection.QOS);
 
-            mqttMessage.setQos(MqttConnection.QOS);
+                synchronized (this.publishLock)
+                {
+                    this.log.trace("Publishing message ({}) to MQTT topic {}", message, publishTopic);
+                    //Codes_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
+                    IMqttDeliveryToken publishToken = this.mqttConnection.getMqttAsyncClient().publish(publishTopic, mqttMessage);
+                    unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
+                    this.log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
+                }
 
-            synchronized (this.publishLock)
+                published = true;
+            }
+            finally
             {
-                this.log.trace("Publishing message ({}) to MQTT topic {}", message, publishTopic);
-                //Codes_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
-                IMqttDeliveryToken publishToken = this.mqttConnection.getMqttAsyncClient().publish(publishTopic, mqttMessage);
-                unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
-                this.log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
+                if (!published)
+                {
+                    // No acknowledgement will ever come for a message that was not published
+                    this.inFlightPermits.release();
+                }
             }
         }
         catch (MqttException e)
@@ -333,7 +372,7 @@ abstract public class Mqtt implements MqttCallback
                     if (data != null)
                     {
                         //remove this message from the queue as this is the correct handler
-                        allReceivedMessages.poll();
+                        receivedMessages.poll();
 
                         // Codes_SRS_Mqtt_34_024: [This method shall construct new Message with the bytes obtained from peekMessage and return the message.]
                         return constructMessage(data, topic);
@@ -414,15 +453,39 @@ abstract public class Mqtt implements MqttCallback
     {
         this.log.trace("Mqtt message arrived on topic {} with mqtt message id {}", topic, mqttMessage.getId());
         //Codes_SRS_Mqtt_25_030: [The payload of the message and the topic is added to the received messages queue .]
-        this.mqttConnection.getAllReceivedMessages().add(new MutablePair<>(topic, mqttMessage.getPayload()));
+        MessageType messageType = getReceivedMessageType(topic);
+        this.mqttConnection.getReceivedMessages(messageType).add(new MutablePair<>(topic, mqttMessage.getPayload()));
 
         if (this.messageListener != null)
         {
             //Codes_SRS_Mqtt_34_045: [If there is a saved listener, this function shall notify that listener that a message arrived.]
-            this.messageListener.onMessageArrived(mqttMessage.getId());
+            this.messageListener.onMessageArrived(mqttMessage.getId(), messageType);
         }
     }
 
+    /**
+     * @param topic the topic that a message arrived on
+     * @return DEVICE_TWIN or DEVICE_METHODS if the message is handled by the twin or method client, or
+     * DEVICE_TELEMETRY otherwise
+     */
+    static MessageType getReceivedMessageType(String topic)
+    {
+        if (topic != null)
+        {
+            if (topic.startsWith(TWIN_TOPIC_PREFIX))
+            {
+                return MessageType.DEVICE_TWIN;
+            }
+
+            if (topic.startsWith(METHOD_REQUEST_TOPIC_PREFIX))
+            {
+                return MessageType.DEVICE_METHODS;
+            }
+        }
+
+        return MessageType.DEVICE_TELEMETRY;
+    }
+
     /**
      * Event fired when the message arrived on the MQTT broker.
      * @param iMqttDeliveryToken the MqttDeliveryToken for which the message was successfully sent.
@@ -432,6 +495,10 @@ abstract public class Mqtt implements MqttCallback
     {
         Message deliveredMessage = null;
         this.log.trace("Mqtt message with message id {} was acknowledge by service", iMqttDeliveryToken.getMessageId());
+
+        // The acknowledged message no longer counts against the in flight window, whoever sent it
+        this.inFlightPermits.release();
+
         synchronized (this.publishLock)
         {
             if (this.listener != null && unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
@@ -467,7 +534,7 @@ abstract public class Mqtt implements MqttCallback
 
     public Pair<String, byte[]> peekMessage()
     {
-        return this.allReceivedMessages.peek();
+        return this.receivedMessages.peek();
     }
 
     /**
@@ -498,100 +565,22 @@ abstract public class Mqtt implements MqttCallback
         int propertiesStringStartingIndex = topic.indexOf(MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_ENCODED);
         if (propertiesStringStartingIndex != -1)
         {
-            String propertiesString = topic.substring(propertiesStringStartingIndex);
-
             //Codes_SRS_Mqtt_34_041: [This method shall call assignPropertiesToMessage so that all properties from the topic string can be assigned to the message]
-            assignPropertiesToMessage(message, propertiesString);
+            MqttTopicDecoder.decodeProperties(topic, propertiesStringStartingIndex, message);
 
-            String routeString = topic.substring(0, propertiesStringStartingIndex);
-            String[] routeComponents = routeString.split("/");
-
-            if (routeComponents.length > 2 && routeComponents[2].equals(MODULES_PATH_STRING))
+            if (MqttTopicDecoder.segmentEquals(topic, MODULES_PATH_INDEX, MODULES_PATH_STRING))
             {
                 //Codes_SRS_Mqtt_34_051: [This function shall extract the moduleId from the topic if the topic string fits the following convention: 'devices/<deviceId>/modules/<moduleId>']
-                message.setConnectionModuleId(routeComponents[3]);
+                message.setConnectionModuleId(MqttTopicDecoder.getSegment(topic, MODULE_ID_INDEX));
             }
 
-            if (routeComponents.length > 4 && routeComponents[4].equals(INPUTS_PATH_STRING))
+            if (MqttTopicDecoder.segmentEquals(topic, INPUTS_PATH_INDEX, INPUTS_PATH_STRING))
             {
                 //Codes_SRS_Mqtt_34_050: [This function shall extract the inputName from the topic if the topic string fits the following convention: 'devices/<deviceId>/modules/<moduleId>/inputs/<inputName>']
-                message.setInputName(routeComponents[5]);
+                message.setInputName(MqttTopicDecoder.getSegment(topic, INPUT_NAME_INDEX));
             }
         }
 
         return message;
     }
-
-    /**
-     * Takes propertiesString and parses it for all the properties it holds and then assigns them to the provided message
-     * @param propertiesString the string to parse containing all the properties
-     * @param message the message to add the parsed properties to
-     * @throws IllegalArgumentException if a property's key and value are not separated by the '=' symbol
-     * @throws IllegalStateException if the property for expiry time is present, but the value cannot be parsed as a Long
-     * */
-    private void assignPropertiesToMessage(Message message, String propertiesString) throws IllegalStateException, IllegalArgumentException
-    {
-        //Codes_SRS_Mqtt_34_054: [A message may have 0 to many custom properties]
-        //expected format is <key>=<value><MESSAGE_PROPERTY_SEPARATOR><key>=<value><MESSAGE_PROPERTY_SEPARATOR>...
-        for (String propertyString : propertiesString.split(String.valueOf(MESSAGE_PROPERTY_SEPARATOR)))
-        {
-            if (propertyString.contains("="))
-            {
-                //Expected format is <key>=<value> where both key and value may be encoded
-                String key = propertyString.split("=")[PROPERTY_KEY_INDEX];
-                String value = propertyString.split("=")[PROPERTY_VALUE_INDEX];
-                try
-                {
-                    //Codes_SRS_Mqtt_34_053: [A property's key and value may include unusual characters such as &, %, $]
-                    key = URLDecoder.decode(key, StandardCharsets.UTF_8.name());
-                    value = URLDecoder.decode(value, StandardCharsets.UTF_8.name());
-                }
-                catch (UnsupportedEncodingException e)
-                {
-                    // should never happen, since the encoding is hard-coded.
-                    throw new IllegalStateException(e);
-                }
-
-                //Some properties are reserved system properties and must be saved in the message differently
-                //Codes_SRS_Mqtt_34_057: [This function shall parse the messageId, correlationId, outputname, content encoding and content type from the provided property string]
-                switch (key)
-                {
-                    case TO:
-                        //do nothing
-                        break;
-                    case MESSAGE_ID:
-                        message.setMessageId(value);
-                        break;
-                    case IOTHUB_ACK:
-                        //do nothing
-                        break;
-                    case CORRELATION_ID:
-                        message.setCorrelationId(value);
-                        break;
-                    case USER_ID:
-                        //do nothing
-                        break;
-                    case OUTPUT_NAME:
-                        message.setOutputName(value);
-                        break;
-                    case CONTENT_ENCODING:
-                        message.setContentEncoding(value);
-                        break;
-                    case CONTENT_TYPE:
-                        message.setContentType(value);
-                        break;
-                    case ABSOLUTE_EXPIRY_TIME:
-                        //do nothing
-                        break;
-                    default:
-                        message.setProperty(key, value);
-                }
-            }
-            else
-            {
-                //Codes_SRS_Mqtt_34_051: [If a topic string's property's key and value are not separated by the '=' symbol, an IllegalArgumentException shall be thrown]
-                throw new IllegalArgumentException("Unexpected property string provided. Expected '=' symbol between key and value of the property in string: " + propertyString);
-            }
-        }
-    }
 }
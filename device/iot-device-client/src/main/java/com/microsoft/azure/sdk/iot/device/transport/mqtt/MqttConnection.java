@@ -5,6 +5,7 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
+import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.ProxySettings;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.HttpProxySocketFactory;
@@ -17,14 +18,26 @@ import javax.net.ssl.SSLContext;
 import java.net.Proxy;
 import java.net.UnknownHostException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 
 public class MqttConnection
 {
     private MqttAsyncClient mqttAsyncClient = null;
     private MqttConnectOptions connectionOptions = null;
-    private ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
+
+    // Received messages are queued by the client that handles them as they arrive, so that a method request is never
+    // stuck behind telemetry and each client only ever looks at the messages addressed to it
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedTelemetryMessages;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedTwinMessages;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedMethodMessages;
     private Object mqttLock;
 
+    // One permit per message that may be published before the service acknowledges earlier ones. Shared by the
+    // messaging, twin and method clients of this connection, since Paho enforces its in flight limit per connection.
+    private Semaphore inFlightPermits;
+    private int maxInFlightCount;
+
     //mqtt connection options
     private static final int KEEP_ALIVE_INTERVAL = 230;
     private static final int MQTT_VERSION = 4;
@@ -32,8 +45,8 @@ public class MqttConnection
     static final int QOS = 1;
     static final int MAX_SUBSCRIBE_ACK_WAIT_TIME = 15 * 1000;
 
-    // paho mqtt only supports 10 messages in flight at the same time
-    static final int MAX_IN_FLIGHT_COUNT = 10;
+    // paho mqtt only allows 10 messages in flight at the same time unless configured otherwise
+    static final int DEFAULT_MAX_IN_FLIGHT_COUNT = 10;
 
     /**
      * Constructor to create MqttAsync Client with Paho
@@ -47,6 +60,49 @@ public class MqttConnection
      */
     MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext sslContext, ProxySettings proxySettings) throws TransportException, IllegalArgumentException, UnknownHostException
     {
+        this(serverURI, clientId, userName, password, sslContext, proxySettings, null);
+    }
+
+    /**
+     * Constructor to create MqttAsync Client with Paho
+     * @param serverURI Uri to connect to
+     * @param clientId Client Id to connect to
+     * @param userName Username
+     * @param password password
+     * @param sslContext SSLContext for the connection
+     * @param proxySettings the proxy to connect through, or null if no proxy should be used
+     * @param pingScheduler the scheduler to send keep alive pings on, shared with other clients. If null, Paho starts a
+     * timer thread of its own for them.
+     * @throws IllegalArgumentException is thrown if any of the parameters are null or empty
+     * @throws TransportException when Mqtt async client cannot be instantiated
+     */
+    MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext sslContext, ProxySettings proxySettings, ScheduledExecutorService pingScheduler) throws TransportException, IllegalArgumentException, UnknownHostException
+    {
+        this(serverURI, clientId, userName, password, sslContext, proxySettings, pingScheduler, DEFAULT_MAX_IN_FLIGHT_COUNT);
+    }
+
+    /**
+     * Constructor to create MqttAsync Client with Paho
+     * @param serverURI Uri to connect to
+     * @param clientId Client Id to connect to
+     * @param userName Username
+     * @param password password
+     * @param sslContext SSLContext for the connection
+     * @param proxySettings the proxy to connect through, or null if no proxy should be used
+     * @param pingScheduler the scheduler to send keep alive pings on, shared with other clients. If null, Paho starts a
+     * timer thread of its own for them.
+     * @param maxInFlightCount the maximum number of published messages that may wait for an acknowledgement at once
+     * @throws IllegalArgumentException is thrown if any of the parameters are null or empty, or if maxInFlightCount is
+     * not positive
+     * @throws TransportException when Mqtt async client cannot be instantiated
+     */
+    MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext sslContext, ProxySettings proxySettings, ScheduledExecutorService pingScheduler, int maxInFlightCount) throws TransportException, IllegalArgumentException, UnknownHostException
+    {
+        if (maxInFlightCount <= 0)
+        {
+            throw new IllegalArgumentException("maxInFlightCount must be positive");
+        }
+
         if (serverURI == null || clientId == null || userName == null || sslContext == null)
         {
             //Codes_SRS_MQTTCONNECTION_25_001: [The constructor shall throw IllegalArgumentException if any of the input parameters are null other than password.]
@@ -62,9 +118,18 @@ public class MqttConnection
         try
         {
             //Codes_SRS_MQTTCONNECTION_25_004: [The constructor shall create an MqttAsync client and update the connection options using the provided serverUri, clientId, userName, password and sslContext.]
-            this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
+            if (pingScheduler == null)
+            {
+                this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
+            }
+            else
+            {
+                this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence(), new ScheduledExecutorPingSender(pingScheduler));
+            }
+
             this.mqttAsyncClient.setManualAcks(true);
             this.connectionOptions = new MqttConnectOptions();
+            this.connectionOptions.setMaxInflight(maxInFlightCount);
             this.updateConnectionOptions(userName, password, sslContext, proxySettings);
         }
         catch (MqttException e)
@@ -76,8 +141,12 @@ public class MqttConnection
         }
 
         //Codes_SRS_MQTTCONNECTION_25_003: [The constructor shall create lock, queue for this MqttConnection.]
-        this.allReceivedMessages = new ConcurrentLinkedQueue<>();
+        this.receivedTelemetryMessages = new ConcurrentLinkedQueue<>();
+        this.receivedTwinMessages = new ConcurrentLinkedQueue<>();
+        this.receivedMethodMessages = new ConcurrentLinkedQueue<>();
         this.mqttLock = new Object();
+        this.maxInFlightCount = maxInFlightCount;
+        this.inFlightPermits = new Semaphore(maxInFlightCount);
     }
 
     /**
@@ -182,13 +251,23 @@ public class MqttConnection
     }
 
     /**
-     * Getter for queue for the messages
+     * Getter for the queue of received messages of the provided type
+     * @param messageType DEVICE_TWIN or DEVICE_METHODS for the messages of the twin and method clients, or any other
+     * type for the messages of the messaging client
      * @return Queue for the messages
      */
-    ConcurrentLinkedQueue<Pair<String, byte[]>> getAllReceivedMessages()
+    ConcurrentLinkedQueue<Pair<String, byte[]>> getReceivedMessages(MessageType messageType)
     {
         //Codes_SRS_MQTTCONNECTION_25_008: [Getter for the Message Queue.]
-        return this.allReceivedMessages;
+        switch (messageType)
+        {
+            case DEVICE_TWIN:
+                return this.receivedTwinMessages;
+            case DEVICE_METHODS:
+                return this.receivedMethodMessages;
+            default:
+                return this.receivedTelemetryMessages;
+        }
     }
 
     /**
@@ -201,6 +280,24 @@ public class MqttConnection
         return this.mqttLock;
     }
 
+    /**
+     * Getter for the in flight permits, one of which must be acquired before publishing a message and released once
+     * the service acknowledges it
+     * @return The permits of the messages that may be in flight on this connection
+     */
+    Semaphore getInFlightPermits()
+    {
+        return this.inFlightPermits;
+    }
+
+    /**
+     * @return the number of messages published on this connection that the service has not acknowledged yet
+     */
+    int getInFlightCount()
+    {
+        return this.maxInFlightCount - this.inFlightPermits.availablePermits();
+    }
+
     /**
      * Getter for connection Options
      * @return the connection options to be used for Mqtt
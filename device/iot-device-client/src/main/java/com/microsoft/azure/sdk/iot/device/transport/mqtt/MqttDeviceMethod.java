@@ -11,7 +11,6 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Slf4j
@@ -19,7 +18,11 @@ public class MqttDeviceMethod extends Mqtt
 {
     private String subscribeTopic;
     private String responseTopic;
-    private final Map<String, DeviceOperations> requestMap = new HashMap<>();
+    // Method requests that the device doesn't respond to within the longest response timeout the service allows can
+    // no longer be responded to
+    private static final long METHOD_REQUEST_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private final MqttPendingRequests requestMap = new MqttPendingRequests(METHOD_REQUEST_TIMEOUT_MILLIS);
     private boolean isStarted = false;
 
     private final String POUND = "#";
@@ -39,7 +42,7 @@ public class MqttDeviceMethod extends Mqtt
     public MqttDeviceMethod(MqttConnection mqttConnection, String connectionId, Map<Integer, Message> unacknowledgedSentMessages) throws TransportException
     {
         //Codes_SRS_MqttDeviceMethod_25_001: [The constructor shall instantiate super class without any parameters.]
-        super(mqttConnection, null, null, connectionId, unacknowledgedSentMessages);
+        super(mqttConnection, null, null, connectionId, unacknowledgedSentMessages, MessageType.DEVICE_METHODS);
 
         //Codes_SRS_MqttDeviceMethod_25_002: [The constructor shall create subscribe and response topics strings for device methods as per the spec.]
         this.subscribeTopic = POST + BACKSLASH + POUND;
@@ -74,7 +77,7 @@ public class MqttDeviceMethod extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException, IllegalArgumentException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || !IotHubTransportMessage.hasBody(message))
         {
             //Codes_SRS_MqttDeviceMethod_25_016: [send method shall throw an exception if the message is null.]
             throw new IllegalArgumentException("Message cannot be null");
@@ -107,9 +110,10 @@ public class MqttDeviceMethod extends Mqtt
                     throw new IllegalArgumentException("Request id cannot be null or empty");
                 }
 
-                if (requestMap.containsKey(message.getRequestId()))
+                DeviceOperations requestOperation = requestMap.remove(message.getRequestId());
+                if (requestOperation != null)
                 {
-                    switch (requestMap.remove(message.getRequestId()))
+                    switch (requestOperation)
                     {
                         case DEVICE_OPERATION_METHOD_RECEIVE_REQUEST:
                             break;
@@ -165,7 +169,7 @@ public class MqttDeviceMethod extends Mqtt
                         if (topic.length() > POST.length() && topic.startsWith(POST))
                         {
                             //remove this message from the queue as this is the correct handler
-                            allReceivedMessages.poll();
+                            receivedMessages.poll();
 
                             // Case for $iothub/methods/POST/{method name}/?$rid={request id}
                             TopicParser topicParser = new TopicParser(topic);
@@ -193,7 +197,7 @@ public class MqttDeviceMethod extends Mqtt
 
                                 //Codes_SRS_MqttDeviceMethod_25_032: [If the topic is of type post topic and if method name and request id has been successfully parsed then this method shall set operation type as DEVICE_OPERATION_METHOD_RECEIVE_REQUEST ]
                                 message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
-                                requestMap.put(reqId, DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+                                requestMap.add(reqId, DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
                             }
                             else
                             {
@@ -12,15 +12,16 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 @Slf4j
 public class MqttDeviceTwin extends Mqtt
 {
     private String subscribeTopic;
-    private final Map<String, DeviceOperations> requestMap = new HashMap<>();
+    // Twin requests that get no response within the default operation timeout of the client are given up on
+    private static final long TWIN_REQUEST_TIMEOUT_MILLIS = 4 * 60 * 1000;
+
+    private final MqttPendingRequests requestMap = new MqttPendingRequests(TWIN_REQUEST_TIMEOUT_MILLIS);
     private boolean isStarted = false;
 
     private final String BACKSLASH = "/";
@@ -53,7 +54,7 @@ public class MqttDeviceTwin extends Mqtt
     public MqttDeviceTwin(MqttConnection mqttConnection, String connectionId, Map<Integer, Message> unacknowledgedSentMessages) throws TransportException
     {
         //Codes_SRS_MQTTDEVICETWIN_25_001: [The constructor shall instantiate super class without any parameters.]
-        super(mqttConnection, null, null, connectionId, unacknowledgedSentMessages);
+        super(mqttConnection, null, null, connectionId, unacknowledgedSentMessages, MessageType.DEVICE_TWIN);
 
         //Codes_SRS_MQTTDEVICETWIN_25_002: [The constructor shall construct device twin response subscribeTopic.]
         this.subscribeTopic = RES + BACKSLASH + POUND;
@@ -79,6 +80,15 @@ public class MqttDeviceTwin extends Mqtt
         }
     }
 
+    /**
+     * @return a snapshot of the get twin and update reported properties requests that this client has sent, and of
+     * how long the service took to respond to them
+     */
+    public MqttRequestStatistics getRequestStatistics()
+    {
+        return requestMap.getStatistics();
+    }
+
     private String buildTopic(final IotHubTransportMessage message) throws TransportException
     {
         StringBuilder topic = new StringBuilder();
@@ -177,7 +187,7 @@ public class MqttDeviceTwin extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || !IotHubTransportMessage.hasBody(message))
         {
             //Codes_SRS_MQTTDEVICETWIN_25_021: [send method shall throw an IllegalArgumentException if the message is null.]
             throw new IllegalArgumentException("Message cannot be null");
@@ -195,7 +205,19 @@ public class MqttDeviceTwin extends Mqtt
         }
 
         String publishTopic = buildTopic(message);
-        requestMap.put(message.getRequestId(), message.getDeviceOperationType());
+        if (message.getDeviceOperationType() == DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST
+                || message.getDeviceOperationType() == DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST)
+        {
+            // Only these operations get a response that carries their request id
+            if (message.getExpiryTime() != 0)
+            {
+                requestMap.add(message.getRequestId(), message.getDeviceOperationType(), message.getExpiryTime() - System.currentTimeMillis());
+            }
+            else
+            {
+                requestMap.add(message.getRequestId(), message.getDeviceOperationType());
+            }
+        }
 
         //Codes_SRS_MqttMessaging_25_024: [send method shall publish a message to the IOT Hub on the publish topic by calling method publish().]
         if (message.getDeviceOperationType() == DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST)
@@ -224,7 +246,7 @@ public class MqttDeviceTwin extends Mqtt
     {
         String status = null;
 
-        if (token != null && token.matches("\\d{3}")) // 3 digit number
+        if (token != null && isThreeDigitNumber(token))
         {
             status = token;
         }
@@ -237,6 +259,25 @@ public class MqttDeviceTwin extends Mqtt
         return status;
     }
 
+    private static boolean isThreeDigitNumber(String token)
+    {
+        if (token.length() != 3)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < token.length(); i++)
+        {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private String getRequestId(String token)
     {
         String reqId = null;
@@ -293,12 +334,11 @@ public class MqttDeviceTwin extends Mqtt
                         byte[] data = messagePair.getValue();
 
                         //remove this message from the queue as this is the correct handler
-                        allReceivedMessages.poll();
+                        receivedMessages.poll();
 
                         if (topic.length() > RES.length() && topic.startsWith(RES))
                         {
-                            // Tokenize on backslash
-                            String[] topicTokens = topic.split(Pattern.quote("/"));
+                            int tokenCount = MqttTopicDecoder.getSegmentCount(topic);
                             if (data != null && data.length > 0)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_044: [If the topic is of type response then this method shall set data and operation type as DEVICE_OPERATION_TWIN_GET_RESPONSE if data is not null]
@@ -315,24 +355,25 @@ public class MqttDeviceTwin extends Mqtt
                             }
 
                             // Case for $iothub/twin/res/{status}/?$rid={request id}&$version={new version}
-                            if (topicTokens.length > STATUS_TOKEN)
+                            if (tokenCount > STATUS_TOKEN)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_038: [If the topic is of type response topic then this method shall parse further for status and set it for the message by calling setStatus for the message]
-                                message.setStatus(getStatus(topicTokens[STATUS_TOKEN]));
+                                message.setStatus(getStatus(MqttTopicDecoder.getSegment(topic, STATUS_TOKEN)));
                             }
                             else
                             {
                                 this.throwDeviceTwinTransportException(new IotHubServiceException("Message received without status"));
                             }
 
-                            if (topicTokens.length > REQID_TOKEN)
+                            if (tokenCount > REQID_TOKEN)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_040: [If the topic is of type response topic then this method shall parse further to look for request id which if found is set by calling setRequestId]
-                                String requestId = getRequestId(topicTokens[REQID_TOKEN]);
+                                String requestId = getRequestId(MqttTopicDecoder.getSegment(topic, REQID_TOKEN));
                                 message.setRequestId(requestId);
-                                if (requestMap.containsKey(requestId))
+                                DeviceOperations requestOperation = requestMap.remove(requestId);
+                                if (requestOperation != null)
                                 {
-                                    switch (requestMap.remove(requestId))
+                                    switch (requestOperation)
                                     {
                                         case DEVICE_OPERATION_TWIN_GET_REQUEST:
                                             message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE);
@@ -350,10 +391,10 @@ public class MqttDeviceTwin extends Mqtt
                                 }
                             }
 
-                            if (topicTokens.length > VERSION_TOKEN)
+                            if (tokenCount > VERSION_TOKEN)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_041: [If the topic is of type response topic then this method shall parse further to look for version which if found is set by calling setVersion]
-                                message.setVersion(getVersion(topicTokens[VERSION_TOKEN]));
+                                message.setVersion(getVersion(MqttTopicDecoder.getSegment(topic, VERSION_TOKEN)));
                             }
                         }
                         else if (topic.length() > PATCH.length() && topic.startsWith(PATCH))
@@ -374,14 +415,12 @@ public class MqttDeviceTwin extends Mqtt
                                 }
 
                                 // Case for $iothub/twin/PATCH/properties/desired/?$version={new version}
-                                // Tokenize on backslash
-                                String[] topicTokens = topic.split(Pattern.quote("/"));
-                                if (topicTokens.length > PATCH_VERSION_TOKEN)
+                                if (MqttTopicDecoder.getSegmentCount(topic) > PATCH_VERSION_TOKEN)
                                 {
                                     if (message != null)
                                     {
                                         //Codes_SRS_MQTTDEVICETWIN_25_042: [If the topic is of type patch for desired properties then this method shall parse further to look for version which if found is set by calling setVersion]
-                                        message.setVersion(getVersion(topicTokens[PATCH_VERSION_TOKEN]));
+                                        message.setVersion(getVersion(MqttTopicDecoder.getSegment(topic, PATCH_VERSION_TOKEN)));
                                     }
                                 }
                             }
@@ -169,6 +169,10 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                 {
                     host = this.config.getIotHubHostname();
                 }
+                // Keep alive pings go on the shared scheduler, if any, instead of a timer thread per connection
+                ClientExecutionContext executionContext = this.config.getExecutionContext();
+                ScheduledExecutorService pingScheduler = executionContext == null ? null : executionContext.getScheduler();
+
                 if (this.config.isUseWebsocket())
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_018: [The function shall establish an MQTT WS connection with a server uri as wss://<hostName>/$iothub/websocket?iothub-no-client-cert=true if websocket was enabled.]
@@ -183,14 +187,16 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                     }
 
                     mqttConnection = new MqttConnection(wsServerUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, this.config.getProxySettings());
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, this.config.getProxySettings(), pingScheduler,
+                            this.config.getMqttMaxInFlightMessageCount());
                 }
                 else
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_019: [The function shall establish an MQTT connection with a server uri as ssl://<hostName>:8883 if websocket was not enabled.]
                     final String serverUri = SSL_PREFIX + host + SSL_PORT_SUFFIX;
                     mqttConnection = new MqttConnection(serverUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, null);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext, null, pingScheduler,
+                            this.config.getMqttMaxInFlightMessageCount());
                 }
 
                 //Codes_SRS_MQTTIOTHUBCONNECTION_34_030: [This function shall instantiate this object's MqttMessaging object with this object as the listener.]
@@ -280,36 +286,34 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     /**
      * Receives a message, if one exists.
      *
+     * @param messageType the type of the message that arrived, which decides the client it was queued for
      * @return the message received, or null if none exists.
      *
      * @throws TransportException if the connection state is currently closed.
      */
-    private IotHubTransportMessage receiveMessage() throws TransportException
+    private IotHubTransportMessage receiveMessage(MessageType messageType) throws TransportException
     {
         // Codes_SRS_MQTTIOTHUBCONNECTION_15_014: [The function shall attempt to consume a message
         // from various messaging clients.]
-        IotHubTransportMessage message = this.deviceMethod.receive();
-        if (message != null)
-        {
-            this.log.trace("Received MQTT device method message ({})", message);
-            return message;
-        }
-
-        message = deviceTwin.receive();
-        if (message != null)
+        IotHubTransportMessage message;
+        switch (messageType)
         {
-            this.log.trace("Received MQTT device twin message ({})", message);
-            return message;
+            case DEVICE_METHODS:
+                message = this.deviceMethod.receive();
+                break;
+            case DEVICE_TWIN:
+                message = this.deviceTwin.receive();
+                break;
+            default:
+                message = this.deviceMessaging.receive();
         }
 
-        message = deviceMessaging.receive();
         if (message != null)
         {
-            this.log.trace("Received MQTT device messaging message ({})", message);
-            return message;
+            this.log.trace("Received MQTT {} message ({})", messageType, message);
         }
 
-        return null;
+        return message;
     }
 
     @Override
@@ -341,11 +345,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         {
             // Codes_SRS_MQTTIOTHUBCONNECTION_15_010: [If the message is null or empty,
             // the function shall return status code BAD_FORMAT.]
-            if (message == null || message.getBytes() == null ||
+            if (message == null || !IotHubTransportMessage.hasBody(message) ||
                     (
                             (message.getMessageType() != DEVICE_TWIN
                                     && message.getMessageType() != DEVICE_METHODS)
-                                    && message.getBytes().length == 0))
+                                    && IotHubTransportMessage.getBodyLength(message) == 0))
             {
                 return IotHubStatusCode.BAD_FORMAT;
             }
@@ -453,14 +457,34 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         return this.connectionId;
     }
 
+    /**
+     * @return the number of messages published on the current MQTT connection that the service has not acknowledged
+     * yet, which the configured MQTT max in flight message count limits, or 0 if the connection was never opened
+     */
+    public int getInFlightMessageCount()
+    {
+        MqttConnection mqttConnection = this.mqttConnection;
+        return mqttConnection != null ? mqttConnection.getInFlightCount() : 0;
+    }
+
+    /**
+     * @return a snapshot of the twin requests sent on the current MQTT connection and of how long the service took to
+     * respond to them, or null if the connection was never opened
+     */
+    public MqttRequestStatistics getTwinRequestStatistics()
+    {
+        MqttDeviceTwin deviceTwin = this.deviceTwin;
+        return deviceTwin != null ? deviceTwin.getRequestStatistics() : null;
+    }
+
     @Override
-    public void onMessageArrived(int messageId)
+    public void onMessageArrived(int messageId, MessageType messageType)
     {
         IotHubTransportMessage transportMessage = null;
         try
         {
             //Codes_SRS_MQTTIOTHUBCONNECTION_34_058: [This function shall attempt to receive a message.]
-            transportMessage = this.receiveMessage();
+            transportMessage = this.receiveMessage(messageType);
         }
         catch (TransportException e)
         {
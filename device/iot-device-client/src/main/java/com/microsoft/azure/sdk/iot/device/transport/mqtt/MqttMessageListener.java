@@ -5,7 +5,15 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
+import com.microsoft.azure.sdk.iot.device.MessageType;
+
 public interface MqttMessageListener
 {
-    public void onMessageArrived(int messageId);
+    /**
+     * Called when a message arrives
+     * @param messageId the mqtt message id of the message
+     * @param messageType DEVICE_TWIN or DEVICE_METHODS if the message was queued for the twin or method client, or
+     * DEVICE_TELEMETRY if it was queued for the messaging client
+     */
+    public void onMessageArrived(int messageId, MessageType messageType);
 }
@@ -0,0 +1,213 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The requests that an MQTT twin or method client is waiting to complete, keyed by request id.
+ *
+ * <p>Requests are added from the thread that sends them and completed from the thread that receives their response, so
+ * the table is safe to use from both. Each request has a deadline, after which it is dropped from the table the next
+ * time a request is added, so that requests that never complete don't pile up in long running clients. The time that
+ * completed requests took is recorded and reported by {@link #getStatistics()}.</p>
+ */
+public final class MqttPendingRequests
+{
+    // Used as the next expiry check time when there are no deadlines to check, far enough away to never be reached
+    private static final long NO_DEADLINE_NANOS = Long.MAX_VALUE / 2;
+
+    private final long defaultTimeoutNanos;
+    private final ConcurrentMap<String, PendingRequest> requests = new ConcurrentHashMap<>();
+
+    private final Object expiryLock = new Object();
+    private volatile long nextExpiryNanos;
+
+    private final AtomicLong completedRequestCount = new AtomicLong();
+    private final AtomicLong expiredRequestCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param defaultTimeoutMillis how long a request may wait to complete when it is added without its own timeout
+     * @throws IllegalArgumentException if the provided timeout is not positive
+     */
+    public MqttPendingRequests(long defaultTimeoutMillis) throws IllegalArgumentException
+    {
+        if (defaultTimeoutMillis <= 0)
+        {
+            throw new IllegalArgumentException("defaultTimeoutMillis must be positive");
+        }
+
+        this.defaultTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(defaultTimeoutMillis);
+        this.nextExpiryNanos = System.nanoTime() + NO_DEADLINE_NANOS;
+    }
+
+    /**
+     * Add a request that may wait for the default timeout to complete
+     * @param requestId the id of the request
+     * @param operation the operation of the request
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public void add(String requestId, DeviceOperations operation) throws IllegalArgumentException
+    {
+        this.addWithTimeoutNanos(requestId, operation, this.defaultTimeoutNanos);
+    }
+
+    /**
+     * Add a request with its own timeout
+     * @param requestId the id of the request
+     * @param operation the operation of the request
+     * @param timeoutMillis how long the request may wait to complete
+     * @throws IllegalArgumentException if either the request id or the operation is null
+     */
+    public void add(String requestId, DeviceOperations operation, long timeoutMillis) throws IllegalArgumentException
+    {
+        this.addWithTimeoutNanos(requestId, operation, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    private void addWithTimeoutNanos(String requestId, DeviceOperations operation, long timeoutNanos)
+    {
+        if (requestId == null || operation == null)
+        {
+            throw new IllegalArgumentException("requestId and operation cannot be null");
+        }
+
+        long now = System.nanoTime();
+        if (now - this.nextExpiryNanos >= 0)
+        {
+            this.removeExpired(now);
+        }
+
+        long deadlineNanos = now + timeoutNanos;
+        this.requests.put(requestId, new PendingRequest(operation, now, deadlineNanos));
+
+        synchronized (this.expiryLock)
+        {
+            if (deadlineNanos - this.nextExpiryNanos < 0)
+            {
+                this.nextExpiryNanos = deadlineNanos;
+            }
+        }
+    }
+
+    /**
+     * Complete a request, recording how long it took
+     * @param requestId the id of the request
+     * @return the operation of the request, or null if there is no such request or it expired
+     */
+    public DeviceOperations remove(String requestId)
+    {
+        if (requestId == null)
+        {
+            return null;
+        }
+
+        PendingRequest request = this.requests.remove(requestId);
+        if (request == null)
+        {
+            return null;
+        }
+
+        long latencyNanos = System.nanoTime() - request.startNanos;
+        this.completedRequestCount.incrementAndGet();
+        this.totalLatencyNanos.addAndGet(latencyNanos);
+
+        long max = this.maxLatencyNanos.get();
+        while (latencyNanos > max && !this.maxLatencyNanos.compareAndSet(max, latencyNanos))
+        {
+            max = this.maxLatencyNanos.get();
+        }
+
+        return request.operation;
+    }
+
+    /**
+     * Drop the requests whose deadline has passed
+     * @return the number of requests that were dropped
+     */
+    public int removeExpired()
+    {
+        return this.removeExpired(System.nanoTime());
+    }
+
+    private int removeExpired(long now)
+    {
+        synchronized (this.expiryLock)
+        {
+            int removed = 0;
+            long nextExpiry = now + NO_DEADLINE_NANOS;
+
+            for (Map.Entry<String, PendingRequest> entry : this.requests.entrySet())
+            {
+                PendingRequest request = entry.getValue();
+                if (now - request.deadlineNanos >= 0)
+                {
+                    // Only counts as expired if the response didn't complete it in the meantime
+                    if (this.requests.remove(entry.getKey(), request))
+                    {
+                        removed++;
+                    }
+                }
+                else if (request.deadlineNanos - nextExpiry < 0)
+                {
+                    nextExpiry = request.deadlineNanos;
+                }
+            }
+
+            this.nextExpiryNanos = nextExpiry;
+            this.expiredRequestCount.addAndGet(removed);
+            return removed;
+        }
+    }
+
+    /**
+     * @return the number of requests that have not completed and have not been dropped yet
+     */
+    public int size()
+    {
+        return this.requests.size();
+    }
+
+    /**
+     * @return true if no request is waiting to complete
+     */
+    public boolean isEmpty()
+    {
+        return this.requests.isEmpty();
+    }
+
+    /**
+     * @return a snapshot of the requests of this table and of how long the completed ones took
+     */
+    public MqttRequestStatistics getStatistics()
+    {
+        return new MqttRequestStatistics(
+                this.requests.size(),
+                this.completedRequestCount.get(),
+                this.expiredRequestCount.get(),
+                this.totalLatencyNanos.get(),
+                this.maxLatencyNanos.get());
+    }
+
+    private static final class PendingRequest
+    {
+        private final DeviceOperations operation;
+        private final long startNanos;
+        private final long deadlineNanos;
+
+        private PendingRequest(DeviceOperations operation, long startNanos, long deadlineNanos)
+        {
+            this.operation = operation;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
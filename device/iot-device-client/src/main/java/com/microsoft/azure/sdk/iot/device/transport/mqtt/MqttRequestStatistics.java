@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import lombok.Getter;
+
+/**
+ * A snapshot of the requests that an MQTT twin or method client has been waiting on, and of how long it waited.
+ */
+public final class MqttRequestStatistics
+{
+    /**
+     * The number of requests that were still waiting when this snapshot was taken
+     */
+    @Getter
+    private final int pendingRequestCount;
+
+    /**
+     * The number of requests that have completed so far
+     */
+    @Getter
+    private final long completedRequestCount;
+
+    /**
+     * The number of requests that were given up on because they did not complete before their deadline
+     */
+    @Getter
+    private final long expiredRequestCount;
+
+    /**
+     * The average time, in nanoseconds, that the completed requests took to complete
+     */
+    @Getter
+    private final long averageLatencyNanos;
+
+    /**
+     * The longest time, in nanoseconds, that any completed request took to complete
+     */
+    @Getter
+    private final long maxLatencyNanos;
+
+    MqttRequestStatistics(int pendingRequestCount, long completedRequestCount, long expiredRequestCount, long totalLatencyNanos, long maxLatencyNanos)
+    {
+        this.pendingRequestCount = pendingRequestCount;
+        this.completedRequestCount = completedRequestCount;
+        this.expiredRequestCount = expiredRequestCount;
+        this.averageLatencyNanos = completedRequestCount == 0 ? 0 : totalLatencyNanos / completedRequestCount;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+}
@@ -0,0 +1,336 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the topics of messages received from the service, which the telemetry, twin and method handlers all need to
+ * pick apart.
+ *
+ * <p>The topics are scanned in place rather than split into arrays of tokens, and the properties of received telemetry
+ * are decoded straight into the message. Properties and segments that need no decoding are copied as is, and the keys
+ * of system properties are recognized without being decoded. Percent decoding produces the same characters as
+ * {@link java.net.URLDecoder} does with UTF-8.</p>
+ */
+public final class MqttTopicDecoder
+{
+    private static final char SEGMENT_SEPARATOR = '/';
+    private static final String ENCODED_SYSTEM_PROPERTY_IDENTIFIER = "%24";
+    private static final char SYSTEM_PROPERTY_IDENTIFIER = '$';
+
+    private static final String[] SYSTEM_PROPERTY_KEYS =
+    {
+        Mqtt.MESSAGE_ID,
+        Mqtt.CORRELATION_ID,
+        Mqtt.TO,
+        Mqtt.ABSOLUTE_EXPIRY_TIME,
+        Mqtt.IOTHUB_ACK,
+        Mqtt.USER_ID,
+        Mqtt.OUTPUT_NAME,
+        Mqtt.CONTENT_ENCODING,
+        Mqtt.CONTENT_TYPE
+    };
+
+    private MqttTopicDecoder()
+    {
+    }
+
+    /**
+     * Count the segments of the provided topic the same way {@link String#split(String)} counts the tokens of
+     * {@code topic.split("/")}, that is without the empty segments at the end of the topic
+     * @param topic the topic to count the segments of
+     * @return the number of segments in the topic
+     */
+    public static int getSegmentCount(String topic)
+    {
+        int end = getEndOfLastSegment(topic);
+        if (end == 0)
+        {
+            // Splitting an empty string results in that string, while splitting a string of separators results in nothing
+            return topic.isEmpty() ? 1 : 0;
+        }
+
+        int count = 1;
+        for (int i = 0; i < end; i++)
+        {
+            if (topic.charAt(i) == SEGMENT_SEPARATOR)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get a segment of the provided topic, which is the same string as {@code topic.split("/")[index]}
+     * @param topic the topic to get the segment of
+     * @param index the index of the segment, starting from 0
+     * @return the segment, or null if the topic has no segment at that index
+     */
+    public static String getSegment(String topic, int index)
+    {
+        int start = getSegmentStart(topic, index);
+        if (start < 0)
+        {
+            return null;
+        }
+
+        return topic.substring(start, getSegmentEnd(topic, start));
+    }
+
+    /**
+     * Check whether a segment of the provided topic is the provided value, without copying the segment
+     * @param topic the topic to check the segment of
+     * @param index the index of the segment, starting from 0
+     * @param value the expected segment
+     * @return true if the topic has a segment at that index and it is the provided value
+     */
+    public static boolean segmentEquals(String topic, int index, String value)
+    {
+        int start = getSegmentStart(topic, index);
+        if (start < 0)
+        {
+            return false;
+        }
+
+        int end = getSegmentEnd(topic, start);
+        return end - start == value.length() && topic.startsWith(value, start);
+    }
+
+    /**
+     * Decode the properties at the end of the topic of a received telemetry message into that message
+     * @param topic the topic of the received message
+     * @param start the index in the topic of the first property, which is expected to be a system property
+     * @param message the message to set the properties of
+     * @throws IllegalArgumentException if a property's key and value are not separated by the '=' symbol, or if a
+     * property is not correctly percent encoded
+     */
+    public static void decodeProperties(String topic, int start, Message message) throws IllegalArgumentException
+    {
+        //Codes_SRS_Mqtt_34_054: [A message may have 0 to many custom properties]
+        //expected format is <key>=<value><MESSAGE_PROPERTY_SEPARATOR><key>=<value><MESSAGE_PROPERTY_SEPARATOR>...
+        int length = topic.length();
+        int propertyStart = start;
+        while (propertyStart < length)
+        {
+            int propertyEnd = topic.indexOf(Mqtt.MESSAGE_PROPERTY_SEPARATOR, propertyStart);
+            if (propertyEnd < 0)
+            {
+                propertyEnd = length;
+            }
+
+            int separator = topic.indexOf(Mqtt.MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR, propertyStart);
+            if (separator < 0 || separator >= propertyEnd)
+            {
+                if (propertyStart == propertyEnd && isOnlyPropertySeparators(topic, propertyEnd))
+                {
+                    // Separators at the end of the topic don't start another property
+                    return;
+                }
+
+                //Codes_SRS_Mqtt_34_051: [If a topic string's property's key and value are not separated by the '=' symbol, an IllegalArgumentException shall be thrown]
+                throw new IllegalArgumentException("Unexpected property string provided. Expected '=' symbol between key and value of the property in string: " + topic.substring(propertyStart, propertyEnd));
+            }
+
+            //Codes_SRS_Mqtt_34_053: [A property's key and value may include unusual characters such as &, %, $]
+            String key = getSystemPropertyKey(topic, propertyStart, separator);
+            if (key == null)
+            {
+                key = decode(topic, propertyStart, separator);
+            }
+
+            String value = decode(topic, separator + 1, propertyEnd);
+
+            //Some properties are reserved system properties and must be saved in the message differently
+            //Codes_SRS_Mqtt_34_057: [This function shall parse the messageId, correlationId, outputname, content encoding and content type from the provided property string]
+            switch (key)
+            {
+                case Mqtt.TO:
+                case Mqtt.IOTHUB_ACK:
+                case Mqtt.USER_ID:
+                case Mqtt.ABSOLUTE_EXPIRY_TIME:
+                    //do nothing
+                    break;
+                case Mqtt.MESSAGE_ID:
+                    message.setMessageId(value);
+                    break;
+                case Mqtt.CORRELATION_ID:
+                    message.setCorrelationId(value);
+                    break;
+                case Mqtt.OUTPUT_NAME:
+                    message.setOutputName(value);
+                    break;
+                case Mqtt.CONTENT_ENCODING:
+                    message.setContentEncoding(value);
+                    break;
+                case Mqtt.CONTENT_TYPE:
+                    message.setContentType(value);
+                    break;
+                default:
+                    message.setProperty(key, value);
+            }
+
+            propertyStart = propertyEnd + 1;
+        }
+    }
+
+    /**
+     * Percent decode a part of the provided string, producing the same characters as
+     * {@link java.net.URLDecoder#decode(String, String)} with UTF-8
+     * @param value the string to decode part of
+     * @param start the index of the first character to decode
+     * @param end the index after the last character to decode
+     * @return the decoded characters
+     * @throws IllegalArgumentException if a '%' is not followed by two hexadecimal digits
+     */
+    public static String decode(String value, int start, int end) throws IllegalArgumentException
+    {
+        int firstEncoded = start;
+        while (firstEncoded < end && value.charAt(firstEncoded) != '%' && value.charAt(firstEncoded) != '+')
+        {
+            firstEncoded++;
+        }
+
+        if (firstEncoded == end)
+        {
+            return value.substring(start, end);
+        }
+
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(value, start, firstEncoded);
+
+        byte[] bytes = null;
+        int i = firstEncoded;
+        while (i < end)
+        {
+            char c = value.charAt(i);
+            if (c == '+')
+            {
+                builder.append(' ');
+                i++;
+            }
+            else if (c == '%')
+            {
+                // Consecutive escapes are decoded together since they may be the bytes of a single character
+                if (bytes == null)
+                {
+                    bytes = new byte[(end - i) / 3];
+                }
+
+                int byteCount = 0;
+                while (i + 2 < end && value.charAt(i) == '%')
+                {
+                    int high = Character.digit(value.charAt(i + 1), 16);
+                    int low = Character.digit(value.charAt(i + 2), 16);
+                    if (high < 0 || low < 0)
+                    {
+                        throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern: " + value.substring(i, i + 3));
+                    }
+
+                    bytes[byteCount++] = (byte) ((high << 4) | low);
+                    i += 3;
+                }
+
+                if (i < end && value.charAt(i) == '%')
+                {
+                    throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+                }
+
+                builder.append(new String(bytes, 0, byteCount, StandardCharsets.UTF_8));
+            }
+            else
+            {
+                builder.append(c);
+                i++;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String getSystemPropertyKey(String topic, int start, int end)
+    {
+        boolean encodedIdentifier = topic.startsWith(ENCODED_SYSTEM_PROPERTY_IDENTIFIER, start);
+        for (String key : SYSTEM_PROPERTY_KEYS)
+        {
+            if (encodedIdentifier && key.charAt(0) == SYSTEM_PROPERTY_IDENTIFIER)
+            {
+                // The key is sent as "%24" followed by the rest of the key
+                int rest = start + ENCODED_SYSTEM_PROPERTY_IDENTIFIER.length();
+                if (end - rest == key.length() - 1 && topic.regionMatches(rest, key, 1, key.length() - 1))
+                {
+                    return key;
+                }
+            }
+            else if (end - start == key.length() && topic.startsWith(key, start))
+            {
+                return key;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isOnlyPropertySeparators(String topic, int start)
+    {
+        for (int i = start; i < topic.length(); i++)
+        {
+            if (topic.charAt(i) != Mqtt.MESSAGE_PROPERTY_SEPARATOR)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int getSegmentStart(String topic, int index)
+    {
+        if (index < 0)
+        {
+            return -1;
+        }
+
+        int start = 0;
+        for (int i = 0; i < index; i++)
+        {
+            int separator = topic.indexOf(SEGMENT_SEPARATOR, start);
+            if (separator < 0)
+            {
+                return -1;
+            }
+
+            start = separator + 1;
+        }
+
+        if (start >= getEndOfLastSegment(topic) && !(start == 0 && topic.isEmpty()))
+        {
+            // Only empty segments are left, which splitting the topic would have dropped
+            return -1;
+        }
+
+        return start;
+    }
+
+    private static int getSegmentEnd(String topic, int start)
+    {
+        int end = topic.indexOf(SEGMENT_SEPARATOR, start);
+        return end < 0 ? topic.length() : end;
+    }
+
+    private static int getEndOfLastSegment(String topic)
+    {
+        int end = topic.length();
+        while (end > 0 && topic.charAt(end - 1) == SEGMENT_SEPARATOR)
+        {
+            end--;
+        }
+
+        return end;
+    }
+}
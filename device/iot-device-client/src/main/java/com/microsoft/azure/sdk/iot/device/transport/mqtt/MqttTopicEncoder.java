@@ -0,0 +1,211 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the publish topic of outgoing telemetry messages, which carries the system and application properties of each
+ * message after the topic prefix of the device or module.
+ *
+ * <p>The topic is built in a buffer that is reused from one message to the next, and the properties are percent
+ * encoded in a single pass the same way {@link java.net.URLEncoder} encodes UTF-8, except that spaces are encoded as
+ * "%20" rather than '+'. Property values that need no encoding, such as most message ids, are copied as is. The
+ * encoded names of application properties are remembered, since the same few names tend to be sent with every message.</p>
+ */
+public final class MqttTopicEncoder
+{
+    // Once this many application property names have been encoded, the remembered encodings are forgotten so that
+    // property names that are made up per message can't grow the cache without bound
+    private static final int MAX_CACHED_PROPERTY_NAMES = 256;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String topicPrefix;
+    private final String topicSuffix;
+    private final StringBuilder topicBuilder;
+    private final Map<String, String> encodedPropertyNames = new HashMap<>();
+
+    /**
+     * @param topicPrefix the topic to append the message properties to, for instance "devices/{deviceId}/messages/events/"
+     * @param topicSuffix what to append after the message properties, or an empty string
+     * @throws IllegalArgumentException if either parameter is null
+     */
+    public MqttTopicEncoder(String topicPrefix, String topicSuffix) throws IllegalArgumentException
+    {
+        if (topicPrefix == null || topicSuffix == null)
+        {
+            throw new IllegalArgumentException("topicPrefix and topicSuffix cannot be null");
+        }
+
+        this.topicPrefix = topicPrefix;
+        this.topicSuffix = topicSuffix;
+        this.topicBuilder = new StringBuilder(topicPrefix.length() * 4);
+    }
+
+    /**
+     * Build the publish topic of the provided message
+     * @param message the message to build the topic of
+     * @return the topic prefix, followed by the properties of the message that are set and by the topic suffix
+     */
+    public synchronized String encode(Message message)
+    {
+        StringBuilder builder = this.topicBuilder;
+        builder.setLength(0);
+        builder.append(this.topicPrefix);
+
+        int propertiesStart = builder.length();
+
+        //Codes_SRS_MqttMessaging_34_029: [If the message has a To, this method shall append that To to publishTopic before publishing using the key name `$.to`.]
+        //Codes_SRS_MqttMessaging_34_030: [If the message has a UserId, this method shall append that userId to publishTopic before publishing using the key name `$.uid`.]
+        //Codes_SRS_MqttMessaging_34_028: [If the message has a correlationId, this method shall append that correlationid to publishTopic before publishing using the key name `$.cid`.]
+        //Codes_SRS_MqttMessaging_21_027: [send method shall append the messageid to publishTopic before publishing using the key name `$.mid`.]
+        //Codes_SRS_MqttMessaging_34_026: [This method shall append each custom property's name and value to the publishTopic before publishing.]
+        //Codes_SRS_MqttMessaging_34_032: [If the message has a OutputName, this method shall append that to publishTopic before publishing using the key name `$.on`.]
+        //Codes_SRS_MqttMessaging_34_032: [If the message has a content type, this method shall append that to publishTopic before publishing using the key name `$.ct`.]
+        //Codes_SRS_MqttMessaging_34_032: [If the message has a content encoding, this method shall append that to publishTopic before publishing using the key name `$.ce`.]
+        //Codes_SRS_MqttMessaging_34_034: [If the message has a creation time utc, this method shall append that to publishTopic before publishing using the key name `$.ctime`.]
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.MESSAGE_ID, message.getMessageId());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CORRELATION_ID, message.getCorrelationId());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.USER_ID, message.getUserId());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.TO, message.getTo());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.OUTPUT_NAME, message.getOutputName());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CONNECTION_DEVICE_ID, message.getConnectionDeviceId());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CONNECTION_MODULE_ID, message.getConnectionModuleId());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CONTENT_ENCODING, message.getContentEncoding());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CONTENT_TYPE, message.getContentType());
+        appendPropertyIfPresent(builder, propertiesStart, Mqtt.CREATION_TIME_UTC, message.getCreationTimeUTCString());
+        if (message.isSecurityMessage())
+        {
+            appendPropertyIfPresent(builder, propertiesStart, Mqtt.MQTT_SECURITY_INTERFACE_ID, MessageProperty.IOTHUB_SECURITY_INTERFACE_ID_VALUE);
+        }
+
+        for (MessageProperty property : message.getPropertiesView())
+        {
+            String value = property.getValue();
+            if (value != null && !value.isEmpty())
+            {
+                appendSeparatorIfNeeded(builder, propertiesStart);
+                builder.append(encodePropertyName(property.getName()));
+                builder.append(Mqtt.MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR);
+                appendEncoded(builder, value);
+            }
+        }
+
+        builder.append(this.topicSuffix);
+
+        return builder.toString();
+    }
+
+    /**
+     * Percent encode the provided string into the provided builder, producing the same characters as
+     * {@link java.net.URLEncoder#encode(String, String)} with UTF-8, except that spaces are encoded as "%20"
+     * @param builder the builder to append the encoded string to
+     * @param value the string to encode
+     */
+    public static void appendEncoded(StringBuilder builder, String value)
+    {
+        int length = value.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            if (isUnreserved(c))
+            {
+                builder.append(c);
+            }
+            else if (c == ' ')
+            {
+                builder.append("%20");
+            }
+            else if (c < 0x80)
+            {
+                appendEncodedByte(builder, c);
+            }
+            else if (c < 0x800)
+            {
+                appendEncodedByte(builder, 0xC0 | (c >> 6));
+                appendEncodedByte(builder, 0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEncodedByte(builder, 0xF0 | (codePoint >> 18));
+                appendEncodedByte(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEncodedByte(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEncodedByte(builder, 0x80 | (codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // A surrogate that isn't part of a pair can't be encoded as UTF-8. URLEncoder replaces it with '?'
+                appendEncodedByte(builder, '?');
+            }
+            else
+            {
+                appendEncodedByte(builder, 0xE0 | (c >> 12));
+                appendEncodedByte(builder, 0x80 | ((c >> 6) & 0x3F));
+                appendEncodedByte(builder, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private String encodePropertyName(String name)
+    {
+        String encodedName = this.encodedPropertyNames.get(name);
+        if (encodedName == null)
+        {
+            StringBuilder nameBuilder = new StringBuilder(name.length() + 8);
+            appendEncoded(nameBuilder, name);
+            encodedName = nameBuilder.toString();
+
+            if (this.encodedPropertyNames.size() >= MAX_CACHED_PROPERTY_NAMES)
+            {
+                this.encodedPropertyNames.clear();
+            }
+
+            this.encodedPropertyNames.put(name, encodedName);
+        }
+
+        return encodedName;
+    }
+
+    private static void appendPropertyIfPresent(StringBuilder builder, int propertiesStart, String key, String value)
+    {
+        if (value != null && !value.isEmpty())
+        {
+            appendSeparatorIfNeeded(builder, propertiesStart);
+
+            // The keys of system properties are constants that need no encoding
+            builder.append(key);
+            builder.append(Mqtt.MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR);
+            appendEncoded(builder, value);
+        }
+    }
+
+    private static void appendSeparatorIfNeeded(StringBuilder builder, int propertiesStart)
+    {
+        if (builder.length() > propertiesStart)
+        {
+            builder.append(Mqtt.MESSAGE_PROPERTY_SEPARATOR);
+        }
+    }
+
+    private static boolean isUnreserved(char c)
+    {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '.' || c == '-' || c == '*' || c == '_';
+    }
+
+    private static void appendEncodedByte(StringBuilder builder, int b)
+    {
+        builder.append('%');
+        builder.append(HEX_DIGITS[(b >> 4) & 0xF]);
+        builder.append(HEX_DIGITS[b & 0xF]);
+    }
+}
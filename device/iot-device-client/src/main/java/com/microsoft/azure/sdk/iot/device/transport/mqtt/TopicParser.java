@@ -7,7 +7,8 @@ import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 public class TopicParser
 {
-    private String[] topicTokens = null;
+    private final String topic;
+    private final int tokenCount;
 
     private final String QUESTION = "?";
 
@@ -23,22 +24,23 @@ public class TopicParser
         }
 
         //Codes_SRS_TopicParser_25_001: [The constructor shall spilt the topic by "/" and save the tokens.]
-        this.topicTokens = topic.split("/");
+        this.topic = topic;
+        this.tokenCount = MqttTopicDecoder.getSegmentCount(topic);
     }
 
     protected String getStatus(int tokenIndexStatus) throws TransportException
     {
         String status = null;
 
-        if (tokenIndexStatus <= 0 || tokenIndexStatus >= topicTokens.length)
+        if (tokenIndexStatus <= 0 || tokenIndexStatus >= tokenCount)
         {
             //Codes_SRS_TopicParser_25_003: [If tokenIndexStatus is not valid i.e less than or equal to zero or greater then token length then getStatus shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for status"));
         }
 
-        if (topicTokens.length > tokenIndexStatus)
+        if (tokenCount > tokenIndexStatus)
         {
-            String token = topicTokens[tokenIndexStatus];
+            String token = MqttTopicDecoder.getSegment(topic, tokenIndexStatus);
 
             if (token != null)
             {
@@ -59,15 +61,15 @@ public class TopicParser
     {
         String reqId = null;
 
-        if (tokenIndexReqID <= 0 || tokenIndexReqID >= topicTokens.length)
+        if (tokenIndexReqID <= 0 || tokenIndexReqID >= tokenCount)
         {
             //Codes_SRS_TopicParser_25_006: [If tokenIndexReqID is not valid i.e less than or equal to zero or greater then token length then getRequestId shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for request id"));
         }
 
-        if (topicTokens.length > tokenIndexReqID)
+        if (tokenCount > tokenIndexReqID)
         {
-            String token = topicTokens[tokenIndexReqID];
+            String token = MqttTopicDecoder.getSegment(topic, tokenIndexReqID);
 
             //Codes_SRS_TopicParser_25_008: [If the topic token does not contain request id then this method shall return null.]
             if (token.contains(REQ_ID) && token.contains(QUESTION)) // restriction for request id
@@ -93,15 +95,15 @@ public class TopicParser
     {
         String version = null;
 
-        if (tokenIndexVersion <= 0 || tokenIndexVersion >= topicTokens.length)
+        if (tokenIndexVersion <= 0 || tokenIndexVersion >= tokenCount)
         {
             //Codes_SRS_TopicParser_25_009: [If tokenIndexVersion is not valid i.e less than or equal to zero or greater then token length then getVersion shall throw TranpsortException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for Version"));
         }
 
-        if (topicTokens.length > tokenIndexVersion)
+        if (tokenCount > tokenIndexVersion)
         {
-            String token = topicTokens[tokenIndexVersion];
+            String token = MqttTopicDecoder.getSegment(topic, tokenIndexVersion);
             
             //Codes_SRS_TopicParser_25_010: [This method shall return the version value(if present) corresponding to the tokenIndexVersion from tokens.]
             //Codes_SRS_TopicParser_25_011: [If the topic token does not contain version then this method shall return null.]
@@ -127,15 +129,15 @@ public class TopicParser
     {
         String methodName = null;
 
-        if (tokenIndexMethod <= 0 || tokenIndexMethod >= topicTokens.length)
+        if (tokenIndexMethod <= 0 || tokenIndexMethod >= tokenCount)
         {
             //Codes_SRS_TopicParser_25_012: [If tokenIndexMethod is not valid i.e less than or equal to zero or greater then token length then getMethodName shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for Method Name"));
         }
 
-        if (topicTokens.length > tokenIndexMethod)
+        if (tokenCount > tokenIndexMethod)
         {
-            String token = topicTokens[tokenIndexMethod];
+            String token = MqttTopicDecoder.getSegment(topic, tokenIndexMethod);
             
             //Codes_SRS_TopicParser_25_013: [This method shall return the method name(if present) corresponding to the tokenIndexMethod from tokens.]
             //Codes_SRS_TopicParser_25_014: [If the topic token does not contain method name or is null then this method shall throw TransportException.]
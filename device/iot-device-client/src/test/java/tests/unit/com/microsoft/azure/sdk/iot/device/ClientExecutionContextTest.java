@@ -0,0 +1,96 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.ClientExecutionContext;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for ClientExecutionContext. */
+public class ClientExecutionContextTest
+{
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroThreads()
+    {
+        new ClientExecutionContext(0);
+    }
+
+    @Test
+    public void workerThreadsAreNamedDaemonThreads() throws Exception
+    {
+        ClientExecutionContext context = new ClientExecutionContext(2);
+        try
+        {
+            Thread workerThread = context.getScheduler().submit(new Callable<Thread>()
+            {
+                @Override
+                public Thread call()
+                {
+                    return Thread.currentThread();
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertEquals(2, context.getThreadCount());
+            assertTrue(workerThread.isDaemon());
+            assertTrue(workerThread.getName().startsWith("azure-iot-sdk-SharedWorker-"));
+        }
+        finally
+        {
+            context.close();
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullThreadFactory()
+    {
+        new ClientExecutionContext(1, null);
+    }
+
+    @Test
+    public void workerThreadsComeFromProvidedThreadFactory() throws Exception
+    {
+        final String threadName = "custom-worker";
+        ClientExecutionContext context = new ClientExecutionContext(1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                return new Thread(runnable, threadName);
+            }
+        });
+        try
+        {
+            String workerThreadName = context.getScheduler().submit(new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return Thread.currentThread().getName();
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertEquals(threadName, workerThreadName);
+        }
+        finally
+        {
+            context.close();
+        }
+    }
+
+    @Test
+    public void closeShutsDownScheduler()
+    {
+        ClientExecutionContext context = new ClientExecutionContext(1);
+
+        context.close();
+
+        assertTrue(context.getScheduler().isShutdown());
+    }
+}
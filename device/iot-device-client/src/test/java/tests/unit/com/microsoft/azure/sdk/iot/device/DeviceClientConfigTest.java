@@ -1192,4 +1192,153 @@ public class DeviceClientConfigTest
         //assert
         assertEquals(mockedProxySettings, actualProxySettings);
     }
+
+    @Test
+    public void setCallbackDispatchOptionsSavesOptions()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setCallbackDispatchThreadCount(4);
+        clientOptions.setCallbackDispatchQueueCapacity(50);
+        clientOptions.setCallbackDispatchOrderedPerDevice(true);
+
+        //act
+        Deencapsulation.invoke(config, "setCallbackDispatchOptions", clientOptions);
+
+        //assert
+        assertEquals(4, config.getCallbackDispatchThreadCount());
+        assertEquals(50, config.getCallbackDispatchQueueCapacity());
+        assertTrue(config.isCallbackDispatchOrderedPerDevice());
+    }
+
+    @Test
+    public void setCallbackDispatchOptionsKeepsDefaultsForUnsetOptions()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setCallbackDispatchOptions", new ClientOptions());
+
+        //assert
+        assertEquals(0, config.getCallbackDispatchThreadCount());
+        assertEquals(1000, config.getCallbackDispatchQueueCapacity());
+        assertFalse(config.isCallbackDispatchOrderedPerDevice());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setCallbackDispatchOptionsThrowsForNegativeThreadCount()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setCallbackDispatchThreadCount(-1);
+
+        //act
+        Deencapsulation.invoke(config, "setCallbackDispatchOptions", clientOptions);
+    }
+
+    @Test
+    public void setMqttOptionsSavesMaxInFlightMessageCount()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMqttMaxInFlightMessageCount(100);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttOptions", clientOptions);
+
+        //assert
+        assertEquals(100, config.getMqttMaxInFlightMessageCount());
+    }
+
+    @Test
+    public void setMqttOptionsKeepsDefaultForUnsetOptions()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttOptions", new ClientOptions());
+
+        //assert
+        assertEquals(10, config.getMqttMaxInFlightMessageCount());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMqttOptionsThrowsForNegativeMaxInFlightMessageCount()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMqttMaxInFlightMessageCount(-1);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttOptions", clientOptions);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMqttOptionsThrowsForMaxInFlightMessageCountLargerThanPacketIdsAllow()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMqttMaxInFlightMessageCount(65536);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttOptions", clientOptions);
+    }
+
+    @Test
+    public void setMessageQueueOptionsSavesOptions()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMessageQueueCapacity(10);
+        clientOptions.setMessageQueueCapacityInBytes(1024);
+        clientOptions.setMessageQueueOverflowPolicy(MessageQueueOverflowPolicy.DROP_OLDEST);
+        clientOptions.setMessageQueueBlockTimeoutMillis(500);
+
+        //act
+        Deencapsulation.invoke(config, "setMessageQueueOptions", clientOptions);
+
+        //assert
+        assertEquals(10, config.getMessageQueueCapacity());
+        assertEquals(1024, config.getMessageQueueCapacityInBytes());
+        assertEquals(MessageQueueOverflowPolicy.DROP_OLDEST, config.getMessageQueueOverflowPolicy());
+        assertEquals(500, config.getMessageQueueBlockTimeoutMillis());
+    }
+
+    @Test
+    public void setMessageQueueOptionsKeepsDefaultsForUnsetOptions()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMessageQueueOverflowPolicy(null);
+
+        //act
+        Deencapsulation.invoke(config, "setMessageQueueOptions", clientOptions);
+
+        //assert
+        assertEquals(0, config.getMessageQueueCapacity());
+        assertEquals(0, config.getMessageQueueCapacityInBytes());
+        assertEquals(MessageQueueOverflowPolicy.REJECT, config.getMessageQueueOverflowPolicy());
+        assertEquals(60 * 1000, config.getMessageQueueBlockTimeoutMillis());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void setMessageQueueOptionsThrowsForNegativeCapacity()
+    {
+        //arrange
+        DeviceClientConfig config = new DeviceClientConfig(mockIotHubConnectionString);
+        ClientOptions clientOptions = new ClientOptions();
+        clientOptions.setMessageQueueCapacity(-1);
+
+        //act
+        Deencapsulation.invoke(config, "setMessageQueueOptions", clientOptions);
+    }
 }
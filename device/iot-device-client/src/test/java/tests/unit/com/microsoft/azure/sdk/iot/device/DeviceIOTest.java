@@ -10,6 +10,7 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.SharedTaskRunner;
 import mockit.*;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -23,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -301,6 +303,106 @@ public class DeviceIOTest
         };
     }
 
+    @Test
+    public void connectedWithThreadFactoryCreatesSchedulersWithIt(@Mocked final ThreadFactory mockThreadFactory)
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getExecutionContext();
+                result = null;
+                mockConfig.getThreadFactory();
+                result = mockThreadFactory;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(deviceIO, "execute", IotHubConnectionStatus.CONNECTED, IotHubConnectionStatusChangeReason.CONNECTION_OK, new Exception(), new Object());
+
+        // assert
+        new Verifications()
+        {
+            {
+                Executors.newScheduledThreadPool(1, mockThreadFactory);
+                times = 2;
+                Executors.newScheduledThreadPool(1);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void connectedWithExecutionContextRunsTasksOnSharedScheduler(
+            @Mocked final ClientExecutionContext mockExecutionContext,
+            @Mocked final SharedTaskRunner mockTaskRunner) throws DeviceClientException, IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        configs.add(mockConfig);
+        Deencapsulation.setField(deviceIO, "deviceClientConfigs", configs);
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getExecutionContext();
+                result = mockExecutionContext;
+                mockExecutionContext.getScheduler();
+                result = mockScheduler;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(deviceIO, "execute", IotHubConnectionStatus.CONNECTED, IotHubConnectionStatusChangeReason.CONNECTION_OK, new Exception(), new Object());
+
+        // assert
+        assertEquals("CONNECTED", Deencapsulation.getField(deviceIO, "state").toString());
+        new Verifications()
+        {
+            {
+                new SharedTaskRunner((SharedTaskRunner.Task) any, mockScheduler, anyLong);
+                times = 2;
+                mockedTransport.setSharedTaskRunners((SharedTaskRunner) any, (SharedTaskRunner) any);
+                times = 1;
+                mockTaskRunner.signal();
+                times = 2;
+                Executors.newScheduledThreadPool(anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void disconnectedRetryingStopsSharedTaskRunners(
+            @Mocked final ClientExecutionContext mockExecutionContext,
+            @Mocked final SharedTaskRunner mockTaskRunner) throws DeviceClientException, IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        configs.add(mockConfig);
+        Deencapsulation.setField(deviceIO, "deviceClientConfigs", configs);
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getExecutionContext();
+                result = mockExecutionContext;
+            }
+        };
+        Deencapsulation.invoke(deviceIO, "execute", IotHubConnectionStatus.CONNECTED, IotHubConnectionStatusChangeReason.CONNECTION_OK, new Exception(), new Object());
+
+        // act
+        Deencapsulation.invoke(deviceIO, "execute", IotHubConnectionStatus.DISCONNECTED_RETRYING, IotHubConnectionStatusChangeReason.NO_NETWORK, new Exception(), new Object());
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockTaskRunner.stop();
+                times = 2;
+            }
+        };
+    }
+
     /* Tests_SRS_DEVICE_IO_21_015: [If an error occurs in opening the transport, the open shall throw an IOException.] */
     @Test (expected = IOException.class)
     public void openThrowsIOExceptionIfTransportOpenThrows() throws DeviceClientException
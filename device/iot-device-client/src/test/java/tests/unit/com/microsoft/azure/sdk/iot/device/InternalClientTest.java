@@ -502,6 +502,103 @@ public class InternalClientTest
         };
     }
 
+    @Test
+    public void sendEventAsyncAssignsGeneratedMessageIdWhenMessageHasNone(
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final MessageIdGenerator mockMessageIdGenerator)
+            throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final Map<String, Object> context = new HashMap<>();
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class, ClientOptions.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD, null);
+        Deencapsulation.setField(client, "config", mockConfig);
+        Deencapsulation.invoke(client, "open");
+        final Message message = new Message("some body");
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getMessageIdGenerator();
+                result = mockMessageIdGenerator;
+                mockMessageIdGenerator.generateMessageId();
+                result = "generated id";
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(client, "sendEventAsync", message, mockCallback, context);
+
+        // assert
+        assertEquals("generated id", message.getMessageId());
+    }
+
+    @Test
+    public void sendEventAsyncAssignsGeneratedMessageIdWhenMessageHasExpiryTime(
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final MessageIdGenerator mockMessageIdGenerator)
+            throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final Map<String, Object> context = new HashMap<>();
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class, ClientOptions.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD, null);
+        Deencapsulation.setField(client, "config", mockConfig);
+        Deencapsulation.invoke(client, "open");
+        final Message message = new Message("some body");
+        message.setExpiryTime(60 * 1000);
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getMessageIdGenerator();
+                result = mockMessageIdGenerator;
+                mockMessageIdGenerator.generateMessageId();
+                result = "generated id";
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(client, "sendEventAsync", message, mockCallback, context);
+
+        // assert
+        assertEquals("generated id", message.getMessageId());
+    }
+
+    @Test
+    public void sendEventAsyncKeepsMessageIdThatWasSet(
+            @Mocked final IotHubEventCallback mockCallback,
+            @Mocked final MessageIdGenerator mockMessageIdGenerator)
+            throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        final Map<String, Object> context = new HashMap<>();
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class, ClientOptions.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD, null);
+        Deencapsulation.setField(client, "config", mockConfig);
+        Deencapsulation.invoke(client, "open");
+        final Message message = new Message("some body");
+        message.setMessageId("user id");
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getMessageIdGenerator();
+                result = mockMessageIdGenerator;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(client, "sendEventAsync", message, mockCallback, context);
+
+        // assert
+        assertEquals("user id", message.getMessageId());
+        new Verifications()
+        {
+            {
+                mockMessageIdGenerator.generateMessageId();
+                times = 0;
+            }
+        };
+    }
+
     /* Tests_SRS_INTERNALCLIENT_21_011: [If starting to send via deviceIO is not successful, the sendEventAsync shall bypass the threw exception.] */
     // Tests_SRS_INTERNALCLIENT_12_001: [The function shall call deviceIO.sendEventAsync with the client's config parameter to enable multiplexing.]
     @Test
@@ -7,16 +7,20 @@ import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.TimeZone;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -46,6 +50,79 @@ public class MessageTest
         assertThat(testBody, is(expectedBody));
     }
 
+    @Test
+    public void getBodyReferenceReturnsBodyWithoutCopy()
+    {
+        final byte[] body = { 1, 2, 3 };
+
+        Message msg = new Message(body);
+
+        assertSame(Deencapsulation.getField(msg, "body"), IotHubTransportMessage.getBodyReference(msg));
+        assertThat(IotHubTransportMessage.getBodyReference(msg), is(body));
+    }
+
+    @Test
+    public void constructorWithBufferOfWholeArrayDoesNotCopyBody()
+    {
+        final byte[] body = { 1, 2, 3 };
+
+        Message msg = new Message(ByteBuffer.wrap(body));
+
+        assertSame(body, IotHubTransportMessage.getBodyReference(msg));
+        assertThat(msg.getBytes(), is(body));
+    }
+
+    @Test
+    public void constructorWithSliceOfArraySharesBodyWithoutCopy()
+    {
+        final byte[] backingArray = { 0, 1, 2, 3, 4 };
+        ByteBuffer buffer = ByteBuffer.wrap(backingArray, 1, 3);
+
+        Message msg = new Message(buffer);
+        ByteBuffer bodyBuffer = IotHubTransportMessage.getBodyBuffer(msg);
+
+        assertSame(backingArray, bodyBuffer.array());
+        assertEquals(1, bodyBuffer.arrayOffset() + bodyBuffer.position());
+        assertEquals(3, IotHubTransportMessage.getBodyLength(msg));
+        assertThat(msg.getBytes(), is(new byte[] { 1, 2, 3 }));
+        assertThat(IotHubTransportMessage.getBodyReference(msg), is(new byte[] { 1, 2, 3 }));
+        assertEquals(1, buffer.position());
+        assertEquals(4, buffer.limit());
+    }
+
+    @Test
+    public void constructorWithDirectBufferKeepsBodyOutsideOfHeap()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+        buffer.put(new byte[] { 1, 2, 3 });
+        buffer.flip();
+
+        Message msg = new Message(buffer);
+
+        assertTrue(IotHubTransportMessage.getBodyBuffer(msg).isDirect());
+        assertTrue(IotHubTransportMessage.hasBody(msg));
+        assertEquals(3, IotHubTransportMessage.getBodyLength(msg));
+        assertThat(msg.getBytes(), is(new byte[] { 1, 2, 3 }));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorRejectsNullBuffer()
+    {
+        new Message((ByteBuffer) null);
+    }
+
+    @Test
+    public void messageWithoutBodyHasNoBody()
+    {
+        Message msg = new Message();
+
+        assertFalse(IotHubTransportMessage.hasBody(msg));
+        assertEquals(0, IotHubTransportMessage.getBodyLength(msg));
+        assertNull(IotHubTransportMessage.getBodyBuffer(msg));
+        assertNull(msg.getBytes());
+    }
+
     // Tests_SRS_MESSAGE_11_025: [If the message body is null, the constructor shall throw an IllegalArgumentException.]
     @Test(expected = IllegalArgumentException.class)
     public void constructorRejectsNullBody()
@@ -179,6 +256,57 @@ public class MessageTest
         msg.setProperty(name, invalidValue);
     }
 
+    @Test
+    public void getPropertyIgnoresCaseOfName()
+    {
+        Message msg = new Message();
+        msg.setProperty("Test-Name", "test-value");
+
+        assertEquals("test-value", msg.getProperty("test-name"));
+        assertEquals("test-value", msg.getProperty("TEST-NAME"));
+    }
+
+    @Test
+    public void setPropertyReplacesPropertyOfSameNameAndMovesItToTheEnd()
+    {
+        Message msg = new Message();
+        msg.setProperty("name1", "value1");
+        msg.setProperty("name2", "value2");
+
+        msg.setProperty("NAME1", "value3");
+
+        MessageProperty[] properties = msg.getProperties();
+        assertEquals(2, properties.length);
+        assertEquals("name2", properties[0].getName());
+        assertEquals("NAME1", properties[1].getName());
+        assertEquals("value3", properties[1].getValue());
+    }
+
+    @Test
+    public void getPropertiesViewReflectsPropertiesInOrderWithoutCopy()
+    {
+        Message msg = new Message();
+        Collection<MessageProperty> propertiesView = msg.getPropertiesView();
+
+        msg.setProperty("name1", "value1");
+        msg.setProperty("name2", "value2");
+
+        assertSame(propertiesView, msg.getPropertiesView());
+        assertEquals(2, propertiesView.size());
+        Iterator<MessageProperty> iterator = propertiesView.iterator();
+        assertEquals("name1", iterator.next().getName());
+        assertEquals("name2", iterator.next().getName());
+    }
+
+    @Test (expected = UnsupportedOperationException.class)
+    public void getPropertiesViewIsReadOnly()
+    {
+        Message msg = new Message();
+        msg.setProperty("name1", "value1");
+
+        msg.getPropertiesView().clear();
+    }
+
     // Tests_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
     @Test
     public void getPropertyRejectsNonexistentProperty(
@@ -271,6 +399,16 @@ public class MessageTest
         assertThat(expectedResult, is(actualResult));
     }
 
+    @Test
+    public void setExpiryTimeDoesNotAssignMessageId()
+    {
+        Message msg = new Message("body");
+
+        msg.setExpiryTime(1000);
+
+        assertNull(Deencapsulation.getField(msg, "messageId"));
+    }
+
     // Tests_SRS_MESSAGE_34_037: [The function shall set the message's expiry time to be the number of milliseconds since the epoch provided in absoluteTimeout.]
     @Test
     public void setAbsoluteTimeSetsExpiryTime()
@@ -286,6 +424,16 @@ public class MessageTest
         assertFalse(msg.isExpired());
     }
 
+    @Test
+    public void getExpiryTimeReturnsAbsoluteExpiryTime()
+    {
+        Message msg = new Message("body");
+        assertEquals(0, msg.getExpiryTime());
+
+        msg.setAbsoluteExpiryTime(1234L);
+        assertEquals(1234L, msg.getExpiryTime());
+    }
+
     // Tests_SRS_MESSAGE_34_038: [If the provided absolute expiry time is negative, an IllegalArgumentException shall be thrown.]
     @Test (expected = IllegalArgumentException.class)
     public void setAbsoluteTimeWithNegativeTimeThrowsIllegalArgumentException()
@@ -421,4 +569,46 @@ public class MessageTest
         assertTrue(msg.isSecurityMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getMessageIdGeneratesIdOnceWhenNotSet()
+    {
+        //arrange
+        Message msg = new Message();
+
+        //act
+        String firstId = msg.getMessageId();
+        String secondId = msg.getMessageId();
+
+        //assert
+        assertNotNull(firstId);
+        assertFalse(firstId.isEmpty());
+        assertEquals(firstId, secondId);
+    }
+
+    @Test
+    public void getMessageIdReturnsIdThatWasSet()
+    {
+        //arrange
+        Message msg = new Message();
+        msg.setMessageId("some id");
+
+        //act
+        String messageId = msg.getMessageId();
+
+        //assert
+        assertEquals("some id", messageId);
+    }
+
+    @Test
+    public void newMessageHasNoCorrelationId()
+    {
+        //arrange
+        Message msg = new Message();
+
+        //act
+        String correlationId = msg.getCorrelationId();
+
+        //assert
+        assertEquals("", correlationId);
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.SequentialMessageIdGenerator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for SequentialMessageIdGenerator
+ */
+public class SequentialMessageIdGeneratorTest
+{
+    @Test
+    public void generateMessageIdAppendsIncreasingCounterToPrefix()
+    {
+        //arrange
+        SequentialMessageIdGenerator generator = new SequentialMessageIdGenerator("sensor-42");
+
+        //act
+        String firstId = generator.generateMessageId();
+        String secondId = generator.generateMessageId();
+
+        //assert
+        assertEquals("sensor-42:1", firstId);
+        assertEquals("sensor-42:2", secondId);
+    }
+
+    @Test
+    public void defaultConstructorUsesDifferentPrefixes()
+    {
+        //arrange
+        SequentialMessageIdGenerator generator1 = new SequentialMessageIdGenerator();
+        SequentialMessageIdGenerator generator2 = new SequentialMessageIdGenerator();
+
+        //act
+        String id1 = generator1.generateMessageId();
+        String id2 = generator2.generateMessageId();
+
+        //assert
+        assertNotEquals(id1, id2);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullPrefix()
+    {
+        //act
+        new SequentialMessageIdGenerator(null);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForEmptyPrefix()
+    {
+        //act
+        new SequentialMessageIdGenerator("");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForPrefixLongerThan100Characters()
+    {
+        //arrange
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < 101; i++)
+        {
+            prefix.append('a');
+        }
+
+        //act
+        new SequentialMessageIdGenerator(prefix.toString());
+    }
+}
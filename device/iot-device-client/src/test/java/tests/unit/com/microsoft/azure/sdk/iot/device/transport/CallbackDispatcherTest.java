@@ -0,0 +1,256 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.CallbackDispatchStatistics;
+import com.microsoft.azure.sdk.iot.device.transport.CallbackDispatcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/** Unit tests for CallbackDispatcher. */
+public class CallbackDispatcherTest
+{
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroThreads()
+    {
+        new CallbackDispatcher(0, 10, false, null);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroQueueCapacity()
+    {
+        new CallbackDispatcher(1, 0, false, null);
+    }
+
+    @Test
+    public void dispatchInvokesCallbackOnDispatchThread() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1, 10, false, null);
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch invoked = new CountDownLatch(1);
+
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                threadNames.add(Thread.currentThread().getName());
+                invoked.countDown();
+            }
+        });
+
+        assertTrue(invoked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        dispatcher.close();
+        assertTrue(threadNames.get(0).startsWith("azure-iot-sdk-CallbackDispatcher-"));
+    }
+
+    @Test
+    public void dispatchUsesProvidedThreadFactory() throws InterruptedException
+    {
+        final AtomicInteger createdThreads = new AtomicInteger();
+        CallbackDispatcher dispatcher = new CallbackDispatcher(2, 10, false, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                createdThreads.incrementAndGet();
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        dispatcher.close();
+
+        assertEquals(2, createdThreads.get());
+    }
+
+    @Test
+    public void callbacksOfOneDeviceRunInOrderWhenOrderedPerDevice() throws InterruptedException
+    {
+        final int callbackCount = 200;
+        CallbackDispatcher dispatcher = new CallbackDispatcher(4, 1000, true, null);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        for (int i = 0; i < callbackCount; i++)
+        {
+            final int index = i;
+            dispatcher.dispatch("device", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    order.add(index);
+                }
+            });
+        }
+
+        dispatcher.close();
+
+        assertEquals(callbackCount, order.size());
+        for (int i = 0; i < callbackCount; i++)
+        {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void slowCallbackDoesNotBlockDispatchUntilQueueIsFull() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1, 10, false, null);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // Returns right away even though the only dispatch thread is busy
+        for (int i = 0; i < 5; i++)
+        {
+            dispatcher.dispatch("device", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                }
+            });
+        }
+
+        assertEquals(6, dispatcher.getPendingCallbackCount());
+        release.countDown();
+        dispatcher.close();
+        assertEquals(0, dispatcher.getPendingCallbackCount());
+    }
+
+    @Test
+    public void closeWaitsForQueuedCallbacks() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(2, 100, false, null);
+        final AtomicInteger invokedCount = new AtomicInteger();
+
+        for (int i = 0; i < 50; i++)
+        {
+            dispatcher.dispatch(null, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    invokedCount.incrementAndGet();
+                }
+            });
+        }
+
+        dispatcher.close();
+
+        assertEquals(50, invokedCount.get());
+    }
+
+    @Test
+    public void dispatchAfterCloseInvokesCallbackOnCallingThread() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1, 10, false, null);
+        dispatcher.close();
+        final List<Thread> threads = new ArrayList<>();
+
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                threads.add(Thread.currentThread());
+            }
+        });
+
+        assertEquals(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void callbackExceptionDoesNotStopDispatchThread() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1, 10, false, null);
+        final CountDownLatch invoked = new CountDownLatch(1);
+
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                throw new IllegalStateException();
+            }
+        });
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                invoked.countDown();
+            }
+        });
+
+        assertTrue(invoked.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        dispatcher.close();
+    }
+
+    @Test
+    public void getStatisticsReportsQueueTime() throws InterruptedException
+    {
+        CallbackDispatcher dispatcher = new CallbackDispatcher(1, 10, false, null);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        dispatcher.dispatch("device", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        });
+        Thread.sleep(20);
+        release.countDown();
+        dispatcher.close();
+
+        CallbackDispatchStatistics statistics = dispatcher.getStatistics();
+        assertEquals(0, statistics.getPendingCallbackCount());
+        assertEquals(2, statistics.getDispatchedCallbackCount());
+        assertTrue(statistics.getMaxQueueTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(statistics.getAverageQueueTimeNanos() <= statistics.getMaxQueueTimeNanos());
+    }
+}
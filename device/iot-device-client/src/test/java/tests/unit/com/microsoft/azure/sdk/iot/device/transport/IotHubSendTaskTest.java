@@ -6,6 +6,8 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.WakeupSignal;
+import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
@@ -13,6 +15,10 @@ import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /** Unit tests for IotHubSendTask. */
 public class IotHubSendTaskTest
@@ -25,12 +31,12 @@ public class IotHubSendTaskTest
     @Test
     public void runSendsAllMessages()
     {
-        final Object sendThreadLock = new Object();
+        final WakeupSignal sendTaskSignal = new WakeupSignal();
         new Expectations()
         {
             {
-                mockTransport.getSendThreadLock();
-                result = sendThreadLock;
+                mockTransport.getSendTaskSignal();
+                result = sendTaskSignal;
 
                 mockTransport.hasMessagesToSend();
                 result = true;
@@ -51,12 +57,12 @@ public class IotHubSendTaskTest
     @Test
     public void runInvokesAllCallbacks()
     {
-        final Object sendThreadLock = new Object();
+        final WakeupSignal sendTaskSignal = new WakeupSignal();
         new Expectations()
         {
             {
-                mockTransport.getSendThreadLock();
-                result = sendThreadLock;
+                mockTransport.getSendTaskSignal();
+                result = sendTaskSignal;
 
                 mockTransport.hasMessagesToSend();
                 result = false;
@@ -77,6 +83,70 @@ public class IotHubSendTaskTest
         };
     }
 
+    @Test
+    public void runWaitsForSignalWhenThereIsNothingToSend() throws InterruptedException
+    {
+        final WakeupSignal sendTaskSignal = new WakeupSignal();
+        new NonStrictExpectations()
+        {
+            {
+                mockTransport.getSendTaskSignal();
+                result = sendTaskSignal;
+
+                mockTransport.hasMessagesToSend();
+                result = false;
+
+                mockTransport.hasCallbacksToExecute();
+                result = false;
+
+                mockTransport.isClosed();
+                result = false;
+            }
+        };
+
+        final IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        Thread sendThread = new Thread(sendTask);
+        sendThread.start();
+
+        // The send thread stays parked until it is signaled
+        sendThread.join(100);
+        assertTrue(sendThread.isAlive());
+
+        sendTaskSignal.signal();
+        sendThread.join(10000);
+
+        assertFalse(sendThread.isAlive());
+        new Verifications()
+        {
+            {
+                mockTransport.sendMessages();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void runForgetsSignalsForWorkItIsAboutToHandle()
+    {
+        final WakeupSignal sendTaskSignal = new WakeupSignal();
+        new NonStrictExpectations()
+        {
+            {
+                mockTransport.getSendTaskSignal();
+                result = sendTaskSignal;
+
+                mockTransport.hasMessagesToSend();
+                result = true;
+            }
+        };
+        sendTaskSignal.signal();
+
+        IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        sendTask.run();
+
+        assertFalse(Deencapsulation.<AtomicBoolean>getField(sendTaskSignal, "signaled").get());
+    }
+
     // Tests_SRS_IOTHUBSENDTASK_11_005: [The function shall not crash because of an IOException thrown by the transport.]
     @Test
     public void runDoesNotCrashFromIoException() throws DeviceClientException
@@ -20,7 +20,9 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.isIn;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for IotHubTransportPacket.
@@ -200,4 +202,24 @@ public class IotHubTransportPacketTest
         //act
         new IotHubTransportPacket(mockMsg, mockCallback, new Object(), IotHubStatusCode.OK_EMPTY, -1);
     }
+
+    @Test
+    public void reserveAndReleaseQueueCapacity()
+    {
+        //arrange
+        IotHubTransportPacket packet = new IotHubTransportPacket(mockMsg, mockCallback, new Object(), IotHubStatusCode.OK_EMPTY, 10);
+
+        //act
+        packet.reserveQueueCapacity(42);
+
+        //assert
+        assertTrue(packet.holdsQueueCapacity());
+        assertEquals(42, packet.getQueueCapacityBytes());
+
+        //act
+        packet.releaseQueueCapacity();
+
+        //assert
+        assertFalse(packet.holdsQueueCapacity());
+    }
 }
@@ -21,6 +21,8 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.microsoft.azure.sdk.iot.device.IotHubConnectionStatusChangeReason.*;
 import static com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus.*;
@@ -1129,6 +1131,633 @@ public class IotHubTransportTest
         assertEquals(1, waitingPacketsQueue.size());
     }
 
+    @Test
+    public void getMqttInFlightMessageCountReturnsMqttConnectionCount()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedMqttIotHubConnection);
+        new NonStrictExpectations()
+        {
+            {
+                mockedMqttIotHubConnection.getInFlightMessageCount();
+                result = 7;
+            }
+        };
+
+        //act
+        int inFlightMessageCount = transport.getMqttInFlightMessageCount();
+
+        //assert
+        assertEquals(7, inFlightMessageCount);
+    }
+
+    @Test
+    public void getMqttInFlightMessageCountReturnsZeroForOtherProtocols()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedAmqpsIotHubConnection);
+
+        //act
+        int inFlightMessageCount = transport.getMqttInFlightMessageCount();
+
+        //assert
+        assertEquals(0, inFlightMessageCount);
+    }
+
+    @Test
+    public void getAmqpFlushLatencyReturnsAmqpConnectionLatency()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedAmqpsIotHubConnection);
+        new NonStrictExpectations()
+        {
+            {
+                mockedAmqpsIotHubConnection.getLastFlushLatencyNanos();
+                result = 5L;
+                mockedAmqpsIotHubConnection.getMaxFlushLatencyNanos();
+                result = 9L;
+            }
+        };
+
+        //act
+        long lastFlushLatencyNanos = transport.getAmqpLastFlushLatencyNanos();
+        long maxFlushLatencyNanos = transport.getAmqpMaxFlushLatencyNanos();
+
+        //assert
+        assertEquals(5L, lastFlushLatencyNanos);
+        assertEquals(9L, maxFlushLatencyNanos);
+    }
+
+    @Test
+    public void getAmqpFlushLatencyReturnsZeroForOtherProtocols()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedMqttIotHubConnection);
+
+        //act
+        //assert
+        assertEquals(0L, transport.getAmqpLastFlushLatencyNanos());
+        assertEquals(0L, transport.getAmqpMaxFlushLatencyNanos());
+    }
+
+    @Test
+    public void addMessageQueuesBatchMessageAsSinglePacketForAmqps(@Mocked final BatchMessage mockedBatchMessage)
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedAmqpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                new IotHubTransportPacket(mockedBatchMessage, mockedEventCallback, any, null, anyLong);
+                result = mockedPacket;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedBatchMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedBatchMessage.getNestedMessages();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageRejectsMessageWhenMessageQueueIsFull()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacity();
+                result = 1;
+                mockedConfig.getMessageQueueOverflowPolicy();
+                result = MessageQueueOverflowPolicy.REJECT;
+                new IotHubTransportPacket(mockedMessage, mockedEventCallback, any, null, anyLong);
+                result = mockedPacket;
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        assertEquals(1, callbackPacketsQueue.size());
+        assertEquals(1, transport.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+                times = 1;
+                mockedPacket.reserveQueueCapacity(anyLong);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageDropsOldestWaitingMessageWhenMessageQueueIsFull()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacity();
+                result = 1;
+                mockedConfig.getMessageQueueOverflowPolicy();
+                result = MessageQueueOverflowPolicy.DROP_OLDEST;
+                mockedPacket.holdsQueueCapacity();
+                result = true;
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        assertNotSame(mockedPacket, waitingPacketsQueue.peek());
+        assertEquals(1, callbackPacketsQueue.size());
+        assertSame(mockedPacket, callbackPacketsQueue.peek());
+        assertEquals(1, transport.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageRejectsMessageLargerThanMessageQueueByteCapacity()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacityInBytes();
+                result = 10L;
+                mockedConfig.getMessageQueueOverflowPolicy();
+                result = MessageQueueOverflowPolicy.DROP_OLDEST;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = 11;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        assertSame(mockedPacket, waitingPacketsQueue.peek());
+        assertEquals(0, transport.getQueuedMessageBytes());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageCountsMessageBodyBytes()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.<AtomicLong>getField(transport, "queuedMessageBytes").set(5L);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacityInBytes();
+                result = 10L;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = 5;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        assertEquals(1, transport.getQueuedMessageCount());
+        assertEquals(10, transport.getQueuedMessageBytes());
+        new Verifications()
+        {
+            {
+                mockedPacket.reserveQueueCapacity(5L);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageBlocksUntilTimeoutThenRejectsWhenMessageQueueIsFull()
+    {
+        //arrange
+        final long blockTimeoutMillis = 100;
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacity();
+                result = 1;
+                mockedConfig.getMessageQueueOverflowPolicy();
+                result = MessageQueueOverflowPolicy.BLOCK;
+                mockedConfig.getMessageQueueBlockTimeoutMillis();
+                result = blockTimeoutMillis;
+            }
+        };
+
+        long startTime = System.currentTimeMillis();
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertTrue(System.currentTimeMillis() - startTime >= blockTimeoutMillis);
+        assertTrue(waitingPacketsQueue.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageToUnboundedMessageQueueCountsMessageWithoutApplyingOverflowPolicy()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = 5;
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        assertEquals(1, transport.getQueuedMessageCount());
+        assertEquals(5, transport.getQueuedMessageBytes());
+        new Verifications()
+        {
+            {
+                mockedConfig.getMessageQueueOverflowPolicy();
+                times = 0;
+                mockedPacket.reserveQueueCapacity(5L);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void releaseQueueCapacityDoesNotTakeQueueCapacityLockWithoutWaiters() throws InterruptedException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Object queueCapacityLock = Deencapsulation.getField(transport, "queueCapacityLock");
+        final CountDownLatch released = new CountDownLatch(1);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.holdsQueueCapacity();
+                result = true;
+            }
+        };
+
+        //act
+        // Holding the lock here means the release can only complete if it never tries to take that lock
+        synchronized (queueCapacityLock)
+        {
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Deencapsulation.invoke(transport, "releaseQueueCapacity", new Class[] {IotHubTransportPacket.class}, mockedPacket);
+                    released.countDown();
+                }
+            }).start();
+
+            //assert
+            assertTrue(released.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(0, transport.getQueuedMessageCount());
+    }
+
+    @Test
+    public void addMessageBlocksUntilMessageQueueCapacityIsReleased() throws InterruptedException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getMessageQueueCapacity();
+                result = 1;
+                mockedConfig.getMessageQueueOverflowPolicy();
+                result = MessageQueueOverflowPolicy.BLOCK;
+                mockedConfig.getMessageQueueBlockTimeoutMillis();
+                result = 60 * 1000L;
+                mockedPacket.holdsQueueCapacity();
+                result = true;
+            }
+        };
+
+        Thread releasingThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                Deencapsulation.invoke(transport, "releaseQueueCapacity", new Class[] {IotHubTransportPacket.class}, mockedPacket);
+            }
+        });
+        releasingThread.start();
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        releasingThread.join();
+        assertEquals(1, waitingPacketsQueue.size());
+        assertEquals(1, transport.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_QUEUE_FULL);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void addMessageIndexesMessagesWithExpiryTime()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        new NonStrictExpectations()
+        {
+            {
+                new IotHubTransportPacket(mockedMessage, mockedEventCallback, any, null, anyLong);
+                result = mockedPacket;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getExpiryTime();
+                returns(0L, 1000L);
+            }
+        };
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        assertEquals(1, expiringPackets.size());
+    }
+
+    @Test
+    public void sendMessagesExpiresExpiredWaitingPackets()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        expiringPackets.add(mockedPacket);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+                mockedPacket.getStatus();
+                result = null;
+                mockedMessage.getExpiryTime();
+                result = 1L;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        assertEquals(1, callbackPacketsQueue.size());
+        assertTrue(expiringPackets.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessagesExpiresExpiredInProgressPackets()
+    {
+        //arrange
+        final String messageId = "1234";
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
+        inProgressPackets.put(messageId, mockedPacket);
+        Deencapsulation.setField(transport, "inProgressPackets", inProgressPackets);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        expiringPackets.add(mockedPacket);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+                mockedPacket.getStatus();
+                result = null;
+                mockedMessage.getMessageId();
+                result = messageId;
+                mockedMessage.getExpiryTime();
+                result = 1L;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(inProgressPackets.isEmpty());
+        assertEquals(1, callbackPacketsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessagesDoesNotLookAtPacketsThatHaveNotExpired()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        expiringPackets.add(mockedPacket);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getExpiryTime();
+                result = Long.MAX_VALUE;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        assertEquals(1, expiringPackets.size());
+        new Verifications()
+        {
+            {
+                mockedMessage.isExpired();
+                times = 0;
+                mockedPacket.setStatus((IotHubStatusCode) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessagesDiscardsCompletedPacketsFromExpiryIndex()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED_RETRYING);
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        expiringPackets.add(mockedPacket);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedPacket.getStatus();
+                result = IotHubStatusCode.OK_EMPTY;
+                mockedMessage.getExpiryTime();
+                result = 1L;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(expiringPackets.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedPacket.setStatus((IotHubStatusCode) any);
+                times = 0;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_043: [If the connection status of this object is not CONNECTED, this function shall do nothing]
     @Test
     public void sendMessagesDoesNothingIfNotConnected()
@@ -1179,6 +1808,209 @@ public class IotHubTransportTest
         assertEquals(1, waitingPacketsQueue.size());
     }
 
+    @Test
+    public void invokeCallbacksReleasesMessageQueueCapacity()
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.<AtomicInteger>getField(transport, "queuedMessageCount").set(1);
+        Deencapsulation.<AtomicLong>getField(transport, "queuedMessageBytes").set(5L);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        callbackPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+                mockedPacket.holdsQueueCapacity();
+                result = true;
+                mockedPacket.getQueueCapacityBytes();
+                result = 5L;
+            }
+        };
+
+        //act
+        transport.invokeCallbacks();
+
+        //assert
+        assertEquals(0, transport.getQueuedMessageCount());
+        assertEquals(0, transport.getQueuedMessageBytes());
+        new VerificationsInOrder()
+        {
+            {
+                mockedEventCallback.execute((IotHubStatusCode) any, any);
+                mockedPacket.releaseQueueCapacity();
+            }
+        };
+    }
+
+    @Test
+    public void invokeCallbacksHandsCallbacksToCallbackDispatcher(final @Mocked CallbackDispatcher mockedDispatcher) throws InterruptedException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        callbackPacketsQueue.add(mockedPacket);
+        callbackPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        Deencapsulation.setField(transport, "callbackDispatcher", mockedDispatcher);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getConnectionDeviceId();
+                result = "someDevice";
+            }
+        };
+
+        //act
+        transport.invokeCallbacks();
+
+        //assert
+        assertTrue(callbackPacketsQueue.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedDispatcher.dispatch("someDevice", (Runnable) any);
+                times = 2;
+                mockedEventCallback.execute((IotHubStatusCode) any, any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void invokeCallbacksInvokesCallbackItselfIfInterruptedWhileDispatching(final @Mocked CallbackDispatcher mockedDispatcher) throws InterruptedException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Queue<IotHubTransportPacket> callbackPacketsQueue = new ConcurrentLinkedQueue<>();
+        callbackPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "callbackPacketsQueue", callbackPacketsQueue);
+        Deencapsulation.setField(transport, "callbackDispatcher", mockedDispatcher);
+        new NonStrictExpectations()
+        {
+            {
+                mockedPacket.getCallback();
+                result = mockedEventCallback;
+                mockedDispatcher.dispatch(anyString, (Runnable) any);
+                result = new InterruptedException();
+            }
+        };
+
+        //act
+        transport.invokeCallbacks();
+
+        //assert
+        assertTrue(Thread.interrupted());
+        new Verifications()
+        {
+            {
+                mockedEventCallback.execute((IotHubStatusCode) any, any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void isEmptyReturnsFalseWhileDispatchedCallbacksArePending(final @Mocked CallbackDispatcher mockedDispatcher)
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "callbackDispatcher", mockedDispatcher);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDispatcher.getPendingCallbackCount();
+                result = 1;
+            }
+        };
+
+        //act
+        boolean isEmpty = transport.isEmpty();
+
+        //assert
+        assertFalse(isEmpty);
+        assertEquals(1, transport.getPendingCallbackCount());
+    }
+
+    @Test
+    public void closeClosesCallbackDispatcher(final @Mocked CallbackDispatcher mockedDispatcher) throws DeviceClientException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "taskScheduler", mockedScheduledExecutorService);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedIotHubTransportConnection);
+        Deencapsulation.setField(transport, "callbackDispatcher", mockedDispatcher);
+
+        //act
+        transport.close(IotHubConnectionStatusChangeReason.CLIENT_CLOSE, null);
+
+        //assert
+        assertNull(transport.getCallbackDispatchStatistics());
+        new Verifications()
+        {
+            {
+                mockedDispatcher.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void openCreatesCallbackDispatcherIfConfigured(final @Mocked CallbackDispatcher mockedDispatcher) throws DeviceClientException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig, mockedIotHubConnectionStatusChangeCallback);
+        Deencapsulation.setField(transport, "connectionStatus", DISCONNECTED);
+        Collection<DeviceClientConfig> configs = new ArrayList<>();
+        configs.add(mockedConfig);
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isSasTokenExpired()
+            {
+                return false;
+            }
+
+            @Mock void openConnection()
+            {
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getExecutionContext();
+                result = null;
+                mockedConfig.getThreadFactory();
+                result = null;
+                mockedConfig.getCallbackDispatchThreadCount();
+                result = 4;
+                mockedConfig.getCallbackDispatchQueueCapacity();
+                result = 100;
+                mockedConfig.isCallbackDispatchOrderedPerDevice();
+                result = true;
+            }
+        };
+
+        //act
+        transport.open(configs);
+
+        //assert
+        assertNotNull(Deencapsulation.getField(transport, "callbackDispatcher"));
+        new Verifications()
+        {
+            {
+                new CallbackDispatcher(4, 100, true, null);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_045: [This function shall dequeue each packet in the callback queue and execute
     // their saved callback with their saved status and context]
     @Test
@@ -2841,14 +3673,20 @@ public class IotHubTransportTest
         Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
 
         inProgressMessages.put("someMessageId", mockedPacket);
+        Queue<IotHubTransportPacket> expiringPackets = Deencapsulation.getField(transport, "expiringPackets");
+        expiringPackets.add(mockedPacket);
 
-        new Expectations()
+        new NonStrictExpectations()
         {
             {
                 mockedPacket.getMessage();
                 result = mockedMessage;
-                mockedMessage.isExpired();
-                result = true;
+                mockedPacket.getStatus();
+                result = null;
+                mockedMessage.getMessageId();
+                result = "someMessageId";
+                mockedMessage.getExpiryTime();
+                result = 1L;
             }
         };
 
@@ -0,0 +1,236 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.SharedTaskRunner;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Unit tests for SharedTaskRunner. */
+public class SharedTaskRunnerTest
+{
+    private static final long RESCHEDULE_DELAY_MILLIS = 10;
+
+    @Mocked
+    ScheduledExecutorService mockExecutor;
+
+    @Mocked
+    SharedTaskRunner.Task mockTask;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullTask()
+    {
+        new SharedTaskRunner(null, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullExecutor()
+    {
+        new SharedTaskRunner(mockTask, null, RESCHEDULE_DELAY_MILLIS);
+    }
+
+    @Test
+    public void signalSchedulesRunOnlyOnceUntilItRuns()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+
+        runner.signal();
+        runner.signal();
+        runner.signal();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void runReschedulesAfterDelayWhenTaskHasMoreWork()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockTask.runOnce();
+                result = true;
+            }
+        };
+
+        runner.signal();
+        runner.run();
+
+        new Verifications()
+        {
+            {
+                mockTask.runOnce();
+                times = 1;
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 1;
+                mockExecutor.schedule(runner, RESCHEDULE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void runDoesNotRescheduleWhenTaskHasNoMoreWork()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockTask.runOnce();
+                result = false;
+            }
+        };
+
+        runner.signal();
+        runner.run();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, anyLong, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void signalAfterRunSchedulesAgain()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockTask.runOnce();
+                result = false;
+            }
+        };
+
+        runner.signal();
+        runner.run();
+        runner.signal();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void runSchedulesAgainWhenSignaledWhileRunning()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockTask.runOnce();
+                result = new mockit.Delegate()
+                {
+                    @SuppressWarnings("unused")
+                    boolean runOnce()
+                    {
+                        // Work arrives while the task is running, so this signal can't schedule another run itself
+                        runner.signal();
+                        return false;
+                    }
+                };
+            }
+        };
+
+        runner.signal();
+        runner.run();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void runDoesNotRunTaskAfterStop()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+
+        runner.signal();
+        runner.stop();
+        runner.run();
+        runner.signal();
+
+        new Verifications()
+        {
+            {
+                mockTask.runOnce();
+                times = 0;
+                mockExecutor.schedule(runner, anyLong, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void runSurvivesTaskException()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockTask.runOnce();
+                result = new IllegalStateException();
+            }
+        };
+
+        runner.signal();
+        runner.run();
+        runner.signal();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void signalCanScheduleAgainAfterExecutorRejects()
+    {
+        final SharedTaskRunner runner = new SharedTaskRunner(mockTask, mockExecutor, RESCHEDULE_DELAY_MILLIS);
+        new NonStrictExpectations()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                result = new RejectedExecutionException();
+            }
+        };
+
+        runner.signal();
+        runner.signal();
+
+        new Verifications()
+        {
+            {
+                mockExecutor.schedule(runner, 0, TimeUnit.MILLISECONDS);
+                times = 2;
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.transport.WakeupSignal;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for WakeupSignal. */
+public class WakeupSignalTest
+{
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Test
+    public void awaitReturnsRightAwayIfSignaledBefore() throws InterruptedException
+    {
+        WakeupSignal signal = new WakeupSignal();
+        signal.signal();
+
+        // Would block forever if the signal had been lost
+        signal.await();
+    }
+
+    @Test
+    public void awaitWaitsUntilSignaled() throws InterruptedException
+    {
+        final WakeupSignal signal = new WakeupSignal();
+        final CountDownLatch woken = new CountDownLatch(1);
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    signal.await();
+                    woken.countDown();
+                }
+                catch (InterruptedException e)
+                {
+                    // Leaves the latch down, which fails the test
+                }
+            }
+        });
+        consumer.start();
+
+        assertFalse(woken.await(100, TimeUnit.MILLISECONDS));
+
+        signal.signal();
+
+        assertTrue(woken.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void clearForgetsEarlierSignals() throws InterruptedException
+    {
+        final WakeupSignal signal = new WakeupSignal();
+        signal.signal();
+        signal.clear();
+        final CountDownLatch woken = new CountDownLatch(1);
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    signal.await();
+                    woken.countDown();
+                }
+                catch (InterruptedException e)
+                {
+                    // Expected once the test is done with this thread
+                }
+            }
+        });
+        consumer.start();
+
+        assertFalse(woken.await(100, TimeUnit.MILLISECONDS));
+
+        consumer.interrupt();
+        consumer.join(TIMEOUT_MILLIS);
+    }
+
+    @Test (expected = InterruptedException.class)
+    public void awaitThrowsIfInterrupted() throws InterruptedException
+    {
+        WakeupSignal signal = new WakeupSignal();
+        Thread.currentThread().interrupt();
+
+        signal.await();
+    }
+
+    @Test
+    public void awaitConsumesTheSignal() throws InterruptedException
+    {
+        final WakeupSignal signal = new WakeupSignal();
+        signal.signal();
+        signal.signal();
+        signal.await();
+        final CountDownLatch woken = new CountDownLatch(1);
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    signal.await();
+                    woken.countDown();
+                }
+                catch (InterruptedException e)
+                {
+                    // Expected once the test is done with this thread
+                }
+            }
+        });
+        consumer.start();
+
+        // Both signals were coalesced into the one that the first await consumed
+        assertFalse(woken.await(100, TimeUnit.MILLISECONDS));
+
+        consumer.interrupt();
+        consumer.join(TIMEOUT_MILLIS);
+    }
+}
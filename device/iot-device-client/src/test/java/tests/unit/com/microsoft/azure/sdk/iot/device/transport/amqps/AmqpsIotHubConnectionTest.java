@@ -24,6 +24,7 @@ import mockit.*;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.*;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.engine.*;
 import org.apache.qpid.proton.engine.impl.TransportInternal;
@@ -624,7 +625,6 @@ public class AmqpsIotHubConnectionTest {
     {
         baseExpectations();
 
-        final int sendPeriod = Deencapsulation.getField(AmqpsIotHubConnection.class, "SEND_MESSAGES_PERIOD_MILLIS");
         final int expectedSasTokenRenewalPeriod = 444;
 
         new NonStrictExpectations()
@@ -653,7 +653,8 @@ public class AmqpsIotHubConnectionTest {
         {
             {
                 mockEvent.getReactor();
-                mockReactor.schedule(sendPeriod, connection);
+                mockReactor.schedule(anyInt, connection);
+                times = 0;
                 mockReactor.connectionToHost(anyString, anyInt, connection);
             }
         };
@@ -707,7 +708,6 @@ public class AmqpsIotHubConnectionTest {
     {
         baseExpectations();
 
-        final int sendPeriod = Deencapsulation.getField(AmqpsIotHubConnection.class, "SEND_MESSAGES_PERIOD_MILLIS");
         final int expectedSasTokenRenewalPeriod = 444;
 
         new NonStrictExpectations()
@@ -733,7 +733,8 @@ public class AmqpsIotHubConnectionTest {
         {
             {
                 mockEvent.getReactor();
-                mockReactor.schedule(sendPeriod, connection);
+                mockReactor.schedule(anyInt, connection);
+                times = 0;
 
                 mockReactor.schedule(expectedSasTokenRenewalPeriod, mockAmqpsCbsSessionHandler);
                 times = 0;
@@ -1063,6 +1064,137 @@ public class AmqpsIotHubConnectionTest {
         assertEquals(1, messagesToSend.size());
     }
 
+    @Test
+    public void sendMessageWakesUpReactor() throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "reactor", mockReactor);
+
+        //act
+        connection.sendMessage(mockIoTMessage);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockReactor.wakeup();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendMessageResultWakesUpReactorOnceAcknowledged(final @Mocked AmqpsSessionHandler mockAmqpsSessionHandler) throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        List<AmqpsSessionHandler> amqpsSessionHandlerList = new ArrayList<>();
+        amqpsSessionHandlerList.add(mockAmqpsSessionHandler);
+        Deencapsulation.setField(connection, "sessionHandlerList", amqpsSessionHandlerList);
+        Deencapsulation.setField(connection, "reactor", mockReactor);
+        new NonStrictExpectations()
+        {
+            {
+                mockAmqpsSessionHandler.acknowledgeReceivedMessage(mockedTransportMessage, (DeliveryState) any);
+                result = true;
+            }
+        };
+
+        //act
+        boolean result = connection.sendMessageResult(mockedTransportMessage, IotHubMessageResult.COMPLETE);
+
+        //assert
+        assertTrue(result);
+        new Verifications()
+        {
+            {
+                mockReactor.wakeup();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void onReactorQuiescedSendsQueuedMessages(final @Mocked AmqpsSessionHandler mockAmqpsSessionHandler) throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        List<AmqpsSessionHandler> amqpsSessionHandlerList = new ArrayList<>();
+        amqpsSessionHandlerList.add(mockAmqpsSessionHandler);
+        Deencapsulation.setField(connection, "sessionHandlerList", amqpsSessionHandlerList);
+        Deencapsulation.setField(connection, "reactor", mockReactor);
+        connection.sendMessage(mockIoTMessage);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionHandler, "sendMessage", mockIoTMessage);
+                result = true;
+            }
+        };
+
+        //act
+        connection.onReactorQuiesced(mockEvent);
+
+        //assert
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = Deencapsulation.getField(connection, "messagesToSend");
+        assertTrue(messagesToSend.isEmpty());
+        assertTrue(connection.getLastFlushLatencyNanos() >= 0);
+        assertTrue(connection.getMaxFlushLatencyNanos() >= connection.getLastFlushLatencyNanos());
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionHandler, "sendMessage", mockIoTMessage);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void onReactorQuiescedWakesUpReactorAgainWhenMoreMessagesAreQueuedThanSentPerCallback(final @Mocked AmqpsSessionHandler mockAmqpsSessionHandler) throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        final int maxMessagesPerCallback = Deencapsulation.getField(AmqpsIotHubConnection.class, "MAX_MESSAGES_TO_SEND_PER_CALLBACK");
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        List<AmqpsSessionHandler> amqpsSessionHandlerList = new ArrayList<>();
+        amqpsSessionHandlerList.add(mockAmqpsSessionHandler);
+        Deencapsulation.setField(connection, "sessionHandlerList", amqpsSessionHandlerList);
+        Queue<com.microsoft.azure.sdk.iot.device.Message> messagesToSend = Deencapsulation.getField(connection, "messagesToSend");
+        for (int i = 0; i < maxMessagesPerCallback + 1; i++)
+        {
+            messagesToSend.add(mockIoTMessage);
+        }
+        Deencapsulation.setField(connection, "reactor", mockReactor);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionHandler, "sendMessage", mockIoTMessage);
+                result = true;
+            }
+        };
+
+        //act
+        connection.onReactorQuiesced(mockEvent);
+
+        //assert
+        assertEquals(1, messagesToSend.size());
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionHandler, "sendMessage", mockIoTMessage);
+                times = maxMessagesPerCallback;
+                mockReactor.wakeup();
+                times = 1;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSTRANSPORT_34_094: [This function shall return the saved connection id.]
     @Test
     public void getConnectionIdReturnsSavedConnectionId() throws TransportException
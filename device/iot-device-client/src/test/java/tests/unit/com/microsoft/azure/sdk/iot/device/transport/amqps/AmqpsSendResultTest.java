@@ -51,6 +51,21 @@ public class AmqpsSendResultTest
         assertEquals(expectedDeliveryTag, actualDeliveryTag);
     }
 
+    @Test
+    public void constructorInitializesAllMembersWithIntDeliveryTag()
+    {
+        //arrange
+        boolean isDeliverySuccessful = true;
+        int expectedDeliveryTag = 1234;
+
+        //act
+        AmqpsSendResult amqpsSendResult = Deencapsulation.newInstance(AmqpsSendResult.class, isDeliverySuccessful, expectedDeliveryTag);
+
+        //assert
+        assertEquals(isDeliverySuccessful, amqpsSendResult.isDeliverySuccessful());
+        assertEquals(expectedDeliveryTag, amqpsSendResult.getDeliveryTag());
+    }
+
     @Test
     public void isDeliverySuccessfulAndGetDeliveryHashReturns()
     {
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsSenderLinkHandler;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the delivery tag encoding of AmqpsSenderLinkHandler
+ */
+public class AmqpsSenderLinkHandlerTest
+{
+    private static final int[] DELIVERY_TAG_VALUES = { 0, 1, 9, 10, 99, 100, 12345, 999999999, 1000000000, Integer.MAX_VALUE };
+
+    @Test
+    public void toDeliveryTagProducesDecimalDigits()
+    {
+        for (int value : DELIVERY_TAG_VALUES)
+        {
+            //act
+            byte[] deliveryTag = Deencapsulation.invoke(AmqpsSenderLinkHandler.class, "toDeliveryTag", value);
+
+            //assert
+            assertArrayEquals(String.valueOf(value).getBytes(), deliveryTag);
+        }
+    }
+
+    @Test
+    public void parseDeliveryTagParsesDecimalDigits()
+    {
+        for (int value : DELIVERY_TAG_VALUES)
+        {
+            //act
+            int parsedValue = Deencapsulation.invoke(AmqpsSenderLinkHandler.class, "parseDeliveryTag", (Object) String.valueOf(value).getBytes());
+
+            //assert
+            assertEquals(value, parsedValue);
+        }
+    }
+
+    @Test (expected = NumberFormatException.class)
+    public void parseDeliveryTagThrowsForNonDigits()
+    {
+        //act
+        Deencapsulation.invoke(AmqpsSenderLinkHandler.class, "parseDeliveryTag", (Object) "12a".getBytes());
+    }
+
+    @Test (expected = NumberFormatException.class)
+    public void parseDeliveryTagThrowsForEmptyTag()
+    {
+        //act
+        Deencapsulation.invoke(AmqpsSenderLinkHandler.class, "parseDeliveryTag", (Object) new byte[0]);
+    }
+
+    @Test (expected = NumberFormatException.class)
+    public void parseDeliveryTagThrowsForValuesLargerThanAnInt()
+    {
+        //act
+        Deencapsulation.invoke(AmqpsSenderLinkHandler.class, "parseDeliveryTag", (Object) "2147483648".getBytes());
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.BatchMessage;
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsLinkStateCallback;
+import mockit.*;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.UnsignedLong;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Rejected;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.amqp.transport.LinkError;
+import org.apache.qpid.proton.codec.AMQPDefinedTypes;
+import org.apache.qpid.proton.codec.DecoderImpl;
+import org.apache.qpid.proton.codec.EncoderImpl;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.message.impl.MessageImpl;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the batched telemetry of AmqpsTelemetrySenderLinkHandler
+ */
+public class AmqpsTelemetrySenderLinkHandlerTest
+{
+    private static final String TELEMETRY_SENDER_LINK_HANDLER_CLASS = "com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsTelemetrySenderLinkHandler";
+    private static final int BATCH_MESSAGE_FORMAT = 0x80013700;
+
+    @Mocked
+    Sender mockSender;
+
+    @Mocked
+    Delivery mockDelivery;
+
+    @Mocked
+    AmqpsLinkStateCallback mockLinkStateCallback;
+
+    @Mocked
+    DeviceClientConfig mockConfig;
+
+    @Mocked
+    Event mockEvent;
+
+    private final List<byte[]> sentBytes = new ArrayList<>();
+    private final List<byte[]> sentTags = new ArrayList<>();
+    private UnsignedLong remoteMaxMessageSize;
+    private byte[] acknowledgedTag;
+
+    private Object createHandler() throws ClassNotFoundException
+    {
+        return Deencapsulation.newInstance(
+                Class.forName(TELEMETRY_SENDER_LINK_HANDLER_CLASS),
+                new Class[] {Sender.class, AmqpsLinkStateCallback.class, DeviceClientConfig.class, String.class},
+                mockSender,
+                mockLinkStateCallback,
+                mockConfig,
+                "someLinkCorrelationId");
+    }
+
+    private static BatchMessage createBatch(Message... messages)
+    {
+        return Deencapsulation.newInstance(BatchMessage.class, new Class[] {List.class}, Arrays.asList(messages));
+    }
+
+    private static List<MessageImpl> decodeBatch(byte[] encodedBatch)
+    {
+        DecoderImpl decoder = new DecoderImpl();
+        EncoderImpl encoder = new EncoderImpl(decoder);
+        AMQPDefinedTypes.registerAllTypes(decoder, encoder);
+        ByteBuffer buffer = ByteBuffer.wrap(encodedBatch);
+        decoder.setByteBuffer(buffer);
+
+        List<MessageImpl> messages = new ArrayList<>();
+        while (buffer.hasRemaining())
+        {
+            Binary encodedMessage = ((Data) decoder.readObject()).getValue();
+            MessageImpl message = new MessageImpl();
+            message.decode(encodedMessage.getArray(), encodedMessage.getArrayOffset(), encodedMessage.getLength());
+            messages.add(message);
+        }
+
+        return messages;
+    }
+
+    private void recordSenderLink()
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getRemoteMaxMessageSize();
+                result = new Delegate()
+                {
+                    @SuppressWarnings("unused")
+                    UnsignedLong getRemoteMaxMessageSize()
+                    {
+                        return remoteMaxMessageSize;
+                    }
+                };
+                mockSender.delivery((byte[]) any);
+                result = new Delegate()
+                {
+                    @SuppressWarnings("unused")
+                    Delivery delivery(byte[] tag)
+                    {
+                        sentTags.add(tag);
+                        return mockDelivery;
+                    }
+                };
+                mockSender.send((byte[]) any, anyInt, anyInt);
+                result = new Delegate()
+                {
+                    @SuppressWarnings("unused")
+                    int send(byte[] bytes, int offset, int length)
+                    {
+                        sentBytes.add(Arrays.copyOfRange(bytes, offset, offset + length));
+                        return length;
+                    }
+                };
+                mockSender.advance();
+                result = true;
+                mockEvent.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getTag();
+                result = new Delegate()
+                {
+                    @SuppressWarnings("unused")
+                    byte[] getTag()
+                    {
+                        return acknowledgedTag;
+                    }
+                };
+                mockDelivery.getRemoteState();
+                result = Accepted.getInstance();
+            }
+        };
+    }
+
+    private void acknowledge(Object handler, byte[] tag)
+    {
+        this.acknowledgedTag = tag;
+        Deencapsulation.invoke(handler, "onDelivery", mockEvent);
+    }
+
+    // The number of bytes a batch of the provided messages takes once encoded
+    private int encodedBatchLength(Message... messages) throws ClassNotFoundException
+    {
+        Object handler = createHandler();
+        Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", createBatch(messages));
+        int length = sentBytes.get(sentBytes.size() - 1).length;
+        sentBytes.clear();
+        sentTags.clear();
+        return length;
+    }
+
+    @Test
+    public void sendBatchSendsAllMessagesInOneDeliveryOfDataSections() throws ClassNotFoundException
+    {
+        //arrange
+        recordSenderLink();
+        Object handler = createHandler();
+        Message message1 = new Message("reading 1");
+        message1.setProperty("sensor", "temperature");
+        Message message2 = new Message("reading 2");
+        final BatchMessage batch = createBatch(message1, message2);
+
+        //act
+        Object sendResult = Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", batch);
+        acknowledge(handler, sentTags.get(0));
+
+        //assert
+        assertTrue((boolean) Deencapsulation.invoke(sendResult, "isDeliverySuccessful"));
+        assertEquals(1, sentBytes.size());
+
+        List<MessageImpl> sentMessages = decodeBatch(sentBytes.get(0));
+        assertEquals(2, sentMessages.size());
+        assertEquals(new Binary("reading 1".getBytes()), ((Data) sentMessages.get(0).getBody()).getValue());
+        assertEquals("temperature", sentMessages.get(0).getApplicationProperties().getValue().get("sensor"));
+        assertEquals(new Binary("reading 2".getBytes()), ((Data) sentMessages.get(1).getBody()).getValue());
+
+        new Verifications()
+        {
+            {
+                mockDelivery.setMessageFormat(BATCH_MESSAGE_FORMAT);
+                times = 1;
+                mockLinkStateCallback.onMessageAcknowledged(batch, anyInt, Accepted.getInstance());
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendSingleMessageUsesDefaultMessageFormat() throws ClassNotFoundException
+    {
+        //arrange
+        recordSenderLink();
+        Object handler = createHandler();
+
+        //act
+        Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", new Message("reading"));
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockDelivery.setMessageFormat(anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendBatchJustOverMaxMessageSizeSplitsItIntoTwoDeliveries() throws ClassNotFoundException
+    {
+        //arrange
+        recordSenderLink();
+        Message[] messages = new Message[] {new Message("reading 1"), new Message("reading 2"), new Message("reading 3")};
+        remoteMaxMessageSize = UnsignedLong.valueOf(encodedBatchLength(messages) - 1);
+        Object handler = createHandler();
+        final BatchMessage batch = createBatch(messages);
+
+        //act
+        Object sendResult = Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", batch);
+
+        //assert
+        assertTrue((boolean) Deencapsulation.invoke(sendResult, "isDeliverySuccessful"));
+        assertEquals(2, sentBytes.size());
+        List<MessageImpl> firstDelivery = decodeBatch(sentBytes.get(0));
+        List<MessageImpl> secondDelivery = decodeBatch(sentBytes.get(1));
+        assertEquals(2, firstDelivery.size());
+        assertEquals(new Binary("reading 1".getBytes()), ((Data) firstDelivery.get(0).getBody()).getValue());
+        assertEquals(new Binary("reading 2".getBytes()), ((Data) firstDelivery.get(1).getBody()).getValue());
+        assertEquals(1, secondDelivery.size());
+        assertEquals(new Binary("reading 3".getBytes()), ((Data) secondDelivery.get(0).getBody()).getValue());
+
+        // The batch is only complete once both of its deliveries are acknowledged
+        acknowledge(handler, sentTags.get(0));
+        new Verifications()
+        {
+            {
+                mockLinkStateCallback.onMessageAcknowledged((Message) any, anyInt, (DeliveryState) any);
+                times = 0;
+            }
+        };
+
+        acknowledge(handler, sentTags.get(1));
+        new Verifications()
+        {
+            {
+                mockLinkStateCallback.onMessageAcknowledged(batch, anyInt, Accepted.getInstance());
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendBatchRejectsOnlyTheMessageLargerThanMaxMessageSize() throws ClassNotFoundException
+    {
+        //arrange
+        recordSenderLink();
+        char[] largePayload = new char[1024];
+        Arrays.fill(largePayload, 'a');
+        remoteMaxMessageSize = UnsignedLong.valueOf(512);
+        Object handler = createHandler();
+        final BatchMessage batch = createBatch(new Message("reading 1"), new Message(new String(largePayload)), new Message("reading 2"));
+
+        //act
+        Object sendResult = Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", batch);
+        for (byte[] tag : new ArrayList<>(sentTags))
+        {
+            acknowledge(handler, tag);
+        }
+
+        //assert
+        // The batch must not be queued to be sent again, since the large message would never fit
+        assertTrue((boolean) Deencapsulation.invoke(sendResult, "isDeliverySuccessful"));
+        List<MessageImpl> sentMessages = new ArrayList<>();
+        for (byte[] bytes : sentBytes)
+        {
+            sentMessages.addAll(decodeBatch(bytes));
+        }
+
+        assertEquals(2, sentMessages.size());
+        assertEquals(new Binary("reading 1".getBytes()), ((Data) sentMessages.get(0).getBody()).getValue());
+        assertEquals(new Binary("reading 2".getBytes()), ((Data) sentMessages.get(1).getBody()).getValue());
+
+        final List<DeliveryState> deliveryStates = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockLinkStateCallback.onMessageAcknowledged(batch, anyInt, withCapture(deliveryStates));
+                times = 1;
+            }
+        };
+
+        Rejected rejected = (Rejected) deliveryStates.get(0);
+        assertEquals(LinkError.MESSAGE_SIZE_EXCEEDED, rejected.getError().getCondition());
+    }
+
+    @Test
+    public void sendBatchOfOneMessageLargerThanMaxMessageSizeRejectsItWithoutSending() throws ClassNotFoundException
+    {
+        //arrange
+        recordSenderLink();
+        remoteMaxMessageSize = UnsignedLong.valueOf(10);
+        Object handler = createHandler();
+        final BatchMessage batch = createBatch(new Message("reading 1"));
+
+        //act
+        Object sendResult = Deencapsulation.invoke(handler, "sendMessageAndGetDeliveryTag", batch);
+
+        //assert
+        assertTrue((boolean) Deencapsulation.invoke(sendResult, "isDeliverySuccessful"));
+        assertTrue(sentBytes.isEmpty());
+
+        final List<DeliveryState> deliveryStates = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockLinkStateCallback.onMessageAcknowledged(batch, anyInt, withCapture(deliveryStates));
+                times = 1;
+            }
+        };
+
+        Rejected rejected = (Rejected) deliveryStates.get(0);
+        assertEquals(LinkError.MESSAGE_SIZE_EXCEEDED, rejected.getError().getCondition());
+    }
+}
@@ -14,14 +14,17 @@ import org.junit.Test;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /** Unit tests for HttpsBatchMessage.
  *  Coverage 100% method, 100% line
@@ -241,6 +244,80 @@ public class HttpsBatchMessageTest
         }
     }
 
+    // Tests_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
+    @Test
+    public void addMessageAppendsMessagesInOrderAsJsonArray(
+            @Mocked final HttpsSingleMessage mockMsg) throws IotHubSizeExceededException
+    {
+        final int messageCount = 1000;
+        final byte[][] msgBodies = new byte[messageCount][];
+        for (int i = 0; i < messageCount; i++)
+        {
+            msgBodies[i] = ("test-msg-body-" + i).getBytes(UTF8);
+        }
+
+        new NonStrictExpectations()
+        {
+            {
+                mockMsg.getBody();
+                returns(msgBodies[0], (Object[]) Arrays.copyOfRange(msgBodies, 1, messageCount));
+                mockMsg.getSystemProperties();
+                result = new HashMap<String, String>();
+                mockMsg.getProperties();
+                result = new MessageProperty[0];
+            }
+        };
+
+        HttpsBatchMessage batchMsg = new HttpsBatchMessage();
+        StringBuilder expectedBatchBody = new StringBuilder("[");
+        for (int i = 0; i < messageCount; i++)
+        {
+            batchMsg.addMessage(mockMsg);
+            if (i > 0)
+            {
+                expectedBatchBody.append(",");
+            }
+
+            expectedBatchBody.append("{\"body\":\"").append(Base64.encodeBase64StringLocal(msgBodies[i])).append("\",\"base64Encoded\":true}");
+        }
+
+        expectedBatchBody.append("]");
+
+        assertThat(new String(batchMsg.getBody(), UTF8), is(expectedBatchBody.toString()));
+        assertThat(batchMsg.numMessages(), is(messageCount));
+    }
+
+    // Tests_SRS_HTTPSBATCHMESSAGE_11_009: [If the function throws a IotHubSizeExceededException, the batched message shall remain as if the message was never added.]
+    @Test
+    public void addMessageRejectsOverflowingMessageAndPreservesExactBatchBody(
+            @Mocked final HttpsSingleMessage mockMsg) throws IotHubSizeExceededException
+    {
+        final byte[] smallMsgBody = "small".getBytes(UTF8);
+        final byte[] largeMsgBody = new byte[SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES];
+        new NonStrictExpectations()
+        {
+            {
+                mockMsg.getBody();
+                returns(smallMsgBody, largeMsgBody);
+            }
+        };
+
+        HttpsBatchMessage batchMsg = new HttpsBatchMessage();
+        batchMsg.addMessage(mockMsg);
+        byte[] expectedBatchBody = batchMsg.getBody();
+
+        try
+        {
+            batchMsg.addMessage(mockMsg);
+            fail("Expected the oversized message to be rejected");
+        }
+        catch (IotHubSizeExceededException e)
+        {
+            assertArrayEquals(expectedBatchBody, batchMsg.getBody());
+            assertThat(batchMsg.numMessages(), is(1));
+        }
+    }
+
     // Tests_SRS_HTTPSBATCHMESSAGE_11_011: [The function shall return 'application/vnd.microsoft.iothub.json'.]
     @Test
     public void getContentTypeReturnsCorrectContentType()
@@ -1,5 +1,6 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
+import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.ProxySettings;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
 import com.microsoft.azure.sdk.iot.device.transport.HttpProxySocketFactory;
@@ -16,6 +17,8 @@ import javax.net.ssl.SSLSocketFactory;
 import java.net.Proxy;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 
 import static org.junit.Assert.*;
 
@@ -105,12 +108,69 @@ public class MqttConnectionTest
         assertNotNull(actualAsyncClient);
         MqttConnectOptions actualConnectionOptions = Deencapsulation.getField(mqttConnection, "connectionOptions");
         assertNotNull(actualConnectionOptions);
-        Queue<Pair<String, byte[]>> actualQueue = Deencapsulation.getField(mqttConnection, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue = Deencapsulation.getField(mqttConnection, "receivedTelemetryMessages");
         assertNotNull(actualQueue);
         Object actualLock = Deencapsulation.getField(mqttConnection, "mqttLock");
         assertNotNull(actualLock);
     }
 
+    @Test
+    public void constructorSetsMaxInFlightCount() throws Exception
+    {
+        //arrange
+        baseConstructorExpectations();
+
+        //act
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null, null, 50);
+
+        //assert
+        Semaphore inFlightPermits = Deencapsulation.invoke(mqttConnection, "getInFlightPermits");
+        assertEquals(50, inFlightPermits.availablePermits());
+        assertEquals(0, (int) Deencapsulation.invoke(mqttConnection, "getInFlightCount"));
+        new Verifications()
+        {
+            {
+                mockMqttConnectionOptions.setMaxInflight(50);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void constructorDefaultsToTenInFlightMessages() throws Exception
+    {
+        //arrange
+        baseConstructorExpectations();
+
+        //act
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, (ProxySettings) null);
+
+        //assert
+        Semaphore inFlightPermits = Deencapsulation.invoke(mqttConnection, "getInFlightPermits");
+        assertEquals(10, inFlightPermits.availablePermits());
+    }
+
+    @Test
+    public void getInFlightCountCountsAcquiredPermits() throws Exception
+    {
+        //arrange
+        baseConstructorExpectations();
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null, null, 5);
+        Semaphore inFlightPermits = Deencapsulation.invoke(mqttConnection, "getInFlightPermits");
+
+        //act
+        inFlightPermits.acquire(3);
+
+        //assert
+        assertEquals(3, (int) Deencapsulation.invoke(mqttConnection, "getInFlightCount"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorWithNonPositiveMaxInFlightCountThrows() throws Exception
+    {
+        Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null, null, 0);
+    }
+
     @Test
     public void constructorWithProxySetsSocketFactory(final @Mocked Socks5SocketFactory mockedSocks5SocketFactory, final @Mocked Proxy mockProxy) throws Exception
     {
@@ -262,18 +322,38 @@ public class MqttConnectionTest
 
     //Tests_SRS_MQTTCONNECTION_25_008: [Getter for the Message Queue.]
     @Test
-    public void getAllReceivedMessagesSucceeds() throws Exception
+    public void getReceivedMessagesSucceeds() throws Exception
     {
         //arrange
         final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null);
 
         //act
-        ConcurrentLinkedQueue concurrentLinkedQueue = Deencapsulation.invoke(mqttConnection, "getAllReceivedMessages");
+        ConcurrentLinkedQueue concurrentLinkedQueue = Deencapsulation.invoke(mqttConnection, "getReceivedMessages", MessageType.DEVICE_TELEMETRY);
 
         //assert
         assertNotNull(concurrentLinkedQueue);
     }
 
+    //Tests_SRS_MQTTCONNECTION_25_008: [Getter for the Message Queue.]
+    @Test
+    public void getReceivedMessagesReturnsSeparateQueuePerClient() throws Exception
+    {
+        //arrange
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockSSLContext, null);
+
+        //act
+        ConcurrentLinkedQueue telemetryQueue = Deencapsulation.invoke(mqttConnection, "getReceivedMessages", MessageType.DEVICE_TELEMETRY);
+        ConcurrentLinkedQueue twinQueue = Deencapsulation.invoke(mqttConnection, "getReceivedMessages", MessageType.DEVICE_TWIN);
+        ConcurrentLinkedQueue methodQueue = Deencapsulation.invoke(mqttConnection, "getReceivedMessages", MessageType.DEVICE_METHODS);
+        ConcurrentLinkedQueue unknownQueue = Deencapsulation.invoke(mqttConnection, "getReceivedMessages", MessageType.UNKNOWN);
+
+        //assert
+        assertNotSame(telemetryQueue, twinQueue);
+        assertNotSame(telemetryQueue, methodQueue);
+        assertNotSame(twinQueue, methodQueue);
+        assertSame(telemetryQueue, unknownQueue);
+    }
+
     //Tests_SRS_MQTTCONNECTION_25_009: [Getter for the Mqtt Lock on this connection.]
     @Test
     public void getMqttLockSucceeds() throws Exception
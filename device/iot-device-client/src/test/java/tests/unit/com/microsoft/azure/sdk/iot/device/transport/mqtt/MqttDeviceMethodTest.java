@@ -11,6 +11,7 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttDeviceMethod;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttPendingRequests;
 import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
@@ -51,7 +52,7 @@ public class MqttDeviceMethodTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_METHODS);
                 result = testAllReceivedMessages;
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 result = new Object();
@@ -166,9 +167,8 @@ public class MqttDeviceMethodTest
         testMessage.setRequestId("ReqId");
         testMessage.setStatus("testStatus");
         final MqttDeviceMethod testMethod = new MqttDeviceMethod(mockedMqttConnection, "", new HashMap<Integer, Message>());
-        Map<String, DeviceOperations> testRequestMap = new HashMap<>();
-        testRequestMap.put("ReqId", DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
-        Deencapsulation.setField(testMethod, "requestMap", testRequestMap);
+        MqttPendingRequests testRequestMap = Deencapsulation.getField(testMethod, "requestMap");
+        testRequestMap.add("ReqId", DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
         testMethod.start();
 
         //act
@@ -230,6 +230,13 @@ public class MqttDeviceMethodTest
         final IotHubTransportMessage testMessage = new IotHubTransportMessage(actualPayload, MessageType.DEVICE_METHODS);
         testMessage.setMessageType(MessageType.DEVICE_TWIN);
         final MqttDeviceMethod testMethod = new MqttDeviceMethod(mockedMqttConnection, "", new HashMap<Integer, Message>());
+        new NonStrictExpectations()
+        {
+            {
+                IotHubTransportMessage.hasBody(testMessage);
+                result = true;
+            }
+        };
 
         testMethod.start();
 
@@ -12,6 +12,7 @@ import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttDeviceTwin;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttPendingRequests;
 import mockit.*;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -46,7 +47,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TWIN);
                 result = new ConcurrentLinkedQueue<>();
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 result = new Object();
@@ -135,8 +136,8 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
-                result = actualPayload;
+                IotHubTransportMessage.hasBody(mockMessage);
+                result = true;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
                 mockMessage.getDeviceOperationType();
@@ -153,7 +154,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -176,8 +177,8 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
-                    result = actualPayload;
+                    IotHubTransportMessage.hasBody(mockMessage);
+                    result = true;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
                     mockMessage.getDeviceOperationType();
@@ -196,7 +197,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.hasBody(mockMessage);
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -219,8 +220,8 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
-                result = actualPayload;
+                IotHubTransportMessage.hasBody(mockMessage);
+                result = true;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
                 mockMessage.getDeviceOperationType();
@@ -239,7 +240,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -262,8 +263,8 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
-                    result = actualPayload;
+                    IotHubTransportMessage.hasBody(mockMessage);
+                    result = true;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
                     mockMessage.getDeviceOperationType();
@@ -282,7 +283,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.hasBody(mockMessage);
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -305,8 +306,8 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
-                result = actualPayload;
+                IotHubTransportMessage.hasBody(mockMessage);
+                result = true;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
                 mockMessage.getDeviceOperationType();
@@ -323,7 +324,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedTopic);
                 times = 1;
@@ -345,8 +346,8 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
-                result = actualPayload;
+                IotHubTransportMessage.hasBody(mockMessage);
+                result = true;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
                 mockMessage.getDeviceOperationType();
@@ -366,7 +367,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
                 times = 0;
@@ -397,8 +398,8 @@ public class MqttDeviceTwinTest
                 result = DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
                 mockMessage.getVersion();
                 result = mockVersion;
-                mockMessage.getBytes();
-                result = actualPayload;
+                IotHubTransportMessage.hasBody(mockMessage);
+                result = true;
             }
         };
 
@@ -409,7 +410,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedSubscribeTopic);
                 times = 1;
@@ -439,7 +440,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.hasBody(mockMessage);
                     times = 0;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -460,8 +461,8 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
-                    result = actualPayload;
+                    IotHubTransportMessage.hasBody(mockMessage);
+                    result = true;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
                     mockMessage.getDeviceOperationType();
@@ -479,7 +480,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    IotHubTransportMessage.hasBody(mockMessage);
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                     times = 1;
@@ -506,10 +507,9 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -545,11 +545,11 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -583,7 +583,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -617,7 +617,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -645,7 +645,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -675,13 +675,14 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+
+
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -712,11 +713,11 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
+
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -751,11 +752,11 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -791,10 +792,9 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -827,12 +827,12 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
+
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_GET_REQUEST);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -878,11 +878,11 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
+
+            MqttPendingRequests requestMap = Deencapsulation.getField(testTwin, "requestMap");
 
-            Map<String, DeviceOperations> requestMap = new HashMap<>();
-            requestMap.put(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
-            Deencapsulation.setField(testTwin, "requestMap", requestMap);
+            requestMap.add(mockReqId, DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -920,7 +920,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -962,7 +962,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
 
             //act
             receivedMessage = (IotHubTransportMessage) testTwin.receive();
@@ -1002,7 +1002,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -1043,7 +1043,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -1072,7 +1072,7 @@ public class MqttDeviceTwinTest
             String insertTopic = expectedTopic;
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
             testAllReceivedMessages.add(new MutablePair<>(insertTopic, actualPayload));
-            Deencapsulation.setField(testTwin, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testTwin, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
 
             //act
@@ -1098,7 +1098,7 @@ public class MqttDeviceTwinTest
             //arrange
             MqttDeviceTwin testTwin = new MqttDeviceTwin(mockedMqttConnection, "", new HashMap<Integer, Message>());
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
-            Deencapsulation.setField(mockMqtt, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(mockMqtt, "receivedMessages", testAllReceivedMessages);
             Deencapsulation.setField(testTwin, "stateLock", new Object());
             Deencapsulation.setField(testTwin, "incomingLock", new Object());
 
@@ -299,12 +299,60 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, serverUri, deviceId, any, any, any, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, any, any, null, any, 0);
                 times = 1;
             }
         };
     }
 
+    @Test
+    public void openUsesConfiguredMaxInFlightMessageCount() throws IOException, TransportException
+    {
+        final String serverUri = SSL_PREFIX + iotHubHostName + SSL_PORT_SUFFIX;
+        baseExpectations();
+
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.isUseWebsocket();
+                result = false;
+                mockConfig.getMqttMaxInFlightMessageCount();
+                result = 50;
+            }
+        };
+
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "listener", mockedIotHubListener);
+
+        //act
+        connection.open(mockedQueue);
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, any, any, null, any, 50);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void getInFlightMessageCountReturnsZeroBeforeOpen() throws TransportException
+    {
+        //arrange
+        baseExpectations();
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+
+        //act
+        int inFlightMessageCount = connection.getInFlightMessageCount();
+
+        //assert
+        assertEquals(0, inFlightMessageCount);
+    }
+
     @Test
     public void openEstablishesConnectionUsingModelId() throws IOException, TransportException
     {
@@ -346,7 +394,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, serverUri, deviceId, any, any, any, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, any, any, null, any, 0);
                 times = 1;
             }
         };
@@ -397,7 +445,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-               Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, serverUri, deviceId, any, any, any, mockedProxySettings);
+               Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, any, any, mockedProxySettings, any, 0);
                times = 1;
             }
         };
@@ -421,7 +469,7 @@ public class MqttIotHubConnectionTest
                 result = true;
                 mockConfig.getProxySettings();
                 result = mockedProxySettings;
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, serverUri, deviceId, any, null, any, mockedProxySettings);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, null, any, mockedProxySettings, any, 0);
             }
         };
 
@@ -461,7 +509,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, serverUri, deviceId, any, any, mockSslContext, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, serverUri, deviceId, any, any, mockSslContext, null, any, 0);
                 result = new IOException();
             }
         };
@@ -509,7 +557,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, any, any, any, any, mockSslContext, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, any, any, any, any, mockSslContext, null, any, 0);
                 result = mockedMqttConnection;
             }
         };
@@ -565,7 +613,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, any, any, any, any, mockSslContext, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, any, any, any, any, mockSslContext, null, any, 0);
                 result = mockedMqttConnection;
             }
         };
@@ -623,7 +671,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, any, any, any, any, any, (ProxySettings) any);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, any, any, any, any, any, (ProxySettings) any, any, 0);
                 maxTimes = 1;
             }
         };
@@ -788,8 +836,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = msgBody.length;
                 mockDeviceMessaging.send(mockedMessage);
             }
         };
@@ -834,12 +884,11 @@ public class MqttIotHubConnectionTest
         baseExpectations();
         openExpectations(null);
 
-        final byte[] msgBody = null;
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = false;
             }
         };
 
@@ -862,8 +911,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = new byte[0];
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = 0;
             }
         };
 
@@ -885,8 +936,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = msgBody.length;
             }
         };
 
@@ -904,8 +957,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockedMessage);
+                result = msgBody.length;
             }
         };
 
@@ -927,8 +982,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceTwinMsg.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockDeviceTwinMsg);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockDeviceTwinMsg);
+                result = msgBody.length;
                 mockDeviceTwinMsg.getMessageType();
                 result = MessageType.DEVICE_TWIN;
 
@@ -967,8 +1024,10 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceMethodMsg.getBytes();
-                result = msgBody;
+                IotHubTransportMessage.hasBody(mockDeviceMethodMsg);
+                result = true;
+                IotHubTransportMessage.getBodyLength(mockDeviceMethodMsg);
+                result = msgBody.length;
                 mockDeviceMethodMsg.getMessageType();
                 result = MessageType.DEVICE_METHODS;
 
@@ -1020,7 +1079,7 @@ public class MqttIotHubConnectionTest
         Deencapsulation.setField(connection, "listener", mockedIotHubListener);
         connection.open(mockedQueue);
 
-        Message message = Deencapsulation.invoke(connection, "receiveMessage");
+        Message message = Deencapsulation.invoke(connection, "receiveMessage", MessageType.DEVICE_TELEMETRY);
         byte[] actualMessageBody = message.getBytes();
 
         for (int i = 0; i < expectedMessageBody.length; i++)
@@ -1032,9 +1091,9 @@ public class MqttIotHubConnectionTest
         {
             {
                 mockDeviceTwin.receive();
-                times = 1;
+                times = 0;
                 mockDeviceMethod.receive();
-                times = 1;
+                times = 0;
                 mockDeviceMessaging.receive();
                 times = 1;
             }
@@ -1061,7 +1120,7 @@ public class MqttIotHubConnectionTest
         Deencapsulation.setField(connection, "listener", mockedIotHubListener);
         connection.open(mockedQueue);
 
-        Message message = Deencapsulation.invoke(connection, "receiveMessage");
+        Message message = Deencapsulation.invoke(connection, "receiveMessage", MessageType.DEVICE_TWIN);
         byte[] actualMessageBody = message.getBytes();
 
         assertNotNull(message);
@@ -1075,7 +1134,7 @@ public class MqttIotHubConnectionTest
         {
             {
                 mockDeviceMethod.receive();
-                times = 1;
+                times = 0;
                 mockDeviceMessaging.receive();
                 times = 0;
             }
@@ -1100,7 +1159,7 @@ public class MqttIotHubConnectionTest
         Deencapsulation.setField(connection, "listener", mockedIotHubListener);
         connection.open(mockedQueue);
 
-        Message message = Deencapsulation.invoke(connection, "receiveMessage");
+        Message message = Deencapsulation.invoke(connection, "receiveMessage", MessageType.DEVICE_METHODS);
         byte[] actualMessageBody = message.getBytes();
 
         assertNotNull(message);
@@ -1202,7 +1261,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, anyString, anyString, expectedUserName, anyString, any, null);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, anyString, anyString, expectedUserName, anyString, any, null, any, 0);
                 times = 1;
             }
         };
@@ -1504,9 +1563,6 @@ public class MqttIotHubConnectionTest
         new Expectations()
         {
             {
-                mockDeviceMethod.receive();
-                result = null;
-
                 mockDeviceTwin.receive();
                 result = mockedTransportMessage;
 
@@ -1528,7 +1584,7 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MessageType.DEVICE_TWIN);
 
         //assert
         Map<IotHubTransportMessage, Integer> receivedMessagesToAcknowledge = Deencapsulation.getField(connection, "receivedMessagesToAcknowledge");
@@ -1575,7 +1631,18 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MessageType.DEVICE_METHODS);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockDeviceTwin.receive();
+                times = 0;
+                mockDeviceMessaging.receive();
+                times = 0;
+            }
+        };
     }
 
     //Tests_SRS_MQTTIOTHUBCONNECTION_34_062: [If a transport message is successfully received, and the message has a type of DEVICE_TELEMETRY, this function shall set the callback and callback context of this object from the saved values in config for telemetry.]
@@ -1593,12 +1660,6 @@ public class MqttIotHubConnectionTest
         new Expectations()
         {
             {
-                mockDeviceMethod.receive();
-                result = null;
-
-                mockDeviceTwin.receive();
-                result = null;
-
                 mockDeviceMessaging.receive();
                 result = mockedTransportMessage;
 
@@ -1626,7 +1687,18 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MessageType.DEVICE_TELEMETRY);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockDeviceMethod.receive();
+                times = 0;
+                mockDeviceTwin.receive();
+                times = 0;
+            }
+        };
     }
 
     //Tests_SRS_MQTTIOTHUBCONNECTION_34_064: [This function shall return the saved connectionId.]
@@ -1674,7 +1746,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class}, anyString, anyString, anyString, anyString, any, proxySettings);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, ProxySettings.class, ScheduledExecutorService.class, int.class}, anyString, anyString, anyString, anyString, any, proxySettings, any, 0);
                 result = mockedMqttConnection;
                 new MqttMessaging(mockedMqttConnection, anyString, (IotHubListener) any, null, null, anyString, anyBoolean, (Map) any);
                 result = mockDeviceMessaging;
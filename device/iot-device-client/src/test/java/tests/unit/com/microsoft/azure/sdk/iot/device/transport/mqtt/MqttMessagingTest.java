@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttMessaging;
@@ -18,6 +19,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 
@@ -38,7 +40,7 @@ public class MqttMessagingTest
     private IOException mockedIOException;
 
     @Mocked
-    private Message mockedMessage;
+    private IotHubTransportMessage mockedMessage;
 
     @Mocked
     private MqttConnection mockedMqttConnection;
@@ -248,12 +250,11 @@ public class MqttMessagingTest
     @Test
     public void sendShallMessageToLowerLayer(@Mocked final Mqtt mockMqtt) throws TransportException
     {
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[] {String.class, Message.class}, anyString, (Message) any);
             }
         };
@@ -265,7 +266,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockedMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[]{String.class, Message.class}, anyString, mockedMessage);
                 times = 1;
@@ -278,12 +279,11 @@ public class MqttMessagingTest
     @Test (expected =  IllegalArgumentException.class)
     public void sendShallThrowIllegalArgumentExceptionIfMessageIsEmpty(@Mocked final Mqtt mockMqtt) throws TransportException
     {
-        final byte[] messageBody = {};
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
             }
         };
 
@@ -293,7 +293,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockedMessage);
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 1;
@@ -314,7 +314,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockedMessage);
                 times = 0;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 0;
@@ -326,7 +326,6 @@ public class MqttMessagingTest
     @Test
     public void sendShallIncludeAllCustomPropertiesInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final String propertyName1 = "key1";
         final String propertyValue1 = "value1";
         final String propertyName2 = "key2";
@@ -339,10 +338,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
             }
         };
 
@@ -367,17 +366,16 @@ public class MqttMessagingTest
     public void sendShallIncludeMessageIdInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
         //arrange
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final MessageProperty[] messageProperties = new MessageProperty[]{};
         final String messageId = "test-message-id";
         final String publishTopicWithMessageId = String.format("devices/%s/messages/events/$.mid=%s", CLIENT_ID, messageId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getMessageId();
                 result = messageId;
             }
@@ -403,17 +401,16 @@ public class MqttMessagingTest
     public void sendShallIncludeCorrelationIdInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
         //arrange
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final MessageProperty[] messageProperties = new MessageProperty[]{};
         final String correlationId = "test-correlation-id";
         final String publishTopicWithCorrelationId = String.format("devices/%s/messages/events/$.cid=%s", CLIENT_ID, correlationId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getCorrelationId();
                 result = correlationId;
             }
@@ -439,17 +436,16 @@ public class MqttMessagingTest
     public void sendShallIncludeUserIdInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
         //arrange
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final MessageProperty[] messageProperties = new MessageProperty[]{};
         final String userId = "test-user-id";
         final String publishTopicWithUserId = String.format("devices/%s/messages/events/$.uid=%s", CLIENT_ID, userId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getUserId();
                 result = userId;
             }
@@ -475,17 +471,16 @@ public class MqttMessagingTest
     public void sendShallIncludeToInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
         //arrange
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final MessageProperty[] messageProperties = new MessageProperty[]{};
         final String to = "test-to";
         final String publishTopicWithTo = String.format("devices/%s/messages/events/$.to=%s", CLIENT_ID, to);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getTo();
                 result = to;
             }
@@ -517,7 +512,6 @@ public class MqttMessagingTest
     @Test
     public void sendShallIncludeAllSystemPropertiesAndAllCustomPropertiesInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException, UnsupportedEncodingException
     {
-        final byte[] messageBody = {0x61, 0x62, 0x63};
         final String propertyName1 = "key1";
         final String propertyValue1 = "value1";
         final String propertyName2 = "key2";
@@ -540,8 +534,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
                 mockedMessage.getMessageId();
                 result = messageId;
                 mockedMessage.getCorrelationId();
@@ -554,8 +548,8 @@ public class MqttMessagingTest
                 result = contentType;
                 mockedMessage.getContentEncoding();
                 result = contentEncoding;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getPropertiesView();
+                result = Arrays.asList(messageProperties);
                 mockedMessage.getOutputName();
                 result = outputName;
                 mockedMessage.getCreationTimeUTC();
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttPendingRequests;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttRequestStatistics;
+import org.junit.Test;
+
+import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST;
+import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_TWIN_GET_REQUEST;
+import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttPendingRequests
+ */
+public class MqttPendingRequestsTest
+{
+    private static final long TIMEOUT_MILLIS = 60 * 1000;
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNonPositiveTimeout()
+    {
+        new MqttPendingRequests(0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void addThrowsForNullRequestId()
+    {
+        new MqttPendingRequests(TIMEOUT_MILLIS).add(null, DEVICE_OPERATION_TWIN_GET_REQUEST);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void addThrowsForNullOperation()
+    {
+        new MqttPendingRequests(TIMEOUT_MILLIS).add("1", null);
+    }
+
+    @Test
+    public void removeReturnsOperationOfAddedRequestAndRecordsIt()
+    {
+        //arrange
+        MqttPendingRequests requests = new MqttPendingRequests(TIMEOUT_MILLIS);
+        requests.add("1", DEVICE_OPERATION_TWIN_GET_REQUEST);
+        requests.add("2", DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST);
+
+        //act
+        Object operation = requests.remove("2");
+
+        //assert
+        assertEquals(DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST, operation);
+        assertEquals(1, requests.size());
+        MqttRequestStatistics statistics = requests.getStatistics();
+        assertEquals(1, statistics.getPendingRequestCount());
+        assertEquals(1, statistics.getCompletedRequestCount());
+        assertEquals(0, statistics.getExpiredRequestCount());
+        assertTrue(statistics.getMaxLatencyNanos() >= 0);
+        assertTrue(statistics.getAverageLatencyNanos() <= statistics.getMaxLatencyNanos());
+    }
+
+    @Test
+    public void removeReturnsNullForUnknownOrNullRequestId()
+    {
+        //arrange
+        MqttPendingRequests requests = new MqttPendingRequests(TIMEOUT_MILLIS);
+        requests.add("1", DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        requests.remove("1");
+
+        //act
+        //assert
+        assertNull(requests.remove("1"));
+        assertNull(requests.remove("unknown"));
+        assertNull(requests.remove(null));
+        assertTrue(requests.isEmpty());
+        assertEquals(1, requests.getStatistics().getCompletedRequestCount());
+    }
+
+    @Test
+    public void removeExpiredDropsOnlyRequestsPastTheirDeadline()
+    {
+        //arrange
+        MqttPendingRequests requests = new MqttPendingRequests(TIMEOUT_MILLIS);
+        requests.add("pending", DEVICE_OPERATION_TWIN_GET_REQUEST);
+        requests.add("expired", DEVICE_OPERATION_TWIN_GET_REQUEST, 0);
+
+        //act
+        int removed = requests.removeExpired();
+
+        //assert
+        assertEquals(1, removed);
+        assertNull(requests.remove("expired"));
+        assertEquals(DEVICE_OPERATION_TWIN_GET_REQUEST, requests.remove("pending"));
+        assertEquals(1, requests.getStatistics().getExpiredRequestCount());
+    }
+
+    @Test
+    public void addDropsExpiredRequests()
+    {
+        //arrange
+        MqttPendingRequests requests = new MqttPendingRequests(TIMEOUT_MILLIS);
+        requests.add("expired", DEVICE_OPERATION_TWIN_GET_REQUEST, 0);
+
+        //act
+        requests.add("pending", DEVICE_OPERATION_TWIN_GET_REQUEST);
+
+        //assert
+        assertEquals(1, requests.size());
+        assertNull(requests.remove("expired"));
+        assertEquals(1, requests.getStatistics().getExpiredRequestCount());
+    }
+
+    @Test
+    public void statisticsOfEmptyTableAreZero()
+    {
+        //act
+        MqttRequestStatistics statistics = new MqttPendingRequests(TIMEOUT_MILLIS).getStatistics();
+
+        //assert
+        assertEquals(0, statistics.getPendingRequestCount());
+        assertEquals(0, statistics.getCompletedRequestCount());
+        assertEquals(0, statistics.getAverageLatencyNanos());
+        assertEquals(0, statistics.getMaxLatencyNanos());
+    }
+}
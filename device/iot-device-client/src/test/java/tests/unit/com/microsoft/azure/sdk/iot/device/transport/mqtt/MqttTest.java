@@ -4,6 +4,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
@@ -26,6 +27,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.*;
 import static org.junit.Assert.*;
@@ -43,6 +46,10 @@ public class MqttTest
     private static final String MOCK_PARSE_TOPIC_WITH_INPUT_NAME = "devices/deviceID/modules/" + expectedModuleId + "/inputs/" + expectedInputName + "/messages/devicebound/%24.mid=69ea4caf-d83e-454b-81f2-caafda4c81c8&%24.exp=0&%24.to=%2Fdevices%2FdeviceID%2Fmessages%2FdeviceBound&%24.cid=169c34b3-99b0-49f9-b0f6-8fa9d2c99345&iothub-ack=full&property1=value1";
     private static final byte[] EXPECTED_PAYLOAD = {0x61, 0x62, 0x63};
     private Message expectedMessage;
+    private Semaphore inFlightPermits;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedTelemetryMessages;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedTwinMessages;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> receivedMethodMessages;
     private static final String EXPECTED_EXPIRED_SAS_TOKEN = "SharedAccessSignature sr=hostname&sig=Signature&se=0";
 
     @Mocked
@@ -88,6 +95,10 @@ public class MqttTest
         expectedMessage.setProperty("property1", "value1");
         expectedMessage.setMessageId("69ea4caf-d83e-454b-81f2-caafda4c81c8");
         expectedMessage.setCorrelationId("169c34b3-99b0-49f9-b0f6-8fa9d2c99345");
+        inFlightPermits = new Semaphore(10);
+        receivedTelemetryMessages = new ConcurrentLinkedQueue<>();
+        receivedTwinMessages = new ConcurrentLinkedQueue<>();
+        receivedMethodMessages = new ConcurrentLinkedQueue<>();
     }
 
     private Mqtt instantiateMqtt(boolean withParameters) throws TransportException
@@ -140,10 +151,16 @@ public class MqttTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
-                result = new ConcurrentLinkedQueue<>();
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TELEMETRY);
+                result = receivedTelemetryMessages;
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TWIN);
+                result = receivedTwinMessages;
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_METHODS);
+                result = receivedMethodMessages;
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 result = new Object();
+                Deencapsulation.invoke(mockedMqttConnection, "getInFlightPermits");
+                result = inFlightPermits;
             }
         };
     }
@@ -176,13 +193,15 @@ public class MqttTest
         };
     }
 
-    private void basePublishExpectations(final Message mockedMessage) throws MqttException
+    private void basePublishExpectations(final IotHubTransportMessage mockedMessage) throws MqttException
     {
         final byte[] payload = {0x61, 0x62, 0x63};
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                IotHubTransportMessage.hasBody(mockedMessage);
+                result = true;
+                IotHubTransportMessage.getBodyReference(mockedMessage);
                 result = payload;
                 mockMqttAsyncClient.isConnected();
                 result = true;
@@ -253,7 +272,7 @@ public class MqttTest
         new Verifications()
         {
             {
-                Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TELEMETRY);
                 times = 1;
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 times = 1;
@@ -274,24 +293,27 @@ public class MqttTest
         //act
         Mqtt mockMqtt1 = instantiateMqtt(true);
         MqttConnection actualInfoInstance1 = Deencapsulation.getField(mockMqtt1, "mqttConnection");
-        Queue<Pair<String, byte[]>> actualQueue1 = Deencapsulation.getField(mockMqtt1, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue1 = Deencapsulation.getField(mockMqtt1, "receivedMessages");
         Object actualLock1 = Deencapsulation.getField(mockMqtt1, "stateLock");
 
         Mqtt mockMqtt2 = instantiateMqtt(false);
         MqttConnection actualInfoInstance2 = Deencapsulation.getField(mockMqtt2, "mqttConnection");
-        Queue<Pair<String, byte[]>> actualQueue2 = Deencapsulation.getField(mockMqtt2, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue2 = Deencapsulation.getField(mockMqtt2, "receivedMessages");
         Object actualLock2 = Deencapsulation.getField(mockMqtt2, "stateLock");
 
         //assert
         assertEquals(actualInfoInstance1, actualInfoInstance2);
-        assertEquals(actualQueue1, actualQueue2);
+        assertSame(receivedTelemetryMessages, actualQueue1);
+        assertSame(receivedTwinMessages, actualQueue2);
         assertEquals(actualLock1, actualLock2);
 
         new Verifications()
         {
             {
-                Deencapsulation.invoke(mockedMqttConnection, "getAllReceivedMessages");
-                times = 2;
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TELEMETRY);
+                times = 1;
+                Deencapsulation.invoke(mockedMqttConnection, "getReceivedMessages", MessageType.DEVICE_TWIN);
+                times = 1;
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 times = 2;
 
@@ -324,17 +346,18 @@ public class MqttTest
 
         //assert
         Object actualInfoInstance1 = Deencapsulation.getField(mockMqtt1, "mqttConnection");
-        Queue<Pair<String, byte[]>> actualQueue1 = Deencapsulation.getField(mockMqtt1, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue1 = Deencapsulation.getField(mockMqtt1, "receivedMessages");
 
         Mqtt mockMqtt2 = instantiateMqtt(false);
         Object actualInfoInstance2 = Deencapsulation.getField(mockMqtt2, "mqttConnection");
-        Queue<Pair<String, byte[]>> actualQueue2 = Deencapsulation.getField(mockMqtt2, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue2 = Deencapsulation.getField(mockMqtt2, "receivedMessages");
 
         Object actualLock1 = Deencapsulation.getField(mockMqtt1, "stateLock");
         Object actualLock2 = Deencapsulation.getField(mockMqtt2, "stateLock");
 
         assertEquals(actualInfoInstance1, actualInfoInstance2);
-        assertEquals(actualQueue1, actualQueue2);
+        assertSame(receivedTelemetryMessages, actualQueue1);
+        assertSame(receivedTwinMessages, actualQueue2);
         assertEquals(actualLock1, actualLock2);
     }
 
@@ -488,7 +511,7 @@ public class MqttTest
 
     //Tests_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
     @Test
-    public void publishSucceedsWhenConnected(final @Mocked Message mockedMessage) throws TransportException, MqttException
+    public void publishSucceedsWhenConnected(final @Mocked IotHubTransportMessage mockedMessage) throws TransportException, MqttException
     {
         //arrange
         baseConstructorExpectations();
@@ -557,39 +580,125 @@ public class MqttTest
     **Tests_SRS_Mqtt_25_012: [If the MQTT connection is closed, the function shall throw a TransportException.]
     */
     @Test (expected = TransportException.class)
-    public void publishFailsWhenConnectionBrokenWhilePublishing(final @Mocked Message mockedMessage) throws TransportException
+    public void publishFailsWhenConnectionBrokenWhilePublishing(final @Mocked IotHubTransportMessage mockedMessage) throws TransportException
     {
         //arrange
         baseConstructorExpectations();
         final byte[] payload = {0x61, 0x62, 0x63};
-        final IMqttDeliveryToken[] testTokens = {mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken
-        };
         new NonStrictExpectations()
         {
             {
-                mockMqttAsyncClient.isConnected();
+                IotHubTransportMessage.hasBody(mockedMessage);
                 result = true;
-                mockMqttAsyncClient.getPendingDeliveryTokens();
-                result = testTokens;
                 mockMqttAsyncClient.isConnected();
-                result = false;
+                returns(true, false);
             }
         };
         Mqtt mockMqtt = instantiateMqtt(true);
 
+        // every message that may be in flight is waiting for an acknowledgement
+        inFlightPermits.drainPermits();
+
         //act
         Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
     }
 
+    @Test
+    public void publishTakesInFlightPermit(final @Mocked IotHubTransportMessage mockedMessage) throws MqttException, TransportException
+    {
+        //arrange
+        baseConstructorExpectations();
+        basePublishExpectations(mockedMessage);
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+
+        //assert
+        assertEquals(9, inFlightPermits.availablePermits());
+    }
+
+    @Test
+    public void publishReturnsInFlightPermitWhenPublishFails(final @Mocked IotHubTransportMessage mockedMessage) throws MqttException, TransportException
+    {
+        //arrange
+        baseConstructorExpectations();
+        basePublishExpectations(mockedMessage);
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage);
+                result = mockMqttException;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        try
+        {
+            Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+            fail("publish should have thrown");
+        }
+        catch (Exception expected)
+        {
+            // expected
+        }
+
+        //assert
+        assertEquals(10, inFlightPermits.availablePermits());
+    }
+
+    @Test
+    public void publishWaitsForAcknowledgementWhenInFlightWindowIsFull(final @Mocked IotHubTransportMessage mockedMessage) throws MqttException, TransportException, InterruptedException
+    {
+        //arrange
+        baseConstructorExpectations();
+        basePublishExpectations(mockedMessage);
+        final Mqtt mockMqtt = instantiateMqtt(true, mockedIotHubListener);
+        inFlightPermits.drainPermits();
+        final AtomicReference<Throwable> publishError = new AtomicReference<>();
+        Thread publishThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+                }
+                catch (Throwable e)
+                {
+                    publishError.set(e);
+                }
+            }
+        });
+        publishThread.start();
+        Thread.sleep(200);
+        assertTrue("publish should wait while the in flight window is full", publishThread.isAlive());
+
+        //act
+        mockMqtt.deliveryComplete(mockMqttDeliveryToken);
+
+        //assert
+        publishThread.join(5000);
+        assertFalse(publishThread.isAlive());
+        assertNull(publishError.get());
+        assertEquals(0, inFlightPermits.availablePermits());
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage);
+                times = 1;
+            }
+        };
+    }
+
 
     /*
     **Tests_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
      */
     @Test
-    public void publishWithDifferentTopicsFromDifferentConcreteClassSucceeds(final @Mocked Message mockedMessage) throws MqttException, TransportException
+    public void publishWithDifferentTopicsFromDifferentConcreteClassSucceeds(final @Mocked IotHubTransportMessage mockedMessage) throws MqttException, TransportException
     {
         //arrange
         baseConstructorExpectations();
@@ -624,7 +733,7 @@ public class MqttTest
      **Tests_SRS_Mqtt_25_047: [If the Mqtt Client Async throws MqttException, the function shall throw a ProtocolException with the message.]
      */
     @Test(expected = ProtocolException.class)
-    public void publishThrowsIOExceptionWhenAnyOfTheAsyncMethodsThrow(final @Mocked Message mockedMessage) throws MqttException, TransportException
+    public void publishThrowsIOExceptionWhenAnyOfTheAsyncMethodsThrow(final @Mocked IotHubTransportMessage mockedMessage) throws MqttException, TransportException
     {
         //arrange
         baseConstructorExpectations();
@@ -1058,7 +1167,7 @@ public class MqttTest
         mockMqtt.messageArrived(MOCK_PARSE_TOPIC, new MqttMessage(actualPayload));
 
         //assert
-        Queue<Pair<String, byte[]>> actualQueue = Deencapsulation.getField(mockMqtt, "allReceivedMessages");
+        Queue<Pair<String, byte[]>> actualQueue = Deencapsulation.getField(mockMqtt, "receivedMessages");
         Pair<String, byte[]> messagePair = actualQueue.poll();
         assertNotNull(messagePair);
         assertTrue(messagePair.getKey().equals(MOCK_PARSE_TOPIC));
@@ -1073,7 +1182,57 @@ public class MqttTest
         new Verifications()
         {
             {
-                mockedMessageListener.onMessageArrived(anyInt);
+                mockedMessageListener.onMessageArrived(anyInt, MessageType.DEVICE_TELEMETRY);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_Mqtt_25_030: [The payload of the message and the topic is added to the received messages queue .]
+    @Test
+    public void messageArrivedQueuesTwinMessagesForTwinClient() throws TransportException
+    {
+        //arrange
+        final String twinTopic = "$iothub/twin/res/200/?$rid=1";
+        baseConstructorExpectations();
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        mockMqtt.messageArrived(twinTopic, new MqttMessage(new byte[] {1}));
+
+        //assert
+        assertTrue(receivedTelemetryMessages.isEmpty());
+        assertTrue(receivedMethodMessages.isEmpty());
+        assertEquals(twinTopic, receivedTwinMessages.poll().getKey());
+        new Verifications()
+        {
+            {
+                mockedMessageListener.onMessageArrived(anyInt, MessageType.DEVICE_TWIN);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_Mqtt_25_030: [The payload of the message and the topic is added to the received messages queue .]
+    @Test
+    public void messageArrivedQueuesMethodRequestsForMethodClient() throws TransportException
+    {
+        //arrange
+        final String methodTopic = "$iothub/methods/POST/someMethod/?$rid=1";
+        baseConstructorExpectations();
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        mockMqtt.messageArrived(methodTopic, new MqttMessage(new byte[] {1}));
+
+        //assert
+        assertTrue(receivedTelemetryMessages.isEmpty());
+        assertTrue(receivedTwinMessages.isEmpty());
+        assertEquals(methodTopic, receivedMethodMessages.poll().getKey());
+        new Verifications()
+        {
+            {
+                mockedMessageListener.onMessageArrived(anyInt, MessageType.DEVICE_METHODS);
                 times = 1;
             }
         };
@@ -1121,7 +1280,7 @@ public class MqttTest
             //arrange
             MqttMessaging testMqttClient = new MqttMessaging(mockedMqttConnection,"deviceId", mockedIotHubListener, null, "", "", false, new HashMap<Integer, Message>());
             Queue<Pair<String, byte[]>> testAllReceivedMessages = new ConcurrentLinkedQueue<>();
-            Deencapsulation.setField(testMqttClient, "allReceivedMessages", testAllReceivedMessages);
+            Deencapsulation.setField(testMqttClient, "receivedMessages", testAllReceivedMessages);
 
             //act
             receivedMessage = testMqttClient.receive();
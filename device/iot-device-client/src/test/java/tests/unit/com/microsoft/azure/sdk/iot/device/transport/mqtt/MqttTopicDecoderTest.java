@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttTopicDecoder;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttTopicEncoder;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttTopicDecoder
+ */
+public class MqttTopicDecoderTest
+{
+    private static final String[] TOPICS =
+    {
+        "",
+        "a",
+        "/",
+        "///",
+        "$iothub/twin/res/200/?$rid=1",
+        "$iothub/twin/res/",
+        "$iothub/twin/PATCH/properties/desired/?$version=2",
+        "/leading/separator",
+        "empty//segment",
+        "trailing/separators//"
+    };
+
+    @Test
+    public void getSegmentCountMatchesSplit()
+    {
+        for (String topic : TOPICS)
+        {
+            assertEquals("Segment count of \"" + topic + "\"", topic.split("/").length, MqttTopicDecoder.getSegmentCount(topic));
+        }
+    }
+
+    @Test
+    public void getSegmentMatchesSplit()
+    {
+        for (String topic : TOPICS)
+        {
+            String[] tokens = topic.split("/");
+            for (int i = 0; i < tokens.length; i++)
+            {
+                assertEquals("Segment " + i + " of \"" + topic + "\"", tokens[i], MqttTopicDecoder.getSegment(topic, i));
+                assertTrue(MqttTopicDecoder.segmentEquals(topic, i, tokens[i]));
+            }
+
+            assertNull(MqttTopicDecoder.getSegment(topic, tokens.length));
+            assertFalse(MqttTopicDecoder.segmentEquals(topic, tokens.length, ""));
+        }
+    }
+
+    @Test
+    public void segmentEqualsComparesWholeSegment()
+    {
+        assertTrue(MqttTopicDecoder.segmentEquals("devices/d/modules/m", 2, "modules"));
+        assertFalse(MqttTopicDecoder.segmentEquals("devices/d/modulesX/m", 2, "modules"));
+        assertFalse(MqttTopicDecoder.segmentEquals("devices/d/module/m", 2, "modules"));
+    }
+
+    @Test
+    public void decodeMatchesUrlDecoder() throws UnsupportedEncodingException
+    {
+        String[] values =
+        {
+            "",
+            "plain-value_1.2*3",
+            "value+with+plus",
+            "%24.mid",
+            "caf%C3%A9+%C3%BCber",
+            "%E6%B8%A9%E5%BA%A6",
+            "emoji+%F0%9F%98%80+pair",
+            "lower%c3%a9case",
+            "invalid%FFutf8",
+            "%2F%26%3D%25"
+        };
+
+        for (String value : values)
+        {
+            String expected = URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+            assertEquals("Decoding of \"" + value + "\"", expected, MqttTopicDecoder.decode(value, 0, value.length()));
+        }
+    }
+
+    @Test
+    public void decodeReversesEncoder() throws UnsupportedEncodingException
+    {
+        String value = "reserved !\"#$%&'()+,/:;<=>?@[\\]^`{|}~ café 温度 😀";
+        StringBuilder builder = new StringBuilder("prefix/");
+        MqttTopicEncoder.appendEncoded(builder, value);
+
+        assertEquals(value, MqttTopicDecoder.decode(builder.toString(), "prefix/".length(), builder.length()));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeThrowsForIllegalHexCharacters()
+    {
+        MqttTopicDecoder.decode("a%G1", 0, 4);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void decodeThrowsForIncompleteTrailingEscape()
+    {
+        MqttTopicDecoder.decode("a%4", 0, 3);
+    }
+
+    @Test
+    public void decodePropertiesSetsSystemAndApplicationProperties()
+    {
+        //arrange
+        String topic = "devices/d/messages/devicebound/%24.mid=id%201&%24.exp=0&%24.to=%2Fdevices%2Fd&%24.cid=cid&iothub-ack=full&%24.ct=application%2Fjson&%24.ce=utf-8&%24.on=out&property+1=%24&%25=_&";
+        Message message = new Message(new byte[] {1});
+
+        //act
+        MqttTopicDecoder.decodeProperties(topic, topic.indexOf("%24"), message);
+
+        //assert
+        assertEquals("id 1", message.getMessageId());
+        assertEquals("cid", message.getCorrelationId());
+        assertEquals("application/json", message.getContentType());
+        assertEquals("utf-8", message.getContentEncoding());
+        assertEquals("out", message.getOutputName());
+        assertEquals("$", message.getProperty("property 1"));
+        assertEquals("_", message.getProperty("%"));
+        assertNull(message.getTo());
+        assertNull(message.getProperty("iothub-ack"));
+        assertEquals(2, message.getProperties().length);
+    }
+
+    @Test
+    public void decodePropertiesRecognizesSystemPropertiesThatAreNotEncodedTheUsualWay()
+    {
+        //arrange
+        String topic = "devices/d/messages/devicebound/%24.mid=first&$.cid=second&%24%2Eon=third";
+        Message message = new Message(new byte[] {1});
+
+        //act
+        MqttTopicDecoder.decodeProperties(topic, topic.indexOf("%24"), message);
+
+        //assert
+        assertEquals("first", message.getMessageId());
+        assertEquals("second", message.getCorrelationId());
+        assertEquals("third", message.getOutputName());
+        assertEquals(0, message.getProperties().length);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void decodePropertiesThrowsForPropertyWithoutSeparator()
+    {
+        String topic = "devices/d/messages/devicebound/%24.mid=id&property1value1";
+        MqttTopicDecoder.decodeProperties(topic, topic.indexOf("%24"), new Message(new byte[] {1}));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void decodePropertiesThrowsForEmptyPropertyBetweenProperties()
+    {
+        String topic = "devices/d/messages/devicebound/%24.mid=id&&key=value";
+        MqttTopicDecoder.decodeProperties(topic, topic.indexOf("%24"), new Message(new byte[] {1}));
+    }
+}
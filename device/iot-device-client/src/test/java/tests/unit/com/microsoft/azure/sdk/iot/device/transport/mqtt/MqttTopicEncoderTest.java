@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttTopicEncoder;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttTopicEncoder
+ */
+public class MqttTopicEncoderTest
+{
+    private static final String PUBLISH_TOPIC = "devices/someDevice/messages/events/";
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullPrefix()
+    {
+        new MqttTopicEncoder(null, "");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullSuffix()
+    {
+        new MqttTopicEncoder(PUBLISH_TOPIC, null);
+    }
+
+    @Test
+    public void appendEncodedMatchesUrlEncoderWithEncodedSpaces() throws UnsupportedEncodingException
+    {
+        String[] values =
+        {
+            "",
+            "plain-value_1.2*3",
+            "value with spaces",
+            "reserved !\"#$%&'()+,/:;<=>?@[\\]^`{|}~",
+            "café über",
+            "温度",
+            "emoji 😀 pair",
+            "lone \ud83d high surrogate",
+            "lone \ude00 low surrogate",
+            "trailing high surrogate \ud83d",
+            "\u0000\u007f\u0080߿ࠀ￿"
+        };
+
+        for (String value : values)
+        {
+            StringBuilder builder = new StringBuilder();
+
+            MqttTopicEncoder.appendEncoded(builder, value);
+
+            String expected = URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replaceAll("\\+", "%20");
+            assertEquals("Encoding of \"" + value + "\"", expected, builder.toString());
+        }
+    }
+
+    @Test
+    public void encodeAppendsSystemAndApplicationProperties()
+    {
+        //arrange
+        MqttTopicEncoder encoder = new MqttTopicEncoder(PUBLISH_TOPIC, "");
+        Message message = new Message(new byte[] {1});
+        message.setMessageId("some id");
+        message.setCorrelationId("correlation");
+        message.setContentType("application/json");
+        message.setProperty("sensor name", "temperature sensor");
+
+        //act
+        String topic = encoder.encode(message);
+
+        //assert
+        assertEquals(PUBLISH_TOPIC + "$.mid=some%20id&$.cid=correlation&$.ct=application%2Fjson&sensor%20name=temperature%20sensor", topic);
+    }
+
+    @Test
+    public void encodeAppendsSuffixAfterProperties()
+    {
+        //arrange
+        MqttTopicEncoder encoder = new MqttTopicEncoder(PUBLISH_TOPIC, "/");
+        Message message = new Message(new byte[] {1});
+        message.setMessageId("id");
+
+        //act
+        String topic = encoder.encode(message);
+
+        //assert
+        assertEquals(PUBLISH_TOPIC + "$.mid=id/", topic);
+    }
+
+    @Test
+    public void encodeDoesNotCarryPropertiesOverToNextMessage()
+    {
+        //arrange
+        MqttTopicEncoder encoder = new MqttTopicEncoder(PUBLISH_TOPIC, "");
+        Message firstMessage = new Message(new byte[] {1});
+        firstMessage.setMessageId("first");
+        firstMessage.setProperty("key", "value");
+        Message secondMessage = new Message(new byte[] {1});
+        secondMessage.setMessageId("second");
+
+        //act
+        encoder.encode(firstMessage);
+        String topic = encoder.encode(secondMessage);
+
+        //assert
+        assertEquals(PUBLISH_TOPIC + "$.mid=second", topic);
+    }
+
+    @Test
+    public void encodeSkipsPropertiesWithEmptyValues()
+    {
+        //arrange
+        MqttTopicEncoder encoder = new MqttTopicEncoder(PUBLISH_TOPIC, "");
+        Message message = new Message(new byte[] {1});
+        message.setMessageId("id");
+        message.setProperty("empty", "");
+        message.setProperty("key", "value");
+
+        //act
+        String topic = encoder.encode(message);
+
+        //assert
+        assertEquals(PUBLISH_TOPIC + "$.mid=id&key=value", topic);
+    }
+
+    @Test
+    public void encodeRemembersEncodedPropertyNamesUpToLimit()
+    {
+        //arrange
+        MqttTopicEncoder encoder = new MqttTopicEncoder(PUBLISH_TOPIC, "");
+        Map<String, String> encodedPropertyNames = Deencapsulation.getField(encoder, "encodedPropertyNames");
+
+        //act
+        for (int i = 0; i < 300; i++)
+        {
+            Message message = new Message(new byte[] {1});
+            message.setProperty("key " + i, "value");
+            String topic = encoder.encode(message);
+            assertTrue(topic.endsWith("&key%20" + i + "=value"));
+        }
+
+        //assert
+        assertTrue(encodedPropertyNames.size() <= 256);
+        assertEquals("key%20299", encodedPropertyNames.get("key 299"));
+    }
+}
@@ -28,9 +28,8 @@ public class TopicParserTest
 
         //assert
         assertNotNull(testParser);
-        String[] tokens = Deencapsulation.getField(testParser, "topicTokens");
-        assertNotNull(tokens);
-        assertTrue(tokens.length > 1);
+        int tokenCount = Deencapsulation.getField(testParser, "tokenCount");
+        assertEquals(3, tokenCount);
     }
 
     /*
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk registry operation such as {@link RegistryManager#addDevices(java.util.Collection)}. The
+ * operation is not atomic, so every device that is not listed in {@link #getErrors()} was processed successfully. When
+ * one of the requests that the operation was split into fails as a whole, for example because it timed out, every
+ * device it carried is listed with the reason the request failed, and the other requests are unaffected.
+ */
+public class BulkRegistryOperationResult
+{
+    private static final Gson gson = new Gson();
+
+    @SerializedName("isSuccessful")
+    private boolean isSuccessful;
+
+    @SerializedName("errors")
+    private List<DeviceRegistryOperationError> errors;
+
+    @SerializedName("warnings")
+    private List<DeviceRegistryOperationWarning> warnings;
+
+    //empty constructor for Gson
+    BulkRegistryOperationResult()
+    {
+    }
+
+    /**
+     * Parse the response of a single bulk registry request
+     * @param json the response body
+     * @return the parsed result
+     * @throws JsonSyntaxException if the provided json could not be parsed
+     */
+    static BulkRegistryOperationResult fromJson(String json) throws JsonSyntaxException
+    {
+        if (Tools.isNullOrEmpty(json))
+        {
+            throw new IllegalArgumentException("The provided json cannot be null or empty");
+        }
+
+        BulkRegistryOperationResult result = gson.fromJson(json, BulkRegistryOperationResult.class);
+        if (result == null)
+        {
+            throw new JsonSyntaxException("The provided json could not be parsed into a bulk registry operation result");
+        }
+
+        return result;
+    }
+
+    /**
+     * Build the result of a single bulk registry request that failed as a whole, listing every device of the request
+     * as an error
+     * @param deviceIds the ids of the devices that the request carried
+     * @param failure the reason why the request failed
+     * @return the result of the request
+     */
+    static BulkRegistryOperationResult fromFailure(List<String> deviceIds, Exception failure)
+    {
+        String errorCode;
+        if (failure instanceof IotHubException && ((IotHubException) failure).getErrorCodeDescription() != null)
+        {
+            errorCode = ((IotHubException) failure).getErrorCodeDescription().name();
+        }
+        else
+        {
+            errorCode = failure.getClass().getSimpleName();
+        }
+
+        BulkRegistryOperationResult result = new BulkRegistryOperationResult();
+        result.isSuccessful = false;
+        result.errors = new ArrayList<>(deviceIds.size());
+        for (String deviceId : deviceIds)
+        {
+            result.errors.add(new DeviceRegistryOperationError(deviceId, errorCode, failure.getMessage()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Combine the results of the requests that a bulk registry operation was split into
+     * @param results the results of each request, in the order the requests were built
+     * @return a single result listing the errors and warnings of every request
+     */
+    static BulkRegistryOperationResult merge(List<BulkRegistryOperationResult> results)
+    {
+        BulkRegistryOperationResult merged = new BulkRegistryOperationResult();
+        merged.isSuccessful = true;
+        merged.errors = new ArrayList<>();
+        merged.warnings = new ArrayList<>();
+
+        for (BulkRegistryOperationResult result : results)
+        {
+            merged.isSuccessful &= result.isSuccessful;
+            merged.errors.addAll(result.getErrors());
+            merged.warnings.addAll(result.getWarnings());
+        }
+
+        return merged;
+    }
+
+    /**
+     * @return true if the operation succeeded for every device
+     */
+    public boolean isSuccessful()
+    {
+        return this.isSuccessful;
+    }
+
+    /**
+     * @return The devices that the operation failed for. Never null
+     */
+    public List<DeviceRegistryOperationError> getErrors()
+    {
+        return this.errors == null ? Collections.emptyList() : this.errors;
+    }
+
+    /**
+     * @return The warnings about devices that the operation succeeded for. Never null
+     */
+    public List<DeviceRegistryOperationWarning> getWarnings()
+    {
+        return this.warnings == null ? Collections.emptyList() : this.warnings;
+    }
+}
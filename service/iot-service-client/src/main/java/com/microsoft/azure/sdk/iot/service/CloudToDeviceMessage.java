@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+/**
+ * A message along with the device, and optionally the module, that it should be sent to. Used to describe each of the
+ * messages of a batch sent with {@link ServiceClient#sendBatchAsync(java.util.List)}.
+ */
+public class CloudToDeviceMessage
+{
+    private final String deviceId;
+    private final String moduleId;
+    private final Message message;
+
+    /**
+     * Create a message that targets a device
+     * @param deviceId The device identifier for the target device
+     * @param message The message for the device
+     */
+    public CloudToDeviceMessage(String deviceId, Message message)
+    {
+        this(deviceId, null, message);
+    }
+
+    /**
+     * Create a message that targets a module
+     * @param deviceId The device identifier for the target device
+     * @param moduleId The module identifier for the target module. May be null if the message targets the device itself
+     * @param message The message for the module
+     */
+    public CloudToDeviceMessage(String deviceId, String moduleId, Message message)
+    {
+        if (Tools.isNullOrEmpty(deviceId))
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+
+        if (message == null)
+        {
+            throw new IllegalArgumentException("message cannot be null");
+        }
+
+        this.deviceId = deviceId;
+        this.moduleId = moduleId;
+        this.message = message;
+    }
+
+    /**
+     * @return The device identifier for the target device
+     */
+    public String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    /**
+     * @return The module identifier for the target module, or null if the message targets the device itself
+     */
+    public String getModuleId()
+    {
+        return this.moduleId;
+    }
+
+    /**
+     * @return The message to send
+     */
+    public Message getMessage()
+    {
+        return this.message;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The reason why a single device of a bulk registry operation could not be created, updated or removed.
+ */
+public class DeviceRegistryOperationError
+{
+    @SerializedName("deviceId")
+    private String deviceId;
+
+    @SerializedName("errorCode")
+    private String errorCode;
+
+    @SerializedName("errorStatus")
+    private String errorStatus;
+
+    //empty constructor for Gson
+    DeviceRegistryOperationError()
+    {
+    }
+
+    /**
+     * Record that the operation failed for the provided device without the service reporting why, for example because
+     * the request carrying the device could not be sent
+     * @param deviceId the id of the device that the operation failed for
+     * @param errorCode the code of the error
+     * @param errorStatus the description of the error
+     */
+    DeviceRegistryOperationError(String deviceId, String errorCode, String errorStatus)
+    {
+        this.deviceId = deviceId;
+        this.errorCode = errorCode;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * @return The id of the device that the operation failed for
+     */
+    public String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    /**
+     * @return The service error code, for example "DeviceAlreadyExists"
+     */
+    public String getErrorCode()
+    {
+        return this.errorCode;
+    }
+
+    /**
+     * @return The human readable description of the error
+     */
+    public String getErrorStatus()
+    {
+        return this.errorStatus;
+    }
+}
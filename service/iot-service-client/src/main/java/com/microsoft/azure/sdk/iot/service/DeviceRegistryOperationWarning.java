@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A warning about a single device of a bulk registry operation. Unlike a {@link DeviceRegistryOperationError}, the
+ * operation did succeed for this device.
+ */
+public class DeviceRegistryOperationWarning
+{
+    @SerializedName("deviceId")
+    private String deviceId;
+
+    @SerializedName("warningCode")
+    private String warningCode;
+
+    @SerializedName("warningStatus")
+    private String warningStatus;
+
+    //empty constructor for Gson
+    DeviceRegistryOperationWarning()
+    {
+    }
+
+    /**
+     * @return The id of the device that the warning is about
+     */
+    public String getDeviceId()
+    {
+        return this.deviceId;
+    }
+
+    /**
+     * @return The service warning code
+     */
+    public String getWarningCode()
+    {
+        return this.warningCode;
+    }
+
+    /**
+     * @return The human readable description of the warning
+     */
+    public String getWarningStatus()
+    {
+        return this.warningStatus;
+    }
+}
@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.*;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 import com.microsoft.azure.sdk.iot.service.auth.AuthenticationMechanism;
 import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
@@ -26,6 +27,7 @@ public class ExportImportDevice
     private TwinCollection tags = null;
     private TwinCollection reportedProperties = null;
     private TwinCollection desiredProperties = null;
+    private DeviceCapabilities capabilities = null;
 
     /**
      * Default constructor for an ExportImportDevice object. Randomly generates a device ID and uses a randomly generated shared access signature for authentication
@@ -223,7 +225,23 @@ public class ExportImportDevice
 	 */
 	public void setDesiredProperties(TwinCollection desiredProperties) {
 		this.desiredProperties = desiredProperties;
-	}    
+	}
+
+    /**
+     * @return the capabilities of the device, such as whether it is an IoT Edge device
+     */
+    public DeviceCapabilities getCapabilities()
+    {
+        return capabilities;
+    }
+
+    /**
+     * @param capabilities the capabilities of the device to set
+     */
+    public void setCapabilities(DeviceCapabilities capabilities)
+    {
+        this.capabilities = capabilities;
+    }
     
     @Override
     public boolean equals(Object other)
@@ -284,6 +302,7 @@ public class ExportImportDevice
         this.eTag = parser.getETag();
         this.id = parser.getIdFinal();
         this.statusReason = parser.getStatusReason();
+        this.capabilities = parser.getCapabilities();
 
         if (parser.getImportMode() != null)
         {
@@ -401,6 +420,7 @@ public class ExportImportDevice
         }
         
         parser.setTags(this.tags);
+        parser.setCapabilities(this.capabilities);
 
         return parser;
     }
@@ -10,7 +10,9 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationMechanism;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -27,10 +29,14 @@ import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Use the RegistryManager class to manage the identity registry in IoT Hubs.
@@ -38,8 +44,17 @@ import java.util.concurrent.Executors;
 public class RegistryManager
 {
     private static final int EXECUTOR_THREAD_POOL_SIZE = 10;
+
+    /**
+     * The maximum number of devices that the service accepts in a single bulk registry request. Bulk registry
+     * operations with more devices are split into several requests.
+     */
+    public static final int MAX_DEVICES_PER_BULK_REQUEST = 100;
+
     private ExecutorService executor;
+    private ExecutorService bulkExecutor;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenProvider sasTokenProvider;
 
     private RegistryManagerOptions options;
 
@@ -56,6 +71,7 @@ public class RegistryManager
         options = RegistryManagerOptions.builder()
                 .httpConnectTimeout(RegistryManagerOptions.DEFAULT_HTTP_CONNECT_TIMEOUT_MS)
                 .httpReadTimeout(RegistryManagerOptions.DEFAULT_HTTP_READ_TIMEOUT_MS)
+                .bulkOperationParallelism(RegistryManagerOptions.DEFAULT_BULK_OPERATION_PARALLELISM)
                 .build();
     }
 
@@ -71,6 +87,7 @@ public class RegistryManager
         RegistryManagerOptions options = RegistryManagerOptions.builder()
                 .httpConnectTimeout(RegistryManagerOptions.DEFAULT_HTTP_CONNECT_TIMEOUT_MS)
                 .httpReadTimeout(RegistryManagerOptions.DEFAULT_HTTP_READ_TIMEOUT_MS)
+                .bulkOperationParallelism(RegistryManagerOptions.DEFAULT_BULK_OPERATION_PARALLELISM)
                 .build();
 
         return createFromConnectionString(connectionString, options);
@@ -97,16 +114,28 @@ public class RegistryManager
             throw new IllegalArgumentException("RegistryManagerOptions cannot be null for this constructor");
         }
 
+        if (options.getBulkOperationParallelism() < 0)
+        {
+            throw new IllegalArgumentException("bulkOperationParallelism cannot be negative");
+        }
+
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_002: [The constructor shall create an IotHubConnectionString object from the given connection string]
         IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_003: [The constructor shall create a new RegistryManager, stores the created IotHubConnectionString object and return with it]
         RegistryManager iotHubRegistryManager = new RegistryManager();
         iotHubRegistryManager.iotHubConnectionString = iotHubConnectionString;
+        iotHubRegistryManager.sasTokenProvider = new IotHubServiceSasTokenProvider(iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_090: [The function shall start this object's executor service]
         iotHubRegistryManager.executor = Executors.newFixedThreadPool(EXECUTOR_THREAD_POOL_SIZE);
 
+        // Bulk requests get their own threads so that they neither wait behind nor hold up the async operations
+        int bulkOperationParallelism = options.getBulkOperationParallelism() > 0
+                ? options.getBulkOperationParallelism()
+                : RegistryManagerOptions.DEFAULT_BULK_OPERATION_PARALLELISM;
+        iotHubRegistryManager.bulkExecutor = Executors.newFixedThreadPool(bulkOperationParallelism);
+
         iotHubRegistryManager.options = options;
 
         return iotHubRegistryManager;
@@ -131,6 +160,11 @@ public class RegistryManager
         {
             this.executor.shutdownNow();
         }
+
+        if (bulkExecutor != null && !bulkExecutor.isTerminated())
+        {
+            this.bulkExecutor.shutdownNow();
+        }
     }
 
     /**
@@ -156,7 +190,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_006: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(device.getDeviceId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_007: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_008: [The function shall create a new HttpRequest for adding the device to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, deviceJson.getBytes(), sasTokenString);
@@ -227,7 +261,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_015: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(deviceId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_016: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_017: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -301,7 +335,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_024: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDeviceList(maxCount);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_025: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_026: [The function shall create a new HttpRequest for getting a device list from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -443,7 +477,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_036: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(device.getDeviceId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_037: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_038: [The function shall create a new HttpRequest for updating the device on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, device.toDeviceParser().toJson().getBytes(), sasTokenString);
@@ -586,7 +620,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlDevice(deviceId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_048: [The function shall create a new SAS token for the device]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_049: [The function shall create a new HttpRequest for removing the device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.DELETE, new byte[0], sasToken);
@@ -633,6 +667,203 @@ public class RegistryManager
         return future;
     }
 
+    /**
+     * Create the provided devices using as few requests as possible. Unlike {@link #addDevice(Device)}, this operation
+     * is not atomic: the result lists every device that could not be created, for example because it already exists.
+     *
+     * @param devices The devices to create
+     * @return The per device outcome of the operation
+     * @throws IOException This exception is thrown if the thread was interrupted while waiting for the operation
+     * @throws IllegalArgumentException This exception is thrown if devices is null, empty or contains a null device
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices) throws IOException
+    {
+        return bulkDeviceOperation(devices, ImportMode.Create);
+    }
+
+    /**
+     * Update the provided devices using as few requests as possible, regardless of their etag. Unlike
+     * {@link #updateDevice(Device)}, this operation is not atomic: the result lists every device that could not be
+     * updated, for example because it does not exist.
+     *
+     * @param devices The devices containing the updated data
+     * @return The per device outcome of the operation
+     * @throws IOException This exception is thrown if the thread was interrupted while waiting for the operation
+     * @throws IllegalArgumentException This exception is thrown if devices is null, empty or contains a null device
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices) throws IOException
+    {
+        return bulkDeviceOperation(devices, ImportMode.Update);
+    }
+
+    /**
+     * Remove the provided devices using as few requests as possible. As with {@link #removeDevice(Device)}, a device
+     * that has an etag is only removed if its etag still matches the one in the registry. Unlike
+     * {@link #removeDevice(Device)}, this operation is not atomic: the result lists every device that could not be
+     * removed.
+     *
+     * @param devices The devices to remove
+     * @return The per device outcome of the operation
+     * @throws IOException This exception is thrown if the thread was interrupted while waiting for the operation
+     * @throws IllegalArgumentException This exception is thrown if devices is null, empty or contains a null device
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices) throws IOException
+    {
+        return bulkDeviceOperation(devices, ImportMode.Delete);
+    }
+
+    private BulkRegistryOperationResult bulkDeviceOperation(Collection<Device> devices, ImportMode importMode) throws IOException
+    {
+        if (devices == null || devices.isEmpty())
+        {
+            throw new IllegalArgumentException("devices cannot be null or empty");
+        }
+
+        List<ExportImportDevice> exportImportDevices = new ArrayList<>(devices.size());
+        for (Device device : devices)
+        {
+            exportImportDevices.add(toExportImportDevice(device, importMode));
+        }
+
+        List<List<ExportImportDevice>> chunks = new ArrayList<>();
+        for (int i = 0; i < exportImportDevices.size(); i += MAX_DEVICES_PER_BULK_REQUEST)
+        {
+            chunks.add(exportImportDevices.subList(i, Math.min(i + MAX_DEVICES_PER_BULK_REQUEST, exportImportDevices.size())));
+        }
+
+        BulkRegistryOperationResult[] chunkResults = new BulkRegistryOperationResult[chunks.size()];
+        if (chunks.size() == 1 || this.bulkExecutor == null)
+        {
+            for (int i = 0; i < chunks.size(); i++)
+            {
+                chunkResults[i] = sendBulkRequestOrRecordFailure(chunks.get(i));
+            }
+        }
+        else
+        {
+            // The bulk executor has bulkOperationParallelism threads, so no more than that many requests are in flight at once
+            List<Future<BulkRegistryOperationResult>> chunkFutures = new ArrayList<>(chunks.size());
+            for (List<ExportImportDevice> chunk : chunks)
+            {
+                chunkFutures.add(this.bulkExecutor.submit(() -> sendBulkRequestOrRecordFailure(chunk)));
+            }
+
+            awaitBulkRequests(chunkFutures, chunkResults);
+        }
+
+        return BulkRegistryOperationResult.merge(Arrays.asList(chunkResults));
+    }
+
+    private static void awaitBulkRequests(List<Future<BulkRegistryOperationResult>> chunkFutures, BulkRegistryOperationResult[] chunkResults) throws IOException
+    {
+        for (int i = 0; i < chunkFutures.size(); i++)
+        {
+            try
+            {
+                chunkResults[i] = chunkFutures.get(i).get();
+            }
+            catch (InterruptedException e)
+            {
+                for (Future<BulkRegistryOperationResult> chunkFuture : chunkFutures)
+                {
+                    chunkFuture.cancel(true);
+                }
+
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the bulk registry operation to finish", e);
+            }
+            catch (ExecutionException e)
+            {
+                // sendBulkRequestOrRecordFailure records every exception, so only errors get here
+                if (e.getCause() instanceof Error)
+                {
+                    throw (Error) e.getCause();
+                }
+
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private BulkRegistryOperationResult sendBulkRequestOrRecordFailure(List<ExportImportDevice> exportImportDevices)
+    {
+        try
+        {
+            return sendBulkRequest(exportImportDevices);
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            // A request that fails as a whole fails every device it carried, but not the devices of the other requests
+            List<String> deviceIds = new ArrayList<>(exportImportDevices.size());
+            for (ExportImportDevice exportImportDevice : exportImportDevices)
+            {
+                deviceIds.add(exportImportDevice.getId());
+            }
+
+            return BulkRegistryOperationResult.fromFailure(deviceIds, e);
+        }
+    }
+
+    private BulkRegistryOperationResult sendBulkRequest(List<ExportImportDevice> exportImportDevices) throws IOException, IotHubException
+    {
+        StringBuilder bulkJson = new StringBuilder("[");
+        for (int i = 0; i < exportImportDevices.size(); i++)
+        {
+            if (i > 0)
+            {
+                bulkJson.append(',');
+            }
+
+            bulkJson.append(exportImportDevices.get(i).toExportImportDeviceParser().toJson());
+        }
+        bulkJson.append(']');
+
+        URL url = iotHubConnectionString.getUrlBulkDevices();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
+
+        HttpRequest request = CreateRequest(url, HttpMethod.POST, bulkJson.toString().getBytes(StandardCharsets.UTF_8), sasTokenString);
+
+        HttpResponse response = request.send();
+
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        return BulkRegistryOperationResult.fromJson(new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private static ExportImportDevice toExportImportDevice(Device device, ImportMode importMode)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("devices cannot contain a null device");
+        }
+
+        ExportImportDevice exportImportDevice = new ExportImportDevice(device.getDeviceId(), device.getAuthenticationType());
+        if (device.getAuthenticationType() == AuthenticationType.SAS && device.getSymmetricKey() != null)
+        {
+            exportImportDevice.setAuthentication(new AuthenticationMechanism(device.getSymmetricKey()));
+        }
+        else if (device.getAuthenticationType() == AuthenticationType.SELF_SIGNED)
+        {
+            exportImportDevice.setAuthentication(new AuthenticationMechanism(device.getPrimaryThumbprint(), device.getSecondaryThumbprint()));
+        }
+
+        exportImportDevice.setStatus(device.getStatus());
+        exportImportDevice.setStatusReason(device.getStatusReason());
+        exportImportDevice.setCapabilities(device.getCapabilities());
+
+        if (importMode == ImportMode.Delete && !Tools.isNullOrEmpty(device.geteTag()))
+        {
+            exportImportDevice.setImportMode(ImportMode.DeleteIfMatchETag);
+            exportImportDevice.seteTag(device.geteTag());
+        }
+        else
+        {
+            exportImportDevice.setImportMode(importMode);
+        }
+
+        return exportImportDevice;
+    }
+
     /**
      * Get device statistics
      *
@@ -646,7 +877,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlDeviceStatistics();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_055: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_056: [The function shall create a new HttpRequest for getting statistics a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -715,7 +946,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_063: [The function shall create a new SAS token for the bulk export job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_064: [The function shall create a new HttpRequest for the bulk export job creation ]
         String jobPropertiesJson = CreateExportJobPropertiesJson(exportBlobContainerUri, excludeKeys);
@@ -783,7 +1014,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_063: [The function shall create a new SAS token for the bulk export job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_064: [The function shall create a new HttpRequest for the bulk export job creation ]
         exportDevicesParameters.setType(JobProperties.JobType.EXPORT);
@@ -858,7 +1089,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_071: [The function shall create a new SAS token for the bulk import job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_072: [The function shall create a new HttpRequest for the bulk import job creation]
         String jobPropertiesJson = CreateImportJobPropertiesJson(importBlobContainerUri, outputBlobContainerUri);
@@ -927,7 +1158,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_071: [The function shall create a new SAS token for the bulk import job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_072: [The function shall create a new HttpRequest for the bulk import job creation]
         importDevicesParameters.setType(JobProperties.JobType.IMPORT);
@@ -1001,7 +1232,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlImportExportJob(jobId);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_079: [The function shall create a new SAS token for the get request **]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_080: [The function shall create a new HttpRequest for getting the properties of a job]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1067,7 +1298,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_003: [The function shall get the URL for the module]
         URL url = iotHubConnectionString.getUrlModule(module.getDeviceId(), module.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_004: [The function shall create a new SAS token for the module]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_005: [The function shall create a new HttpRequest for adding the module to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, moduleJson.getBytes(), sasTokenString);
@@ -1112,7 +1343,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_011: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlModule(deviceId, moduleId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_012: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_013: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1149,7 +1380,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_018: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlModulesOnDevice(deviceId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_019: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_020: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1219,7 +1450,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_028: [The function shall get the URL for the module]
         URL url = iotHubConnectionString.getUrlModule(module.getDeviceId(), module.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_029: [The function shall create a new SAS token for the module]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_030: [The function shall create a new HttpRequest for updating the module on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, module.toDeviceParser().toJson().getBytes(), sasTokenString);
@@ -1305,7 +1536,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlModule(deviceId, moduleId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_037: [The function shall create a new SAS token for the module]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_038: [The function shall create a new HttpRequest for removing the module from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.DELETE, new byte[0], sasToken);
@@ -1341,7 +1572,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_043: [The function shall get the URL for the configuration]
         URL url = iotHubConnectionString.getUrlConfiguration(configuration.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_044: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_045: [The function shall create a new HttpRequest for adding the configuration to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, configurationJson.getBytes(), sasTokenString);
@@ -1379,7 +1610,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_050: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlConfiguration(configurationId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_051: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_052: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1416,7 +1647,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_057: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlConfigurationsList(maxCount);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_058: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_059: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1486,7 +1717,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_067: [The function shall get the URL for the configuration]
         URL url = iotHubConnectionString.getUrlConfiguration(configuration.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_068: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_069: [The function shall create a new HttpRequest for updating the device on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, configuration.toConfigurationParser().toJson().getBytes(), sasTokenString);
@@ -1564,7 +1795,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlConfiguration(configurationId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_075: [The function shall create a new SAS token for the configuration]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_076: [The function shall create a new HttpRequest for removing the configuration from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.DELETE, new byte[0], sasToken);
@@ -1596,7 +1827,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlApplyConfigurationContent(deviceId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_090: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = this.sasTokenProvider.getSasToken();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_091: [The function shall send a new HTTP POST request with the created url, sas token, and the provided content in json form as the body.]
         HttpRequest request = CreateRequest(url, HttpMethod.POST, content.toConfigurationContentParser().toJson().getBytes(), sasTokenString);
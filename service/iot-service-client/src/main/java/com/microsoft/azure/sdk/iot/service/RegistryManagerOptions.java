@@ -11,6 +11,7 @@ public class RegistryManagerOptions
 {
     protected static final Integer DEFAULT_HTTP_READ_TIMEOUT_MS = 24000; // 24 seconds
     protected static final Integer DEFAULT_HTTP_CONNECT_TIMEOUT_MS = 24000; // 24 seconds
+    protected static final int DEFAULT_BULK_OPERATION_PARALLELISM = 4;
 
     /**
      * The options that specify what proxy to tunnel through. If null, no proxy will be used
@@ -35,4 +36,13 @@ public class RegistryManagerOptions
      */
     @Getter
     private int httpConnectTimeout;
+
+    /**
+     * The maximum number of requests that a bulk registry operation such as
+     * {@link RegistryManager#addDevices(java.util.Collection)} sends at the same time. Each request carries up to
+     * {@link RegistryManager#MAX_DEVICES_PER_BULK_REQUEST} devices. A value of zero means that
+     * {@link #DEFAULT_BULK_OPERATION_PARALLELISM} is used. Must be a non-negative value.
+     */
+    @Getter
+    private int bulkOperationParallelism;
 }
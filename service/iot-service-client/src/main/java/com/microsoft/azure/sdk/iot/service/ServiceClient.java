@@ -5,12 +5,14 @@
 
 package com.microsoft.azure.sdk.iot.service;
 
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -26,7 +28,7 @@ public class ServiceClient
     private AmqpSend amqpMessageSender;
     private final String hostName;
     private final String userName;
-    private final String sasToken;
+    private final IotHubServiceSasTokenProvider sasTokenProvider;
     protected IotHubConnectionString iotHubConnectionString;
     private IotHubServiceClientProtocol iotHubServiceClientProtocol;
 
@@ -100,13 +102,12 @@ public class ServiceClient
         }
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_005: [The constructor shall create a SAS token object using the IotHubConnectionString]
-        IotHubServiceSasToken iotHubServiceSasToken = new IotHubServiceSasToken(iotHubConnectionString);
+        this.sasTokenProvider = new IotHubServiceSasTokenProvider(iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_006: [The constructor shall store connection string, hostname, username and sasToken]
         this.iotHubConnectionString = iotHubConnectionString;
         this.hostName = iotHubConnectionString.getHostName();
         this.userName = iotHubConnectionString.getUserString();
-        this.sasToken = iotHubServiceSasToken.toString();
         this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
         this.options = options;
 
@@ -115,13 +116,20 @@ public class ServiceClient
             throw new UnsupportedOperationException("Proxies are only supported over AMQPS_WS");
         }
 
+        if (this.options.getSendConnectionPoolSize() < 0)
+        {
+            throw new IllegalArgumentException("sendConnectionPoolSize cannot be negative");
+        }
+
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_007: [The constructor shall create a new instance of AmqpSend object]
-        this.amqpMessageSender = new AmqpSend(hostName, userName, sasToken, this.iotHubServiceClientProtocol, options.getProxyOptions());
+        this.amqpMessageSender = new AmqpSend(hostName, userName, this.sasTokenProvider, this.iotHubServiceClientProtocol, options.getProxyOptions(), options.getSendConnectionPoolSize());
     }
 
     /**
-     * Open AMQP sender
-     * @throws IOException This exception is thrown if the AmqpSender object is not initialized
+     * Open AMQP sender. If {@link ServiceClientOptions#getSendConnectionPoolSize()} is greater than 0, this also opens
+     * the long lived amqp connections that messages will be sent over.
+     * @throws IOException This exception is thrown if the AmqpSender object is not initialized, or if the long lived
+     * amqp connections could not be opened
      */
     public void open() throws IOException
     {
@@ -157,8 +165,10 @@ public class ServiceClient
     }
 
     /**
-     * Send a one-way message to the specified device. This function is synchronized internally so that only one send operation
-     * is allowed at a time. In order to do more send operations at a time, you will need to instantiate another service client instance.
+     * Send a one-way message to the specified device. Unless this client was created with a
+     * {@link ServiceClientOptions#getSendConnectionPoolSize()} greater than 0, this function is synchronized internally so
+     * that only one send operation is allowed at a time. In that case, in order to do more send operations at a time,
+     * you will need to instantiate another service client instance.
      *
      * @param deviceId The device identifier for the target device
      * @param message The message for the device
@@ -172,8 +182,10 @@ public class ServiceClient
     }
 
     /**
-     * Send a one-way message to the specified module. This function is synchronized internally so that only one send operation
-     * is allowed at a time. In order to do more send operations at a time, you will need to instantiate another service client instance.
+     * Send a one-way message to the specified module. Unless this client was created with a
+     * {@link ServiceClientOptions#getSendConnectionPoolSize()} greater than 0, this function is synchronized internally so
+     * that only one send operation is allowed at a time. In that case, in order to do more send operations at a time,
+     * you will need to instantiate another service client instance.
      *
      * @param deviceId The device identifier for the target device
      * @param moduleId The module identifier for the target device
@@ -246,12 +258,32 @@ public class ServiceClient
      */
     public CompletableFuture<Void> sendAsync(String deviceId, Message message)
     {
+        return sendAsync(deviceId, null, message);
+    }
+
+    /**
+     * Provide asynchronous access to send(). If this client was created with a
+     * {@link ServiceClientOptions#getSendConnectionPoolSize()} greater than 0, the message is queued directly onto one of
+     * the long lived amqp connections without occupying a thread while waiting for the acknowledgement.
+     *
+     * @param deviceId The device identifier for the target device
+     * @param moduleId The module identifier for the target device
+     * @param message The message for the device
+     * @return The future object for the requested operation
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
+    {
+        if (this.amqpMessageSender != null && this.amqpMessageSender.usesLongLivedConnections())
+        {
+            return this.amqpMessageSender.sendAsync(deviceId, moduleId, message);
+        }
+
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall create an async wrapper around the send() function call]
         final CompletableFuture<Void> future = new CompletableFuture<>();
         executor.submit(() -> {
         try
         {
-            send(deviceId, message);
+            send(deviceId, moduleId, message);
             future.complete(null);
         } catch (Exception e)
         {
@@ -261,6 +293,97 @@ public class ServiceClient
         return future;
     }
 
+    /**
+     * Send a batch of one-way messages to devices and/or modules. The messages are pipelined over a single amqp sender
+     * link, so the whole batch costs one connection setup rather than one per message. If this client was created with a
+     * {@link ServiceClientOptions#getSendConnectionPoolSize()} greater than 0, the batch is sent over one of the already
+     * open long lived connections.
+     *
+     * @param messages The messages to send, each with the device or module that it targets
+     * @return one future per message, in the same order as the provided messages. Each completes once the service
+     * acknowledged that message, or completes exceptionally with an {@link IotHubException} if the service rejected it,
+     * or with an {@link IOException} if it could not be delivered
+     */
+    public List<CompletableFuture<Void>> sendBatchAsync(List<CloudToDeviceMessage> messages)
+    {
+        if (messages == null || messages.isEmpty())
+        {
+            throw new IllegalArgumentException("messages cannot be null or empty");
+        }
+
+        if (messages.contains(null))
+        {
+            throw new IllegalArgumentException("messages cannot contain null entries");
+        }
+
+        if (this.amqpMessageSender != null && this.amqpMessageSender.usesLongLivedConnections())
+        {
+            try
+            {
+                return this.amqpMessageSender.sendBatch(messages);
+            }
+            catch (IOException e)
+            {
+                return failedFutures(messages.size(), e);
+            }
+        }
+
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++)
+        {
+            futures.add(new CompletableFuture<>());
+        }
+
+        executor.submit(() -> {
+            try
+            {
+                if (this.amqpMessageSender == null)
+                {
+                    throw new IOException("AMQP sender is not initialized");
+                }
+
+                List<CompletableFuture<Void>> results = this.amqpMessageSender.sendBatch(messages);
+                for (int i = 0; i < results.size(); i++)
+                {
+                    final CompletableFuture<Void> future = futures.get(i);
+                    results.get(i).whenComplete((result, throwable) ->
+                    {
+                        if (throwable != null)
+                        {
+                            future.completeExceptionally(throwable);
+                        }
+                        else
+                        {
+                            future.complete(null);
+                        }
+                    });
+                }
+            }
+            catch (Exception e)
+            {
+                for (CompletableFuture<Void> future : futures)
+                {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+
+        return futures;
+    }
+
+    private static List<CompletableFuture<Void>> failedFutures(int count, Exception e)
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            futures.add(future);
+        }
+
+        return futures;
+    }
+
     /**
      * Get FeedbackReceiver object.This API has been deprecated. Use new API without deviceId as an input parameter.
      * @deprecated As of release 1.1.15, replaced by {@link #getFeedbackReceiver()}
@@ -275,7 +398,7 @@ public class ServiceClient
         }
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_017: [The function shall create a FeedbackReceiver object and returns with it. This API is deprecated.]
-        FeedbackReceiver feedbackReceiver = new FeedbackReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol, deviceId);
+        FeedbackReceiver feedbackReceiver = new FeedbackReceiver(hostName, userName, this.sasTokenProvider.getSasToken(), iotHubServiceClientProtocol, deviceId);
         return feedbackReceiver;
     }
     
@@ -286,7 +409,7 @@ public class ServiceClient
      */
      public FeedbackReceiver getFeedbackReceiver()
      {
-        return new FeedbackReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol, options.getProxyOptions());
+        return new FeedbackReceiver(hostName, userName, this.sasTokenProvider.getSasToken(), iotHubServiceClientProtocol, options.getProxyOptions());
      }
 
     /**
@@ -296,7 +419,7 @@ public class ServiceClient
      */
     public FileUploadNotificationReceiver getFileUploadNotificationReceiver()
     {
-        return new FileUploadNotificationReceiver(hostName, userName, sasToken, iotHubServiceClientProtocol, options.getProxyOptions());
+        return new FileUploadNotificationReceiver(hostName, userName, this.sasTokenProvider.getSasToken(), iotHubServiceClientProtocol, options.getProxyOptions());
     }
     
 }
@@ -14,4 +14,13 @@ public class ServiceClientOptions
      */
     @Getter
     private ProxyOptions proxyOptions;
+
+    /**
+     * The number of long lived amqp connections that {@link ServiceClient#open()} opens for sending cloud to device
+     * messages. Concurrent send operations are spread across these connections and are not serialized, and each connection
+     * is re-established in the background if it is lost. By default, this value is 0, which means that every send
+     * operation opens its own amqp connection, sends the message and closes the connection again. Must be a non-negative value.
+     */
+    @Getter
+    private int sendConnectionPoolSize;
 }
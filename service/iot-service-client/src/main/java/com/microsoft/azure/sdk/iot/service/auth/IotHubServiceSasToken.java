@@ -120,6 +120,14 @@ public final class IotHubServiceSasToken
         return expiresOnDate / 1000;
     }
 
+    /**
+     * @return The time, as a UNIX timestamp in seconds, after which the token is no longer valid.
+     */
+    public long getExpiryTime()
+    {
+        return this.expiryTime;
+    }
+
     /**
      * Returns the string representation of the SAS token.
      *
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+
+/**
+ * Caches the signed SAS token of a connection string so that the service client that owns this provider doesn't have
+ * to compute a new signature for every request it makes. The cached token is renewed once less than
+ * {@link #RENEWAL_MARGIN_SECS} of its validity remains, so a token handed out by this provider is never about to expire
+ * while a request is in flight.
+ */
+public final class IotHubServiceSasTokenProvider
+{
+    /**
+     * The remaining validity, in seconds, below which the cached token is replaced by a newly signed one.
+     */
+    public static final long RENEWAL_MARGIN_SECS = 60 * 60;
+
+    private final IotHubConnectionString iotHubConnectionString;
+    private final Object renewalLock = new Object();
+    private volatile IotHubServiceSasToken cachedToken;
+
+    /**
+     * @param iotHubConnectionString Connection string object containing the connection parameters to sign tokens with
+     * @throws IllegalArgumentException if the provided connection string is null
+     */
+    public IotHubServiceSasTokenProvider(IotHubConnectionString iotHubConnectionString) throws IllegalArgumentException
+    {
+        if (iotHubConnectionString == null)
+        {
+            throw new IllegalArgumentException("iotHubConnectionString cannot be null");
+        }
+
+        this.iotHubConnectionString = iotHubConnectionString;
+    }
+
+    /**
+     * Get a valid SAS token for the connection string of this provider. The token is only signed if no token was
+     * signed yet, or if the cached token is about to expire.
+     *
+     * @return The string representation of the SAS token.
+     */
+    public String getSasToken()
+    {
+        IotHubServiceSasToken sasToken = this.cachedToken;
+        if (!isValid(sasToken))
+        {
+            // concurrent callers of an expired token wait for a single renewal rather than each signing a token
+            synchronized (this.renewalLock)
+            {
+                sasToken = this.cachedToken;
+                if (!isValid(sasToken))
+                {
+                    sasToken = new IotHubServiceSasToken(this.iotHubConnectionString);
+                    this.cachedToken = sasToken;
+                }
+            }
+        }
+
+        return sasToken.toString();
+    }
+
+    private static boolean isValid(IotHubServiceSasToken sasToken)
+    {
+        return sasToken != null && sasToken.getExpiryTime() - (System.currentTimeMillis() / 1000) > RENEWAL_MARGIN_SECS;
+    }
+}
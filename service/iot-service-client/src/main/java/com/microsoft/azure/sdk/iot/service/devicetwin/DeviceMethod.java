@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.service.devicetwin;
 import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
@@ -14,15 +15,30 @@ import java.io.IOException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DeviceMethod enables service client to directly invoke methods on various devices from service client.
+ * A single instance is thread safe and may be used to invoke methods on many devices concurrently. Close the instance
+ * once it is no longer needed to stop the threads that run asynchronous invocations.
  */
-public class DeviceMethod
+public class DeviceMethod implements AutoCloseable
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
+    private IotHubServiceSasTokenProvider sasTokenProvider = null;
+    private final AtomicInteger requestId = new AtomicInteger(0);
+    private volatile ExecutorService asyncInvocationExecutor;
+    private volatile boolean closed;
 
     private DeviceMethodClientOptions options;
 
@@ -40,6 +56,8 @@ public class DeviceMethod
                 DeviceMethodClientOptions.builder()
                     .httpConnectTimeout(DeviceMethodClientOptions.DEFAULT_HTTP_CONNECT_TIMEOUT_MS)
                     .httpReadTimeout(DeviceMethodClientOptions.DEFAULT_HTTP_READ_TIMEOUT_MS)
+                    .maxConcurrentAsyncInvocations(DeviceMethodClientOptions.DEFAULT_MAX_CONCURRENT_ASYNC_INVOCATIONS)
+                    .maxQueuedAsyncInvocations(DeviceMethodClientOptions.DEFAULT_MAX_QUEUED_ASYNC_INVOCATIONS)
                     .build());
     }
 
@@ -63,10 +81,21 @@ public class DeviceMethod
             throw new IllegalArgumentException("options may not be null");
         }
 
+        if (options.getMaxConcurrentAsyncInvocations() < 0)
+        {
+            throw new IllegalArgumentException("maxConcurrentAsyncInvocations may not be negative");
+        }
+
+        if (options.getMaxQueuedAsyncInvocations() < 0)
+        {
+            throw new IllegalArgumentException("maxQueuedAsyncInvocations may not be negative");
+        }
+
         DeviceMethod deviceMethod = new DeviceMethod();
         deviceMethod.options = options;
 
         deviceMethod.iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
+        deviceMethod.sasTokenProvider = new IotHubServiceSasTokenProvider(deviceMethod.iotHubConnectionString);
 
         return deviceMethod;
     }
@@ -83,7 +112,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    public synchronized MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_004: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -116,7 +145,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    public synchronized MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_28_001: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -142,6 +171,156 @@ public class DeviceMethod
         return invokeMethod(url, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
     }
 
+    /**
+     * Asynchronously invokes a method on the device. At most {@link DeviceMethodClientOptions#getMaxConcurrentAsyncInvocations()}
+     * asynchronous invocations are in flight at a time; up to {@link DeviceMethodClientOptions#getMaxQueuedAsyncInvocations()}
+     * others wait for one of them to complete before starting, and any more are rejected.
+     *
+     * @param deviceId is the device where the request is send to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from the device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from the connection in seconds.
+     * @param payload is the the method parameter.
+     * @return a future that completes with the status and payload resulted from the method invoke, or completes
+     * exceptionally with the exception that {@link #invoke(String, String, Long, Long, Object)} would have thrown.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+    {
+        return submitAsyncInvocation(() -> invoke(deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload));
+    }
+
+    /**
+     * Asynchronously invokes a method on the module. At most {@link DeviceMethodClientOptions#getMaxConcurrentAsyncInvocations()}
+     * asynchronous invocations are in flight at a time; up to {@link DeviceMethodClientOptions#getMaxQueuedAsyncInvocations()}
+     * others wait for one of them to complete before starting, and any more are rejected.
+     *
+     * @param deviceId is the device where the module is related to.
+     * @param moduleId is the module where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param responseTimeoutInSeconds is the maximum waiting time for a response from the device in seconds.
+     * @param connectTimeoutInSeconds is the maximum waiting time for a response from the connection in seconds.
+     * @param payload is the the method parameter.
+     * @return a future that completes with the status and payload resulted from the method invoke, or completes
+     * exceptionally with the exception that {@link #invoke(String, String, String, Long, Long, Object)} would have thrown.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload)
+    {
+        return submitAsyncInvocation(() -> invoke(deviceId, moduleId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload));
+    }
+
+    /**
+     * Stop the threads that run asynchronous invocations. Invocations that are in flight are interrupted, and the futures
+     * of invocations that had not started yet complete exceptionally with an {@link IllegalStateException}, as do the
+     * futures of any later asynchronous invocation. Synchronous invocations are not affected.
+     */
+    @Override
+    public void close()
+    {
+        List<Runnable> notStarted = Collections.emptyList();
+        synchronized (this)
+        {
+            this.closed = true;
+            if (this.asyncInvocationExecutor != null)
+            {
+                notStarted = this.asyncInvocationExecutor.shutdownNow();
+            }
+        }
+
+        for (Runnable invocation : notStarted)
+        {
+            ((AsyncInvocation) invocation).future.completeExceptionally(new IllegalStateException("DeviceMethod was closed before the invocation started"));
+        }
+    }
+
+    private CompletableFuture<MethodResult> submitAsyncInvocation(Callable<MethodResult> invocation)
+    {
+        AsyncInvocation asyncInvocation = new AsyncInvocation(invocation);
+        try
+        {
+            ExecutorService executor = getAsyncInvocationExecutor();
+            if (executor == null)
+            {
+                asyncInvocation.future.completeExceptionally(new IllegalStateException("DeviceMethod is closed"));
+            }
+            else
+            {
+                executor.execute(asyncInvocation);
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            // either the backlog is full, or close was called after the executor was looked up
+            asyncInvocation.future.completeExceptionally(this.closed ? new IllegalStateException("DeviceMethod is closed", e) : e);
+        }
+
+        return asyncInvocation.future;
+    }
+
+    private ExecutorService getAsyncInvocationExecutor()
+    {
+        if (this.asyncInvocationExecutor == null)
+        {
+            synchronized (this)
+            {
+                if (this.closed)
+                {
+                    return null;
+                }
+
+                if (this.asyncInvocationExecutor == null)
+                {
+                    int maxConcurrentInvocations = this.options.getMaxConcurrentAsyncInvocations() > 0
+                            ? this.options.getMaxConcurrentAsyncInvocations()
+                            : DeviceMethodClientOptions.DEFAULT_MAX_CONCURRENT_ASYNC_INVOCATIONS;
+                    int maxQueuedInvocations = this.options.getMaxQueuedAsyncInvocations() > 0
+                            ? this.options.getMaxQueuedAsyncInvocations()
+                            : DeviceMethodClientOptions.DEFAULT_MAX_QUEUED_ASYNC_INVOCATIONS;
+
+                    // The pool size is the in flight limit and the queue bounds the backlog; daemon threads so that an
+                    // idle pool never keeps the JVM alive
+                    this.asyncInvocationExecutor = new ThreadPoolExecutor(
+                            maxConcurrentInvocations,
+                            maxConcurrentInvocations,
+                            0L,
+                            TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(maxQueuedInvocations),
+                            runnable ->
+                            {
+                                Thread thread = new Thread(runnable, "azure-iot-sdk-DeviceMethod-invokeAsync");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                }
+            }
+        }
+
+        return this.asyncInvocationExecutor;
+    }
+
+    private static final class AsyncInvocation implements Runnable
+    {
+        private final Callable<MethodResult> invocation;
+        private final CompletableFuture<MethodResult> future = new CompletableFuture<>();
+
+        private AsyncInvocation(Callable<MethodResult> invocation)
+        {
+            this.invocation = invocation;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                this.future.complete(this.invocation.call());
+            }
+            catch (Exception e)
+            {
+                this.future.completeExceptionally(e);
+            }
+        }
+    }
+
     /**
      * Directly invokes a method on the device and return its result.
      *
@@ -154,7 +333,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed.
      * @throws IOException This exception is thrown if the IO operation failed.
      */
-    private synchronized MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    private MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         MethodParser methodParser = new MethodParser(methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
 
@@ -165,7 +344,7 @@ public class DeviceMethod
         }
 
         Proxy proxy = options.getProxyOptions() != null ? options.getProxyOptions().getProxy() : null;
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++), options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId.getAndIncrement()), options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
 
         MethodParser methodParserResponse = new MethodParser();
         methodParserResponse.fromJson(new String(response.getBody(), StandardCharsets.UTF_8));
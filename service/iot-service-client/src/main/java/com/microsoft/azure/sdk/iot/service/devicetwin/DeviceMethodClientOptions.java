@@ -12,6 +12,8 @@ public class DeviceMethodClientOptions
 {
     protected static final Integer DEFAULT_HTTP_READ_TIMEOUT_MS = 24000; // 24 seconds
     protected static final Integer DEFAULT_HTTP_CONNECT_TIMEOUT_MS = 24000; // 24 seconds
+    protected static final Integer DEFAULT_MAX_CONCURRENT_ASYNC_INVOCATIONS = 16;
+    protected static final Integer DEFAULT_MAX_QUEUED_ASYNC_INVOCATIONS = 1024;
 
     /**
      * The options that specify what proxy to tunnel through. If null, no proxy will be used.
@@ -36,4 +38,23 @@ public class DeviceMethodClientOptions
      */
     @Getter
     private int httpConnectTimeout;
+
+    /**
+     * The maximum number of direct methods started with {@link DeviceMethod#invokeAsync(String, String, Long, Long, Object)}
+     * (or its module equivalent) that may be in flight at the same time. Any further asynchronous invocations wait until
+     * one of the in flight invocations has completed. Synchronous invocations are not affected by this limit.
+     * By default, or if set to 0, this value is {@link #DEFAULT_MAX_CONCURRENT_ASYNC_INVOCATIONS}. Must be a non-negative value.
+     */
+    @Getter
+    private int maxConcurrentAsyncInvocations;
+
+    /**
+     * The maximum number of asynchronous invocations that may wait for one of the in flight invocations to complete.
+     * Once that many are waiting, further calls to {@link DeviceMethod#invokeAsync(String, String, Long, Long, Object)}
+     * return a future that has already completed exceptionally with a
+     * {@link java.util.concurrent.RejectedExecutionException}, rather than letting the backlog grow without bound.
+     * By default, or if set to 0, this value is {@link #DEFAULT_MAX_QUEUED_ASYNC_INVOCATIONS}. Must be a non-negative value.
+     */
+    @Getter
+    private int maxQueuedAsyncInvocations;
 }
@@ -5,6 +5,7 @@ package com.microsoft.azure.sdk.iot.service.devicetwin;
 
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
@@ -145,7 +146,9 @@ public class DeviceOperations
     }
 
     /**
-     * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
+     * Send a http request to the IoTHub using the Twin/Method standard, and return its response. A new SAS token is
+     * signed for every request, so clients that send many requests should use
+     * {@link #request(IotHubServiceSasTokenProvider, URL, HttpMethod, byte[], String, int, int, Proxy)} instead.
      *
      * @param iotHubConnectionString is the connection string for the IoTHub.
      * @param url is the Twin URL for the device ID.
@@ -175,6 +178,41 @@ public class DeviceOperations
             throw new IllegalArgumentException("Http requests must provide a non-null connection string");
         }
 
+        return request(new IotHubServiceSasTokenProvider(iotHubConnectionString), url, method, payload, requestId, connectTimeout, readTimeout, proxy);
+    }
+
+    /**
+     * Send a http request to the IoTHub using the Twin/Method standard, and return its response.
+     *
+     * @param sasTokenProvider provides the SAS token to authorize the request with. A client holds on to its provider,
+     * so that the token is only signed again when it is about to expire.
+     * @param url is the Twin URL for the device ID.
+     * @param method is the HTTP method (GET, POST, DELETE, PATCH, PUT).
+     * @param payload is the array of bytes that contains the payload.
+     * @param requestId is an unique number that identify the request.
+     * @param connectTimeout the http connect timeout to use, in milliseconds.
+     * @param readTimeout the http read timeout to use, in milliseconds.
+     * @param proxy the proxy to use, or null if no proxy will be used.
+     * @return the result of the request.
+     * @throws IotHubException This exception is thrown if the response verification failed.
+     * @throws IOException This exception is thrown if the IO operation failed.
+     */
+    public static HttpResponse request(
+            IotHubServiceSasTokenProvider sasTokenProvider,
+            URL url,
+            HttpMethod method,
+            byte[] payload,
+            String requestId,
+            int connectTimeout,
+            int readTimeout,
+            Proxy proxy)
+            throws IOException, IotHubException, IllegalArgumentException
+    {
+        if(sasTokenProvider == null)
+        {
+            throw new IllegalArgumentException("Http requests must provide a non-null SAS token provider");
+        }
+
         if(url == null)
         {
             throw new IllegalArgumentException("Http requests must provide a non-null URL");
@@ -185,7 +223,7 @@ public class DeviceOperations
             throw new IllegalArgumentException("Http requests must provide a non-null http method");
         }
 
-        String sasTokenString = new IotHubServiceSasToken(iotHubConnectionString).toString();
+        String sasTokenString = sasTokenProvider.getSasToken();
         if((sasTokenString == null) || sasTokenString.isEmpty())
         {
             throw new IOException("Illegal sasToken null or empty");
@@ -8,6 +8,7 @@ package com.microsoft.azure.sdk.iot.service.devicetwin;
 import com.microsoft.azure.sdk.iot.deps.twin.*;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
@@ -22,6 +23,7 @@ import java.util.*;
 public class DeviceTwin
 {
     private IotHubConnectionString iotHubConnectionString = null;
+    private IotHubServiceSasTokenProvider sasTokenProvider = null;
     private Integer requestId = 0;
     private final int DEFAULT_PAGE_SIZE = 100;
     private DeviceTwinClientOptions options;
@@ -65,6 +67,7 @@ public class DeviceTwin
 
         DeviceTwin deviceTwin = new DeviceTwin();
         deviceTwin.iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
+        deviceTwin.sasTokenProvider = new IotHubServiceSasTokenProvider(deviceTwin.iotHubConnectionString);
         deviceTwin.options = options;
         return deviceTwin;
     }
@@ -122,7 +125,7 @@ public class DeviceTwin
          **Codes_SRS_DEVICETWIN_25_010: [** The function shall verify the response status and throw proper Exception **]**
          */
         Proxy proxy = options.getProxyOptions() != null ? options.getProxyOptions().getProxy() : null;
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[0], String.valueOf(requestId++), options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.GET, new byte[0], String.valueOf(requestId++), options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
         String twin = new String(response.getBody(), StandardCharsets.UTF_8);
 
         /*
@@ -216,7 +219,7 @@ public class DeviceTwin
         **Codes_SRS_DEVICETWIN_25_020: [** The function shall verify the response status and throw proper Exception **]**
          */
         Proxy proxy = options.getProxyOptions() != null ? options.getProxyOptions().getProxy() : null;
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++),options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++),options.getHttpConnectTimeout(), options.getHttpReadTimeout(), proxy);
     }
 
     /**
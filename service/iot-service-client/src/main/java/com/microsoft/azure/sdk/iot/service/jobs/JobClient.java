@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -25,13 +26,16 @@ import java.util.*;
  */
 public class JobClient
 {
-    private final static long USE_DEFAULT_TIMEOUT = 0L;
+    // No connect timeout, and the read timeout that DeviceOperations applies by default
+    private final static int HTTP_CONNECT_TIMEOUT_MS = 0;
+    private final static int HTTP_READ_TIMEOUT_MS = 24000;
     private final static long MAX_TIMEOUT = Integer.MAX_VALUE - 24000;
     private final static Integer DEFAULT_PAGE_SIZE = 100;
 
     private final static byte[] EMPTY_JSON = "{}".getBytes();
 
     private IotHubConnectionString iotHubConnectionString = null;
+    private IotHubServiceSasTokenProvider sasTokenProvider = null;
 
     /**
      * Static constructor to create instance from connection string
@@ -54,6 +58,7 @@ public class JobClient
 
         /* Codes_SRS_JOBCLIENT_21_002: [The constructor shall create an IotHubConnectionStringBuilder object from the given connection string.] */
         jobClient.iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
+        jobClient.sasTokenProvider = new IotHubServiceSasTokenProvider(jobClient.iotHubConnectionString);
 
         return jobClient;
     }
@@ -122,7 +127,7 @@ public class JobClient
         /* Codes_SRS_JOBCLIENT_21_010: [The scheduleUpdateTwin shall send a PUT request to the iothub using the created uri and json.] */
         /* Codes_SRS_JOBCLIENT_21_011: [If the scheduleUpdateTwin failed to send a PUT request, it shall throw IOException.] */
         /* Codes_SRS_JOBCLIENT_21_012: [If the scheduleUpdateTwin failed to verify the iothub response, it shall throw IotHubException.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PUT, json.getBytes(StandardCharsets.UTF_8), null, USE_DEFAULT_TIMEOUT);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.PUT, json.getBytes(StandardCharsets.UTF_8), null, HTTP_CONNECT_TIMEOUT_MS, HTTP_READ_TIMEOUT_MS, null);
 
         /* Codes_SRS_JOBCLIENT_21_013: [The scheduleUpdateTwin shall parse the iothub response and return it as JobResult.] */
         return new JobResult(response.getBody());
@@ -196,7 +201,7 @@ public class JobClient
         /* Codes_SRS_JOBCLIENT_21_020: [The scheduleDeviceMethod shall send a PUT request to the iothub using the created url and json.] */
         /* Codes_SRS_JOBCLIENT_21_021: [If the scheduleDeviceMethod failed to send a PUT request, it shall throw IOException.] */
         /* Codes_SRS_JOBCLIENT_21_022: [If the scheduleDeviceMethod failed to verify the iothub response, it shall throw IotHubException.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.PUT, json.getBytes(StandardCharsets.UTF_8), null, USE_DEFAULT_TIMEOUT);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.PUT, json.getBytes(StandardCharsets.UTF_8), null, HTTP_CONNECT_TIMEOUT_MS, HTTP_READ_TIMEOUT_MS, null);
 
         /* Codes_SRS_JOBCLIENT_21_023: [The scheduleDeviceMethod shall parse the iothub response and return it as JobResult.] */
         return new JobResult(response.getBody());
@@ -235,7 +240,7 @@ public class JobClient
         /* Codes_SRS_JOBCLIENT_21_026: [The getJob shall send a GET request to the iothub using the created url.] */
         /* Codes_SRS_JOBCLIENT_21_027: [If the getJob failed to send a GET request, it shall throw IOException.] */
         /* Codes_SRS_JOBCLIENT_21_028: [If the getJob failed to verify the iothub response, it shall throw IotHubException.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.GET, new byte[]{}, null, USE_DEFAULT_TIMEOUT);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.GET, new byte[]{}, null, HTTP_CONNECT_TIMEOUT_MS, HTTP_READ_TIMEOUT_MS, null);
 
         /* Codes_SRS_JOBCLIENT_21_029: [The getJob shall parse the iothub response and return it as JobResult.] */
         return new JobResult(response.getBody());
@@ -273,7 +278,7 @@ public class JobClient
         /* Codes_SRS_JOBCLIENT_21_032: [The cancelJob shall send a POST request to the iothub using the created url.] */
         /* Codes_SRS_JOBCLIENT_21_033: [If the cancelJob failed to send a POST request, it shall throw IOException.] */
         /* Codes_SRS_JOBCLIENT_21_034: [If the cancelJob failed to verify the iothub response, it shall throw IotHubException.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, EMPTY_JSON, null, USE_DEFAULT_TIMEOUT);
+        HttpResponse response = DeviceOperations.request(this.sasTokenProvider, url, HttpMethod.POST, EMPTY_JSON, null, HTTP_CONNECT_TIMEOUT_MS, HTTP_READ_TIMEOUT_MS, null);
 
         /* Codes_SRS_JOBCLIENT_21_035: [The cancelJob shall parse the iothub response and return it as JobResult.] */
         return new JobResult(response.getBody());
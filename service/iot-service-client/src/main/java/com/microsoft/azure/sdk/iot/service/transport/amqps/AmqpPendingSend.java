@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A cloud to device message that has been queued onto a long lived sender link, along with the future that will be
+ * completed once the service has acknowledged (or rejected) it.
+ */
+public class AmqpPendingSend
+{
+    @Getter
+    private final org.apache.qpid.proton.message.Message protonMessage;
+
+    @Getter
+    private final CompletableFuture<Void> future;
+
+    /**
+     * Constructor.
+     * @param protonMessage The proton message to send
+     */
+    public AmqpPendingSend(org.apache.qpid.proton.message.Message protonMessage)
+    {
+        if (protonMessage == null)
+        {
+            throw new IllegalArgumentException("protonMessage cannot be null");
+        }
+
+        this.protonMessage = protonMessage;
+        this.future = new CompletableFuture<>();
+    }
+}
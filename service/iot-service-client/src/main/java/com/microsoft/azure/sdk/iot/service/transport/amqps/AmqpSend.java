@@ -5,30 +5,54 @@
 
 package com.microsoft.azure.sdk.iot.service.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.service.CloudToDeviceMessage;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Message;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
 import com.microsoft.azure.sdk.iot.service.Tools;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
  * overriding the events what are needed to handle
  * high level open, close and send methods.
  * Initialize and use AmqpsSendHandler class for low level ampqs operations.
+ *
+ * By default, each send opens its own amqp connection, sends the message and closes the connection again. If this
+ * object is constructed with a send connection pool size greater than 0, {@link #open()} opens that many long lived
+ * {@link AmqpSendConnection} instances instead, and sends from any number of threads are spread across them.
  */
 @Slf4j
 public class AmqpSend
 {
+    /**
+     * The maximum time, in milliseconds, that {@link #sendBatch(List)} waits for the messages of a batch to be
+     * acknowledged when it opens a connection of its own for that batch.
+     */
+    public static final long BATCH_SEND_TIMEOUT_MILLIS = AmqpSendConnection.OPEN_TIMEOUT_MILLIS;
+
     protected final String hostName;
     protected final String userName;
     protected final String sasToken;
+    private final IotHubServiceSasTokenProvider sasTokenProvider;
     protected AmqpSendHandler amqpSendHandler;
     protected IotHubServiceClientProtocol iotHubServiceClientProtocol;
     private ProxyOptions proxyOptions;
+    private final int sendConnectionPoolSize;
+    private volatile AmqpSendConnection[] sendConnections;
+    private final AtomicInteger nextSendConnectionIndex = new AtomicInteger(0);
+    private long batchSendTimeoutMillis = BATCH_SEND_TIMEOUT_MILLIS;
 
     /**
      * Constructor to set up connection parameters
@@ -51,6 +75,37 @@ public class AmqpSend
      * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
      */
     public AmqpSend(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions)
+    {
+        this(hostName, userName, sasToken, null, iotHubServiceClientProtocol, proxyOptions, 0);
+
+        if (Tools.isNullOrEmpty(sasToken))
+        {
+            throw new IllegalArgumentException("sasToken can not be null or empty");
+        }
+    }
+
+    /**
+     * Constructor to set up connection parameters. Unlike a SAS token string, which eventually expires, the provider
+     * is asked for a token whenever a connection is opened or re-established.
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasTokenProvider The provider of the SAS token to authenticate each connection with
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
+     * @param sendConnectionPoolSize the number of long lived amqp connections to open and send messages over. If 0, a
+     * new amqp connection is opened and closed for every message sent instead.
+     */
+    public AmqpSend(String hostName, String userName, IotHubServiceSasTokenProvider sasTokenProvider, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, int sendConnectionPoolSize)
+    {
+        this(hostName, userName, null, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, sendConnectionPoolSize);
+
+        if (sasTokenProvider == null)
+        {
+            throw new IllegalArgumentException("sasTokenProvider cannot be null");
+        }
+    }
+
+    private AmqpSend(String hostName, String userName, String sasToken, IotHubServiceSasTokenProvider sasTokenProvider, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, int sendConnectionPoolSize)
     {
         if (Tools.isNullOrEmpty(hostName))
         {
@@ -60,39 +115,83 @@ public class AmqpSend
         {
             throw new IllegalArgumentException("userName can not be null or empty");
         }
-        if (Tools.isNullOrEmpty(sasToken))
-        {
-            throw new IllegalArgumentException("sasToken can not be null or empty");
-        }
 
         if (iotHubServiceClientProtocol == null)
         {
             throw new IllegalArgumentException("iotHubServiceClientProtocol cannot be null");
         }
 
+        if (sendConnectionPoolSize < 0)
+        {
+            throw new IllegalArgumentException("sendConnectionPoolSize cannot be negative");
+        }
+
         this.hostName = hostName;
         this.userName = userName;
         this.sasToken = sasToken;
+        this.sasTokenProvider = sasTokenProvider;
         this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
         this.proxyOptions = proxyOptions;
+        this.sendConnectionPoolSize = sendConnectionPoolSize;
     }
 
     /**
-     * Create AmqpsSendHandler and store it in a member variable
+     * Create AmqpsSendHandler and store it in a member variable, or open the long lived send connections if this
+     * object was configured to use them
+     * @throws IOException if any of the long lived send connections could not be opened
      */
-    public void open()
+    public void open() throws IOException
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_004: [The function shall create an AmqpsSendHandler object to handle reactor events]
-        amqpSendHandler = new AmqpSendHandler(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this.proxyOptions);
+        amqpSendHandler = new AmqpSendHandler(this.hostName, this.userName, getSasToken(), this.iotHubServiceClientProtocol, this.proxyOptions);
+
+        if (this.sendConnectionPoolSize > 0)
+        {
+            synchronized (this)
+            {
+                if (this.sendConnections != null)
+                {
+                    return;
+                }
+
+                AmqpSendConnection[] connections = new AmqpSendConnection[this.sendConnectionPoolSize];
+                try
+                {
+                    for (int i = 0; i < connections.length; i++)
+                    {
+                        connections[i] = new AmqpSendConnection(this.hostName, this.userName, this.sasTokenProvider, this.iotHubServiceClientProtocol, this.proxyOptions, String.valueOf(i));
+                        connections[i].open();
+                    }
+                }
+                catch (IOException e)
+                {
+                    closeSendConnections(connections);
+                    amqpSendHandler = null;
+                    throw e;
+                }
+
+                log.info("Opened {} long lived amqp connection(s) for sending cloud to device messages", connections.length);
+                this.sendConnections = connections;
+            }
+        }
     }
 
     /**
-     * Invalidate AmqpsSendHandler member variable
+     * Invalidate AmqpsSendHandler member variable and close the long lived send connections, if any are open
      */
     public void close()
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_005: [The function shall invalidate the member AmqpsSendHandler object]
         amqpSendHandler = null;
+
+        synchronized (this)
+        {
+            if (this.sendConnections != null)
+            {
+                closeSendConnections(this.sendConnections);
+                this.sendConnections = null;
+            }
+        }
     }
 
     /**
@@ -107,6 +206,34 @@ public class AmqpSend
      */
     public void send(String deviceId, String moduleId, Message message) throws IOException, IotHubException
     {
+        AmqpSendConnection[] connections = this.sendConnections;
+        if (connections != null)
+        {
+            try
+            {
+                nextSendConnection(connections).sendAsync(deviceId, moduleId, message).get();
+                return;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the cloud to device message to be acknowledged", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IotHubException)
+                {
+                    throw (IotHubException) e.getCause();
+                }
+                else if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+
+                throw new IOException(e.getCause());
+            }
+        }
+
         synchronized(this)
         {
             if  (amqpSendHandler != null)
@@ -138,4 +265,148 @@ public class AmqpSend
             }
         }
     }
+
+    /**
+     * Send a message over one of the long lived send connections without blocking the calling thread. Only available
+     * if this object was constructed with a send connection pool size greater than 0.
+     * @param deviceId The device name string
+     * @param moduleId The module name string. May be null if the message is for the device itself
+     * @param message The message to be sent
+     * @return a future that completes once the service acknowledged the message, or completes exceptionally with an
+     * {@link IotHubException} if the service rejected it or an {@link IOException} if it could not be delivered
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
+    {
+        AmqpSendConnection[] connections = this.sendConnections;
+        if (connections == null)
+        {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("send connections are not open. call open before send"));
+            return future;
+        }
+
+        return nextSendConnection(connections).sendAsync(deviceId, moduleId, message);
+    }
+
+    /**
+     * Send a batch of messages, pipelined over a single sender link. The messages are sent back to back as link credit
+     * allows, rather than waiting for each acknowledgement before sending the next message.
+     *
+     * If this object uses long lived connections, the messages are queued onto one of them and this function returns
+     * without blocking. Otherwise, this function opens a connection for the batch, blocks until every message has been
+     * acknowledged or rejected, and then closes the connection again. That connection is not re-established if it is
+     * lost, and messages that are still unacknowledged after {@link #BATCH_SEND_TIMEOUT_MILLIS} are completed
+     * exceptionally with an {@link IOException}.
+     *
+     * @param messages The messages to send, each with the device or module that it targets
+     * @return one future per message, in the same order as the provided messages. Each completes once the service
+     * acknowledged that message, or completes exceptionally with an {@link IotHubException} if the service rejected
+     * it or an {@link IOException} if it could not be delivered
+     * @throws IOException if the connection for the batch could not be opened, or if this object has not been opened
+     */
+    public List<CompletableFuture<Void>> sendBatch(List<CloudToDeviceMessage> messages) throws IOException
+    {
+        if (messages == null || messages.isEmpty())
+        {
+            throw new IllegalArgumentException("messages cannot be null or empty");
+        }
+
+        if (messages.contains(null))
+        {
+            throw new IllegalArgumentException("messages cannot contain null entries");
+        }
+
+        if (amqpSendHandler == null)
+        {
+            throw new IOException("send handler is not initialized. call open before send");
+        }
+
+        AmqpSendConnection[] connections = this.sendConnections;
+        if (connections != null)
+        {
+            // Every message of the batch goes to the same link so that they are pipelined rather than spread out
+            return queueBatch(nextSendConnection(connections), messages);
+        }
+
+        AmqpSendConnection batchConnection = this.sasTokenProvider != null
+                ? new AmqpSendConnection(this.hostName, this.userName, this.sasTokenProvider, this.iotHubServiceClientProtocol, this.proxyOptions, "Batch", false)
+                : new AmqpSendConnection(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this.proxyOptions, "Batch");
+        batchConnection.open();
+        try
+        {
+            log.info("Sending batch of {} cloud to device messages", messages.size());
+            List<CompletableFuture<Void>> futures = queueBatch(batchConnection, messages);
+
+            try
+            {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(this.batchSendTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (ExecutionException e)
+            {
+                // Each future holds the outcome of its own message, so a rejected message doesn't fail the whole batch
+                log.debug("At least one message of the batch was not delivered", e);
+            }
+            catch (TimeoutException e)
+            {
+                log.debug("Timed out waiting for the messages of the batch to be acknowledged", e);
+                IOException timeoutException = new IOException("Timed out waiting for the cloud to device message to be acknowledged", e);
+                for (CompletableFuture<Void> future : futures)
+                {
+                    future.completeExceptionally(timeoutException);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            return futures;
+        }
+        finally
+        {
+            batchConnection.close();
+        }
+    }
+
+    /**
+     * @return true if this object sends messages over long lived connections rather than one connection per message
+     */
+    public boolean usesLongLivedConnections()
+    {
+        return this.sendConnectionPoolSize > 0;
+    }
+
+    private String getSasToken()
+    {
+        return this.sasTokenProvider != null ? this.sasTokenProvider.getSasToken() : this.sasToken;
+    }
+
+    private AmqpSendConnection nextSendConnection(AmqpSendConnection[] connections)
+    {
+        // round robin, masking off the sign bit so that the index stays valid once the counter overflows
+        int index = (this.nextSendConnectionIndex.getAndIncrement() & Integer.MAX_VALUE) % connections.length;
+        return connections[index];
+    }
+
+    private static List<CompletableFuture<Void>> queueBatch(AmqpSendConnection connection, List<CloudToDeviceMessage> messages)
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (CloudToDeviceMessage message : messages)
+        {
+            futures.add(connection.sendAsync(message.getDeviceId(), message.getModuleId(), message.getMessage()));
+        }
+
+        return futures;
+    }
+
+    private static void closeSendConnections(AmqpSendConnection[] connections)
+    {
+        for (AmqpSendConnection connection : connections)
+        {
+            if (connection != null)
+            {
+                connection.close();
+            }
+        }
+    }
 }
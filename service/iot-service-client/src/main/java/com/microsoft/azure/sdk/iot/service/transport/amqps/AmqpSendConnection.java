@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long lived AMQP connection with a single cloud to device sender link. Messages from any number of threads are
+ * queued and multiplexed onto the link by an {@link AmqpSendConnectionHandler} running on a dedicated reactor thread.
+ * If the connection is lost after it was opened, it is re-established in the background. Messages that were queued
+ * but not yet sent survive the reconnection, while messages that were sent but not yet acknowledged are completed
+ * exceptionally since it is unknown whether the service received them. A connection constructed without reconnection
+ * instead fails every queued and future message once its connection is lost.
+ */
+@Slf4j
+public class AmqpSendConnection
+{
+    public static final long OPEN_TIMEOUT_MILLIS = 60 * 1000;
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 500;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30 * 1000;
+
+    private final String hostName;
+    private final String userName;
+    private final String sasToken;
+    private final IotHubServiceSasTokenProvider sasTokenProvider;
+    private final IotHubServiceClientProtocol iotHubServiceClientProtocol;
+    private final ProxyOptions proxyOptions;
+    private final String threadNamePostfix;
+    private final boolean reconnect;
+
+    private final Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+
+    private final Object stateLock = new Object();
+    private ExecutorService reactorExecutor;
+    private volatile AmqpSendConnectionHandler handler;
+    private volatile boolean isOpen;
+    private volatile boolean isConnectionLost;
+
+    /**
+     * Constructor to set up connection parameters
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasTokenProvider The provider of the SAS token to authenticate with, asked for a token every time the
+     * connection is opened or re-established
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
+     * @param threadNamePostfix the postfix of the name of the reactor thread of this connection
+     */
+    public AmqpSendConnection(String hostName, String userName, IotHubServiceSasTokenProvider sasTokenProvider, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, String threadNamePostfix)
+    {
+        this(hostName, userName, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, threadNamePostfix, true);
+    }
+
+    /**
+     * Constructor to set up connection parameters
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasTokenProvider The provider of the SAS token to authenticate with, asked for a token every time the
+     * connection is opened or re-established
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
+     * @param threadNamePostfix the postfix of the name of the reactor thread of this connection
+     * @param reconnect if false, the connection is not re-established once lost, and every message that is queued or
+     * sent afterwards is completed exceptionally instead
+     */
+    public AmqpSendConnection(String hostName, String userName, IotHubServiceSasTokenProvider sasTokenProvider, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, String threadNamePostfix, boolean reconnect)
+    {
+        this(hostName, userName, null, sasTokenProvider, iotHubServiceClientProtocol, proxyOptions, threadNamePostfix, reconnect);
+    }
+
+    /**
+     * Constructor to set up connection parameters. Since the SAS token eventually expires, a connection constructed
+     * with a SAS token string is not re-established once lost.
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
+     * @param threadNamePostfix the postfix of the name of the reactor thread of this connection
+     */
+    public AmqpSendConnection(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, String threadNamePostfix)
+    {
+        this(hostName, userName, sasToken, null, iotHubServiceClientProtocol, proxyOptions, threadNamePostfix, false);
+    }
+
+    private AmqpSendConnection(String hostName, String userName, String sasToken, IotHubServiceSasTokenProvider sasTokenProvider, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, String threadNamePostfix, boolean reconnect)
+    {
+        this.hostName = hostName;
+        this.userName = userName;
+        this.sasToken = sasToken;
+        this.sasTokenProvider = sasTokenProvider;
+        this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
+        this.proxyOptions = proxyOptions;
+        this.threadNamePostfix = threadNamePostfix;
+        this.reconnect = reconnect;
+    }
+
+    /**
+     * Open the connection, session and sender link and block until the service has opened them too
+     * @throws IOException if the connection could not be opened
+     */
+    public void open() throws IOException
+    {
+        final AmqpSendConnectionHandler firstHandler;
+        synchronized (this.stateLock)
+        {
+            if (this.isOpen)
+            {
+                return;
+            }
+
+            this.isOpen = true;
+            firstHandler = createHandler();
+            this.handler = firstHandler;
+            this.reactorExecutor = Executors.newSingleThreadExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            this.reactorExecutor.submit(() -> runReactors(firstHandler));
+        }
+
+        try
+        {
+            firstHandler.awaitOpen(OPEN_TIMEOUT_MILLIS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IOException("Interrupted while opening the amqp cloud to device message sender connection", e);
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+
+        log.debug("Long lived amqp cloud to device message sender connection opened");
+    }
+
+    /**
+     * Close the connection. Every message that is still queued or waiting for acknowledgement is completed exceptionally.
+     */
+    public void close()
+    {
+        AmqpSendConnectionHandler handler;
+        ExecutorService reactorExecutor;
+        synchronized (this.stateLock)
+        {
+            if (!this.isOpen)
+            {
+                return;
+            }
+
+            this.isOpen = false;
+            handler = this.handler;
+            reactorExecutor = this.reactorExecutor;
+
+            // wake the reactor thread up if it is waiting to reconnect
+            this.stateLock.notifyAll();
+        }
+
+        handler.closeAsync();
+        reactorExecutor.shutdown();
+        try
+        {
+            if (!reactorExecutor.awaitTermination(ReactorRunner.CLOSE_REACTOR_GRACEFULLY_TIMEOUT * 2, TimeUnit.MILLISECONDS))
+            {
+                log.debug("Long lived amqp cloud to device message sender connection failed to close gracefully in time");
+                reactorExecutor.shutdownNow();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            reactorExecutor.shutdownNow();
+        }
+
+        failQueuedSends(new IOException("The amqp cloud to device message sender connection was closed before the message could be sent"));
+        log.debug("Long lived amqp cloud to device message sender connection closed");
+    }
+
+    /**
+     * Queue a message to be sent over this connection
+     * @param deviceId The device name string
+     * @param moduleId The module name string, or null if the message is for the device itself
+     * @param message The message to be sent
+     * @return a future that completes once the service acknowledged the message, or completes exceptionally with an
+     * {@link com.microsoft.azure.sdk.iot.service.exceptions.IotHubException} if the service rejected it, or with an
+     * {@link IOException} if the connection failed before the message was acknowledged
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
+    {
+        AmqpPendingSend pendingSend = new AmqpPendingSend(AmqpSendHandler.convertToProtonMessage(AmqpSendHandler.getTargetPath(deviceId, moduleId), message));
+
+        if (!this.isOpen)
+        {
+            pendingSend.getFuture().completeExceptionally(new IOException("send handler is not initialized. call open before send"));
+            return pendingSend.getFuture();
+        }
+
+        if (this.isConnectionLost)
+        {
+            pendingSend.getFuture().completeExceptionally(new IOException("The amqp cloud to device message sender connection was lost and is not re-established"));
+            return pendingSend.getFuture();
+        }
+
+        this.pendingSends.add(pendingSend);
+
+        AmqpSendConnectionHandler handler = this.handler;
+        if (handler != null)
+        {
+            handler.wakeup();
+        }
+
+        // close() may have drained the queue before this message was added to it
+        if (!this.isOpen)
+        {
+            failQueuedSends(new IOException("The amqp cloud to device message sender connection was closed before the message could be sent"));
+        }
+        else if (this.isConnectionLost)
+        {
+            failQueuedSends(new IOException("The amqp cloud to device message sender connection was lost and is not re-established"));
+        }
+
+        return pendingSend.getFuture();
+    }
+
+    /**
+     * @return the number of messages that are queued but have not been sent over the link yet
+     */
+    public int getQueuedMessageCount()
+    {
+        return this.pendingSends.size();
+    }
+
+    private AmqpSendConnectionHandler createHandler()
+    {
+        // Each connection is authenticated with a token of its own, since the one a lost connection was opened with may
+        // have expired by the time it is re-established
+        String sasToken = this.sasTokenProvider != null ? this.sasTokenProvider.getSasToken() : this.sasToken;
+        return new AmqpSendConnectionHandler(this.hostName, this.userName, sasToken, this.iotHubServiceClientProtocol, this.proxyOptions, this.pendingSends);
+    }
+
+    private void runReactors(AmqpSendConnectionHandler firstHandler)
+    {
+        AmqpSendConnectionHandler currentHandler = firstHandler;
+        long reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+
+        while (true)
+        {
+            try
+            {
+                new ReactorRunner(currentHandler, "AmqpSendConnection-" + this.threadNamePostfix).run();
+            }
+            catch (IOException e)
+            {
+                log.debug("Failed to create the reactor for the long lived amqp cloud to device message sender connection", e);
+            }
+
+            currentHandler.onReactorStopped(new IOException("The amqp connection was lost before the service acknowledged the message"));
+
+            if (!this.reconnect)
+            {
+                log.debug("Amqp cloud to device message sender connection was lost and is not re-established");
+                this.isConnectionLost = true;
+                failQueuedSends(new IOException("The amqp cloud to device message sender connection was lost before the message could be sent"));
+                return;
+            }
+
+            if (currentHandler.wasLinkOpened())
+            {
+                reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+            }
+            else
+            {
+                try
+                {
+                    currentHandler.verifyConnectionWasOpened();
+                }
+                catch (IOException e)
+                {
+                    log.debug("Long lived amqp cloud to device message sender connection could not be established", e);
+
+                    // Nothing can be sent while the service can't be reached, so don't leave the callers of the queued messages hanging
+                    failQueuedSends(e);
+                }
+
+                reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+            }
+
+            synchronized (this.stateLock)
+            {
+                if (!this.isOpen)
+                {
+                    return;
+                }
+
+                log.debug("Long lived amqp cloud to device message sender connection was lost, reconnecting in {} milliseconds", reconnectDelayMillis);
+
+                try
+                {
+                    this.stateLock.wait(reconnectDelayMillis);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+
+                if (!this.isOpen)
+                {
+                    return;
+                }
+
+                currentHandler = createHandler();
+                this.handler = currentHandler;
+            }
+        }
+    }
+
+    private void failQueuedSends(Exception exception)
+    {
+        AmqpPendingSend pendingSend;
+        while ((pendingSend = this.pendingSends.poll()) != null)
+        {
+            pendingSend.getFuture().completeExceptionally(exception);
+        }
+    }
+}
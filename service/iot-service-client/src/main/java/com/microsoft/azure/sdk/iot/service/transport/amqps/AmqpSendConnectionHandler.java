@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.Target;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.engine.*;
+import org.apache.qpid.proton.reactor.Handshaker;
+import org.apache.qpid.proton.reactor.Reactor;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance of the QPID-Proton-J BaseHandler class that keeps a single cloud to device sender link open and
+ * sends every message queued by {@link AmqpSendConnection} over it, as long as the service has granted link credit.
+ * Unlike {@link AmqpSendHandler}, the link is not closed after the first acknowledgement arrives.
+ *
+ * Only the reactor thread may touch the proton objects, so other threads hand messages over through the shared
+ * pending send queue and then call {@link #wakeup()} so that the reactor flushes that queue immediately.
+ */
+@Slf4j
+public class AmqpSendConnectionHandler extends AmqpConnectionHandler
+{
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+
+    private final Queue<AmqpPendingSend> pendingSends;
+    private final Set<Delivery> inFlightDeliveries = new HashSet<>();
+    private final CountDownLatch openLatch = new CountDownLatch(1);
+
+    private volatile Reactor reactor;
+    private volatile boolean closeRequested;
+    private volatile long closeRequestedTimeMillis;
+
+    private Sender sender;
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
+    private int nextTag = 0;
+
+    /**
+     * Constructor to set up connection parameters and initialize handshaker for transport
+     *
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param proxyOptions the proxy options to tunnel through, if a proxy should be used.
+     * @param pendingSends the queue of messages waiting to be sent. Shared with the owning {@link AmqpSendConnection}
+     */
+    public AmqpSendConnectionHandler(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol, ProxyOptions proxyOptions, Queue<AmqpPendingSend> pendingSends)
+    {
+        super(hostName, userName, sasToken, iotHubServiceClientProtocol, proxyOptions);
+
+        if (pendingSends == null)
+        {
+            throw new IllegalArgumentException("pendingSends cannot be null");
+        }
+
+        this.pendingSends = pendingSends;
+        add(new Handshaker());
+    }
+
+    /**
+     * Wake the reactor up so that any newly queued messages are sent without waiting for the next reactor timeout.
+     * Safe to call from any thread.
+     */
+    public void wakeup()
+    {
+        Reactor reactor = this.reactor;
+        if (reactor != null)
+        {
+            reactor.wakeup();
+        }
+    }
+
+    /**
+     * Ask the reactor thread to close the sender link, which in turn closes the session, the connection and the reactor.
+     * Safe to call from any thread.
+     */
+    public void closeAsync()
+    {
+        this.closeRequestedTimeMillis = System.currentTimeMillis();
+        this.closeRequested = true;
+        wakeup();
+    }
+
+    /**
+     * Block until the sender link has been opened by the service, or until the reactor stopped before it could be opened.
+     * @param timeoutMillis the maximum time to wait
+     * @throws IOException if the link was not opened within the timeout, or if the connection failed to open
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitOpen(long timeoutMillis) throws IOException, InterruptedException
+    {
+        this.openLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        super.verifyConnectionWasOpened();
+    }
+
+    /**
+     * Must be called once the reactor that ran this handler has stopped. Releases any thread waiting in
+     * {@link #awaitOpen(long)} and completes every message that was sent but not yet acknowledged with the provided exception.
+     * @param inFlightException the exception to complete the in flight messages with
+     */
+    public void onReactorStopped(Exception inFlightException)
+    {
+        this.openLatch.countDown();
+
+        for (Delivery delivery : this.inFlightDeliveries)
+        {
+            ((AmqpPendingSend) delivery.getContext()).getFuture().completeExceptionally(inFlightException);
+        }
+
+        this.inFlightDeliveries.clear();
+    }
+
+    /**
+     * @return true if the service opened the sender link at some point during the lifetime of this handler
+     */
+    public boolean wasLinkOpened()
+    {
+        return this.linkOpenedRemotely;
+    }
+
+    @Override
+    public void onReactorInit(Event event)
+    {
+        this.reactor = event.getReactor();
+        super.onReactorInit(event);
+    }
+
+    /**
+     * Event handler for the reactor quiesced event. This event fires each time the reactor runs out of work and is about
+     * to wait for IO, including right after {@link #wakeup()} was called, so it is where queued messages are flushed.
+     * @param event The proton event object
+     */
+    @Override
+    public void onReactorQuiesced(Event event)
+    {
+        if (this.closeRequested)
+        {
+            if (this.sender != null && this.sender.getLocalState() == EndpointState.ACTIVE)
+            {
+                log.debug("Closing long lived amqp cloud to device message sender link");
+                this.sender.close();
+            }
+            else if (this.sender == null || System.currentTimeMillis() - this.closeRequestedTimeMillis > ReactorRunner.CLOSE_REACTOR_GRACEFULLY_TIMEOUT)
+            {
+                log.trace("Stopping long lived amqp cloud to device message sender reactor");
+                event.getReactor().stop();
+            }
+        }
+        else
+        {
+            sendQueuedMessages();
+        }
+    }
+
+    /**
+     * Event handler for the connection init event
+     * @param event The proton event object
+     */
+    @Override
+    public void onConnectionInit(Event event)
+    {
+        Connection conn = event.getConnection();
+        conn.setHostname(hostName);
+
+        Session ssn = conn.session();
+
+        Map<Symbol, Object> properties = new HashMap<>();
+        properties.put(Symbol.getSymbol(TransportUtils.versionIdentifierKey), TransportUtils.USER_AGENT_STRING);
+        this.sender = ssn.sender(AmqpSendHandler.SEND_TAG);
+        this.sender.setProperties(properties);
+
+        log.debug("Opening connection, session and link for long lived amqp cloud to device message sender");
+        conn.open();
+        ssn.open();
+        this.sender.open();
+    }
+
+    /**
+     * Event handler for the link init event
+     * @param event The proton event object
+     */
+    @Override
+    public void onLinkInit(Event event)
+    {
+        Link link = event.getLink();
+        Target t = new Target();
+        t.setAddress(AmqpSendHandler.ENDPOINT);
+        link.setTarget(t);
+    }
+
+    @Override
+    public void onLinkRemoteOpen(Event event)
+    {
+        super.onLinkRemoteOpen(event);
+        this.openLatch.countDown();
+        sendQueuedMessages();
+    }
+
+    /**
+     * Event handler for the link flow event. New credit may have been granted, so send as much as it allows.
+     * @param event The proton event object
+     */
+    @Override
+    public void onLinkFlow(Event event)
+    {
+        sendQueuedMessages();
+    }
+
+    @Override
+    public void onDelivery(Event event)
+    {
+        Delivery delivery = event.getDelivery();
+        DeliveryState remoteState = delivery.getRemoteState();
+        if (remoteState == null && !delivery.remotelySettled())
+        {
+            // Nothing has been decided about this delivery yet
+            return;
+        }
+
+        AmqpPendingSend pendingSend = (AmqpPendingSend) delivery.getContext();
+        this.inFlightDeliveries.remove(delivery);
+        delivery.settle();
+
+        if (pendingSend != null)
+        {
+            AmqpResponseVerification amqpResponse = new AmqpResponseVerification(remoteState);
+            if (amqpResponse.getException() != null)
+            {
+                log.debug("Cloud to device message with correlation id {} was rejected", pendingSend.getProtonMessage().getCorrelationId());
+                pendingSend.getFuture().completeExceptionally(amqpResponse.getException());
+            }
+            else
+            {
+                log.trace("Acknowledgement arrived for sent cloud to device message with correlation id {}", pendingSend.getProtonMessage().getCorrelationId());
+                pendingSend.getFuture().complete(null);
+            }
+        }
+    }
+
+    @Override
+    public void onConnectionRemoteClose(Event event)
+    {
+        super.onConnectionRemoteClose(event);
+        event.getTransport().close_tail();
+    }
+
+    private void sendQueuedMessages()
+    {
+        if (this.closeRequested
+                || !this.linkOpenedRemotely
+                || this.sender == null
+                || this.sender.getLocalState() != EndpointState.ACTIVE)
+        {
+            return;
+        }
+
+        // Messages that don't fit into the current credit stay queued until the next link flow event
+        while (this.sender.getCredit() > 0)
+        {
+            AmqpPendingSend pendingSend = this.pendingSends.poll();
+            if (pendingSend == null)
+            {
+                break;
+            }
+
+            if (pendingSend.getFuture().isDone())
+            {
+                // cancelled by the user before it could be sent
+                continue;
+            }
+
+            int length = encode(pendingSend.getProtonMessage());
+
+            // proton keeps a reference to the tag until the transfer frame is written, so every delivery needs its own array
+            byte[] tag = Integer.toString(this.nextTag).getBytes(StandardCharsets.US_ASCII);
+
+            //want to avoid negative delivery tags since -1 is the designated failure value
+            if (this.nextTag == Integer.MAX_VALUE || this.nextTag < 0)
+            {
+                this.nextTag = 0;
+            }
+            else
+            {
+                this.nextTag++;
+            }
+
+            Delivery delivery = this.sender.delivery(tag);
+            delivery.setContext(pendingSend);
+            this.sender.send(this.encodeBuffer, 0, length);
+            this.sender.advance();
+            this.inFlightDeliveries.add(delivery);
+
+            log.trace("Sent cloud to device message with correlation id {} over long lived sender link", pendingSend.getProtonMessage().getCorrelationId());
+        }
+    }
+
+    private int encode(org.apache.qpid.proton.message.Message protonMessage)
+    {
+        // proton copies the bytes it is given on send, so the same buffer can be reused for every message on this link
+        while (true)
+        {
+            try
+            {
+                return protonMessage.encode(this.encodeBuffer, 0, this.encodeBuffer.length);
+            }
+            catch (BufferOverflowException e)
+            {
+                this.encodeBuffer = new byte[this.encodeBuffer.length * 2];
+            }
+        }
+    }
+}
@@ -95,6 +95,33 @@ public class AmqpSendHandler extends AmqpConnectionHandler
     }
 
     private void populateProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
+    {
+        messageToBeSent = convertToProtonMessage(targetPath, message);
+    }
+
+    /**
+     * Build the devicebound target path for the given device and, optionally, module
+     * @param deviceId The device name string
+     * @param moduleId The module name string. May be null if the message is for the device itself
+     * @return The target path to set as the "to" property of the proton message
+     */
+    static String getTargetPath(String deviceId, String moduleId)
+    {
+        if (moduleId == null)
+        {
+            return String.format(DEVICE_PATH_FORMAT, deviceId);
+        }
+
+        return String.format(MODULE_PATH_FORMAT, deviceId, moduleId);
+    }
+
+    /**
+     * Convert a service message into the proton message that will be sent to the given target path
+     * @param targetPath The devicebound path of the device or module
+     * @param message The message to be sent
+     * @return The converted proton message
+     */
+    static org.apache.qpid.proton.message.Message convertToProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_005: [The function shall create a new Message (Proton) object]
         org.apache.qpid.proton.message.Message protonMessage = Proton.message();
@@ -141,7 +168,7 @@ public class AmqpSendHandler extends AmqpConnectionHandler
         Section section = new Data(binary);
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_009: [The function shall set the Message body to the created data section]
         protonMessage.setBody(section);
-        messageToBeSent = protonMessage;
+        return protonMessage;
     }
 
     /**
@@ -11,7 +11,6 @@ import java.io.InputStream;
 import java.net.ProtocolException;
 import java.net.Proxy;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -25,10 +24,18 @@ import java.util.Map;
  * connections, for each time connect() is called, the input streams (input
  * stream or error stream, if input stream is not accessible) must be completely
  * read. Otherwise, the data remains in the stream and the connection will not
- * be reusable.
+ * be reusable. Both {@link #readInput()} and {@link #readError()} drain and close
+ * their stream for this reason.
+ * <p>
+ * Idle connections are kept alive in the JVM wide keep alive cache for as long as
+ * the service allows. The number of idle connections kept per host can be tuned
+ * with the {@code http.maxConnections} system property (5 by default).
  */
 public class HttpConnection
 {
+    private static final int DEFAULT_READ_BUFFER_SIZE = 4096;
+    private static final int MAX_PRESIZED_READ_BUFFER_SIZE = 1024 * 1024;
+
     /** The underlying HTTPS connection. */
     protected final HttpsURLConnection connection;
 
@@ -237,7 +244,7 @@ public class HttpConnection
         {
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_014: [The function shall read from the input stream (response stream) and return the response.]
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_015: [The function shall throw an IOException if the input stream could not be accessed.]
-            input = readInputStream(inputStream);
+            input = readInputStream(inputStream, this.connection.getContentLength());
 
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_016: [The function shall close the input stream after it has been completely read.]
         }
@@ -264,7 +271,7 @@ public class HttpConnection
             // if there is no error reason, getErrorStream() returns null.
             if (errorStream != null)
             {
-                error = readInputStream(errorStream);
+                error = readInputStream(errorStream, this.connection.getContentLength());
             }
 
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_019: [The function shall close the error stream after it has been completely read.]
@@ -315,23 +322,45 @@ public class HttpConnection
     protected static byte[] readInputStream(InputStream stream)
             throws IOException
     {
-        ArrayList<Byte> byteBuffer = new ArrayList<>();
-        int nextByte = -1;
-        // read(byte[]) reads the byte into the buffer and returns the number
-        // of bytes read, or -1 if the end of the stream has been reached.
-        while ((nextByte = stream.read()) > -1)
-        {
-            byteBuffer.add((byte) nextByte);
-        }
+        return readInputStream(stream, -1);
+    }
 
-        int bufferSize = byteBuffer.size();
-        byte[] byteArray = new byte[bufferSize];
-        for (int i = 0; i < bufferSize; ++i)
+    /**
+     * Reads the input stream until the stream is empty, in chunks rather than byte by byte.
+     *
+     * @param stream The input stream.
+     * @param expectedLength The expected length of the content, for example from the Content-Length header, or a
+     * non-positive value if unknown. Only used to size the read buffer.
+     *
+     * @return The content of the input stream.
+     *
+     * @throws IOException This exception thrown if the input stream could not be read from.
+     */
+    private static byte[] readInputStream(InputStream stream, int expectedLength)
+            throws IOException
+    {
+        byte[] buffer = new byte[expectedLength > 0 ? Math.min(expectedLength, MAX_PRESIZED_READ_BUFFER_SIZE) : DEFAULT_READ_BUFFER_SIZE];
+        int length = 0;
+        int bytesRead;
+        // read(byte[], int, int) returns the number of bytes read, or -1 if the end of the stream has been reached.
+        while ((bytesRead = stream.read(buffer, length, buffer.length - length)) > -1)
         {
-            byteArray[i] = byteBuffer.get(i);
+            length += bytesRead;
+            if (length == buffer.length)
+            {
+                // Only grow the buffer if there is more content than expected.
+                int nextByte = stream.read();
+                if (nextByte == -1)
+                {
+                    break;
+                }
+
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) nextByte;
+            }
         }
 
-        return byteArray;
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
     }
 
     protected HttpConnection()
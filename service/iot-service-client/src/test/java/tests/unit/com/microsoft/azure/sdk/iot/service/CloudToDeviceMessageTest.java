@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service;
+
+import com.microsoft.azure.sdk.iot.service.CloudToDeviceMessage;
+import com.microsoft.azure.sdk.iot.service.Message;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/** Unit tests for CloudToDeviceMessage */
+public class CloudToDeviceMessageTest
+{
+    @Test
+    public void constructorSavesDeviceTarget() throws Exception
+    {
+        // arrange
+        Message message = new Message("abc");
+
+        // act
+        CloudToDeviceMessage cloudToDeviceMessage = new CloudToDeviceMessage("deviceId", message);
+
+        // assert
+        assertEquals("deviceId", cloudToDeviceMessage.getDeviceId());
+        assertNull(cloudToDeviceMessage.getModuleId());
+        assertEquals(message, cloudToDeviceMessage.getMessage());
+    }
+
+    @Test
+    public void constructorSavesModuleTarget() throws Exception
+    {
+        // arrange
+        Message message = new Message("abc");
+
+        // act
+        CloudToDeviceMessage cloudToDeviceMessage = new CloudToDeviceMessage("deviceId", "moduleId", message);
+
+        // assert
+        assertEquals("deviceId", cloudToDeviceMessage.getDeviceId());
+        assertEquals("moduleId", cloudToDeviceMessage.getModuleId());
+        assertEquals(message, cloudToDeviceMessage.getMessage());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForEmptyDeviceId() throws Exception
+    {
+        // act
+        new CloudToDeviceMessage("", new Message("abc"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullMessage()
+    {
+        // act
+        new CloudToDeviceMessage("deviceId", null);
+    }
+}
@@ -4,6 +4,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.deps.serializer.*;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.service.DeviceStatus;
 import com.microsoft.azure.sdk.iot.service.ExportImportDevice;
 import com.microsoft.azure.sdk.iot.service.ImportMode;
@@ -123,6 +124,26 @@ public class ExportImportDeviceTest
     }
 
     //Tests_SRS_SERVICE_SDK_JAVA_IMPORT_EXPORT_DEVICE_34_052: [This constructor shall use the properties of the provided parser object to set the new ExportImportDevice's properties.]
+    @Test
+    public void conversionToExportImportDeviceParserKeepsCapabilities()
+    {
+        // arrange
+        ExportImportDevice edgeDevice = new ExportImportDevice();
+        edgeDevice.setId("edgeDevice");
+        edgeDevice.setAuthentication(new AuthenticationMechanism(AuthenticationType.CERTIFICATE_AUTHORITY));
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        capabilities.setIotEdge(true);
+        edgeDevice.setCapabilities(capabilities);
+
+        // act
+        ExportImportDeviceParser parser = reflectivelyInvokeToExportImportDeviceParser(edgeDevice);
+        ExportImportDevice convertedDevice = Deencapsulation.newInstance(ExportImportDevice.class, new Class[] { ExportImportDeviceParser.class }, parser);
+
+        // assert
+        assertEquals(Boolean.TRUE, parser.getCapabilities().isIotEdge());
+        assertEquals(Boolean.TRUE, convertedDevice.getCapabilities().isIotEdge());
+    }
+
     @Test
     public void conversionFromDeviceParser()
     {
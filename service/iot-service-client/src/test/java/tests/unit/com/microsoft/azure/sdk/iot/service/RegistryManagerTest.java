@@ -9,8 +9,10 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationContentParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.StorageAuthenticationType;
+import com.microsoft.azure.sdk.iot.deps.twin.DeviceCapabilities;
 import com.microsoft.azure.sdk.iot.service.*;
 import com.microsoft.azure.sdk.iot.service.Module;
+import com.microsoft.azure.sdk.iot.service.auth.AuthenticationType;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
@@ -25,6 +27,7 @@ import org.junit.runner.RunWith;
 import java.io.IOException;
 import java.net.Proxy;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -1077,6 +1080,176 @@ public class RegistryManagerTest
         CompletableFuture completableFuture = registryManager.removeDeviceAsync(deviceId);
     }
 
+    @Test (expected = IllegalArgumentException.class)
+    public void addDevices_input_empty() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        registryManager.addDevices(new ArrayList<>());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createFromConnectionString_negative_bulk_parallelism_throws() throws Exception
+    {
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        RegistryManagerOptions options = RegistryManagerOptions.builder().bulkOperationParallelism(-1).build();
+
+        RegistryManager.createFromConnectionString(connectionString, options);
+    }
+
+    @Test
+    public void addDevices_sends_one_request_per_chunk() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<Device> devices = bulkDevicesExpectations(connectionString, RegistryManager.MAX_DEVICES_PER_BULK_REQUEST + 1,
+                "{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}");
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, RegistryManagerOptions.builder().bulkOperationParallelism(1).build());
+
+        // act
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        // assert
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+        new Verifications()
+        {
+            {
+                new HttpRequest(mockUrl, HttpMethod.POST, (byte[]) any, (Proxy) any);
+                times = 2;
+                mockIotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void removeDevices_merges_per_device_errors_of_every_chunk() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<Device> devices = bulkDevicesExpectations(connectionString, RegistryManager.MAX_DEVICES_PER_BULK_REQUEST * 2,
+                "{\"isSuccessful\":false,\"errors\":[{\"deviceId\":\"somedevice\",\"errorCode\":\"DeviceNotFound\",\"errorStatus\":\"not found\"}],\"warnings\":[]}");
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, RegistryManagerOptions.builder().bulkOperationParallelism(1).build());
+
+        // act
+        BulkRegistryOperationResult result = registryManager.removeDevices(devices);
+
+        // assert
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getErrors().size());
+        assertEquals("somedevice", result.getErrors().get(0).getDeviceId());
+        assertEquals("DeviceNotFound", result.getErrors().get(0).getErrorCode());
+    }
+
+    @Test
+    public void updateDevices_records_every_device_of_rejected_request_as_error() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<Device> devices = bulkDevicesExpectations(connectionString, 2, "{}");
+        new NonStrictExpectations()
+        {
+            {
+                IotHubExceptionManager.httpResponseVerification((HttpResponse) any);
+                result = new IotHubException("rejected");
+            }
+        };
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        // act
+        BulkRegistryOperationResult result = registryManager.updateDevices(devices);
+
+        // assert
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getErrors().size());
+        assertEquals("somedevice", result.getErrors().get(0).getDeviceId());
+        assertEquals("UnclassifiedErrorCode", result.getErrors().get(0).getErrorCode());
+        assertEquals("rejected", result.getErrors().get(0).getErrorStatus());
+    }
+
+    @Test
+    public void addDevices_records_failed_chunk_without_failing_other_chunks() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<Device> devices = bulkDevicesExpectations(connectionString, RegistryManager.MAX_DEVICES_PER_BULK_REQUEST * 3,
+                "{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}");
+        new NonStrictExpectations()
+        {
+            {
+                mockHttpRequest.send();
+                returns(mockHttpResponse, mockHttpResponse);
+                result = new IOException("timed out");
+            }
+        };
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString, RegistryManagerOptions.builder().bulkOperationParallelism(2).build());
+
+        // act
+        BulkRegistryOperationResult result = registryManager.addDevices(devices);
+
+        // assert
+        assertFalse(result.isSuccessful());
+        assertEquals(RegistryManager.MAX_DEVICES_PER_BULK_REQUEST, result.getErrors().size());
+        assertEquals("IOException", result.getErrors().get(0).getErrorCode());
+        assertEquals("timed out", result.getErrors().get(0).getErrorStatus());
+    }
+
+    @Test
+    public void addDevices_sends_iot_edge_capability() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        List<Device> devices = bulkDevicesExpectations(connectionString, 1,
+                "{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}");
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        capabilities.setIotEdge(true);
+        new NonStrictExpectations()
+        {
+            {
+                device.getCapabilities();
+                result = capabilities;
+            }
+        };
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+
+        // act
+        registryManager.addDevices(devices);
+
+        // assert
+        new Verifications()
+        {
+            {
+                byte[] body;
+                new HttpRequest(mockUrl, HttpMethod.POST, body = withCapture(), (Proxy) any);
+                assertTrue(new String(body, StandardCharsets.UTF_8).contains("\"capabilities\":{\"iotEdge\":true}"));
+            }
+        };
+    }
+
+    @Test
+    public void close_shuts_down_bulk_executor() throws Exception
+    {
+        // arrange
+        String connectionString = "HostName=aaa.bbb.ccc;SharedAccessKeyName=XXX;SharedAccessKey=YYY";
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+            }
+        };
+        RegistryManager registryManager = RegistryManager.createFromConnectionString(connectionString);
+        ExecutorService bulkExecutor = Deencapsulation.getField(registryManager, "bulkExecutor");
+
+        // act
+        registryManager.close();
+
+        // assert
+        assertTrue(bulkExecutor.isShutdown());
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_054: [The function shall get the URL for the device]
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_055: [The function shall create a new SAS token for the device]
     // Tests_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_056: [The function shall create a new HttpRequest for getting statistics a device from IotHub]
@@ -2463,6 +2636,8 @@ public class RegistryManagerTest
         new Expectations()
         {
             {
+                IotHubConnectionStringBuilder.createConnectionString(mockConnectionString);
+                result = mockIotHubConnectionString;
                 mockIotHubConnectionString.getUrlDevice(mockDeviceId);
                 result = mockUrl;
                 new HttpRequest(mockUrl, HttpMethod.GET, (byte[]) any, (Proxy) any);
@@ -2510,6 +2685,35 @@ public class RegistryManagerTest
         };
     }
 
+    private List<Device> bulkDevicesExpectations(String connectionString, int numberOfDevices, String responseJson) throws Exception
+    {
+        new NonStrictExpectations()
+        {
+            {
+                IotHubConnectionStringBuilder.createConnectionString(connectionString);
+                result = iotHubConnectionString;
+                iotHubConnectionString.getUrlBulkDevices();
+                result = mockUrl;
+                mockHttpRequest.send();
+                result = mockHttpResponse;
+                mockHttpResponse.getBody();
+                result = responseJson.getBytes();
+                device.getDeviceId();
+                result = "somedevice";
+                device.getAuthenticationType();
+                result = AuthenticationType.CERTIFICATE_AUTHORITY;
+            }
+        };
+
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < numberOfDevices; i++)
+        {
+            devices.add(device);
+        }
+
+        return devices;
+    }
+
     private void commonVerifications(HttpMethod httpMethod, String requestDeviceId, Device responseDevice) throws Exception
     {
         new VerificationsInOrder()
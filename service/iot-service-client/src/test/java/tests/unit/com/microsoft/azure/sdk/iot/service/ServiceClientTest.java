@@ -7,15 +7,23 @@ package tests.unit.com.microsoft.azure.sdk.iot.service;
 
 import com.microsoft.azure.sdk.iot.service.*;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 import mockit.*;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ServiceClientTest
 {
@@ -106,8 +114,7 @@ public class ServiceClientTest
         new Expectations()
         {
             {
-                iotHubServiceSasToken = new IotHubServiceSasToken(withNotNull());
-                amqpSend = new AmqpSend(anyString, anyString, anyString, iotHubServiceClientProtocol, (ProxyOptions) any);
+                amqpSend = new AmqpSend(anyString, anyString, (IotHubServiceSasTokenProvider) any, iotHubServiceClientProtocol, (ProxyOptions) any, anyInt);
             }
         };
         // Act
@@ -530,4 +537,83 @@ public class ServiceClientTest
         // Assert
         assertNotEquals(null, feedbackReceiver);
     }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void sendBatchAsyncThrowsForEmptyBatch() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.IOTHUBNAME;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS);
+
+        // Act
+        serviceClient.sendBatchAsync(new ArrayList<>());
+    }
+
+    @Test
+    public void sendBatchAsyncCompletesEachFutureWithItsOwnResult() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.IOTHUBNAME;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS);
+        final List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", new Message("abc")));
+        messages.add(new CloudToDeviceMessage("device2", "module2", new Message("def")));
+        final List<CompletableFuture<Void>> sendResults = new ArrayList<>();
+        sendResults.add(CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> rejectedResult = new CompletableFuture<>();
+        rejectedResult.completeExceptionally(new IotHubException("rejected"));
+        sendResults.add(rejectedResult);
+
+        new Expectations()
+        {
+            {
+                amqpSend.sendBatch(messages);
+                result = sendResults;
+            }
+        };
+
+        // Act
+        List<CompletableFuture<Void>> futures = serviceClient.sendBatchAsync(messages);
+
+        // Assert
+        assertEquals(2, futures.size());
+        futures.get(0).get();
+        try
+        {
+            futures.get(1).get();
+            fail("Expected the rejected message's future to complete exceptionally");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IotHubException);
+        }
+    }
+
+    @Test
+    public void sendBatchAsyncUsesLongLivedConnectionsDirectly() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.IOTHUBNAME;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, ServiceClientOptions.builder().sendConnectionPoolSize(2).build());
+        final List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", new Message("abc")));
+        final List<CompletableFuture<Void>> sendResults = new ArrayList<>();
+        sendResults.add(new CompletableFuture<>());
+
+        new Expectations()
+        {
+            {
+                amqpSend.usesLongLivedConnections();
+                result = true;
+                amqpSend.sendBatch(messages);
+                result = sendResults;
+            }
+        };
+
+        // Act
+        List<CompletableFuture<Void>> futures = serviceClient.sendBatchAsync(messages);
+
+        // Assert
+        assertSame(sendResults, futures);
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
+import mockit.Deencapsulation;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+/** Unit tests for IotHubServiceSasTokenProvider */
+public class IotHubServiceSasTokenProviderTest
+{
+    private static final String CONNECTION_STRING = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+    private static final String OTHER_CONNECTION_STRING = "HostName=OTHERHOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullConnectionString()
+    {
+        // act
+        new IotHubServiceSasTokenProvider(null);
+    }
+
+    @Test
+    public void getSasTokenReturnsSignedToken() throws Exception
+    {
+        // arrange
+        IotHubServiceSasTokenProvider sasTokenProvider = new IotHubServiceSasTokenProvider(IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING));
+
+        // act
+        String sasToken = sasTokenProvider.getSasToken();
+
+        // assert
+        IotHubServiceSasToken cachedToken = Deencapsulation.getField(sasTokenProvider, "cachedToken");
+        assertEquals(cachedToken.toString(), sasToken);
+    }
+
+    @Test
+    public void getSasTokenReusesCachedToken() throws Exception
+    {
+        // arrange
+        IotHubServiceSasTokenProvider sasTokenProvider = new IotHubServiceSasTokenProvider(IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING));
+        String firstSasToken = sasTokenProvider.getSasToken();
+        IotHubServiceSasToken cachedToken = Deencapsulation.getField(sasTokenProvider, "cachedToken");
+
+        // act
+        String secondSasToken = sasTokenProvider.getSasToken();
+
+        // assert
+        assertEquals(firstSasToken, secondSasToken);
+        assertSame(cachedToken, Deencapsulation.getField(sasTokenProvider, "cachedToken"));
+    }
+
+    @Test
+    public void getSasTokenSignsTokenOfItsOwnConnectionString() throws Exception
+    {
+        // arrange
+        IotHubServiceSasTokenProvider sasTokenProvider = new IotHubServiceSasTokenProvider(IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING));
+        IotHubServiceSasTokenProvider otherSasTokenProvider = new IotHubServiceSasTokenProvider(IotHubConnectionStringBuilder.createConnectionString(OTHER_CONNECTION_STRING));
+
+        // act
+        String sasToken = sasTokenProvider.getSasToken();
+        String otherSasToken = otherSasTokenProvider.getSasToken();
+
+        // assert
+        assertNotEquals(sasToken, otherSasToken);
+    }
+
+    @Test
+    public void getSasTokenRenewsTokenAboutToExpire(@Mocked final IotHubServiceSasToken mockSasToken) throws Exception
+    {
+        // arrange
+        final IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        final long almostExpired = System.currentTimeMillis() / 1000 + IotHubServiceSasTokenProvider.RENEWAL_MARGIN_SECS - 1;
+        new Expectations()
+        {
+            {
+                mockSasToken.getExpiryTime();
+                result = almostExpired;
+            }
+        };
+        IotHubServiceSasTokenProvider sasTokenProvider = new IotHubServiceSasTokenProvider(iotHubConnectionString);
+        sasTokenProvider.getSasToken();
+
+        // act
+        sasTokenProvider.getSasToken();
+
+        // assert
+        new Verifications()
+        {
+            {
+                new IotHubServiceSasToken(iotHubConnectionString);
+                times = 2;
+            }
+        };
+    }
+}
@@ -7,7 +7,9 @@ import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethodClientOptions;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.devicetwin.Job;
 import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
@@ -20,15 +22,18 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.Proxy;
 import java.net.URL;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for Device Method
@@ -423,7 +428,7 @@ public class DeviceMethodTest
         new MockUp<DeviceOperations>()
         {
             @Mock HttpResponse request(
-                    IotHubConnectionString mockedIotHubConnectionString,
+                    IotHubServiceSasTokenProvider sasTokenProvider,
                     URL url,
                     HttpMethod method,
                     byte[] payload,
@@ -527,6 +532,258 @@ public class DeviceMethodTest
         };
     }
 
+    @Test
+    public void invokeAsyncSucceed(
+            @Mocked final MethodParser methodParser,
+            @Mocked final DeviceOperations request,
+            @Mocked final IotHubServiceSasToken iotHubServiceSasToken)
+            throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubConnectionString.getUrlModuleMethod(STANDARD_DEVICEID, STANDARD_MODULEID);
+                result = STANDARD_URL;
+                methodParser.toJson();
+                result = STANDARD_JSON;
+                methodParser.getPayload();
+                result = STANDARD_PAYLOAD_STR;
+                methodParser.getStatus();
+                result = 123;
+            }
+        };
+
+        //act
+        MethodResult result = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_MODULEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP).get();
+
+        //assert
+        assertThat(result.getStatus(), is(123));
+        assertThat(result.getPayload().toString(), is(STANDARD_PAYLOAD_STR));
+    }
+
+    @Test
+    public void invokeAsyncCompletesExceptionallyOnIllegalParameters() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        CompletableFuture<MethodResult> future = testMethod.invokeAsync(null, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        try
+        {
+            future.get();
+            fail("Expected the invocation to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void invokeDoesNotSerializeConcurrentInvocations(
+            @Mocked final MethodParser methodParser,
+            @Mocked final IotHubServiceSasToken iotHubServiceSasToken)
+            throws Exception
+    {
+        //arrange
+        final int invocationCount = 4;
+        final CountDownLatch allInvocationsInFlight = new CountDownLatch(invocationCount);
+        final Set<String> requestIds = Collections.synchronizedSet(new HashSet<>());
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubConnectionString.getUrlMethod(STANDARD_DEVICEID);
+                result = STANDARD_URL;
+                methodParser.toJson();
+                result = STANDARD_JSON;
+            }
+        };
+        new MockUp<DeviceOperations>()
+        {
+            @Mock HttpResponse request(
+                    IotHubServiceSasTokenProvider sasTokenProvider,
+                    URL url,
+                    HttpMethod method,
+                    byte[] payload,
+                    String requestId,
+                    int httpConnectTimeout,
+                    int httpReadTimeout,
+                    Proxy proxy)
+                    throws InterruptedException
+            {
+                requestIds.add(requestId);
+
+                // only returns once every invocation is in flight at the same time
+                allInvocationsInFlight.countDown();
+                allInvocationsInFlight.await(10, TimeUnit.SECONDS);
+                return new HttpResponse(200, new byte[0], new HashMap<>(), new byte[0]);
+            }
+        };
+
+        //act
+        List<CompletableFuture<MethodResult>> futures = new ArrayList<>();
+        for (int i = 0; i < invocationCount; i++)
+        {
+            futures.add(testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP));
+        }
+
+        for (CompletableFuture<MethodResult> future : futures)
+        {
+            future.get();
+        }
+
+        //assert
+        assertThat(allInvocationsInFlight.getCount(), is(0L));
+        assertThat(requestIds.size(), is(invocationCount));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativeMaxConcurrentAsyncInvocations() throws Exception
+    {
+        //act
+        DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, DeviceMethodClientOptions.builder().maxConcurrentAsyncInvocations(-1).build());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsOnNegativeMaxQueuedAsyncInvocations() throws Exception
+    {
+        //act
+        DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING, DeviceMethodClientOptions.builder().maxQueuedAsyncInvocations(-1).build());
+    }
+
+    @Test
+    public void invokeAsyncRejectsInvocationsBeyondBacklog(
+            @Mocked final MethodParser methodParser,
+            @Mocked final IotHubServiceSasToken iotHubServiceSasToken)
+            throws Exception
+    {
+        //arrange
+        final CountDownLatch releaseInvocations = new CountDownLatch(1);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(
+                STANDARD_CONNECTIONSTRING,
+                DeviceMethodClientOptions.builder().maxConcurrentAsyncInvocations(1).maxQueuedAsyncInvocations(1).build());
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubConnectionString.getUrlMethod(STANDARD_DEVICEID);
+                result = STANDARD_URL;
+                methodParser.toJson();
+                result = STANDARD_JSON;
+            }
+        };
+        new MockUp<DeviceOperations>()
+        {
+            @Mock HttpResponse request(
+                    IotHubServiceSasTokenProvider sasTokenProvider,
+                    URL url,
+                    HttpMethod method,
+                    byte[] payload,
+                    String requestId,
+                    int httpConnectTimeout,
+                    int httpReadTimeout,
+                    Proxy proxy)
+                    throws InterruptedException
+            {
+                releaseInvocations.await(10, TimeUnit.SECONDS);
+                return new HttpResponse(200, new byte[0], new HashMap<>(), new byte[0]);
+            }
+        };
+
+        //act
+        CompletableFuture<MethodResult> inFlight = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+        CompletableFuture<MethodResult> queued = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+        CompletableFuture<MethodResult> rejected = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        assertFailsWith(rejected, RejectedExecutionException.class);
+        releaseInvocations.countDown();
+        inFlight.get();
+        queued.get();
+        testMethod.close();
+    }
+
+    @Test
+    public void closeFailsInvocationsThatHaveNotStarted(
+            @Mocked final MethodParser methodParser,
+            @Mocked final IotHubServiceSasToken iotHubServiceSasToken)
+            throws Exception
+    {
+        //arrange
+        final CountDownLatch releaseInvocations = new CountDownLatch(1);
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(
+                STANDARD_CONNECTIONSTRING,
+                DeviceMethodClientOptions.builder().maxConcurrentAsyncInvocations(1).build());
+        new NonStrictExpectations()
+        {
+            {
+                mockedIotHubConnectionString.getUrlMethod(STANDARD_DEVICEID);
+                result = STANDARD_URL;
+                methodParser.toJson();
+                result = STANDARD_JSON;
+            }
+        };
+        new MockUp<DeviceOperations>()
+        {
+            @Mock HttpResponse request(
+                    IotHubServiceSasTokenProvider sasTokenProvider,
+                    URL url,
+                    HttpMethod method,
+                    byte[] payload,
+                    String requestId,
+                    int httpConnectTimeout,
+                    int httpReadTimeout,
+                    Proxy proxy)
+                    throws InterruptedException
+            {
+                releaseInvocations.await(10, TimeUnit.SECONDS);
+                return new HttpResponse(200, new byte[0], new HashMap<>(), new byte[0]);
+            }
+        };
+        CompletableFuture<MethodResult> inFlight = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+        CompletableFuture<MethodResult> queued = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+
+        //act
+        testMethod.close();
+
+        //assert
+        assertFailsWith(inFlight, InterruptedException.class);
+        assertFailsWith(queued, IllegalStateException.class);
+        assertFailsWith(testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP), IllegalStateException.class);
+    }
+
+    @Test
+    public void invokeAsyncAfterCloseCompletesExceptionally() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        testMethod.close();
+        CompletableFuture<MethodResult> future = testMethod.invokeAsync(STANDARD_DEVICEID, STANDARD_METHODNAME, null, null, STANDARD_PAYLOAD_MAP);
+
+        //assert
+        assertFailsWith(future, IllegalStateException.class);
+    }
+
+    private static void assertFailsWith(CompletableFuture<MethodResult> future, Class<? extends Throwable> expectedCause) throws Exception
+    {
+        try
+        {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the invocation to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(expectedCause.isInstance(e.getCause()));
+        }
+    }
+
     /* Tests_SRS_DEVICEMETHOD_21_016: [If the methodName is null or empty, the scheduleDeviceMethod shall throws IllegalArgumentException.] */
     @Test (expected = IllegalArgumentException.class)
     public void scheduleDeviceMethodThrowOnMethodNameNull() throws IOException, IotHubException
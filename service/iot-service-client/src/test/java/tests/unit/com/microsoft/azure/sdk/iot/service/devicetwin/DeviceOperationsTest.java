@@ -6,6 +6,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
@@ -730,6 +731,63 @@ public class DeviceOperationsTest
         };
     }
 
+    @Test (expected = IllegalArgumentException.class)
+    public void requestNullSasTokenProviderFailed() throws Exception
+    {
+        //act
+        DeviceOperations.request(
+                (IotHubServiceSasTokenProvider) null,
+                new URL(STANDARD_URL),
+                HttpMethod.POST,
+                STANDARD_PAYLOAD,
+                STANDARD_REQUEST_ID,
+                0,
+                DEFAULT_HTTP_TIMEOUT_MS,
+                null);
+    }
+
+    @Test
+    public void requestAuthorizesWithTokenOfProvidedSasTokenProvider(
+            @Mocked IotHubServiceSasTokenProvider sasTokenProvider,
+            @Mocked HttpRequest httpRequest)
+            throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                sasTokenProvider.getSasToken();
+                result = STANDARD_SASTOKEN_STRING;
+            }
+        };
+
+        //act
+        DeviceOperations.request(
+                sasTokenProvider,
+                new URL(STANDARD_URL),
+                HttpMethod.POST,
+                STANDARD_PAYLOAD,
+                STANDARD_REQUEST_ID,
+                0,
+                DEFAULT_HTTP_TIMEOUT_MS,
+                null);
+
+        //assert
+        new Verifications()
+        {
+            {
+                sasTokenProvider.getSasToken();
+                times = 1;
+                httpRequest.setHeaderField(AUTHORIZATION, STANDARD_SASTOKEN_STRING);
+                times = 1;
+                httpRequest.setReadTimeoutMillis(DEFAULT_HTTP_TIMEOUT_MS);
+                times = 1;
+                httpRequest.send();
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_DEVICE_OPERATIONS_25_020: [This method shall set the headers map to be used for next request only.]
     @Test
     public void setCustomHeadersSucceed(@Mocked IotHubServiceSasToken iotHubServiceSasToken,
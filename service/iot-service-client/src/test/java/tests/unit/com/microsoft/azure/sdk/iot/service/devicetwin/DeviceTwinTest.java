@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.deps.twin.*;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
@@ -301,6 +302,40 @@ public class DeviceTwinTest
         };
     }
 
+    @Test
+    public void getTwinReusesSasTokenOfClientAcrossRequests(@Mocked DeviceTwinDevice mockedDevice) throws Exception
+    {
+        //arrange
+        final String connectionString = "testString";
+        DeviceTwin testTwin = DeviceTwin.createFromConnectionString(connectionString);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDevice.getDeviceId();
+                result = "SomeDevID";
+                mockedSasToken.getExpiryTime();
+                result = System.currentTimeMillis() / 1000 + 2 * IotHubServiceSasTokenProvider.RENEWAL_MARGIN_SECS;
+                TwinState.createFromTwinJson((String)any);
+                result = mockedTwinState;
+            }
+        };
+
+        //act
+        testTwin.getTwin(mockedDevice);
+        testTwin.getTwin(mockedDevice);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new IotHubServiceSasToken((IotHubConnectionString) any);
+                times = 1;
+                mockedHttpRequest.send();
+                times = 2;
+            }
+        };
+    }
+
     /*
     **Tests_SRS_DEVICETWIN_25_004: [** The function shall throw IllegalArgumentException if the input device is null or if deviceId is null or empty **]**
      */
@@ -11,6 +11,7 @@ import com.microsoft.azure.sdk.iot.deps.twin.TwinCollection;
 import com.microsoft.azure.sdk.iot.deps.twin.TwinState;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.devicetwin.*;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.jobs.JobClient;
@@ -25,6 +26,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.Proxy;
 import java.net.URL;
 import java.util.Date;
 import java.util.HashSet;
@@ -189,7 +191,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -253,7 +255,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -321,7 +323,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -574,7 +576,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -647,7 +649,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -664,7 +666,7 @@ public class JobClientTest
         new Verifications()
         {
             {
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 times = 1;
             }
         };
@@ -721,7 +723,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = new IOException();
             }
         };
@@ -782,7 +784,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1071,7 +1073,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1117,7 +1119,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1172,7 +1174,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1189,7 +1191,7 @@ public class JobClientTest
         new Verifications()
         {
             {
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 times = 1;
             }
         };
@@ -1228,7 +1230,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = new IOException();
             }
         };
@@ -1271,7 +1273,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.PUT, json.getBytes(), (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1379,7 +1381,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1425,7 +1427,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1448,7 +1450,7 @@ public class JobClientTest
         new Verifications()
         {
             {
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 times = 1;
             }
         };
@@ -1472,7 +1474,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = new IOException();
             }
         };
@@ -1506,7 +1508,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobs(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.GET, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1619,7 +1621,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobsCancel(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.POST, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.POST, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1665,7 +1667,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobsCancel(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.POST, new byte[]{}, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.POST, new byte[]{}, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
@@ -1688,7 +1690,7 @@ public class JobClientTest
         new Verifications()
         {
             {
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.POST, (byte[])any, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.POST, (byte[])any, (String)any, anyInt, anyInt, (Proxy) any);
                 times = 1;
             }
         };
@@ -1712,7 +1714,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobsCancel(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request(mockedIotHubConnectionString, mockedURL, HttpMethod.POST, (byte[])any, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, mockedURL, HttpMethod.POST, (byte[])any, (String)any, anyInt, anyInt, (Proxy) any);
                 result = new IOException();
             }
         };
@@ -1746,7 +1748,7 @@ public class JobClientTest
                 mockedIotHubConnectionString.getUrlJobsCancel(jobId);
                 result = mockedURL;
 
-                DeviceOperations.request((IotHubConnectionString) any, (URL) any, (HttpMethod) any, (byte[]) any, (String)any, 0);
+                DeviceOperations.request((IotHubServiceSasTokenProvider) any, (URL) any, (HttpMethod) any, (byte[]) any, (String)any, anyInt, anyInt, (Proxy) any);
                 result = mockedHttpResponse;
 
                 Deencapsulation.newInstance(JobResult.class, new Class[] {byte[].class}, (byte[])any);
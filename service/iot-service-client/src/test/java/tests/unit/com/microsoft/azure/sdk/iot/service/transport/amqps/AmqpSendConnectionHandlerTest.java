@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpPendingSend;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpResponseVerification;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendConnectionHandler;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.engine.*;
+import org.apache.qpid.proton.message.Message;
+import org.apache.qpid.proton.reactor.Handshaker;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Unit tests for AmqpSendConnectionHandler */
+@RunWith(JMockit.class)
+public class AmqpSendConnectionHandlerTest
+{
+    private static final String HOST_NAME = "aaa";
+    private static final String USER_NAME = "bbb";
+    private static final String SAS_TOKEN = "ccc";
+
+    @Mocked Handshaker mockHandshaker;
+    @Mocked Message mockProtonMessage;
+    @Mocked Event mockEvent;
+    @Mocked Reactor mockReactor;
+    @Mocked Connection mockConnection;
+    @Mocked Session mockSession;
+    @Mocked Sender mockSender;
+    @Mocked Delivery mockDelivery;
+    @Mocked DeliveryState mockDeliveryState;
+    @Mocked AmqpResponseVerification mockResponseVerification;
+    @Mocked IotHubSSLContext mockIotHubSSLContext;
+
+    private AmqpSendConnectionHandler createOpenedHandler(Queue<AmqpPendingSend> pendingSends)
+    {
+        AmqpSendConnectionHandler handler = new AmqpSendConnectionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, null, pendingSends);
+
+        new Expectations()
+        {
+            {
+                mockEvent.getConnection();
+                result = mockConnection;
+                mockConnection.session();
+                result = mockSession;
+                mockSession.sender(anyString);
+                result = mockSender;
+            }
+        };
+
+        handler.onConnectionInit(mockEvent);
+        Deencapsulation.setField(handler, "linkOpenedRemotely", true);
+        return handler;
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullPendingSends()
+    {
+        // act
+        new AmqpSendConnectionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, null, null);
+    }
+
+    @Test
+    public void onConnectionInitOpensConnectionSessionAndSender()
+    {
+        // act
+        createOpenedHandler(new ConcurrentLinkedQueue<>());
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockConnection.open();
+                times = 1;
+                mockSession.open();
+                times = 1;
+                mockSender.open();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void onLinkFlowDoesNotSendBeforeLinkIsOpenedRemotely()
+    {
+        // arrange
+        Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        AmqpSendConnectionHandler handler = createOpenedHandler(pendingSends);
+        Deencapsulation.setField(handler, "linkOpenedRemotely", false);
+
+        // act
+        handler.onLinkFlow(mockEvent);
+
+        // assert
+        assertEquals(1, pendingSends.size());
+        new Verifications()
+        {
+            {
+                mockSender.send((byte[]) any, anyInt, anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onLinkFlowOnlySendsAsManyMessagesAsCreditAllows()
+    {
+        // arrange
+        Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        AmqpSendConnectionHandler handler = createOpenedHandler(pendingSends);
+
+        new Expectations()
+        {
+            {
+                mockSender.getLocalState();
+                result = EndpointState.ACTIVE;
+                mockSender.getCredit();
+                returns(1, 1, 0);
+            }
+        };
+
+        // act
+        handler.onLinkFlow(mockEvent);
+
+        // assert
+        assertEquals(1, pendingSends.size());
+        new Verifications()
+        {
+            {
+                mockSender.delivery((byte[]) any);
+                times = 2;
+                mockSender.send((byte[]) any, 0, anyInt);
+                times = 2;
+                mockSender.advance();
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void onLinkFlowGivesEachDeliveryItsOwnTag()
+    {
+        // arrange
+        Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        AmqpSendConnectionHandler handler = createOpenedHandler(pendingSends);
+
+        new Expectations()
+        {
+            {
+                mockSender.getLocalState();
+                result = EndpointState.ACTIVE;
+                mockSender.getCredit();
+                returns(1, 1, 0);
+            }
+        };
+
+        // act
+        handler.onLinkFlow(mockEvent);
+
+        // assert
+        final List<byte[]> tags = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockSender.delivery(withCapture(tags));
+                times = 2;
+            }
+        };
+        assertNotSame(tags.get(0), tags.get(1));
+        assertArrayEquals("0".getBytes(StandardCharsets.US_ASCII), tags.get(0));
+        assertArrayEquals("1".getBytes(StandardCharsets.US_ASCII), tags.get(1));
+    }
+
+    @Test
+    public void onReactorQuiescedFlushesQueuedMessages()
+    {
+        // arrange
+        Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+        pendingSends.add(new AmqpPendingSend(mockProtonMessage));
+        AmqpSendConnectionHandler handler = createOpenedHandler(pendingSends);
+
+        new Expectations()
+        {
+            {
+                mockSender.getLocalState();
+                result = EndpointState.ACTIVE;
+                mockSender.getCredit();
+                returns(1, 0);
+            }
+        };
+
+        // act
+        handler.onReactorQuiesced(mockEvent);
+
+        // assert
+        assertTrue(pendingSends.isEmpty());
+        new Verifications()
+        {
+            {
+                mockSender.send((byte[]) any, 0, anyInt);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void onReactorQuiescedClosesSenderOnceCloseRequested()
+    {
+        // arrange
+        AmqpSendConnectionHandler handler = createOpenedHandler(new ConcurrentLinkedQueue<>());
+
+        new Expectations()
+        {
+            {
+                mockSender.getLocalState();
+                result = EndpointState.ACTIVE;
+            }
+        };
+
+        handler.closeAsync();
+
+        // act
+        handler.onReactorQuiesced(mockEvent);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockSender.close();
+                times = 1;
+                mockSender.send((byte[]) any, anyInt, anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onDeliveryCompletesFutureWhenMessageAccepted()
+    {
+        // arrange
+        final AmqpPendingSend pendingSend = new AmqpPendingSend(mockProtonMessage);
+        AmqpSendConnectionHandler handler = createOpenedHandler(new ConcurrentLinkedQueue<>());
+
+        new Expectations()
+        {
+            {
+                mockEvent.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getRemoteState();
+                result = mockDeliveryState;
+                mockDelivery.getContext();
+                result = pendingSend;
+                new AmqpResponseVerification(mockDeliveryState);
+                result = mockResponseVerification;
+                mockResponseVerification.getException();
+                result = null;
+            }
+        };
+
+        // act
+        handler.onDelivery(mockEvent);
+
+        // assert
+        assertTrue(pendingSend.getFuture().isDone());
+        assertFalse(pendingSend.getFuture().isCompletedExceptionally());
+        new Verifications()
+        {
+            {
+                mockDelivery.settle();
+                times = 1;
+                mockSender.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onDeliveryCompletesFutureExceptionallyWhenMessageRejected() throws InterruptedException
+    {
+        // arrange
+        final AmqpPendingSend pendingSend = new AmqpPendingSend(mockProtonMessage);
+        final IotHubNotFoundException notFoundException = new IotHubNotFoundException();
+        AmqpSendConnectionHandler handler = createOpenedHandler(new ConcurrentLinkedQueue<>());
+
+        new Expectations()
+        {
+            {
+                mockEvent.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getRemoteState();
+                result = mockDeliveryState;
+                mockDelivery.getContext();
+                result = pendingSend;
+                new AmqpResponseVerification(mockDeliveryState);
+                result = mockResponseVerification;
+                mockResponseVerification.getException();
+                result = new Delegate<IotHubException>()
+                {
+                    IotHubException delegate()
+                    {
+                        return notFoundException;
+                    }
+                };
+            }
+        };
+
+        // act
+        handler.onDelivery(mockEvent);
+
+        // assert
+        try
+        {
+            pendingSend.getFuture().get();
+            fail("Expected the future to complete exceptionally");
+        }
+        catch (ExecutionException e)
+        {
+            assertEquals(notFoundException, e.getCause());
+        }
+    }
+
+    @Test
+    public void onDeliveryIgnoresUndecidedDeliveries()
+    {
+        // arrange
+        AmqpSendConnectionHandler handler = createOpenedHandler(new ConcurrentLinkedQueue<>());
+
+        new Expectations()
+        {
+            {
+                mockEvent.getDelivery();
+                result = mockDelivery;
+                mockDelivery.getRemoteState();
+                result = null;
+                mockDelivery.remotelySettled();
+                result = false;
+            }
+        };
+
+        // act
+        handler.onDelivery(mockEvent);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockDelivery.settle();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void onReactorStoppedFailsInFlightSends() throws InterruptedException
+    {
+        // arrange
+        Queue<AmqpPendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+        final AmqpPendingSend pendingSend = new AmqpPendingSend(mockProtonMessage);
+        pendingSends.add(pendingSend);
+        AmqpSendConnectionHandler handler = createOpenedHandler(pendingSends);
+        final IOException connectionLostException = new IOException("connection lost");
+
+        new Expectations()
+        {
+            {
+                mockSender.getLocalState();
+                result = EndpointState.ACTIVE;
+                mockSender.getCredit();
+                returns(1, 0);
+                mockSender.delivery((byte[]) any);
+                result = mockDelivery;
+                mockDelivery.getContext();
+                result = pendingSend;
+            }
+        };
+
+        handler.onLinkFlow(mockEvent);
+
+        // act
+        handler.onReactorStopped(connectionLostException);
+
+        // assert
+        try
+        {
+            pendingSend.getFuture().get();
+            fail("Expected the future to complete exceptionally");
+        }
+        catch (ExecutionException e)
+        {
+            assertEquals(connectionLostException, e.getCause());
+        }
+    }
+
+    @Test
+    public void wakeupWakesTheReactor()
+    {
+        // arrange
+        AmqpSendConnectionHandler handler = new AmqpSendConnectionHandler(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, null, new ConcurrentLinkedQueue<>());
+        new Expectations()
+        {
+            {
+                mockEvent.getReactor();
+                result = mockReactor;
+            }
+        };
+        handler.onReactorInit(mockEvent);
+
+        // act
+        handler.wakeup();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockReactor.wakeup();
+                times = 1;
+            }
+        };
+    }
+}
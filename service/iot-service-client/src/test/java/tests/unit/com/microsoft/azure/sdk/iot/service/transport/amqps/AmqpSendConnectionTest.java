@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
+import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpPendingSend;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendConnection;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendConnectionHandler;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.ReactorRunner;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.apache.qpid.proton.engine.BaseHandler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Unit tests for AmqpSendConnection */
+@RunWith(JMockit.class)
+public class AmqpSendConnectionTest
+{
+    private static final String HOST_NAME = "aaa";
+    private static final String USER_NAME = "bbb";
+    private static final String SAS_TOKEN = "ccc";
+    private static final String RENEWED_SAS_TOKEN = "ddd";
+    private static final String DEVICE_ID = "someDevice";
+
+    @Mocked AmqpSendConnectionHandler mockHandler;
+    @Mocked ReactorRunner mockReactorRunner;
+    @Mocked IotHubServiceSasTokenProvider mockSasTokenProvider;
+
+    private AmqpSendConnection createConnection()
+    {
+        return new AmqpSendConnection(HOST_NAME, USER_NAME, mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, "test");
+    }
+
+    private static void assertFailsWithIOException(CompletableFuture<Void> future) throws InterruptedException
+    {
+        assertTrue(future.isDone());
+        try
+        {
+            future.get();
+            fail("Expected the future to complete exceptionally");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void sendAsyncBeforeOpenFailsImmediately() throws Exception
+    {
+        // arrange
+        AmqpSendConnection connection = createConnection();
+
+        // act
+        CompletableFuture<Void> future = connection.sendAsync(DEVICE_ID, null, new Message("some payload"));
+
+        // assert
+        assertFailsWithIOException(future);
+        assertEquals(0, connection.getQueuedMessageCount());
+    }
+
+    @Test
+    public void sendAsyncAfterCloseFailsImmediately() throws Exception
+    {
+        // arrange
+        AmqpSendConnection connection = createConnection();
+        connection.open();
+        connection.close();
+
+        // act
+        CompletableFuture<Void> future = connection.sendAsync(DEVICE_ID, null, new Message("some payload"));
+
+        // assert
+        assertFailsWithIOException(future);
+        assertEquals(0, connection.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                mockHandler.closeAsync();
+                times = 1;
+                mockHandler.wakeup();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void closeFailsQueuedSends() throws Exception
+    {
+        // arrange
+        AmqpSendConnection connection = createConnection();
+        connection.open();
+        CompletableFuture<Void> future = connection.sendAsync(DEVICE_ID, null, new Message("some payload"));
+
+        // act
+        connection.close();
+
+        // assert
+        assertFailsWithIOException(future);
+        assertEquals(0, connection.getQueuedMessageCount());
+    }
+
+    @Test
+    public void reactorThreadReconnectsAfterReactorStops() throws Exception
+    {
+        // arrange
+        final AmqpSendConnection connection = createConnection();
+        Deencapsulation.setField(connection, "isOpen", true);
+        Queue<AmqpPendingSend> pendingSends = Deencapsulation.getField(connection, "pendingSends");
+        AmqpPendingSend pendingSend = new AmqpPendingSend(new org.apache.qpid.proton.message.impl.MessageImpl());
+        pendingSends.add(pendingSend);
+
+        new Expectations()
+        {
+            {
+                mockHandler.wasLinkOpened();
+                result = true;
+                mockSasTokenProvider.getSasToken();
+                result = RENEWED_SAS_TOKEN;
+                mockReactorRunner.run();
+                result = new Delegate()
+                {
+                    int runCount = 0;
+
+                    void run()
+                    {
+                        // the second reactor stands in for the reconnected one, after which the connection is closed
+                        if (++runCount == 2)
+                        {
+                            Deencapsulation.setField(connection, "isOpen", false);
+                        }
+                    }
+                };
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(connection, "runReactors", mockHandler);
+
+        // assert
+        assertNotSame(mockHandler, Deencapsulation.getField(connection, "handler"));
+        assertFalse(pendingSend.getFuture().isDone());
+        assertEquals(1, connection.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                new ReactorRunner((BaseHandler) any, anyString);
+                times = 2;
+                // the reconnected handler authenticates with a token signed for it rather than the one of the lost connection
+                new AmqpSendConnectionHandler(HOST_NAME, USER_NAME, RENEWED_SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, (ProxyOptions) null, (Queue<AmqpPendingSend>) any);
+                times = 1;
+                mockHandler.onReactorStopped((Exception) any);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void reactorThreadFailsQueuedSendsWhenReconnectFails() throws Exception
+    {
+        // arrange
+        final AmqpSendConnection connection = createConnection();
+        Deencapsulation.setField(connection, "isOpen", true);
+        Queue<AmqpPendingSend> pendingSends = Deencapsulation.getField(connection, "pendingSends");
+        AmqpPendingSend pendingSend = new AmqpPendingSend(new org.apache.qpid.proton.message.impl.MessageImpl());
+        pendingSends.add(pendingSend);
+
+        new Expectations()
+        {
+            {
+                // the first connection was opened and then lost, the reconnection never gets the link opened
+                mockHandler.wasLinkOpened();
+                returns(true, false);
+                Deencapsulation.invoke(mockHandler, "verifyConnectionWasOpened");
+                result = new IOException("Connection failed to be established");
+                mockReactorRunner.run();
+                result = new Delegate()
+                {
+                    int runCount = 0;
+
+                    void run()
+                    {
+                        if (++runCount == 2)
+                        {
+                            Deencapsulation.setField(connection, "isOpen", false);
+                        }
+                    }
+                };
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(connection, "runReactors", mockHandler);
+
+        // assert
+        assertFailsWithIOException(pendingSend.getFuture());
+        assertEquals(0, connection.getQueuedMessageCount());
+    }
+
+    @Test
+    public void reactorThreadDoesNotReconnectWhenReconnectIsDisabled() throws Exception
+    {
+        // arrange
+        AmqpSendConnection connection = new AmqpSendConnection(HOST_NAME, USER_NAME, mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, "test", false);
+        Deencapsulation.setField(connection, "isOpen", true);
+        Queue<AmqpPendingSend> pendingSends = Deencapsulation.getField(connection, "pendingSends");
+        AmqpPendingSend pendingSend = new AmqpPendingSend(new org.apache.qpid.proton.message.impl.MessageImpl());
+        pendingSends.add(pendingSend);
+
+        // act
+        Deencapsulation.invoke(connection, "runReactors", mockHandler);
+
+        // assert
+        assertFailsWithIOException(pendingSend.getFuture());
+        assertFailsWithIOException(connection.sendAsync(DEVICE_ID, null, new Message("some payload")));
+        assertEquals(0, connection.getQueuedMessageCount());
+        new Verifications()
+        {
+            {
+                new ReactorRunner((BaseHandler) any, anyString);
+                times = 1;
+                new AmqpSendConnectionHandler(anyString, anyString, anyString, (IotHubServiceClientProtocol) any, (ProxyOptions) any, (Queue<AmqpPendingSend>) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void reactorThreadDoesNotReconnectWithSasTokenString() throws Exception
+    {
+        // arrange
+        AmqpSendConnection connection = new AmqpSendConnection(HOST_NAME, USER_NAME, SAS_TOKEN, IotHubServiceClientProtocol.AMQPS, null, "test");
+        Deencapsulation.setField(connection, "isOpen", true);
+
+        // act
+        Deencapsulation.invoke(connection, "runReactors", mockHandler);
+
+        // assert
+        assertFailsWithIOException(connection.sendAsync(DEVICE_ID, null, new Message("some payload")));
+        new Verifications()
+        {
+            {
+                new AmqpSendConnectionHandler(anyString, anyString, anyString, (IotHubServiceClientProtocol) any, (ProxyOptions) any, (Queue<AmqpPendingSend>) any);
+                times = 0;
+            }
+        };
+    }
+}
@@ -5,13 +5,17 @@
 
 package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.service.CloudToDeviceMessage;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenProvider;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendConnection;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendHandler;
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.Verifications;
 import mockit.integration.junit4.JMockit;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.Connection;
@@ -22,9 +26,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /** Unit tests for AmqpSend */
 @RunWith(JMockit.class)
@@ -254,4 +265,232 @@ public class AmqpSendTest
         // Act
         amqpSend.send(deviceId, moduleId, message);
     }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void sendBatchThrowsForEmptyBatch() throws Exception
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+        amqpSend.open();
+
+        // Act
+        amqpSend.sendBatch(new ArrayList<>());
+    }
+
+    @Test (expected = IOException.class)
+    public void sendBatchThrowsIOExceptionWhenOpenHasNotBeenCalled() throws Exception
+    {
+        // Arrange
+        List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("deviceId", new Message("abc")));
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+
+        // Act
+        amqpSend.sendBatch(messages);
+    }
+
+    @Test
+    public void sendBatchPipelinesOverOneConnectionAndClosesIt(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked AmqpSendConnection mockAmqpSendConnection) throws Exception
+    {
+        // Arrange
+        final Message message1 = new Message("abc");
+        final Message message2 = new Message("def");
+        List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", message1));
+        messages.add(new CloudToDeviceMessage("device2", "module2", message2));
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+        amqpSend.open();
+
+        new Expectations()
+        {
+            {
+                mockAmqpSendConnection.sendAsync(anyString, anyString, (Message) any);
+                result = CompletableFuture.completedFuture(null);
+            }
+        };
+
+        // Act
+        List<CompletableFuture<Void>> results = amqpSend.sendBatch(messages);
+
+        // Assert
+        assertEquals(2, results.size());
+        new Verifications()
+        {
+            {
+                new AmqpSendConnection("aaa", "bbb", "ccc", (IotHubServiceClientProtocol) any, null, anyString);
+                times = 1;
+                mockAmqpSendConnection.open();
+                times = 1;
+                mockAmqpSendConnection.sendAsync("device1", null, message1);
+                times = 1;
+                mockAmqpSendConnection.sendAsync("device2", "module2", message2);
+                times = 1;
+                mockAmqpSendConnection.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendBatchFailsUnacknowledgedMessagesOnTimeout(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked AmqpSendConnection mockAmqpSendConnection) throws Exception
+    {
+        // Arrange
+        List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", new Message("abc")));
+        messages.add(new CloudToDeviceMessage("device2", new Message("def")));
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+        Deencapsulation.setField(amqpSend, "batchSendTimeoutMillis", 1L);
+        amqpSend.open();
+        final CompletableFuture<Void> acknowledgedFuture = CompletableFuture.completedFuture(null);
+        final CompletableFuture<Void> unacknowledgedFuture = new CompletableFuture<>();
+
+        new Expectations()
+        {
+            {
+                mockAmqpSendConnection.sendAsync(anyString, anyString, (Message) any);
+                returns(acknowledgedFuture, unacknowledgedFuture);
+            }
+        };
+
+        // Act
+        List<CompletableFuture<Void>> results = amqpSend.sendBatch(messages);
+
+        // Assert
+        assertFalse(results.get(0).isCompletedExceptionally());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        try
+        {
+            results.get(1).join();
+            fail("Expected the unacknowledged message to fail");
+        }
+        catch (CompletionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        new Verifications()
+        {
+            {
+                mockAmqpSendConnection.close();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendBatchUsesLongLivedConnectionWithoutClosingIt(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked AmqpSendConnection mockAmqpSendConnection, @Mocked IotHubServiceSasTokenProvider mockSasTokenProvider) throws Exception
+    {
+        // Arrange
+        final Message message = new Message("abc");
+        List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", message));
+        messages.add(new CloudToDeviceMessage("device2", message));
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, 1);
+        amqpSend.open();
+
+        // Act
+        List<CompletableFuture<Void>> results = amqpSend.sendBatch(messages);
+
+        // Assert
+        assertEquals(2, results.size());
+        new Verifications()
+        {
+            {
+                new AmqpSendConnection("aaa", "bbb", mockSasTokenProvider, (IotHubServiceClientProtocol) any, null, anyString);
+                times = 1;
+                mockAmqpSendConnection.sendAsync(anyString, null, message);
+                times = 2;
+                mockAmqpSendConnection.close();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void openOpensEveryLongLivedConnection(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked AmqpSendConnection mockAmqpSendConnection, @Mocked IotHubServiceSasTokenProvider mockSasTokenProvider) throws Exception
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, 3);
+
+        // Act
+        amqpSend.open();
+
+        // Assert
+        new Verifications()
+        {
+            {
+                mockAmqpSendConnection.open();
+                times = 3;
+            }
+        };
+    }
+
+    @Test
+    public void openAuthenticatesWithTokenOfSasTokenProvider(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked IotHubServiceSasTokenProvider mockSasTokenProvider) throws Exception
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, 0);
+        new Expectations()
+        {
+            {
+                mockSasTokenProvider.getSasToken();
+                result = "ccc";
+            }
+        };
+
+        // Act
+        amqpSend.open();
+
+        // Assert
+        new Verifications()
+        {
+            {
+                new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, null);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendBatchOpensConnectionWithSasTokenProvider(@Mocked AmqpSendHandler mockAmqpSendHandler, @Mocked AmqpSendConnection mockAmqpSendConnection, @Mocked IotHubServiceSasTokenProvider mockSasTokenProvider) throws Exception
+    {
+        // Arrange
+        List<CloudToDeviceMessage> messages = new ArrayList<>();
+        messages.add(new CloudToDeviceMessage("device1", new Message("abc")));
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, 0);
+        amqpSend.open();
+
+        new Expectations()
+        {
+            {
+                mockAmqpSendConnection.sendAsync(anyString, anyString, (Message) any);
+                result = CompletableFuture.completedFuture(null);
+            }
+        };
+
+        // Act
+        amqpSend.sendBatch(messages);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                new AmqpSendConnection("aaa", "bbb", mockSasTokenProvider, (IotHubServiceClientProtocol) any, null, anyString, false);
+                times = 1;
+            }
+        };
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNullSasTokenProvider()
+    {
+        // Act
+        new AmqpSend("aaa", "bbb", (IotHubServiceSasTokenProvider) null, IotHubServiceClientProtocol.AMQPS, null, 0);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNegativeSendConnectionPoolSize(@Mocked IotHubServiceSasTokenProvider mockSasTokenProvider)
+    {
+        // Act
+        new AmqpSend("aaa", "bbb", mockSasTokenProvider, IotHubServiceClientProtocol.AMQPS, null, -1);
+    }
 }